@@ -24,13 +24,16 @@ import de.uniba.dsg.ppn.ba.helper.ConstantHelper;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(namespace = ConstantHelper.PINAMESPACE, propOrder = { "valid",
-        "checkedFiles", "violations" })
+        "timedOutStage", "checkedFiles", "violations" })
 @XmlRootElement(name = "validationResult", namespace = ConstantHelper.PINAMESPACE)
 public class ValidationResult {
 
     @XmlElement(namespace = ConstantHelper.PINAMESPACE)
     private boolean valid;
 
+    @XmlElement(namespace = ConstantHelper.PINAMESPACE)
+    private String timedOutStage;
+
     @XmlElementWrapper(name = "checkedFile", namespace = ConstantHelper.PINAMESPACE)
     @XmlElements(value = { @XmlElement(name = "file", namespace = ConstantHelper.PINAMESPACE, type = String.class) })
     private List<String> checkedFiles; // NOPMD
@@ -80,6 +83,31 @@ public class ValidationResult {
         this.valid = valid;
     }
 
+    /**
+     * @return the name of the stage, in which the validation timed out, or
+     *         null, if the validation was completed
+     */
+    public String getTimedOutStage() {
+        return timedOutStage;
+    }
+
+    /**
+     * marks the result as partial, because the validation timed out
+     *
+     * @param timedOutStage
+     *            the name of the stage, in which the validation timed out
+     */
+    public void setTimedOutStage(String timedOutStage) {
+        this.timedOutStage = timedOutStage;
+    }
+
+    /**
+     * @return true, if the validation timed out and the result is partial
+     */
+    public boolean isTimedOut() {
+        return timedOutStage != null;
+    }
+
     /**
      * @return list of filenames of all checked files
      */
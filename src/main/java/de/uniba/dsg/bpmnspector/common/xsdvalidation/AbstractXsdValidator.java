@@ -24,13 +24,21 @@ package de.uniba.dsg.bpmnspector.common.xsdvalidation;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
 
+import javax.xml.XMLConstants;
+import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
 
 import org.xml.sax.SAXException;
 
 import de.uniba.dsg.bpmnspector.common.ValidationResult;
 import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.ParserProfile;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
 
 /**
  * Super class for all validators to avoid code redundance
@@ -58,6 +66,27 @@ public abstract class AbstractXsdValidator {
             ValidationResult validationResult) throws IOException,
             SAXException, BpmnValidationException;
 
+    /**
+     * Validates the given xmlFile read from the given source. Validators,
+     * which don't override it, only read files from disk.
+     *
+     * @param xmlFile
+     *            the xml file which should be validated
+     * @param source
+     *            the source providing the content of the file
+     * @param validationResult
+     *            the result object of the validation
+     * @throws IOException
+     *             when xmlFile can't be read
+     * @throws SAXException
+     *             when validation process fails somehow
+     */
+    public void validateAgainstXsd(File xmlFile, ModelSource source,
+            ValidationResult validationResult) throws IOException,
+            SAXException, BpmnValidationException {
+        validateAgainstXsd(xmlFile, validationResult);
+    }
+
     /**
      *
      * The method simplifies the search for a resource and returns the
@@ -71,7 +100,40 @@ public abstract class AbstractXsdValidator {
      */
     protected StreamSource resolveResourcePaths(String resourceName)
             throws FileNotFoundException {
+        URL resource = this.getClass().getResource("/" + resourceName);
+        if (resource == null) {
+            throw new FileNotFoundException(resourceName);
+        }
+        // the location resolves the relative includes of the schema
         return new StreamSource(this.getClass().getResourceAsStream(
-                "/" + resourceName));
+                "/" + resourceName), resource.toExternalForm());
+    }
+
+    /**
+     * compiles the schema of the given bundled resources with the current
+     * {@link ParserProfile}. A schema, which can't be compiled, is a broken
+     * installation and not a problem of a validated file, so it fails the
+     * creation of the validator.
+     *
+     * @param resourceNames
+     *            the names of the resource files
+     * @return the compiled schema
+     * @throws IllegalStateException
+     *             if a resource doesn't exist or can't be compiled
+     */
+    protected Schema createSchema(String... resourceNames) {
+        SchemaFactory schemaFactory = SchemaFactory
+                .newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        ParserProfile.getCurrent().configure(schemaFactory);
+        Source[] sources = new Source[resourceNames.length];
+        try {
+            for (int i = 0; i < resourceNames.length; i++) {
+                sources[i] = resolveResourcePaths(resourceNames[i]);
+            }
+            return schemaFactory.newSchema(sources);
+        } catch (FileNotFoundException | SAXException e) {
+            throw new IllegalStateException("schema couldn't be created from "
+                    + Arrays.toString(resourceNames), e);
+        }
     }
 }
@@ -22,16 +22,13 @@
 package de.uniba.dsg.bpmnspector.common.xsdvalidation;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.XMLConstants;
-import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 
 import org.slf4j.Logger;
@@ -42,6 +39,9 @@ import org.xml.sax.SAXParseException;
 import de.uniba.dsg.bpmnspector.common.ValidationResult;
 import de.uniba.dsg.bpmnspector.common.Violation;
 import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.ParserProfile;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
 
 /**
  *
@@ -62,30 +62,33 @@ public class BpmnXsdValidator extends AbstractXsdValidator {
     }
 
     {
-        SchemaFactory schemaFactory = SchemaFactory
-                .newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        schemaFactory.setResourceResolver(new ResourceResolver());
-        try {
-            schema = schemaFactory.newSchema(new Source[] {
-                    resolveResourcePaths("DC.xsd"),
-                    resolveResourcePaths("DI.xsd"),
-                    resolveResourcePaths("BPMNDI.xsd"),
-                    resolveResourcePaths("BPMN20.xsd") });
-        } catch (FileNotFoundException | SAXException e) {
-            LOGGER.debug("schemafactory couldn't create schema, cause: {}", e);
-        }
+        schema = createSchema("DC.xsd", "DI.xsd", "BPMNDI.xsd", "BPMN20.xsd");
     }
 
     @Override
     public void validateAgainstXsd(File xmlFile,
             ValidationResult validationResult) throws IOException,
             SAXException, BpmnValidationException {
+        validateAgainstXsd(xmlFile, FileSystemSource.INSTANCE,
+                validationResult);
+    }
+
+    @Override
+    public void validateAgainstXsd(File xmlFile, ModelSource source,
+            ValidationResult validationResult) throws IOException,
+            SAXException, BpmnValidationException {
         LOGGER.debug("xsd validation started: {}", xmlFile.getName());
         List<SAXParseException> xsdErrorList = new ArrayList<>();
         Validator validator = schema.newValidator();
+        ParserProfile profile = ParserProfile.getCurrent();
+        profile.configure(validator);
         validator.setErrorHandler(new XsdValidationErrorHandler(xsdErrorList));
         try {
-            validator.validate(new StreamSource(xmlFile));
+            try (InputStream inputStream = profile.limit(source
+                    .open(xmlFile))) {
+                validator.validate(new StreamSource(inputStream, xmlFile
+                        .toURI().toString()));
+            }
             for (SAXParseException saxParseException : xsdErrorList) {
                 validationResult.getViolations().add(
                         new Violation("XSD-Check", xmlFile.getName(),
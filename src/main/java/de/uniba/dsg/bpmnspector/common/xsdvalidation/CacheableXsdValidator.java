@@ -0,0 +1,141 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.bpmnspector.common.xsdvalidation;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.DigestHelper;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+
+/**
+ * Super class for validators, whose verdicts depend only on the content of the
+ * validated file and their schema, so that the verdicts can be taken from a
+ * {@link XsdVerdictCache}
+ *
+ * @version 1.0
+ *
+ */
+public abstract class CacheableXsdValidator extends AbstractXsdValidator {
+
+    private volatile XsdVerdictCache verdictCache;
+    private String schemaVersion;
+    private static final Logger LOGGER;
+
+    static {
+        LOGGER = LoggerFactory.getLogger(CacheableXsdValidator.class
+                .getSimpleName());
+    }
+
+    /**
+     * @param verdictCache
+     *            the cache of the verdicts of already validated file contents
+     *            or null, if every file should be validated
+     */
+    public void setVerdictCache(XsdVerdictCache verdictCache) {
+        this.verdictCache = verdictCache;
+    }
+
+    /**
+     * @return the cache of the verdicts or null
+     */
+    public XsdVerdictCache getVerdictCache() {
+        return verdictCache;
+    }
+
+    /**
+     * the version identifies the validator and the content of its schema
+     * files, so that cached verdicts become obsolete, when one of them changes
+     *
+     * @return the digest of the validator and its schema files or null, if the
+     *         schema files can't be read
+     */
+    public synchronized String getSchemaVersion() {
+        if (schemaVersion == null) {
+            try {
+                schemaVersion = DigestHelper.digest((getClass().getName()
+                        + ":" + DigestHelper
+                        .digestResources(getSchemaResourceNames()))
+                        .getBytes("UTF-8"));
+            } catch (IOException e) {
+                LOGGER.debug("schema version couldn't be calculated: {}", e);
+            }
+        }
+        return schemaVersion;
+    }
+
+    @Override
+    public void validateAgainstXsd(File xmlFile,
+            ValidationResult validationResult) throws IOException,
+            SAXException, BpmnValidationException {
+        validateAgainstXsd(xmlFile, FileSystemSource.INSTANCE,
+                validationResult);
+    }
+
+    @Override
+    public void validateAgainstXsd(File xmlFile, ModelSource source,
+            ValidationResult validationResult) throws IOException,
+            SAXException, BpmnValidationException {
+        XsdVerdictCache cache = verdictCache;
+        if (cache == null || getSchemaVersion() == null) {
+            validateAgainstSchema(xmlFile, source, validationResult);
+        } else {
+            cache.validate(this, xmlFile, source, validationResult);
+        }
+    }
+
+    /**
+     * @return the names of the schema files relative to the class path root
+     */
+    protected abstract String[] getSchemaResourceNames();
+
+    /**
+     * validates the given file against the schema without consulting the
+     * verdict cache
+     *
+     * @see AbstractXsdValidator#validateAgainstXsd(File, ValidationResult)
+     */
+    protected abstract void validateAgainstSchema(File xmlFile,
+            ValidationResult validationResult) throws IOException,
+            SAXException, BpmnValidationException;
+
+    /**
+     * validates the given file read from the given source against the schema
+     * without consulting the verdict cache. Validators, which don't override
+     * it, only read files from disk.
+     *
+     * @see AbstractXsdValidator#validateAgainstXsd(File, ModelSource,
+     *      ValidationResult)
+     */
+    protected void validateAgainstSchema(File xmlFile, ModelSource source,
+            ValidationResult validationResult) throws IOException,
+            SAXException, BpmnValidationException {
+        validateAgainstSchema(xmlFile, validationResult);
+    }
+}
@@ -1,6 +1,7 @@
 package de.uniba.dsg.bpmnspector.common.xsdvalidation;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -129,17 +130,21 @@ public class Input implements LSInput {
      */
     @Override
     public String getStringData() {
-        synchronized (inputStream) {
-            try {
-                byte[] input = new byte[inputStream.available()];
-                inputStream.read(input);
-                return new String(input, Charset.forName("UTF-8"));
-            } catch (IOException e) {
-                LOGGER.debug(
-                        "Input stream couldn't be converted to String. Cause: {}",
-                        e);
-                return null;
+        // every resolved resource gets its own Input, so the stream is never
+        // shared between threads and doesn't need to be locked
+        try (BufferedInputStream stream = inputStream) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
             }
+            return new String(output.toByteArray(), Charset.forName("UTF-8"));
+        } catch (IOException e) {
+            LOGGER.debug(
+                    "Input stream couldn't be converted to String. Cause: {}",
+                    e);
+            return null;
         }
     }
 
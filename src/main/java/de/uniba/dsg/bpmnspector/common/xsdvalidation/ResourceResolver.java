@@ -1,9 +1,16 @@
 package de.uniba.dsg.bpmnspector.common.xsdvalidation;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.w3c.dom.ls.LSInput;
 import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 
 /**
  * Class for representing a custom LSResourceResolver in order to enable
@@ -13,25 +20,76 @@ import org.w3c.dom.ls.LSResourceResolver;
  * {@link javax.xml.validation.Schema} when using
  * getClass().getResourceAsStream("path/to/file.xsd")
  *
+ * The resolver is also the local catalog of all parsers: the W3C schemas and
+ * DTDs referenced by the bundled schemas are resolved from the class path, so
+ * they are never fetched from the network. The {@link
+ * de.uniba.dsg.ppn.ba.helper.ParserProfile} refuses all other external
+ * entities.
+ *
  * @author Matthias Geiger
  * @version 1.0
  * @see LSResourceResolver
  */
-public class ResourceResolver implements LSResourceResolver {
+public class ResourceResolver implements LSResourceResolver, EntityResolver {
+
+    private static final Map<String, String> CATALOG;
+
+    static {
+        CATALOG = new HashMap<>();
+        CATALOG.put("http://www.w3.org/2001/xml.xsd", "xml.xsd");
+        CATALOG.put("http://www.w3.org/2001/XMLSchema.dtd", "empty.dtd");
+        CATALOG.put("http://www.w3.org/2001/datatypes.dtd", "empty.dtd");
+    }
 
     /*
      * (non-Javadoc)
-     * 
+     *
      * @see org.w3c.dom.ls.LSResourceResolver#resolveResource(java.lang.String,
      * java.lang.String, java.lang.String, java.lang.String, java.lang.String)
      */
     @Override
     public LSInput resolveResource(String type, String namespaceURI,
             String publicId, String systemId, String baseURI) {
+        if (systemId == null) {
+            return null;
+        }
+        String resourceName = CATALOG.containsKey(systemId) ? CATALOG
+                .get(systemId) : systemId;
+        URL resource = this.getClass().getResource("/" + resourceName);
+        if (resource == null) {
+            // the parser refuses the access to the resource
+            return null;
+        }
+        try {
+            // the class path location is passed on, so the access check of
+            // the parser sees the protocol actually used
+            return new Input(publicId, resource.toExternalForm(),
+                    resource.openStream());
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
-        InputStream resourceAsStream = this.getClass().getResourceAsStream(
-                "/" + systemId);
-
-        return new Input(publicId, systemId, resourceAsStream);
+    /**
+     * resolves the cataloged entities from the class path. All other external
+     * entities, e.g. the external DTD of an uploaded file, are left to the
+     * parser, which refuses to access them.
+     *
+     * @see org.xml.sax.EntityResolver#resolveEntity(java.lang.String,
+     *      java.lang.String)
+     */
+    @Override
+    public InputSource resolveEntity(String publicId, String systemId)
+            throws SAXException, IOException {
+        String resourceName = CATALOG.get(systemId);
+        InputStream resourceAsStream = resourceName == null ? null : this
+                .getClass().getResourceAsStream("/" + resourceName);
+        if (resourceAsStream == null) {
+            return null;
+        }
+        InputSource inputSource = new InputSource(resourceAsStream);
+        inputSource.setPublicId(publicId);
+        inputSource.setSystemId(systemId);
+        return inputSource;
     }
 }
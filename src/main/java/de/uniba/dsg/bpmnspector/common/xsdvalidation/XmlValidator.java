@@ -22,15 +22,13 @@
 package de.uniba.dsg.bpmnspector.common.xsdvalidation;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.XMLConstants;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 
 import org.slf4j.Logger;
@@ -41,6 +39,9 @@ import org.xml.sax.SAXParseException;
 import de.uniba.dsg.bpmnspector.common.ValidationResult;
 import de.uniba.dsg.bpmnspector.common.Violation;
 import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.ParserProfile;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
 
 /**
  * validator for the schema validation of xml files
@@ -49,36 +50,49 @@ import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
  * @version 1.0
  *
  */
-public class XmlValidator extends AbstractXsdValidator {
+public class XmlValidator extends CacheableXsdValidator {
 
     private Schema schema;
     private static final Logger LOGGER;
+    private static final String SCHEMARESOURCE = "XMLSchema.xsd";
 
     static {
         LOGGER = LoggerFactory.getLogger(XmlValidator.class.getSimpleName());
     }
 
     {
-        SchemaFactory schemaFactory = SchemaFactory
-                .newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        try {
-            schema = schemaFactory
-                    .newSchema(resolveResourcePaths("XMLSchema.xsd"));
-        } catch (FileNotFoundException | SAXException e) {
-            LOGGER.debug("schemafactory couldn't create schema, cause: {}", e);
-        }
+        schema = createSchema(SCHEMARESOURCE);
+    }
+
+    @Override
+    protected String[] getSchemaResourceNames() {
+        return new String[] { SCHEMARESOURCE, "xml.xsd" };
     }
 
     @Override
-    public void validateAgainstXsd(File xmlFile,
+    protected void validateAgainstSchema(File xmlFile,
+            ValidationResult validationResult) throws IOException,
+            SAXException, BpmnValidationException {
+        validateAgainstSchema(xmlFile, FileSystemSource.INSTANCE,
+                validationResult);
+    }
+
+    @Override
+    protected void validateAgainstSchema(File xmlFile, ModelSource source,
             ValidationResult validationResult) throws IOException,
             SAXException, BpmnValidationException {
         LOGGER.debug("xml validation started: {}", xmlFile.getName());
         List<SAXParseException> xsdErrorList = new ArrayList<>();
         Validator validator = schema.newValidator();
+        ParserProfile profile = ParserProfile.getCurrent();
+        profile.configure(validator);
         validator.setErrorHandler(new XsdValidationErrorHandler(xsdErrorList));
         try {
-            validator.validate(new StreamSource(xmlFile));
+            try (InputStream inputStream = profile.limit(source
+                    .open(xmlFile))) {
+                validator.validate(new StreamSource(inputStream, xmlFile
+                        .toURI().toString()));
+            }
             for (SAXParseException saxParseException : xsdErrorList) {
                 validationResult.getViolations().add(
                         new Violation("XML-Check", xmlFile.getName(),
@@ -0,0 +1,279 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.bpmnspector.common.xsdvalidation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.DigestHelper;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+
+/**
+ * Persistent cache of the verdicts of xsd validations. A verdict is stored in
+ * the cache directory under the schema version of the validator and the
+ * digest of the content of the validated file, so that an unchanged file is
+ * only validated once, regardless of its name, its location and the runs, in
+ * which it's validated. Verdicts are written atomically, so that several
+ * processes can share the directory.
+ *
+ * @version 1.0
+ *
+ */
+public class XsdVerdictCache {
+
+    private final File directory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private static final Logger LOGGER;
+    private static final String VERDICTSUFFIX = ".properties";
+    private static final String VALIDKEY = "valid";
+    private static final String FAILUREKEY = "failure";
+    private static final String VIOLATIONSKEY = "violations";
+
+    static {
+        LOGGER = LoggerFactory.getLogger(XsdVerdictCache.class
+                .getSimpleName());
+    }
+
+    /**
+     * @param directory
+     *            the directory of the verdicts, which is created on the first
+     *            stored verdict
+     */
+    public XsdVerdictCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the directory of the verdicts
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the number of validations, whose verdict was taken from the
+     *         cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of validations, which had to be executed
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of verdicts, which couldn't be stored
+     */
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    /**
+     * takes the verdict of the given file from the cache or validates the
+     * file and stores its verdict. Violations of a cached verdict are reported
+     * for the name of the given file.
+     *
+     * @see AbstractXsdValidator#validateAgainstXsd(File, ModelSource,
+     *      ValidationResult)
+     */
+    void validate(CacheableXsdValidator validator, File xmlFile,
+            ModelSource source, ValidationResult validationResult)
+            throws IOException, SAXException, BpmnValidationException {
+        String digest;
+        try (InputStream inputStream = source.open(xmlFile)) {
+            digest = DigestHelper.digest(inputStream);
+        }
+        File verdictFile = new File(new File(directory,
+                validator.getSchemaVersion()), digest + VERDICTSUFFIX);
+        Properties verdict = readVerdict(verdictFile);
+        if (verdict == null) {
+            misses.incrementAndGet();
+            verdict = createVerdict(validator, xmlFile, source);
+            writeVerdict(verdictFile, verdict);
+        } else {
+            hits.incrementAndGet();
+            LOGGER.debug("verdict of {} taken from cache", xmlFile.getName());
+        }
+        applyVerdict(verdict, xmlFile, validationResult);
+    }
+
+    /**
+     * validates the given file into an empty result and records its outcome
+     */
+    private Properties createVerdict(CacheableXsdValidator validator,
+            File xmlFile, ModelSource source) throws IOException,
+            SAXException {
+        ValidationResult verdictResult = new ValidationResult();
+        verdictResult.setValid(true);
+        Properties verdict = new Properties();
+        try {
+            validator.validateAgainstSchema(xmlFile, source, verdictResult);
+        } catch (BpmnValidationException e) {
+            verdict.setProperty(FAILUREKEY, e.getMessage());
+        }
+        verdict.setProperty(VALIDKEY, Boolean.toString(verdictResult.isValid()));
+        List<Violation> violations = verdictResult.getViolations();
+        verdict.setProperty(VIOLATIONSKEY, Integer.toString(violations.size()));
+        for (int i = 0; i < violations.size(); i++) {
+            Violation violation = violations.get(i);
+            String prefix = VIOLATIONSKEY + "." + i + ".";
+            verdict.setProperty(prefix + "constraint",
+                    violation.getConstraint());
+            verdict.setProperty(prefix + "line",
+                    Integer.toString(violation.getLine()));
+            if (violation.getxPath() != null) {
+                verdict.setProperty(prefix + "xpath", violation.getxPath());
+            }
+            if (violation.getMessage() != null) {
+                verdict.setProperty(prefix + "message", violation.getMessage());
+            }
+        }
+        return verdict;
+    }
+
+    /**
+     * adds the recorded violations to the validation result and repeats the
+     * recorded failure
+     */
+    private void applyVerdict(Properties verdict, File xmlFile,
+            ValidationResult validationResult) throws BpmnValidationException {
+        int violationCount = Integer.parseInt(verdict
+                .getProperty(VIOLATIONSKEY));
+        for (int i = 0; i < violationCount; i++) {
+            String prefix = VIOLATIONSKEY + "." + i + ".";
+            validationResult.getViolations().add(
+                    new Violation(verdict.getProperty(prefix + "constraint"),
+                            xmlFile.getName(), Integer.parseInt(verdict
+                                    .getProperty(prefix + "line")), verdict
+                                    .getProperty(prefix + "xpath"), verdict
+                                    .getProperty(prefix + "message")));
+        }
+        if (!Boolean.parseBoolean(verdict.getProperty(VALIDKEY))) {
+            validationResult.setValid(false);
+        }
+        String failure = verdict.getProperty(FAILUREKEY);
+        if (failure != null) {
+            throw new BpmnValidationException(failure);
+        }
+    }
+
+    /**
+     * @return the stored verdict or null, if there is no complete verdict
+     */
+    private Properties readVerdict(File verdictFile) {
+        Properties verdict = new Properties();
+        try (InputStream inputStream = Files.newInputStream(verdictFile
+                .toPath())) {
+            verdict.load(inputStream);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.debug("verdict {} couldn't be read: {}", verdictFile, e);
+            return null;
+        }
+        if (!isComplete(verdict)) {
+            LOGGER.debug("verdict {} is incomplete", verdictFile);
+            return null;
+        }
+        return verdict;
+    }
+
+    private boolean isComplete(Properties verdict) {
+        try {
+            int violationCount = Integer.parseInt(verdict
+                    .getProperty(VIOLATIONSKEY));
+            for (int i = 0; i < violationCount; i++) {
+                String prefix = VIOLATIONSKEY + "." + i + ".";
+                Integer.parseInt(verdict.getProperty(prefix + "line"));
+                if (verdict.getProperty(prefix + "constraint") == null) {
+                    return false;
+                }
+            }
+            return verdict.getProperty(VALIDKEY) != null;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * writes the verdict into a temporary file and moves it to its place, so
+     * that readers never see a partially written verdict. A verdict, which
+     * can't be written, is only logged, as the validation itself succeeded.
+     */
+    private void writeVerdict(File verdictFile, Properties verdict) {
+        try {
+            Path folder = verdictFile.getParentFile().toPath();
+            Files.createDirectories(folder);
+            Path temporaryFile = Files.createTempFile(folder,
+                    verdictFile.getName(), ".tmp");
+            try {
+                try (OutputStream outputStream = Files
+                        .newOutputStream(temporaryFile)) {
+                    verdict.store(outputStream, null);
+                }
+                try {
+                    Files.move(temporaryFile, verdictFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporaryFile, verdictFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            failedWrites.incrementAndGet();
+            LOGGER.debug("verdict {} couldn't be written: {}", verdictFile, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "xsd verdict cache %s: %d hits, %d misses, %d failed writes",
+                directory, hits.get(), misses.get(), failedWrites.get());
+    }
+}
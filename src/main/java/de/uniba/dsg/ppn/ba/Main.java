@@ -22,8 +22,21 @@
 package de.uniba.dsg.ppn.ba;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.bind.JAXBException;
 
@@ -32,14 +45,63 @@ import org.slf4j.LoggerFactory;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.XsdVerdictCache;
+import de.uniba.dsg.ppn.ba.batch.AggregatedOutput;
+import de.uniba.dsg.ppn.ba.batch.BatchSummary;
+import de.uniba.dsg.ppn.ba.batch.InputCollector;
+import de.uniba.dsg.ppn.ba.batch.ResultDirectory;
+import de.uniba.dsg.ppn.ba.cache.BatchImportCache;
+import de.uniba.dsg.ppn.ba.cache.WeightedImportCache;
+import de.uniba.dsg.ppn.ba.concurrent.AsyncBpmnValidator;
+import de.uniba.dsg.ppn.ba.concurrent.CostEstimator;
+import de.uniba.dsg.ppn.ba.concurrent.MemoryBudget;
+import de.uniba.dsg.ppn.ba.concurrent.SchedulingPlan;
+import de.uniba.dsg.ppn.ba.concurrent.StageStatistics;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcomeHandler;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationPipeline;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationStream;
+import de.uniba.dsg.ppn.ba.concurrent.ValidatorThreadFactory;
 import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.journal.ValidationJournal;
+import de.uniba.dsg.ppn.ba.server.StdioServer;
+import de.uniba.dsg.ppn.ba.server.ValidationServer;
+import de.uniba.dsg.ppn.ba.spool.SpoolCoordinator;
+import de.uniba.dsg.ppn.ba.spool.SpoolDirectory;
+import de.uniba.dsg.ppn.ba.spool.SpoolOutcome;
+import de.uniba.dsg.ppn.ba.spool.SpoolWorker;
+import de.uniba.dsg.ppn.ba.validation.BpmnValidator;
 import de.uniba.dsg.ppn.ba.validation.SchematronBPMNValidator;
+import de.uniba.dsg.ppn.ba.validation.StreamingBpmnValidator;
+import de.uniba.dsg.ppn.ba.validation.ValidationStage;
+import de.uniba.dsg.ppn.ba.watch.ModelWatcher;
 import de.uniba.dsg.ppn.ba.xml.XmlWriter;
 
 public class Main {
 
     private final static Logger LOGGER;
     private final static Level DEBUGLEVEL;
+    private final static String MEMORYBUDGETOPTION = "--memory-budget=";
+    private final static String TIMEOUTOPTION = "--timeout=";
+    private final static String CACHEDIROPTION = "--cache-dir=";
+    private final static String SERVEROPTION = "--server";
+    private final static String STDIOOPTION = "--stdio";
+    private final static String JOURNALOPTION = "--journal=";
+    private final static String RESUMEOPTION = "--resume";
+    private final static String DEFAULTJOURNAL = "validation.journal";
+    private final static String JOBSOPTION = "--jobs=";
+    private final static String INCLUDEOPTION = "--include=";
+    private final static String EXCLUDEOPTION = "--exclude=";
+    private final static String OUTPUTOPTION = "--output=";
+    private final static String OUTPUTDIROPTION = "--output-dir=";
+    private final static String STANDARDSTREAM = "-";
+    private final static String SPOOLOPTION = "--spool=";
+    private final static String SPOOLWORKEROPTION = "--spool-worker=";
+    private final static String SPOOLWORKERSOPTION = "--spool-workers=";
+    private final static int DEFAULTSERVERPORT = 8090;
+    private final static long DRAINSECONDS = 30;
+    private final static double DEFAULTHEAPFRACTION = 0.75;
+    private final static long WATCHIMPORTCACHEBYTES = 64L * 1024 * 1024;
     private final static String LICENSE = "SchematronBPMNValidator  Copyright (C) 2014  Philipp Neugebauer\nThis program comes with ABSOLUTELY NO WARRANTY; This is free software, and you are welcome to redistribute it under certain conditions; See LGPLv3.";
 
     static {
@@ -48,9 +110,22 @@ public class Main {
     }
 
     public static void main(String... args) {
+        ArrayList<String> argsAsList = new ArrayList<>(Arrays.asList(args));
+        PrintStream standardOutput = System.out;
+        if (argsAsList.contains(STDIOOPTION)
+                || argsAsList.contains(OUTPUTOPTION + STANDARDSTREAM)) {
+            // stdout carries the protocol or the aggregated output, so logs
+            // and other output must not be written there
+            System.setOut(System.err);
+            ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+                    .detachAppender("STDOUT");
+        }
+        PrintStream protocolStream = null;
+        if (argsAsList.remove(STDIOOPTION)) {
+            protocolStream = standardOutput;
+        }
         LOGGER.info(LICENSE);
         SchematronBPMNValidator validator = new SchematronBPMNValidator();
-        ArrayList<String> argsAsList = new ArrayList<>(Arrays.asList(args));
         XmlWriter xmlWriter = new XmlWriter();
 
         if (argsAsList.contains("--debug") || argsAsList.contains("-d")) {
@@ -64,27 +139,675 @@ public class Main {
 
         LOGGER.info("loglevel is set to {}", LOGGER.getEffectiveLevel());
 
-        if (argsAsList.isEmpty()) {
+        boolean pipelined = argsAsList.remove("--pipeline");
+        boolean dryRun = argsAsList.remove("--plan");
+        boolean watching = argsAsList.remove("--watch");
+        boolean streaming = argsAsList.remove("--streaming");
+        int serverPort = removeServerPort(argsAsList);
+        String spoolDirectory = removeOption(argsAsList, SPOOLOPTION);
+        String workerSpoolDirectory = removeOption(argsAsList,
+                SPOOLWORKEROPTION);
+        int localWorkers = removeLocalWorkers(argsAsList);
+        MemoryBudget memoryBudget = removeMemoryBudget(argsAsList);
+        long timeoutSeconds = removeTimeout(argsAsList);
+        validator.setTimeout(timeoutSeconds, TimeUnit.SECONDS);
+        // imports shared by the given files are only processed once
+        BatchImportCache importCache = new BatchImportCache();
+        validator.setImportCache(importCache);
+        XsdVerdictCache verdictCache = removeVerdictCache(argsAsList);
+        validator.setVerdictCache(verdictCache);
+        String output = removeOption(argsAsList, OUTPUTOPTION);
+        boolean resuming = argsAsList.remove(RESUMEOPTION);
+        if (output != null
+                && (resuming || containsOption(argsAsList, JOURNALOPTION))) {
+            // the aggregated results have no result files to journal
+            LOGGER.error("--journal and --resume can't be combined with "
+                    + "--output!");
+            System.exit(-1);
+        }
+        ValidationJournal journal = removeJournal(argsAsList, resuming);
+        int jobs = removeJobs(argsAsList);
+        InputCollector inputCollector = removeInputPatterns(argsAsList);
+        String outputDirectory = removeOption(argsAsList, OUTPUTDIROPTION);
+
+        if (protocolStream != null) {
+            serveStdio(protocolStream, timeoutSeconds, verdictCache,
+                    memoryBudget);
+        } else if (serverPort >= 0) {
+            serve(serverPort, timeoutSeconds, verdictCache, memoryBudget);
+        } else if (workerSpoolDirectory != null) {
+            work(validator, workerSpoolDirectory);
+        } else if (argsAsList.isEmpty()) {
             LOGGER.error("There must be files to check!");
             System.exit(-1);
+        } else if (dryRun) {
+            SchedulingPlan plan = SchedulingPlan.create(
+                    collectFiles(inputCollector, argsAsList),
+                    new CostEstimator());
+            LOGGER.info("scheduling plan:{}{}", System.lineSeparator(),
+                    plan.createReport());
+        } else if (spoolDirectory != null) {
+            coordinate(spoolDirectory,
+                    collectFiles(inputCollector, argsAsList), localWorkers);
+        } else if (watching) {
+            // the imports of a long-running watch are kept within a bound
+            validator.setImportCache(new WeightedImportCache(
+                    WATCHIMPORTCACHEBYTES));
+            watch(validator, argsAsList, xmlWriter);
         } else {
-            for (String parameter : argsAsList) {
+            List<File> files = selectFiles(
+                    collectFiles(inputCollector, argsAsList), journal,
+                    resuming);
+            AggregatedOutput aggregatedOutput = openAggregatedOutput(output,
+                    standardOutput);
+            BatchSummary summary;
+            if (aggregatedOutput != null) {
+                summary = new BatchSummary(aggregatedOutput);
+            } else {
+                summary = new BatchSummary(createResultWriter(xmlWriter,
+                        journal, createResultDirectory(outputDirectory)));
+            }
+            if (streaming) {
+                validateStreaming(files, summary);
+            } else if (pipelined) {
+                validatePipelined(files, summary, jobs, memoryBudget,
+                        timeoutSeconds, importCache, verdictCache);
+            } else if (jobs > 1) {
+                validateConcurrently(files, summary, jobs, memoryBudget,
+                        timeoutSeconds, importCache, verdictCache);
+            } else {
+                for (File file : files) {
+                    try {
+                        summary.handle(ValidationOutcome.success(file,
+                                validator.validate(file)));
+                    } catch (BpmnValidationException e) {
+                        summary.handle(ValidationOutcome.failure(file, e));
+                    }
+                }
+                LOGGER.debug(importCache.toString());
+                logVerdictCache(verdictCache);
+            }
+            closeAggregatedOutput(aggregatedOutput);
+            LOGGER.info(summary.toString());
+            System.exit(summary.getExitCode());
+        }
+    }
+
+    /**
+     * validates only the local constraints of the given files in a single pass
+     * of a streaming parser, which doesn't build documents
+     */
+    private static void validateStreaming(List<File> files,
+            ValidationOutcomeHandler handler) {
+        StreamingBpmnValidator validator = new StreamingBpmnValidator();
+        for (File file : files) {
+            try {
+                handler.handle(ValidationOutcome.success(file,
+                        validator.validate(file)));
+            } catch (BpmnValidationException e) {
+                handler.handle(ValidationOutcome.failure(file, e));
+            }
+        }
+    }
+
+    /**
+     * validates the given files in the staged validation pipeline, which
+     * overlaps the reading of files with the validation of other files. The
+     * files are started longest job first, while their estimated memory fits
+     * into the memory budget.
+     */
+    private static void validatePipelined(List<File> files,
+            ValidationOutcomeHandler handler, int jobs,
+            MemoryBudget memoryBudget, long timeoutSeconds,
+            BatchImportCache importCache, XsdVerdictCache verdictCache) {
+        SchedulingPlan plan = SchedulingPlan.create(files,
+                new CostEstimator());
+        ValidationPipeline pipeline = new ValidationPipeline();
+        if (jobs > 0) {
+            for (ValidationStage stage : ValidationStage.values()) {
+                if (stage != ValidationStage.READ) {
+                    pipeline.setStageThreads(stage, jobs);
+                }
+            }
+        }
+        pipeline.setMemoryBudget(memoryBudget);
+        pipeline.setTimeout(timeoutSeconds, TimeUnit.SECONDS);
+        pipeline.setImportCache(importCache);
+        pipeline.setVerdictCache(verdictCache);
+        try {
+            pipeline.run(plan, handler);
+        } catch (InterruptedException e) {
+            LOGGER.error("Validation was interrupted!");
+            Thread.currentThread().interrupt();
+        }
+        for (StageStatistics stageStatistics : pipeline.getStatistics()) {
+            LOGGER.info(stageStatistics.toString());
+        }
+        LOGGER.info(memoryBudget.toString());
+        LOGGER.info(importCache.toString());
+        logVerdictCache(verdictCache);
+        LOGGER.info("predicted {} ms, actual {} ms",
+                plan.getPredictedMillis(), plan.getActualMillis());
+        LOGGER.debug("scheduling plan:{}{}", System.lineSeparator(),
+                plan.createReport());
+    }
+
+    /**
+     * validates the given files with the given number of threads. Like in the
+     * pipeline, the files are started longest job first and only while their
+     * estimated memory fits into the memory budget. The outcomes are handled
+     * in the order of the plan.
+     */
+    private static void validateConcurrently(List<File> files,
+            ValidationOutcomeHandler handler, int jobs,
+            MemoryBudget memoryBudget, long timeoutSeconds,
+            BatchImportCache importCache, XsdVerdictCache verdictCache) {
+        SchedulingPlan plan = SchedulingPlan.create(files,
+                new CostEstimator());
+        ExecutorService executor = Executors.newFixedThreadPool(jobs,
+                new ValidatorThreadFactory("bpmn-validator"));
+        AsyncBpmnValidator asyncValidator = new AsyncBpmnValidator(executor);
+        asyncValidator.setMemoryBudget(memoryBudget);
+        asyncValidator.setTimeout(timeoutSeconds, TimeUnit.SECONDS);
+        asyncValidator.setImportCache(importCache);
+        asyncValidator.setVerdictCache(verdictCache);
+        try (ValidationStream stream = asyncValidator.validateStream(plan
+                .getFiles().iterator(), 2 * jobs)) {
+            while (stream.hasNext()) {
+                handler.handle(stream.next());
+            }
+        } finally {
+            asyncValidator.shutdown();
+            executor.shutdown();
+        }
+        LOGGER.info(memoryBudget.toString());
+        LOGGER.debug(importCache.toString());
+        logVerdictCache(verdictCache);
+        LOGGER.debug("scheduling plan:{}{}", System.lineSeparator(),
+                plan.createReport());
+    }
+
+    /**
+     * validates the given models and all models in the given directories and
+     * validates them again, when they or their imports change, until the
+     * process is stopped
+     */
+    private static void watch(BpmnValidator validator,
+            List<String> parameters, XmlWriter xmlWriter) {
+        try (ModelWatcher watcher = new ModelWatcher(validator,
+                createResultWriter(xmlWriter, null, null))) {
+            for (String parameter : parameters) {
+                watcher.watch(toAbsoluteFile(parameter));
+            }
+            watcher.validateAll();
+            LOGGER.info("watching {} models, stop with Ctrl+C", watcher
+                    .getModels().size());
+            watcher.run();
+        } catch (IOException e) {
+            LOGGER.error("files couldn't be watched: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            LOGGER.error("Watching was interrupted!");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * validates the tasks of the spool in the given directory as one of its
+     * workers, until the spool is sealed and drained
+     */
+    private static void work(BpmnValidator validator, String directory) {
+        try {
+            new SpoolWorker(new SpoolDirectory(toAbsoluteFile(directory)),
+                    validator, SpoolDirectory.createWorkerId()).run();
+        } catch (IOException e) {
+            LOGGER.error("spool couldn't be accessed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            LOGGER.error("Working was interrupted!");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * enqueues the given files into the spool in the given directory, starts
+     * the given number of local workers and waits for the workers of the
+     * spool. Then the report of all models is written into the spool and the
+     * results are copied next to the validated files.
+     */
+    private static void coordinate(String directory, List<File> files,
+            int localWorkers) {
+        List<Process> workers = new ArrayList<>();
+        try {
+            SpoolDirectory spool = new SpoolDirectory(
+                    toAbsoluteFile(directory));
+            SpoolCoordinator coordinator = new SpoolCoordinator(spool);
+            coordinator.enqueue(files);
+            for (int i = 0; i < localWorkers; i++) {
+                workers.add(coordinator.startLocalWorker());
+            }
+            while (!coordinator.awaitCompletion(1, TimeUnit.HOURS)) {
+                LOGGER.info("still waiting for the workers of the spool");
+            }
+            for (SpoolOutcome outcome : coordinator.writeReport(new File(
+                    spool.getDirectory(), "report.json"))) {
+                if (outcome.getResultFile() != null) {
+                    Files.copy(outcome.getResultFile().toPath(),
+                            getResultFile(outcome.getModel()).toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    LOGGER.error(outcome.getMessage());
+                }
+            }
+            for (Process worker : workers) {
+                worker.waitFor();
+            }
+        } catch (IOException e) {
+            LOGGER.error("spool couldn't be accessed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            LOGGER.error("Coordinating was interrupted!");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * starts the validation server on the loopback interface, which runs
+     * until the process is stopped and then drains the running validations
+     */
+    private static void serve(int port, long timeoutSeconds,
+            XsdVerdictCache verdictCache, MemoryBudget memoryBudget) {
+        final ValidationServer server;
+        try {
+            server = new ValidationServer(new InetSocketAddress(
+                    InetAddress.getLoopbackAddress(), port), Runtime
+                    .getRuntime().availableProcessors());
+        } catch (IOException e) {
+            LOGGER.error("server couldn't be started: {}", e.getMessage());
+            return;
+        }
+        server.getValidator().setTimeout(timeoutSeconds, TimeUnit.SECONDS);
+        server.getValidator().setVerdictCache(verdictCache);
+        server.setMemoryBudget(memoryBudget);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
                 try {
-                    File file = new File(parameter);
-                    if (!file.isAbsolute()) {
-                        file = file.getAbsoluteFile();
+                    server.drain(DRAINSECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * serves the JSON-RPC protocol on stdin and the given stream until the
+     * input ends or a shutdown is requested
+     */
+    private static void serveStdio(PrintStream protocolStream,
+            long timeoutSeconds, XsdVerdictCache verdictCache,
+            MemoryBudget memoryBudget) {
+        StdioServer server = new StdioServer(System.in, protocolStream,
+                Runtime.getRuntime().availableProcessors());
+        server.getValidator().setTimeout(timeoutSeconds, TimeUnit.SECONDS);
+        server.getValidator().setVerdictCache(verdictCache);
+        server.setMemoryBudget(memoryBudget);
+        try {
+            server.run();
+        } catch (IOException e) {
+            LOGGER.error("protocol input couldn't be read: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            LOGGER.error("Serving was interrupted!");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return a handler writing the result of every validation next to the
+     *         validated file or into the given result directory, if any, and
+     *         recording it in the given journal, if any
+     */
+    private static ValidationOutcomeHandler createResultWriter(
+            final XmlWriter xmlWriter, final ValidationJournal journal,
+            final ResultDirectory resultDirectory) {
+        return new ValidationOutcomeHandler() {
+            @Override
+            public void handle(ValidationOutcome outcome) {
+                if (outcome.isSuccessful()) {
+                    File file = outcome.getFile();
+                    File resultFile = getResultFile(file);
+                    if (resultDirectory != null) {
+                        resultFile = resultDirectory.getResultFile(file);
+                    }
+                    if (writeResult(xmlWriter, outcome.getResult(),
+                            resultFile)) {
+                        recordResult(journal, outcome, resultFile);
+                    }
+                } else {
+                    LOGGER.error(outcome.getFailure().getMessage());
+                }
+            }
+        };
+    }
+
+    /**
+     * removes the server option from the arguments
+     *
+     * @return the given port, the default port for the option without port
+     *         or -1, if no server should be started
+     */
+    private static int removeServerPort(List<String> arguments) {
+        if (arguments.remove(SERVEROPTION)) {
+            return DEFAULTSERVERPORT;
+        }
+        String port = removeOption(arguments, SERVEROPTION + "=");
+        if (port != null) {
+            try {
+                return Integer.parseInt(port);
+            } catch (NumberFormatException e) {
+                LOGGER.error("invalid port {}, using default", port);
+                return DEFAULTSERVERPORT;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * removes the journal option from the arguments and opens the journal,
+     * which is closed and thereby flushed when the process ends, even if it's
+     * terminated or runs out of memory
+     *
+     * @return the given journal, the default journal when resuming or null,
+     *         if no journal should be written
+     */
+    private static ValidationJournal removeJournal(List<String> arguments,
+            boolean resuming) {
+        String journalFile = removeOption(arguments, JOURNALOPTION);
+        if (journalFile == null && !resuming) {
+            return null;
+        }
+        try {
+            final ValidationJournal journal = new ValidationJournal(
+                    toAbsoluteFile(journalFile == null ? DEFAULTJOURNAL
+                            : journalFile));
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        journal.close();
+                    } catch (IOException e) {
+                        LOGGER.error("journal couldn't be written: {}",
+                                e.getMessage());
                     }
-                    ValidationResult result = validator.validate(file);
-                    xmlWriter.writeResult(result,
-                            new File(file.getParentFile() + File.separator
-                                    + "validation_result_" + file.getName()
-                                    + ".xml"));
-                } catch (BpmnValidationException e) {
-                    LOGGER.error(e.getMessage());
-                } catch (JAXBException e) {
-                    LOGGER.error("result of validation couldn't be written in xml!");
                 }
+            });
+            return journal;
+        } catch (IOException e) {
+            LOGGER.error("journal couldn't be opened: {}", e.getMessage());
+            System.exit(-1);
+            return null;
+        }
+    }
+
+    /**
+     * @return the given files or, when resuming, the files, which aren't
+     *         completed according to the journal
+     */
+    private static List<File> selectFiles(List<File> files,
+            ValidationJournal journal, boolean resuming) {
+        if (!resuming) {
+            return files;
+        }
+        List<File> remainingFiles = journal.getRemaining(files);
+        LOGGER.info("resuming with {} remaining files, {} are completed",
+                remainingFiles.size(), files.size() - remainingFiles.size());
+        return remainingFiles;
+    }
+
+    /**
+     * records the outcome with the digest of its validated content, if the
+     * validation computed it
+     */
+    private static void recordResult(ValidationJournal journal,
+            ValidationOutcome outcome, File resultFile) {
+        if (journal != null) {
+            try {
+                journal.record(outcome.getFile(), outcome.getDigest(), outcome
+                        .getResult().isValid() ? "valid" : "invalid",
+                        resultFile);
+            } catch (IOException e) {
+                LOGGER.error("journal couldn't be written: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * removes the option of the number of validation threads from the
+     * arguments
+     *
+     * @return the given number, 1 for an invalid number or 0, if the option
+     *         isn't given
+     */
+    private static int removeJobs(List<String> arguments) {
+        String jobs = removeOption(arguments, JOBSOPTION);
+        if (jobs != null) {
+            try {
+                int parsedJobs = Integer.parseInt(jobs);
+                if (parsedJobs > 0) {
+                    return parsedJobs;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            LOGGER.error("invalid number of jobs {}, using one", jobs);
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * removes all include and exclude patterns from the arguments
+     *
+     * @return the collector of the input files with the given patterns
+     */
+    private static InputCollector removeInputPatterns(List<String> arguments) {
+        InputCollector inputCollector = new InputCollector(
+                toAbsoluteFile(""));
+        String pattern;
+        while ((pattern = removeOption(arguments, INCLUDEOPTION)) != null) {
+            inputCollector.addInclude(pattern);
+        }
+        while ((pattern = removeOption(arguments, EXCLUDEOPTION)) != null) {
+            inputCollector.addExclude(pattern);
+        }
+        return inputCollector;
+    }
+
+    /**
+     * collects the files given by the arguments, the argument - reads a list
+     * of files from stdin
+     */
+    private static List<File> collectFiles(InputCollector inputCollector,
+            List<String> parameters) {
+        for (String parameter : parameters) {
+            try {
+                if (STANDARDSTREAM.equals(parameter)) {
+                    inputCollector.addFileList(new InputStreamReader(
+                            System.in, StandardCharsets.UTF_8));
+                } else {
+                    inputCollector.add(parameter);
+                }
+            } catch (IOException e) {
+                LOGGER.error("input {} couldn't be read: {}", parameter,
+                        e.getMessage());
+            }
+        }
+        return inputCollector.getFiles();
+    }
+
+    /**
+     * @return the aggregated output into the given file, to stdout for - or
+     *         null, if the results should be written into separate files
+     */
+    private static AggregatedOutput openAggregatedOutput(String output,
+            PrintStream standardOutput) {
+        if (output == null) {
+            return null;
+        }
+        if (STANDARDSTREAM.equals(output)) {
+            return new AggregatedOutput(standardOutput, toAbsoluteFile(""));
+        }
+        try {
+            return new AggregatedOutput(new FileOutputStream(
+                    toAbsoluteFile(output)), toAbsoluteFile(""));
+        } catch (IOException e) {
+            LOGGER.error("output couldn't be opened: {}", e.getMessage());
+            System.exit(-1);
+            return null;
+        }
+    }
+
+    private static void closeAggregatedOutput(AggregatedOutput output) {
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                LOGGER.error("output couldn't be written: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static ResultDirectory createResultDirectory(String directory) {
+        if (directory == null) {
+            return null;
+        }
+        return new ResultDirectory(toAbsoluteFile(directory),
+                toAbsoluteFile(""));
+    }
+
+    /**
+     * removes the option of the number of local spool workers from the
+     * arguments
+     *
+     * @return the given number or 0, if only external workers are used
+     */
+    private static int removeLocalWorkers(List<String> arguments) {
+        String workers = removeOption(arguments, SPOOLWORKERSOPTION);
+        if (workers != null) {
+            try {
+                return Integer.parseInt(workers);
+            } catch (NumberFormatException e) {
+                LOGGER.error("invalid number of workers {}, using none",
+                        workers);
             }
         }
+        return 0;
+    }
+
+    /**
+     * removes the option of the memory budget in megabytes from the arguments
+     *
+     * @return the given memory budget or a budget of three quarters of the
+     *         maximum heap size
+     */
+    private static MemoryBudget removeMemoryBudget(List<String> arguments) {
+        String megabytes = removeOption(arguments, MEMORYBUDGETOPTION);
+        if (megabytes != null) {
+            try {
+                return new MemoryBudget(Long.parseLong(megabytes) * 1024 * 1024);
+            } catch (IllegalArgumentException e) {
+                LOGGER.error("invalid memory budget {}, using default",
+                        megabytes);
+            }
+        }
+        return MemoryBudget.ofMaxHeap(DEFAULTHEAPFRACTION);
+    }
+
+    /**
+     * removes the option of the timeout in seconds from the arguments
+     *
+     * @return the given timeout or 0 for no timeout
+     */
+    private static long removeTimeout(List<String> arguments) {
+        String seconds = removeOption(arguments, TIMEOUTOPTION);
+        if (seconds != null) {
+            try {
+                return Long.parseLong(seconds);
+            } catch (NumberFormatException e) {
+                LOGGER.error("invalid timeout {}, using no timeout", seconds);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * removes the option of the persistent cache directory from the arguments
+     *
+     * @return the cache of xsd verdicts in the given directory or null, if no
+     *         directory is given
+     */
+    private static XsdVerdictCache removeVerdictCache(List<String> arguments) {
+        String directory = removeOption(arguments, CACHEDIROPTION);
+        if (directory == null) {
+            return null;
+        }
+        return new XsdVerdictCache(new File(toAbsoluteFile(directory), "xsd"));
+    }
+
+    private static void logVerdictCache(XsdVerdictCache verdictCache) {
+        if (verdictCache != null) {
+            LOGGER.info(verdictCache.toString());
+        }
+    }
+
+    /**
+     * removes the option with the given prefix from the arguments
+     *
+     * @return the value of the option or null, if the option isn't given
+     */
+    private static String removeOption(List<String> arguments, String prefix) {
+        for (String argument : arguments) {
+            if (argument.startsWith(prefix)) {
+                arguments.remove(argument);
+                return argument.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsOption(List<String> arguments,
+            String prefix) {
+        for (String argument : arguments) {
+            if (argument.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static File toAbsoluteFile(String parameter) {
+        File file = new File(parameter);
+        if (!file.isAbsolute()) {
+            file = file.getAbsoluteFile();
+        }
+        return file;
+    }
+
+    /**
+     * @return true, if the result was written
+     */
+    private static boolean writeResult(XmlWriter xmlWriter,
+            ValidationResult result, File resultFile) {
+        try {
+            xmlWriter.writeResult(result, resultFile);
+            return true;
+        } catch (JAXBException e) {
+            LOGGER.error("result of validation couldn't be written in xml!");
+            return false;
+        }
+    }
+
+    private static File getResultFile(File file) {
+        return new File(file.getParentFile() + File.separator
+                + "validation_result_" + file.getName() + ".xml");
     }
-}
+}
\ No newline at end of file
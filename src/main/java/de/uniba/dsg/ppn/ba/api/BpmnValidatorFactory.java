@@ -21,6 +21,9 @@
  */
 package de.uniba.dsg.ppn.ba.api;
 
+import java.util.concurrent.ExecutorService;
+
+import de.uniba.dsg.ppn.ba.concurrent.AsyncBpmnValidator;
 import de.uniba.dsg.ppn.ba.validation.BpmnValidator;
 import de.uniba.dsg.ppn.ba.validation.SchematronBPMNValidator;
 
@@ -34,9 +37,11 @@ import de.uniba.dsg.ppn.ba.validation.SchematronBPMNValidator;
 public class BpmnValidatorFactory {
 
     private final static BpmnValidator BPMNVALIDATOR;
+    private final static AsyncBpmnValidator ASYNCBPMNVALIDATOR;
 
     static {
         BPMNVALIDATOR = new SchematronBPMNValidator();
+        ASYNCBPMNVALIDATOR = new AsyncBpmnValidator();
     }
 
     /**
@@ -47,4 +52,23 @@ public class BpmnValidatorFactory {
         return BPMNVALIDATOR;
     }
 
+    /**
+     *
+     * @return the instance of the asynchronous bpmn validator, which runs the
+     *         validations on one thread per available processor
+     */
+    public static AsyncBpmnValidator getAsyncValidatorInstance() {
+        return ASYNCBPMNVALIDATOR;
+    }
+
+    /**
+     *
+     * @param executor
+     *            the executor, which should run the validations
+     * @return a new asynchronous bpmn validator using the given executor
+     */
+    public static AsyncBpmnValidator createAsyncValidator(
+            ExecutorService executor) {
+        return new AsyncBpmnValidator(executor);
+    }
 }
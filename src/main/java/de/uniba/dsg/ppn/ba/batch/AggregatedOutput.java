@@ -0,0 +1,123 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.batch;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcomeHandler;
+import de.uniba.dsg.ppn.ba.json.JsonWriter;
+
+/**
+ * Writes the outcomes of a batch run into one stream instead of one result
+ * file per model. Every outcome is written as one line of json with the path
+ * of the model and either its result or the message of the failed
+ * validation, e.g.
+ * <code>{"file":"a.bpmn","result":{"valid":true,...}}</code>. The handler may
+ * be called by several threads.
+ *
+ * @version 1.0
+ *
+ */
+public class AggregatedOutput implements ValidationOutcomeHandler, Closeable {
+
+    private final Writer writer;
+    private final File baseDirectory;
+    private final JsonWriter jsonWriter = new JsonWriter();
+    private static final Logger LOGGER;
+
+    static {
+        LOGGER = LoggerFactory.getLogger(AggregatedOutput.class
+                .getSimpleName());
+    }
+
+    /**
+     * @param outputStream
+     *            the stream of the output, which is closed with the output
+     * @param baseDirectory
+     *            the directory, which the paths of the models inside it are
+     *            written relative to
+     */
+    public AggregatedOutput(OutputStream outputStream, File baseDirectory) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream,
+                StandardCharsets.UTF_8));
+        this.baseDirectory = baseDirectory.getAbsoluteFile();
+    }
+
+    @Override
+    public void handle(ValidationOutcome outcome) {
+        StringBuilder line = new StringBuilder(256);
+        line.append("{\"file\":").append(
+                JsonWriter.quote(relativize(outcome.getFile())));
+        if (outcome.isSuccessful()) {
+            line.append(",\"result\":").append(
+                    jsonWriter.writeResult(outcome.getResult()));
+        } else {
+            line.append(",\"failure\":").append(
+                    JsonWriter.quote(outcome.getFailure().getMessage()));
+        }
+        line.append("}\n");
+        synchronized (writer) {
+            try {
+                writer.write(line.toString());
+            } catch (IOException e) {
+                LOGGER.error("output couldn't be written: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * writes the buffered lines to the stream
+     *
+     * @throws IOException
+     *             if the lines can't be written
+     */
+    public void flush() throws IOException {
+        synchronized (writer) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writer) {
+            writer.close();
+        }
+    }
+
+    private String relativize(File file) {
+        String path = file.getAbsolutePath();
+        String basePath = baseDirectory.getPath() + File.separator;
+        return path.startsWith(basePath) ? path.substring(basePath.length())
+                : path;
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.batch;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcomeHandler;
+
+/**
+ * Counts the valid, invalid and failed validations of a batch run and passes
+ * every outcome on to the given handler. The counts are summarized by an exit
+ * code, so a batch run can fail a build:
+ * <ul>
+ * <li><code>0</code>, if all models are valid</li>
+ * <li><code>1</code>, if at least one model is invalid</li>
+ * <li><code>2</code>, if at least one model couldn't be validated</li>
+ * </ul>
+ *
+ * @version 1.0
+ *
+ */
+public class BatchSummary implements ValidationOutcomeHandler {
+
+    private final ValidationOutcomeHandler handler;
+    private final AtomicInteger valid = new AtomicInteger();
+    private final AtomicInteger invalid = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    public static final int EXITVALID = 0;
+    public static final int EXITINVALID = 1;
+    public static final int EXITFAILED = 2;
+
+    /**
+     * @param handler
+     *            the handler, which every outcome is passed on to
+     */
+    public BatchSummary(ValidationOutcomeHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void handle(ValidationOutcome outcome) {
+        if (!outcome.isSuccessful()) {
+            failed.incrementAndGet();
+        } else if (outcome.getResult().isValid()) {
+            valid.incrementAndGet();
+        } else {
+            invalid.incrementAndGet();
+        }
+        handler.handle(outcome);
+    }
+
+    /**
+     * @return the number of valid models
+     */
+    public int getValid() {
+        return valid.get();
+    }
+
+    /**
+     * @return the number of invalid models
+     */
+    public int getInvalid() {
+        return invalid.get();
+    }
+
+    /**
+     * @return the number of models, which couldn't be validated
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return the exit code summarizing the validity of all models
+     */
+    public int getExitCode() {
+        if (failed.get() > 0) {
+            return EXITFAILED;
+        }
+        return invalid.get() > 0 ? EXITINVALID : EXITVALID;
+    }
+
+    @Override
+    public String toString() {
+        return "batch: " + valid + " valid, " + invalid + " invalid, "
+                + failed + " failed";
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Collects the input files of a batch run from files, directories, which are
+ * walked recursively, glob patterns like <code>models/**&#47;*.bpmn</code>
+ * and file lists with one argument per line.
+ * <p>
+ * Include and exclude patterns are globs, which are matched against the file
+ * name, if they don't contain a slash, and otherwise against the path relative
+ * to the walked directory. Files found by walking a directory have to match an
+ * include pattern or, without include patterns, end with <code>.bpmn</code>
+ * or <code>.bpmn.gz</code>.
+ * Files found by a glob pattern have to match it and an include pattern, if
+ * any.
+ * Explicitly given files are only subject to the exclude patterns. Every file
+ * is collected once, in the order of the arguments and sorted by path within
+ * a directory.
+ *
+ * @version 1.0
+ *
+ */
+public class InputCollector {
+
+    private final Path workingDirectory;
+    private final List<String> includes = new ArrayList<>();
+    private final List<String> excludes = new ArrayList<>();
+    private final Set<File> files = new LinkedHashSet<>();
+    private static final String MODELSUFFIX = ".bpmn";
+    private static final String COMPRESSEDMODELSUFFIX = ".bpmn.gz";
+    private static final String GLOBCHARACTERS = "*?[{";
+
+    /**
+     * @param workingDirectory
+     *            the directory, which relative arguments are resolved against
+     */
+    public InputCollector(File workingDirectory) {
+        this.workingDirectory = workingDirectory.getAbsoluteFile().toPath();
+    }
+
+    /**
+     * @param pattern
+     *            a glob pattern, which files of walked directories have to
+     *            match
+     */
+    public void addInclude(String pattern) {
+        includes.add(pattern);
+    }
+
+    /**
+     * @param pattern
+     *            a glob pattern of files, which are never collected
+     */
+    public void addExclude(String pattern) {
+        excludes.add(pattern);
+    }
+
+    /**
+     * collects the files given by the argument
+     *
+     * @param argument
+     *            a file, a directory or a glob pattern
+     * @throws IOException
+     *             if a directory can't be walked
+     */
+    public void add(String argument) throws IOException {
+        int wildcard = indexOfGlob(argument);
+        if (wildcard >= 0) {
+            int separator = Math.max(argument.lastIndexOf('/', wildcard),
+                    argument.lastIndexOf(File.separatorChar, wildcard));
+            Path baseDirectory = workingDirectory.resolve(argument.substring(
+                    0, separator + 1));
+            String pattern = argument.substring(separator + 1);
+            // only patterns with ** may match files in any depth
+            int maxDepth = pattern.contains("**") ? Integer.MAX_VALUE
+                    : pattern.split("/").length;
+            walk(baseDirectory, matcher(pattern), maxDepth);
+            return;
+        }
+        Path path = workingDirectory.resolve(argument).normalize();
+        if (Files.isDirectory(path)) {
+            walk(path, null, Integer.MAX_VALUE);
+        } else if (!isExcluded(workingDirectory.relativize(path))) {
+            files.add(path.toFile());
+        }
+    }
+
+    /**
+     * collects the files given by the lines of the reader, blank lines are
+     * skipped
+     *
+     * @param reader
+     *            the reader of the file list, which isn't closed
+     * @throws IOException
+     *             if the list can't be read or a directory can't be walked
+     */
+    public void addFileList(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+                add(line.trim());
+            }
+        }
+    }
+
+    /**
+     * @return the collected files
+     */
+    public List<File> getFiles() {
+        return new ArrayList<>(files);
+    }
+
+    private void walk(final Path directory, final PathMatcher globMatcher,
+            int maxDepth) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        final List<Path> foundFiles = new ArrayList<>();
+        Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class),
+                maxDepth, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path path,
+                    BasicFileAttributes attributes) {
+                Path relativePath = directory.relativize(path);
+                boolean selected;
+                if (globMatcher == null) {
+                    selected = isIncluded(relativePath);
+                } else {
+                    selected = globMatcher.matches(relativePath)
+                            && (includes.isEmpty() || matchesAny(includes,
+                                    relativePath));
+                }
+                if (selected && attributes.isRegularFile()
+                        && !isExcluded(relativePath)) {
+                    foundFiles.add(path.normalize());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(foundFiles);
+        for (Path path : foundFiles) {
+            files.add(path.toFile());
+        }
+    }
+
+    private boolean isIncluded(Path relativePath) {
+        if (includes.isEmpty()) {
+            String name = relativePath.getFileName().toString()
+                    .toLowerCase(Locale.ENGLISH);
+            return name.endsWith(MODELSUFFIX)
+                    || name.endsWith(COMPRESSEDMODELSUFFIX);
+        }
+        return matchesAny(includes, relativePath);
+    }
+
+    private boolean isExcluded(Path relativePath) {
+        return matchesAny(excludes, relativePath);
+    }
+
+    private static boolean matchesAny(List<String> patterns,
+            Path relativePath) {
+        for (String pattern : patterns) {
+            Path matchedPath = pattern.contains("/") ? relativePath
+                    : relativePath.getFileName();
+            if (matchedPath != null && matcher(pattern).matches(matchedPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static PathMatcher matcher(String pattern) {
+        return FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+    }
+
+    private static int indexOfGlob(String argument) {
+        for (int i = 0; i < argument.length(); i++) {
+            if (GLOBCHARACTERS.indexOf(argument.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.batch;
+
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * Directory collecting the result files of a batch run instead of writing
+ * them next to the models. The directory mirrors the directories of the
+ * models relative to the base directory, models outside of it are mirrored
+ * by their absolute paths.
+ *
+ * @version 1.0
+ *
+ */
+public class ResultDirectory {
+
+    private final Path directory;
+    private final Path baseDirectory;
+
+    /**
+     * @param directory
+     *            the directory of the result files
+     * @param baseDirectory
+     *            the directory, which the paths of the models are mirrored
+     *            relative to
+     */
+    public ResultDirectory(File directory, File baseDirectory) {
+        this.directory = directory.getAbsoluteFile().toPath();
+        this.baseDirectory = baseDirectory.getAbsoluteFile().toPath();
+    }
+
+    /**
+     * @param model
+     *            the validated model
+     * @return the result file of the model, whose directory is created
+     */
+    public File getResultFile(File model) {
+        Path path = model.getAbsoluteFile().toPath().normalize();
+        Path relativePath;
+        if (path.startsWith(baseDirectory)) {
+            relativePath = baseDirectory.relativize(path);
+        } else {
+            relativePath = path.getRoot().relativize(path);
+        }
+        Path parent = relativePath.getParent();
+        File resultDirectory = parent == null ? directory.toFile()
+                : directory.resolve(parent).toFile();
+        resultDirectory.mkdirs();
+        return new File(resultDirectory, "validation_result_"
+                + path.getFileName() + ".xml");
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+
+/**
+ * Unbounded {@link ImportCache} for the duration of one batch of validations.
+ * Every version of an imported file is processed once per batch, no matter
+ * how many validated files import it.
+ *
+ * @version 1.0
+ *
+ */
+public class BatchImportCache implements ImportCache {
+
+    private final ConcurrentMap<ImportKey, ImportEntry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final ModelSource source;
+
+    /**
+     * creates a cache of files on disk
+     */
+    public BatchImportCache() {
+        this(FileSystemSource.INSTANCE);
+    }
+
+    /**
+     * @param source
+     *            the source providing the content of the cached files
+     */
+    public BatchImportCache(ModelSource source) {
+        this.source = source;
+    }
+
+    @Override
+    public ImportEntry getEntry(File file) throws IOException {
+        ImportKey key = ImportKey.of(file);
+        ImportEntry entry = entries.get(key);
+        if (entry == null) {
+            ImportEntry newEntry = new ImportEntry(key, source);
+            entry = entries.putIfAbsent(key, newEntry);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return newEntry;
+            }
+        }
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("import cache: %d files, %d hits, %d misses",
+                size(), getHits(), getMisses());
+    }
+}
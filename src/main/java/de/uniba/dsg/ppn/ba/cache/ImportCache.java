@@ -0,0 +1,68 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.cache;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Memoizes the work done for imported files, which doesn't depend on the
+ * importing file, so that files imported by many validated files are only
+ * processed once. Implementations must be thread-safe.
+ *
+ * @version 1.0
+ *
+ */
+public interface ImportCache {
+
+    /**
+     * returns the entry of the current version of the given file and creates
+     * it, if the file version isn't cached yet
+     *
+     * @param file
+     *            the imported file
+     * @return the entry of the file
+     * @throws IOException
+     *             if the file can't be identified
+     */
+    ImportEntry getEntry(File file) throws IOException;
+
+    /**
+     * @return the number of cached file versions
+     */
+    int size();
+
+    /**
+     * @return the number of requests, which found a cached entry
+     */
+    long getHits();
+
+    /**
+     * @return the number of requests, which created a new entry
+     */
+    long getMisses();
+
+    /**
+     * removes all entries
+     */
+    void clear();
+}
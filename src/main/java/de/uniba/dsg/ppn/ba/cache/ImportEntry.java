@@ -0,0 +1,249 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.AbstractXsdValidator;
+import de.uniba.dsg.ppn.ba.helper.BpmnHelper;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+
+/**
+ * The memoized work of one version of an imported file: the xsd check, the
+ * parsed document without the diagram and the ids of its bpmn elements. Every
+ * part is computed on its first request. Documents aren't thread-safe, so
+ * every caller gets its own copy of the cached document.
+ *
+ * @version 1.0
+ *
+ */
+public class ImportEntry {
+
+    private final ImportKey key;
+    private final ModelSource source;
+    private final Map<Class<?>, XsdCheck> xsdChecks = new HashMap<>();
+    private Document document;
+    private List<String> ids;
+
+    ImportEntry(ImportKey key, ModelSource source) {
+        this.key = key;
+        this.source = source;
+    }
+
+    /**
+     * creates an entry, which isn't stored in any cache, e.g. for a validated
+     * file, which isn't imported
+     *
+     * @param file
+     *            the file
+     * @return the new entry
+     * @throws IOException
+     *             if the file can't be identified
+     */
+    public static ImportEntry of(File file) throws IOException {
+        return of(file, FileSystemSource.INSTANCE);
+    }
+
+    /**
+     * creates an entry of a file of the given source, which isn't stored in
+     * any cache
+     *
+     * @param file
+     *            the file
+     * @param source
+     *            the source providing the content of the file
+     * @return the new entry
+     * @throws IOException
+     *             if the file can't be identified
+     */
+    public static ImportEntry of(File file, ModelSource source)
+            throws IOException {
+        return new ImportEntry(ImportKey.of(file), source);
+    }
+
+    /**
+     * @return the key of the file version
+     */
+    public ImportKey getKey() {
+        return key;
+    }
+
+    /**
+     * @return the file
+     */
+    public File getFile() {
+        return key.getFile();
+    }
+
+    /**
+     * validates the file with the given validator or repeats the violations
+     * and the failure of the memoized validation with the same kind of
+     * validator
+     *
+     * @param validator
+     *            the xsd validator
+     * @param validationResult
+     *            the result, to which the violations are added
+     * @throws BpmnValidationException
+     *             if the file isn't well-formed
+     * @throws SAXException
+     *             if the file isn't well-formed or can't be validated
+     * @throws IOException
+     *             if the file can't be read, which isn't memoized
+     * @see AbstractXsdValidator#validateAgainstXsd(File, ModelSource,
+     *      ValidationResult)
+     */
+    public void validateAgainstXsd(AbstractXsdValidator validator,
+            ValidationResult validationResult) throws IOException,
+            SAXException, BpmnValidationException {
+        XsdCheck xsdCheck;
+        synchronized (xsdChecks) {
+            xsdCheck = xsdChecks.get(validator.getClass());
+            if (xsdCheck == null) {
+                xsdCheck = new XsdCheck();
+                ValidationResult xsdResult = new ValidationResult();
+                try {
+                    validator.validateAgainstXsd(getFile(), source, xsdResult);
+                } catch (SAXParseException e) {
+                    xsdCheck.parseException = e;
+                } catch (BpmnValidationException e) {
+                    xsdCheck.failure = e.getMessage();
+                }
+                xsdCheck.violations = Collections
+                        .unmodifiableList(new ArrayList<>(xsdResult
+                                .getViolations()));
+                xsdChecks.put(validator.getClass(), xsdCheck);
+            }
+        }
+        validationResult.getViolations().addAll(xsdCheck.violations);
+        if (!xsdCheck.violations.isEmpty()) {
+            validationResult.setValid(false);
+        }
+        if (xsdCheck.parseException != null) {
+            throw xsdCheck.parseException;
+        }
+        if (xsdCheck.failure != null) {
+            throw new BpmnValidationException(xsdCheck.failure);
+        }
+    }
+
+    /**
+     * @param documentBuilder
+     *            the builder of the calling thread, which parses the file on
+     *            the first request
+     * @return a copy of the parsed file without the bpmn diagram
+     * @throws IOException
+     *             if the file can't be read
+     * @throws SAXException
+     *             if the file can't be parsed
+     */
+    public synchronized Document getDocument(DocumentBuilder documentBuilder)
+            throws IOException, SAXException {
+        return (Document) getCachedDocument(documentBuilder).cloneNode(true);
+    }
+
+    /**
+     * @param documentBuilder
+     *            the builder of the calling thread, which parses the file on
+     *            the first request
+     * @return the target namespace of the file
+     * @throws IOException
+     *             if the file can't be read
+     * @throws SAXException
+     *             if the file can't be parsed
+     */
+    public synchronized String getTargetNamespace(
+            DocumentBuilder documentBuilder) throws IOException,
+            SAXException {
+        return getCachedDocument(documentBuilder).getDocumentElement()
+                .getAttribute("targetNamespace");
+    }
+
+    /**
+     * @param documentBuilder
+     *            the builder of the calling thread, which parses the file on
+     *            the first request
+     * @param idExpression
+     *            the expression selecting the id attributes
+     * @return the ids of the bpmn elements of the file in document order
+     * @throws IOException
+     *             if the file can't be read
+     * @throws SAXException
+     *             if the file can't be parsed
+     * @throws XPathExpressionException
+     *             if the expression is invalid
+     */
+    public synchronized List<String> getIds(DocumentBuilder documentBuilder,
+            XPathExpression idExpression) throws IOException,
+            SAXException, XPathExpressionException {
+        if (ids == null) {
+            NodeList foundNodes = (NodeList) idExpression.evaluate(
+                    getCachedDocument(documentBuilder), XPathConstants.NODESET);
+            List<String> foundIds = new ArrayList<>();
+            for (int i = 0; i < foundNodes.getLength(); i++) {
+                foundIds.add(foundNodes.item(i).getNodeValue());
+            }
+            ids = Collections.unmodifiableList(foundIds);
+        }
+        return ids;
+    }
+
+    private Document getCachedDocument(DocumentBuilder documentBuilder)
+            throws IOException, SAXException {
+        if (document == null) {
+            Document parsedDocument = BpmnHelper.parse(documentBuilder,
+                    getFile(), source);
+            BpmnHelper.removeBPMNDINode(parsedDocument);
+            document = parsedDocument;
+        }
+        return document;
+    }
+
+    /**
+     * the memoized outcome of a xsd validation
+     */
+    private static class XsdCheck {
+        private List<Violation> violations;
+        private SAXParseException parseException;
+        private String failure;
+    }
+}
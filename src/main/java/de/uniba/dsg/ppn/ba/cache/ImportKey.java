@@ -0,0 +1,103 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.cache;
+
+import java.io.File;
+import java.io.IOException;
+
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+
+/**
+ * Identifies a version of an imported file by its canonical path, its
+ * modification time and its size, so that a changed file gets a new key
+ *
+ * @version 1.0
+ *
+ */
+public final class ImportKey {
+
+    private final File file;
+    private final long lastModified;
+    private final long size;
+
+    private ImportKey(File file, long lastModified, long size) {
+        this.file = file;
+        this.lastModified = lastModified;
+        this.size = size;
+    }
+
+    /**
+     * @param file
+     *            the imported file
+     * @return the key of the current version of the file
+     * @throws IOException
+     *             if the canonical path can't be determined
+     */
+    public static ImportKey of(File file) throws IOException {
+        File canonicalFile = file.getCanonicalFile();
+        // a compressed file is identified by its uncompressed size, which is
+        // the size of its parsed content
+        FileSystemSource fileSystem = FileSystemSource.INSTANCE;
+        return new ImportKey(canonicalFile, fileSystem.getStoredFile(
+                canonicalFile).lastModified(),
+                fileSystem.getContentLength(canonicalFile));
+    }
+
+    /**
+     * @return the canonical file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ImportKey)) {
+            return false;
+        }
+        ImportKey key = (ImportKey) other;
+        return file.equals(key.file) && lastModified == key.lastModified
+                && size == key.size;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = file.hashCode();
+        hash = 31 * hash + (int) (lastModified ^ (lastModified >>> 32));
+        return 31 * hash + (int) (size ^ (size >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return file.getPath() + "@" + lastModified + "/" + size;
+    }
+}
@@ -0,0 +1,275 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.uniba.dsg.ppn.ba.helper.DigestHelper;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+
+/**
+ * {@link ImportCache} for long-running hosts, whose entries are bounded by
+ * their estimated retained memory
+ * <p>
+ * The retained memory of an entry is estimated from the size of the file,
+ * because its parsed document is a multiple of the file size. If the cached
+ * entries exceed the budget, the least recently used entries are evicted. An
+ * entry is replaced, if the size or modification time of its file changed.
+ * Files, which are larger than the whole budget, aren't cached at all.
+ * <p>
+ * A cache created by {@link #byContent(long)} identifies the imports by their
+ * file name and the digest of their content instead of their path, e.g. for a
+ * server, which stores every request in a new temporary directory. Its
+ * entries hold the content, so they outlive the files.
+ *
+ * @version 1.0
+ *
+ */
+public class WeightedImportCache implements ImportCache {
+
+    private static final int DEFAULTBYTESFACTOR = 10;
+    private static final long ENTRYBYTES = 1024;
+
+    private final long maxBytes;
+    private final int bytesFactor;
+    private final boolean contentKeys;
+    private final LinkedHashMap<Object, ImportEntry> entries = new LinkedHashMap<>(
+            16, 0.75f, true);
+    private long retainedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param maxBytes
+     *            the budget of the estimated memory of all entries
+     */
+    public WeightedImportCache(long maxBytes) {
+        this(maxBytes, DEFAULTBYTESFACTOR);
+    }
+
+    /**
+     * @param maxBytes
+     *            the budget of the estimated memory of all entries
+     * @param bytesFactor
+     *            the estimated memory of an entry per byte of its file
+     */
+    public WeightedImportCache(long maxBytes, int bytesFactor) {
+        this(maxBytes, bytesFactor, false);
+    }
+
+    private WeightedImportCache(long maxBytes, int bytesFactor,
+            boolean contentKeys) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException(
+                    "The cache budget must be positive");
+        }
+        this.maxBytes = maxBytes;
+        this.bytesFactor = bytesFactor;
+        this.contentKeys = contentKeys;
+    }
+
+    /**
+     * creates a cache, which identifies the imports by their file name and
+     * the digest of their content
+     *
+     * @param maxBytes
+     *            the budget of the estimated memory of all entries
+     * @return the cache
+     */
+    public static WeightedImportCache byContent(long maxBytes) {
+        return new WeightedImportCache(maxBytes, DEFAULTBYTESFACTOR, true);
+    }
+
+    @Override
+    public ImportEntry getEntry(File file) throws IOException {
+        if (contentKeys) {
+            return getContentEntry(file);
+        }
+        ImportKey key = ImportKey.of(file);
+        long weight = getWeight(key);
+        synchronized (this) {
+            ImportEntry entry = entries.get(key.getFile());
+            if (entry != null && entry.getKey().equals(key)) {
+                hits++;
+                return entry;
+            }
+            misses++;
+            if (entry != null) {
+                // the file changed since it was cached
+                entries.remove(key.getFile());
+                retainedBytes -= getWeight(entry.getKey());
+                invalidations++;
+            }
+            entry = new ImportEntry(key, FileSystemSource.INSTANCE);
+            if (weight <= maxBytes) {
+                entries.put(key.getFile(), entry);
+                retainedBytes += weight;
+                evict();
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * returns the entry of the content of the given file. The file name is
+     * part of the key, as the cached violations name the file.
+     */
+    private ImportEntry getContentEntry(File file) throws IOException {
+        ImportKey key = ImportKey.of(file);
+        byte[] content = FileSystemSource.INSTANCE.readAllBytes(key.getFile());
+        String contentKey = key.getFile().getName() + ":"
+                + DigestHelper.digest(content);
+        long weight = getWeight(key);
+        synchronized (this) {
+            ImportEntry entry = entries.get(contentKey);
+            if (entry != null) {
+                hits++;
+                return entry;
+            }
+            misses++;
+            entry = new ImportEntry(key, new ContentSource(content));
+            if (weight <= maxBytes) {
+                entries.put(contentKey, entry);
+                retainedBytes += weight;
+                evict();
+            }
+            return entry;
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the share of requests, which found a cached entry, or 0, if
+     *         there weren't any requests
+     */
+    public synchronized double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * @return the number of entries evicted to stay within the budget
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of entries replaced, because their file changed
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return the estimated memory retained by all entries
+     */
+    public synchronized long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * @return the budget of the estimated memory of all entries
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        retainedBytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String
+                .format("import cache: %d files, %d of %d KB, hit ratio %.2f, %d evictions, %d invalidations",
+                        entries.size(), retainedBytes / 1024, maxBytes / 1024,
+                        getHitRatio(), evictions, invalidations);
+    }
+
+    private long getWeight(ImportKey key) {
+        return ENTRYBYTES + key.getSize() * bytesFactor;
+    }
+
+    /**
+     * evicts the least recently used entries until the retained memory is
+     * within the budget
+     */
+    private void evict() {
+        Iterator<Map.Entry<Object, ImportEntry>> iterator = entries.entrySet()
+                .iterator();
+        while (retainedBytes > maxBytes && iterator.hasNext()) {
+            ImportEntry entry = iterator.next().getValue();
+            iterator.remove();
+            retainedBytes -= getWeight(entry.getKey());
+            evictions++;
+        }
+    }
+
+    /**
+     * the content of a cached file, which is read regardless of the location
+     * of the file
+     */
+    private static class ContentSource implements ModelSource {
+
+        private final byte[] content;
+
+        ContentSource(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public InputStream open(File file) {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public boolean exists(File file) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.XsdVerdictCache;
+import de.uniba.dsg.ppn.ba.cache.ImportCache;
+
+/**
+ * Validates files asynchronously on a configurable executor, so that callers
+ * never have to block their own threads during the parsing, xsd and schematron
+ * steps
+ * <p>
+ * Every worker thread uses its own validator (see
+ * {@link ThreadLocalValidator}). The returned {@link ValidationFuture}s support
+ * cancellation, per-call timeouts and completion callbacks. With a
+ * {@link MemoryBudget}, validations wait before they start until their
+ * estimated memory fits into the budget.
+ *
+ * @version 1.0
+ *
+ */
+public class AsyncBpmnValidator {
+
+    private final ExecutorService executor;
+    private final ExecutorService importExecutor;
+    private final ThreadLocalValidator validator;
+    private final boolean ownsExecutor;
+    private ScheduledThreadPoolExecutor timeoutScheduler;
+    private volatile MemoryBudget memoryBudget;
+
+    /**
+     * creates an asynchronous validator with a pool of one validation thread
+     * per available processor
+     */
+    public AsyncBpmnValidator() {
+        this(ExecutionMode.CPU_BOUND);
+    }
+
+    /**
+     * creates an asynchronous validator with its own threads configured for
+     * the given execution mode
+     *
+     * @param executionMode
+     *            the mode, which determines the number of validation threads
+     *            and whether imported files are loaded concurrently
+     */
+    public AsyncBpmnValidator(ExecutionMode executionMode) {
+        this(executionMode.createValidationExecutor(), true, executionMode
+                .createImportExecutor());
+    }
+
+    /**
+     * creates an asynchronous validator running the validations on the given
+     * executor. The executor isn't shut down by {@link #shutdown()}.
+     *
+     * @param executor
+     *            the executor running the validations
+     */
+    public AsyncBpmnValidator(ExecutorService executor) {
+        this(executor, false, null);
+    }
+
+    private AsyncBpmnValidator(ExecutorService executor, boolean ownsExecutor,
+            ExecutorService importExecutor) {
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.importExecutor = importExecutor;
+        this.validator = new ThreadLocalValidator(importExecutor);
+    }
+
+    /**
+     * @param memoryBudget
+     *            the budget limiting the memory of the running validations or
+     *            null to start validations regardless of their memory
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return the budget limiting the memory of the running validations or
+     *         null
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * sets the timeout of the validators of all threads, which stops a
+     * validation between its stages, other than the per-call timeouts, which
+     * cancel the future
+     *
+     * @param timeout
+     *            the maximum time of a validation, 0 for no limit
+     * @param unit
+     *            the unit of the timeout
+     * @see ThreadLocalValidator#setTimeout(long, TimeUnit)
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        validator.setTimeout(timeout, unit);
+    }
+
+    /**
+     * @param importCache
+     *            the cache of the work done for imported files shared by all
+     *            validations or null
+     */
+    public void setImportCache(ImportCache importCache) {
+        validator.setImportCache(importCache);
+    }
+
+    /**
+     * @param verdictCache
+     *            the persistent cache of xsd verdicts shared by all validations or
+     *            null
+     */
+    public void setVerdictCache(XsdVerdictCache verdictCache) {
+        validator.setVerdictCache(verdictCache);
+    }
+
+    /**
+     * starts the validation of the given file
+     *
+     * @param xmlFile
+     *            the xml file to validate
+     * @return the future of the validation result
+     */
+    public ValidationFuture validateAsync(File xmlFile) {
+        ValidationFuture future = createFuture(xmlFile);
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * starts the validation of the given file, which is cancelled if it isn't
+     * completed within the given timeout after submission
+     *
+     * @param xmlFile
+     *            the xml file to validate
+     * @param timeout
+     *            the maximum time the validation may take
+     * @param unit
+     *            the unit of the timeout
+     * @return the future of the validation result
+     */
+    public ValidationFuture validateAsync(File xmlFile, long timeout,
+            TimeUnit unit) {
+        ValidationFuture future = createFuture(xmlFile);
+        scheduleTimeout(future, timeout, unit);
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * starts the validation of all given files
+     *
+     * @param xmlFiles
+     *            the xml files to validate
+     * @return the futures of the validation results in the order of the files
+     */
+    public List<ValidationFuture> validateAllAsync(List<File> xmlFiles) {
+        List<ValidationFuture> futures = new ArrayList<>();
+        for (File xmlFile : xmlFiles) {
+            futures.add(validateAsync(xmlFile));
+        }
+        return futures;
+    }
+
+    /**
+     * starts the validation of all given files, each of them with the given
+     * timeout
+     *
+     * @param xmlFiles
+     *            the xml files to validate
+     * @param timeout
+     *            the maximum time each validation may take
+     * @param unit
+     *            the unit of the timeout
+     * @return the futures of the validation results in the order of the files
+     */
+    public List<ValidationFuture> validateAllAsync(List<File> xmlFiles,
+            long timeout, TimeUnit unit) {
+        List<ValidationFuture> futures = new ArrayList<>();
+        for (File xmlFile : xmlFiles) {
+            futures.add(validateAsync(xmlFile, timeout, unit));
+        }
+        return futures;
+    }
+
+    /**
+     * validates the files of the given source as a stream, which keeps at most
+     * maxInFlight validations running. Files are only taken from the source
+     * when the consumer of the stream requests further outcomes.
+     *
+     * @param xmlFiles
+     *            the source of the xml files to validate, may be unbounded
+     * @param maxInFlight
+     *            the maximum number of validations in flight
+     * @return the stream of the validation outcomes in the order of the files
+     */
+    public ValidationStream validateStream(Iterator<File> xmlFiles,
+            int maxInFlight) {
+        return new ValidationStream(this, xmlFiles, maxInFlight);
+    }
+
+    /**
+     * stops the timeout handling and the validation threads, if they were
+     * created by this validator. Already started validations are completed.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (timeoutScheduler != null) {
+                timeoutScheduler.shutdownNow();
+            }
+        }
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+        if (importExecutor != null) {
+            importExecutor.shutdown();
+        }
+    }
+
+    private ValidationFuture createFuture(final File xmlFile) {
+        return new ValidationFuture(xmlFile, new Callable<ValidationResult>() {
+            @Override
+            public ValidationResult call() throws Exception {
+                MemoryBudget budget = memoryBudget;
+                if (budget == null) {
+                    return validator.validate(xmlFile);
+                }
+                long reservedBytes = budget.acquire(xmlFile);
+                try {
+                    return validator.validate(xmlFile);
+                } finally {
+                    budget.release(reservedBytes);
+                }
+            }
+        });
+    }
+
+    private void scheduleTimeout(final ValidationFuture future, long timeout,
+            TimeUnit unit) {
+        future.setTimeoutTask(getTimeoutScheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                future.expire();
+            }
+        }, timeout, unit));
+    }
+
+    private synchronized ScheduledThreadPoolExecutor getTimeoutScheduler() {
+        if (timeoutScheduler == null) {
+            timeoutScheduler = new ScheduledThreadPoolExecutor(1,
+                    new ValidatorThreadFactory("bpmn-validator-timeout"));
+            timeoutScheduler.setRemoveOnCancelPolicy(true);
+        }
+        return timeoutScheduler;
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.uniba.dsg.ppn.ba.helper.ModelScan;
+import de.uniba.dsg.ppn.ba.helper.ModelScanner;
+import de.uniba.dsg.ppn.ba.preprocessing.ImportedFile;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+
+/**
+ * Predicts the time needed to validate a file from a cheap scan of the file
+ * and its imports
+ * <p>
+ * The prediction is linear in the size and the number of elements of the
+ * file, plus a quadratic part for the bpmn elements, because many constraints
+ * compare elements with each other. Imported files are added with their own
+ * prediction, because they are checked and preprocessed again for every
+ * importing file. The prediction of an import covers the import and every
+ * file it imports directly or indirectly, so it doesn't depend on the
+ * importing file and is remembered for all files using the estimator. The
+ * coefficients can be tuned with the report of a {@link SchedulingPlan}.
+ * <p>
+ * The estimator is thread-safe.
+ *
+ * @version 1.0
+ *
+ */
+public class CostEstimator {
+
+    private static final Logger LOGGER;
+
+    private final ThreadLocal<ModelScanner> modelScanners = new ThreadLocal<ModelScanner>() {
+        @Override
+        protected ModelScanner initialValue() {
+            return new ModelScanner();
+        }
+    };
+    private final Map<File, Double> importCosts = new HashMap<>();
+    private double fixedMillis = 5;
+    private double millisPerKilobyte = 0.2;
+    private double millisPerElement = 0.02;
+    private double millisPerElementPair = 0.0001;
+
+    static {
+        LOGGER = LoggerFactory.getLogger(CostEstimator.class.getSimpleName());
+    }
+
+    /**
+     * @param fixedMillis
+     *            the predicted time for every file regardless of its size
+     */
+    public void setFixedMillis(double fixedMillis) {
+        this.fixedMillis = fixedMillis;
+    }
+
+    /**
+     * @param millisPerKilobyte
+     *            the predicted time for every kilobyte of a file
+     */
+    public void setMillisPerKilobyte(double millisPerKilobyte) {
+        this.millisPerKilobyte = millisPerKilobyte;
+    }
+
+    /**
+     * @param millisPerElement
+     *            the predicted time for every element of a file
+     */
+    public void setMillisPerElement(double millisPerElement) {
+        this.millisPerElement = millisPerElement;
+    }
+
+    /**
+     * @param millisPerElementPair
+     *            the predicted time for every pair of bpmn elements of a file
+     */
+    public void setMillisPerElementPair(double millisPerElementPair) {
+        this.millisPerElementPair = millisPerElementPair;
+    }
+
+    /**
+     * predicts the time needed to validate the given file. Files, which can't
+     * be scanned, are predicted with the fixed time, because their validation
+     * fails early.
+     *
+     * @param file
+     *            the file to validate
+     * @return the predicted time in milliseconds
+     */
+    public long estimate(File file) {
+        try {
+            File canonicalFile = file.getCanonicalFile();
+            ModelScan scan = modelScanners.get().scan(file);
+            double cost = estimate(scan);
+            Set<File> importedFiles = new HashSet<>();
+            for (ImportedFile importedFile : scan.getImportedFiles()) {
+                File canonicalImport = importedFile.getFile()
+                        .getCanonicalFile();
+                if (!canonicalImport.equals(canonicalFile)
+                        && importedFiles.add(canonicalImport)) {
+                    cost += estimateImport(canonicalImport);
+                }
+            }
+            return Math.round(cost);
+        } catch (IOException | XMLStreamException e) {
+            LOGGER.debug("{} couldn't be scanned: {}", file.getName(),
+                    e.getMessage());
+            return Math.round(fixedMillis);
+        }
+    }
+
+    /**
+     * predicts the time needed for the given import and the files it imports
+     * directly or indirectly, which is calculated once for every import
+     */
+    private double estimateImport(File canonicalFile) {
+        synchronized (importCosts) {
+            Double importCost = importCosts.get(canonicalFile);
+            if (importCost != null) {
+                return importCost;
+            }
+        }
+        if (!FileSystemSource.INSTANCE.exists(canonicalFile)) {
+            return 0;
+        }
+        // imports of wsdl or xsd files contain no bpmn elements and are
+        // predicted by their size and number of elements only
+        double importCost = estimateClosure(canonicalFile, new HashSet<File>());
+        synchronized (importCosts) {
+            importCosts.put(canonicalFile, importCost);
+        }
+        return importCost;
+    }
+
+    /**
+     * predicts the time needed for the given file and the files it imports
+     * directly or indirectly, which weren't visited yet
+     */
+    private double estimateClosure(File canonicalFile, Set<File> visitedFiles) {
+        visitedFiles.add(canonicalFile);
+        ModelScan scan;
+        try {
+            scan = modelScanners.get().scan(canonicalFile);
+        } catch (IOException | XMLStreamException e) {
+            LOGGER.debug("import {} couldn't be scanned: {}",
+                    canonicalFile.getName(), e.getMessage());
+            return 0;
+        }
+        double cost = estimate(scan);
+        for (ImportedFile importedFile : scan.getImportedFiles()) {
+            try {
+                File canonicalImport = importedFile.getFile()
+                        .getCanonicalFile();
+                if (!visitedFiles.contains(canonicalImport)
+                        && FileSystemSource.INSTANCE.exists(canonicalImport)) {
+                    cost += estimateClosure(canonicalImport, visitedFiles);
+                }
+            } catch (IOException e) {
+                LOGGER.debug("import {} couldn't be resolved: {}",
+                        importedFile.getFile().getName(), e.getMessage());
+            }
+        }
+        return cost;
+    }
+
+    private double estimate(ModelScan scan) {
+        double bpmnElements = 0;
+        for (Integer count : scan.getCensus().values()) {
+            bpmnElements += count;
+        }
+        return fixedMillis + millisPerKilobyte * scan.getSize() / 1024
+                + millisPerElement * scan.getElementCount()
+                + millisPerElementPair * bpmnElements * bpmnElements;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The execution modes of the {@link AsyncBpmnValidator}
+ *
+ * @version 1.0
+ *
+ */
+public enum ExecutionMode {
+
+    /**
+     * one validation thread per available processor and sequential loading of
+     * the imported files. Suitable for models with few imports on local disks.
+     */
+    CPU_BOUND(1, false),
+
+    /**
+     * many validation threads per available processor and concurrent loading
+     * and xsd validation of the imported WSDL and XML Schema files. Suitable
+     * for import-heavy models, where most of the time is spent waiting for
+     * file I/O, e.g. on network storages.
+     */
+    IO_BOUND(8, true);
+
+    private static final long IMPORTTHREADKEEPALIVESECONDS = 60;
+
+    private final int threadsPerProcessor;
+    private final boolean concurrentImports;
+
+    private ExecutionMode(int threadsPerProcessor, boolean concurrentImports) {
+        this.threadsPerProcessor = threadsPerProcessor;
+        this.concurrentImports = concurrentImports;
+    }
+
+    /**
+     * @return the number of validation threads used in this mode
+     */
+    public int getValidationThreads() {
+        return Runtime.getRuntime().availableProcessors() * threadsPerProcessor;
+    }
+
+    /**
+     * @return a new executor for the validation of the files
+     */
+    public ExecutorService createValidationExecutor() {
+        return Executors.newFixedThreadPool(getValidationThreads(),
+                new ValidatorThreadFactory("bpmn-validator"));
+    }
+
+    /**
+     * @return a new executor for loading the imported files of a validated
+     *         file concurrently or null, if the imports are loaded by the
+     *         validating thread itself. It uses at most as many threads as
+     *         there are validation threads; further imports are loaded by the
+     *         submitting thread.
+     */
+    public ExecutorService createImportExecutor() {
+        if (!concurrentImports) {
+            return null;
+        }
+        int threads = getValidationThreads();
+        return new ThreadPoolExecutor(0, threads,
+                IMPORTTHREADKEEPALIVESECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ValidatorThreadFactory(
+                        "bpmn-import-loader"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
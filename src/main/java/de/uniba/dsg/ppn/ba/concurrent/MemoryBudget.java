@@ -0,0 +1,231 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits validations only while their estimated memory stays within a budget
+ * <p>
+ * Every validation reserves its estimated memory (see {@link MemoryEstimator})
+ * before it starts and releases it after it is completed. Validations, which
+ * don't fit into the remaining budget, wait in the order of their arrival, so
+ * large validations aren't starved by smaller ones. A validation, which is
+ * larger than the whole budget, is admitted when no other validation is
+ * running and then runs alone.
+ *
+ * @version 1.0
+ *
+ */
+public class MemoryBudget {
+
+    private final long budgetBytes;
+    private final MemoryEstimator memoryEstimator;
+    private final Deque<Object> waitingValidations = new ArrayDeque<>();
+    private long reservedBytes;
+    private long peakReservedBytes;
+    private long admittedValidations;
+    private long delayedValidations;
+    private long oversizedValidations;
+    private long waitNanos;
+
+    /**
+     * creates a budget using the default {@link MemoryEstimator}
+     *
+     * @param budgetBytes
+     *            the memory available for all running validations
+     */
+    public MemoryBudget(long budgetBytes) {
+        this(budgetBytes, new MemoryEstimator());
+    }
+
+    /**
+     * @param budgetBytes
+     *            the memory available for all running validations
+     * @param memoryEstimator
+     *            the estimator of the memory of every validation
+     */
+    public MemoryBudget(long budgetBytes, MemoryEstimator memoryEstimator) {
+        if (budgetBytes < 1) {
+            throw new IllegalArgumentException(
+                    "The memory budget must be positive");
+        }
+        this.budgetBytes = budgetBytes;
+        this.memoryEstimator = memoryEstimator;
+    }
+
+    /**
+     * creates a budget of the given fraction of the maximum heap size
+     *
+     * @param fraction
+     *            the fraction of the heap available for validations
+     * @return the budget
+     */
+    public static MemoryBudget ofMaxHeap(double fraction) {
+        return new MemoryBudget(
+                (long) (Runtime.getRuntime().maxMemory() * fraction));
+    }
+
+    /**
+     * estimates the memory of the validation of the given file and waits until
+     * it can be reserved
+     *
+     * @param xmlFile
+     *            the file to validate
+     * @return the reserved memory, which has to be released with
+     *         {@link #release(long)} after the validation
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting, then no
+     *             memory is reserved
+     */
+    public long acquire(File xmlFile) throws InterruptedException {
+        long bytes = memoryEstimator.estimate(xmlFile);
+        acquire(bytes);
+        return bytes;
+    }
+
+    /**
+     * waits until the given memory can be reserved and reserves it
+     *
+     * @param bytes
+     *            the memory to reserve
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting, then no
+     *             memory is reserved
+     */
+    public synchronized void acquire(long bytes) throws InterruptedException {
+        if (bytes > budgetBytes) {
+            oversizedValidations++;
+        }
+        if (waitingValidations.isEmpty() && fits(bytes)) {
+            reserve(bytes);
+            return;
+        }
+        Object waitingValidation = new Object();
+        waitingValidations.add(waitingValidation);
+        delayedValidations++;
+        long start = System.nanoTime();
+        try {
+            while (waitingValidations.peek() != waitingValidation
+                    || !fits(bytes)) {
+                wait();
+            }
+        } finally {
+            waitingValidations.remove(waitingValidation);
+            waitNanos += System.nanoTime() - start;
+            // the next waiting validation might fit now
+            notifyAll();
+        }
+        reserve(bytes);
+    }
+
+    /**
+     * releases memory reserved by {@link #acquire(File)} or
+     * {@link #acquire(long)}
+     *
+     * @param bytes
+     *            the reserved memory
+     */
+    public synchronized void release(long bytes) {
+        reservedBytes -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * @return the memory available for all running validations
+     */
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * @return the memory currently reserved by running validations
+     */
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * @return the maximum of the reserved memory so far
+     */
+    public synchronized long getPeakReservedBytes() {
+        return peakReservedBytes;
+    }
+
+    /**
+     * @return the number of validations currently waiting for memory
+     */
+    public synchronized int getWaitingValidations() {
+        return waitingValidations.size();
+    }
+
+    /**
+     * @return the number of validations admitted so far
+     */
+    public synchronized long getAdmittedValidations() {
+        return admittedValidations;
+    }
+
+    /**
+     * @return the number of validations, which had to wait for memory
+     */
+    public synchronized long getDelayedValidations() {
+        return delayedValidations;
+    }
+
+    /**
+     * @return the number of validations larger than the whole budget
+     */
+    public synchronized long getOversizedValidations() {
+        return oversizedValidations;
+    }
+
+    /**
+     * @return the total time validations waited for memory in milliseconds
+     */
+    public synchronized long getWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String
+                .format("memory budget %d MB: peak %d MB, %d validations admitted, %d delayed for %d ms, %d oversized",
+                        budgetBytes / (1024 * 1024), peakReservedBytes
+                                / (1024 * 1024), admittedValidations,
+                        delayedValidations, getWaitMillis(),
+                        oversizedValidations);
+    }
+
+    private boolean fits(long bytes) {
+        return reservedBytes == 0 || reservedBytes + bytes <= budgetBytes;
+    }
+
+    private void reserve(long bytes) {
+        reservedBytes += bytes;
+        peakReservedBytes = Math.max(peakReservedBytes, reservedBytes);
+        admittedValidations++;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.uniba.dsg.ppn.ba.helper.ModelScanner;
+import de.uniba.dsg.ppn.ba.preprocessing.ImportedFile;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+
+/**
+ * Estimates the heap memory needed to validate a file from the sizes of the
+ * file and all files imported directly or indirectly
+ * <p>
+ * During a validation, the file and its imports are held as documents, the
+ * imported processes are merged into a preprocessed copy and the schematron
+ * validation creates a report. All of them grow with the size of the input,
+ * so the estimation is a fixed amount plus a factor of the input size. The
+ * estimator is thread-safe.
+ *
+ * @version 1.0
+ *
+ */
+public class MemoryEstimator {
+
+    private static final long DEFAULTBASEBYTES = 2 * 1024 * 1024;
+    private static final int DEFAULTBYTESFACTOR = 25;
+    private static final Logger LOGGER;
+
+    private final ThreadLocal<ModelScanner> modelScanners = new ThreadLocal<ModelScanner>() {
+        @Override
+        protected ModelScanner initialValue() {
+            return new ModelScanner();
+        }
+    };
+    private volatile long baseBytes = DEFAULTBASEBYTES;
+    private volatile int bytesFactor = DEFAULTBYTESFACTOR;
+
+    static {
+        LOGGER = LoggerFactory.getLogger(MemoryEstimator.class
+                .getSimpleName());
+    }
+
+    /**
+     * @param baseBytes
+     *            the estimated memory of every validation regardless of the
+     *            input size
+     */
+    public void setBaseBytes(long baseBytes) {
+        this.baseBytes = baseBytes;
+    }
+
+    /**
+     * @param bytesFactor
+     *            the estimated memory per byte of the input
+     */
+    public void setBytesFactor(int bytesFactor) {
+        this.bytesFactor = bytesFactor;
+    }
+
+    /**
+     * estimates the memory needed to validate the given file. Files, which
+     * can't be scanned, are estimated by their own size, because their
+     * validation fails before the imports are loaded.
+     *
+     * @param xmlFile
+     *            the file to validate
+     * @return the estimated memory in bytes
+     */
+    public long estimate(File xmlFile) {
+        return baseBytes + bytesFactor * getInputSize(xmlFile);
+    }
+
+    private long getInputSize(File xmlFile) {
+        long inputSize = 0;
+        Deque<File> pendingFiles = new ArrayDeque<>();
+        Set<File> visitedFiles = new HashSet<>();
+        pendingFiles.add(xmlFile);
+        while (!pendingFiles.isEmpty()) {
+            File file = pendingFiles.poll();
+            try {
+                if (!visitedFiles.add(file.getCanonicalFile())
+                        || !FileSystemSource.INSTANCE.exists(file)) {
+                    continue;
+                }
+                inputSize += FileSystemSource.INSTANCE.getContentLength(file);
+                for (ImportedFile importedFile : modelScanners.get()
+                        .scan(file).getImportedFiles()) {
+                    pendingFiles.add(importedFile.getFile());
+                }
+            } catch (IOException | XMLStreamException e) {
+                LOGGER.debug("imports of {} couldn't be scanned: {}",
+                        file.getName(), e.getMessage());
+            }
+        }
+        return inputSize;
+    }
+}
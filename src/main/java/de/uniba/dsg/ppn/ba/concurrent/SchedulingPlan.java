@@ -0,0 +1,210 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders a batch of files longest job first by the time predicted by a
+ * {@link CostEstimator}. Starting the most expensive files first keeps a
+ * single large file from running alone at the end of a batch, while all other
+ * workers are already idle.
+ * <p>
+ * Runners record the actual time of every file, so the report of the plan
+ * shows the predicted versus the actual time and can be used to tune the
+ * estimator.
+ *
+ * @version 1.0
+ *
+ */
+public class SchedulingPlan {
+
+    private final List<PlannedFile> plannedFiles;
+
+    private SchedulingPlan(List<PlannedFile> plannedFiles) {
+        this.plannedFiles = Collections.unmodifiableList(plannedFiles);
+    }
+
+    /**
+     * creates the plan for the given files
+     *
+     * @param files
+     *            the files to validate
+     * @param costEstimator
+     *            the estimator predicting the time of every file
+     * @return the plan with the files ordered by their predicted time, files
+     *         with the same prediction keep their order
+     */
+    public static SchedulingPlan create(List<File> files,
+            CostEstimator costEstimator) {
+        List<PlannedFile> plannedFiles = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            plannedFiles.add(new PlannedFile(files.get(i), i, costEstimator
+                    .estimate(files.get(i))));
+        }
+        Collections.sort(plannedFiles, new Comparator<PlannedFile>() {
+            @Override
+            public int compare(PlannedFile first, PlannedFile second) {
+                return Long.compare(second.getPredictedMillis(),
+                        first.getPredictedMillis());
+            }
+        });
+        return new SchedulingPlan(plannedFiles);
+    }
+
+    /**
+     * @return the planned files in the order, in which they should be started
+     */
+    public List<PlannedFile> getPlannedFiles() {
+        return plannedFiles;
+    }
+
+    /**
+     * @return the files in the order, in which they should be started
+     */
+    public List<File> getFiles() {
+        List<File> files = new ArrayList<>();
+        for (PlannedFile plannedFile : plannedFiles) {
+            files.add(plannedFile.getFile());
+        }
+        return files;
+    }
+
+    /**
+     * @return the sum of the predicted times of all files in milliseconds
+     */
+    public long getPredictedMillis() {
+        long predictedMillis = 0;
+        for (PlannedFile plannedFile : plannedFiles) {
+            predictedMillis += plannedFile.getPredictedMillis();
+        }
+        return predictedMillis;
+    }
+
+    /**
+     * @return the sum of the recorded actual times in milliseconds
+     */
+    public long getActualMillis() {
+        long actualMillis = 0;
+        for (PlannedFile plannedFile : plannedFiles) {
+            if (plannedFile.getActualMillis() >= 0) {
+                actualMillis += plannedFile.getActualMillis();
+            }
+        }
+        return actualMillis;
+    }
+
+    /**
+     * creates a report with one line per file in the planned order. Files,
+     * which haven't been validated, are reported without an actual time, so
+     * the report of a plan, which isn't run, is a dry run of the batch.
+     *
+     * @return the report
+     */
+    public String createReport() {
+        StringBuilder report = new StringBuilder();
+        long absoluteError = 0;
+        int measuredFiles = 0;
+        for (int i = 0; i < plannedFiles.size(); i++) {
+            PlannedFile plannedFile = plannedFiles.get(i);
+            report.append(String.format("%5d predicted %8d ms", i + 1,
+                    plannedFile.getPredictedMillis()));
+            if (plannedFile.getActualMillis() >= 0) {
+                report.append(String.format(" actual %8d ms",
+                        plannedFile.getActualMillis()));
+                absoluteError += Math.abs(plannedFile.getActualMillis()
+                        - plannedFile.getPredictedMillis());
+                measuredFiles++;
+            } else {
+                report.append(String.format(" actual %8s   ", "-"));
+            }
+            report.append(' ').append(plannedFile.getFile().getPath())
+                    .append(System.lineSeparator());
+        }
+        report.append(String.format(
+                "%d files, predicted %d ms, actual %d ms", plannedFiles.size(),
+                getPredictedMillis(), getActualMillis()));
+        if (measuredFiles > 0) {
+            report.append(String.format(", mean absolute error %d ms",
+                    absoluteError / measuredFiles));
+        }
+        return report.toString();
+    }
+
+    /**
+     * a file within a plan with its predicted and actual time
+     */
+    public static class PlannedFile {
+
+        private final File file;
+        private final int index;
+        private final long predictedMillis;
+        private volatile long actualMillis = -1;
+
+        PlannedFile(File file, int index, long predictedMillis) {
+            this.file = file;
+            this.index = index;
+            this.predictedMillis = predictedMillis;
+        }
+
+        /**
+         * @return the file to validate
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the position of the file in the batch before planning
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the predicted time in milliseconds
+         */
+        public long getPredictedMillis() {
+            return predictedMillis;
+        }
+
+        /**
+         * @return the actual time in milliseconds or -1, if the file hasn't
+         *         been validated yet
+         */
+        public long getActualMillis() {
+            return actualMillis;
+        }
+
+        /**
+         * @param actualMillis
+         *            the time, which the validation of the file actually took
+         */
+        public void setActualMillis(long actualMillis) {
+            this.actualMillis = actualMillis;
+        }
+    }
+}
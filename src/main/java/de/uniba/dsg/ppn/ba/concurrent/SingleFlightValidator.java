@@ -0,0 +1,358 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.Source;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.DigestHelper;
+import de.uniba.dsg.ppn.ba.helper.ModelScanner;
+import de.uniba.dsg.ppn.ba.helper.SemanticFingerprinter;
+import de.uniba.dsg.ppn.ba.preprocessing.ImportedFile;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.IngestedContent;
+import de.uniba.dsg.ppn.ba.source.IngestingSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+import de.uniba.dsg.ppn.ba.validation.BpmnValidator;
+import de.uniba.dsg.ppn.ba.validation.SchematronBPMNValidator;
+
+/**
+ * Thread-safe {@link BpmnValidator}, which coalesces concurrent validations of
+ * identical input into one running validation
+ * <p>
+ * The input is identified by the name of the file, the digest of its content
+ * and of the content of all imported files and the rules version. While a
+ * validation of an input is running, further validations of the same input
+ * wait for it and get a copy of its result instead of validating the input
+ * again. A completed validation isn't remembered, so later validations of the
+ * same input run again.
+ * <p>
+ * With semantic keys, the input is identified by its
+ * {@link SemanticFingerprinter semantic fingerprint} instead of its content,
+ * so versions of a model, which only differ in their diagram or formatting,
+ * are coalesced as well. As the lines of violations refer to the validated
+ * version, a result is only shared with a version of different content, if it
+ * has no violations. Otherwise the waiting caller validates its own version.
+ *
+ * @version 1.0
+ *
+ */
+public class SingleFlightValidator implements BpmnValidator {
+
+    private static final Logger LOGGER;
+
+    private final BpmnValidator validator;
+    private final ThreadLocal<ModelScanner> modelScanners = new ThreadLocal<ModelScanner>() {
+        @Override
+        protected ModelScanner initialValue() {
+            return new ModelScanner();
+        }
+    };
+    private final ThreadLocal<SemanticFingerprinter> fingerprinters = new ThreadLocal<SemanticFingerprinter>() {
+        @Override
+        protected SemanticFingerprinter initialValue() {
+            return new SemanticFingerprinter();
+        }
+    };
+    private volatile boolean semanticKeys;
+    private final ConcurrentMap<String, InFlightValidation> inFlightValidations = new ConcurrentHashMap<>();
+    private final AtomicLong executedValidations = new AtomicLong();
+    private final AtomicLong coalescedValidations = new AtomicLong();
+
+    static {
+        LOGGER = LoggerFactory.getLogger(SingleFlightValidator.class
+                .getSimpleName());
+    }
+
+    /**
+     * creates a validator delegating to a {@link ThreadLocalValidator}
+     */
+    public SingleFlightValidator() {
+        this(new ThreadLocalValidator());
+    }
+
+    /**
+     * @param validator
+     *            the thread-safe validator running the validations
+     */
+    public SingleFlightValidator(BpmnValidator validator) {
+        this.validator = validator;
+    }
+
+    @Override
+    public Level getLogLevel() {
+        return validator.getLogLevel();
+    }
+
+    @Override
+    public void setLogLevel(Level logLevel) {
+        validator.setLogLevel(logLevel);
+    }
+
+    /**
+     * validates the given file or waits for a running validation of the same
+     * input
+     *
+     * @return a result, which isn't shared with other callers
+     */
+    @Override
+    public ValidationResult validate(final File xmlFile)
+            throws BpmnValidationException {
+        String contentKey;
+        String key;
+        try {
+            contentKey = createKey(xmlFile);
+            key = semanticKeys ? createSemanticKey(xmlFile) : contentKey;
+        } catch (IOException e) {
+            // the validator reports the unreadable file
+            executedValidations.incrementAndGet();
+            return validator.validate(xmlFile);
+        }
+
+        FutureTask<ValidationResult> validation = new FutureTask<>(
+                new Callable<ValidationResult>() {
+                    @Override
+                    public ValidationResult call()
+                            throws BpmnValidationException {
+                        return validator.validate(xmlFile);
+                    }
+                });
+        InFlightValidation inFlightValidation = new InFlightValidation(
+                contentKey, validation);
+        InFlightValidation runningValidation = inFlightValidations
+                .putIfAbsent(key, inFlightValidation);
+        if (runningValidation == null) {
+            executedValidations.incrementAndGet();
+            try {
+                validation.run();
+            } finally {
+                inFlightValidations.remove(key, inFlightValidation);
+            }
+            return copy(getResult(validation, xmlFile));
+        }
+        LOGGER.debug("waiting for running validation of {}", xmlFile.getName());
+        if (runningValidation.contentKey.equals(contentKey)) {
+            coalescedValidations.incrementAndGet();
+            return copy(getResult(runningValidation.validation, xmlFile));
+        }
+        ValidationResult result = getResult(runningValidation.validation,
+                xmlFile);
+        if (!result.getViolations().isEmpty()) {
+            // the lines of the violations refer to the other version
+            LOGGER.debug("validating differing version of {} again",
+                    xmlFile.getName());
+            executedValidations.incrementAndGet();
+            return validator.validate(xmlFile);
+        }
+        coalescedValidations.incrementAndGet();
+        return copy(result);
+    }
+
+    /**
+     * validates the given file of a source, which doesn't read from disk,
+     * without coalescing, as its input can't be identified by the file
+     */
+    @Override
+    public ValidationResult validate(File xmlFile, ModelSource source)
+            throws BpmnValidationException {
+        if (FileSystemSource.isFileSystem(source)) {
+            return validate(xmlFile);
+        }
+        executedValidations.incrementAndGet();
+        return validator.validate(xmlFile, source);
+    }
+
+    /**
+     * validates the given model held by the caller without coalescing
+     */
+    @Override
+    public ValidationResult validate(Source xmlSource, File xmlFile,
+            ModelSource source) throws BpmnValidationException {
+        executedValidations.incrementAndGet();
+        return validator.validate(xmlSource, xmlFile, source);
+    }
+
+    @Override
+    public List<ValidationResult> validateFiles(List<File> xmlFiles)
+            throws BpmnValidationException {
+        List<ValidationResult> validationResults = new ArrayList<>();
+        for (File xmlFile : xmlFiles) {
+            validationResults.add(validate(xmlFile));
+        }
+        return validationResults;
+    }
+
+    /**
+     * @param semanticKeys
+     *            true, if inputs should be identified by their semantic
+     *            fingerprint, false to identify them by their content
+     */
+    public void setSemanticKeys(boolean semanticKeys) {
+        this.semanticKeys = semanticKeys;
+    }
+
+    /**
+     * @return the number of validations, which were actually run
+     */
+    public long getExecutedValidations() {
+        return executedValidations.get();
+    }
+
+    /**
+     * @return the number of validations, which were avoided by waiting for a
+     *         running validation of the same input
+     */
+    public long getCoalescedValidations() {
+        return coalescedValidations.get();
+    }
+
+    /**
+     * creates the semantic key of the input, which is the digest of the rules
+     * version, the name of the file and its semantic fingerprint
+     */
+    private String createSemanticKey(File xmlFile) throws IOException {
+        MessageDigest digest = DigestHelper.createDigest();
+        digest.update(SchematronBPMNValidator.getRulesVersion().getBytes(
+                StandardCharsets.UTF_8));
+        digest.update(xmlFile.getName().getBytes(StandardCharsets.UTF_8));
+        digest.update(fingerprinters.get().fingerprint(xmlFile)
+                .getBytes(StandardCharsets.UTF_8));
+        return DigestHelper.toHex(digest.digest());
+    }
+
+    /**
+     * creates the key of the input, which is the digest of the rules version,
+     * the name of the file and the contents of the file and all files imported
+     * directly or indirectly
+     */
+    private String createKey(File xmlFile) throws IOException {
+        MessageDigest digest = DigestHelper.createDigest();
+        digest.update(SchematronBPMNValidator.getRulesVersion().getBytes(
+                StandardCharsets.UTF_8));
+        digest.update(xmlFile.getName().getBytes(StandardCharsets.UTF_8));
+        IngestingSource source = new IngestingSource(
+                FileSystemSource.INSTANCE);
+        IngestedContent content = source.getContent(xmlFile);
+        digest.update(content.getDigest().getBytes(StandardCharsets.UTF_8));
+        Deque<File> pendingFiles = new ArrayDeque<>();
+        Set<File> visitedFiles = new HashSet<>();
+        visitedFiles.add(xmlFile.getCanonicalFile());
+        addImportedFiles(xmlFile, content, pendingFiles);
+        while (!pendingFiles.isEmpty()) {
+            File file = pendingFiles.poll();
+            if (!visitedFiles.add(file.getCanonicalFile())) {
+                continue;
+            }
+            digest.update(file.getPath().getBytes(StandardCharsets.UTF_8));
+            if (source.exists(file)) {
+                IngestedContent importedContent = source.getContent(file);
+                digest.update(importedContent.getDigest().getBytes(
+                        StandardCharsets.UTF_8));
+                addImportedFiles(file, importedContent, pendingFiles);
+            } else {
+                // missing imports are reported by the validator
+                digest.update((byte) 0);
+            }
+        }
+        return DigestHelper.toHex(digest.digest());
+    }
+
+    private void addImportedFiles(File file, IngestedContent content,
+            Deque<File> pendingFiles) {
+        try {
+            for (ImportedFile importedFile : modelScanners.get()
+                    .scan(file, content.getLength(), content.openStream())
+                    .getImportedFiles()) {
+                pendingFiles.add(importedFile.getFile());
+            }
+        } catch (XMLStreamException e) {
+            // files, which aren't well-formed, are reported without following
+            // their imports
+            LOGGER.debug("imports of {} couldn't be scanned: {}",
+                    file.getName(), e.getMessage());
+        }
+    }
+
+    private ValidationResult getResult(FutureTask<ValidationResult> validation,
+            File xmlFile) throws BpmnValidationException {
+        try {
+            return validation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BpmnValidationException(String.format(
+                    "Validation of %s was cancelled!", xmlFile.getName()));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BpmnValidationException) {
+                throw new BpmnValidationException(e.getCause().getMessage());
+            }
+            throw new BpmnValidationException(String.format(
+                    "Validation of %s failed!", xmlFile.getName()));
+        }
+    }
+
+    private ValidationResult copy(ValidationResult validationResult) {
+        // violations are immutable and can be shared
+        ValidationResult copy = new ValidationResult(
+                validationResult.isValid(), new ArrayList<>(
+                        validationResult.getCheckedFiles()), new ArrayList<>(
+                        validationResult.getViolations()));
+        copy.setTimedOutStage(validationResult.getTimedOutStage());
+        return copy;
+    }
+
+    /**
+     * a running validation and the key of the content it validates
+     */
+    private static class InFlightValidation {
+        private final String contentKey;
+        private final FutureTask<ValidationResult> validation;
+
+        private InFlightValidation(String contentKey,
+                FutureTask<ValidationResult> validation) {
+            this.contentKey = contentKey;
+            this.validation = validation;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.uniba.dsg.ppn.ba.validation.ValidationStage;
+
+/**
+ * Statistics of one stage of a {@link ValidationPipeline}
+ *
+ * @version 1.0
+ *
+ */
+public class StageStatistics {
+
+    private final ValidationStage stage;
+    private final int threads;
+    private final BlockingQueue<?> inputQueue;
+    private final AtomicLong processedJobs = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+
+    StageStatistics(ValidationStage stage, int threads,
+            BlockingQueue<?> inputQueue) {
+        this.stage = stage;
+        this.threads = threads;
+        this.inputQueue = inputQueue;
+    }
+
+    /**
+     * @return the stage, to which the statistics belong
+     */
+    public ValidationStage getStage() {
+        return stage;
+    }
+
+    /**
+     * @return the number of threads running the stage
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the number of jobs waiting in front of the stage
+     */
+    public int getQueueDepth() {
+        return inputQueue.size();
+    }
+
+    /**
+     * @return the number of jobs, which passed the stage
+     */
+    public long getProcessedJobs() {
+        return processedJobs.get();
+    }
+
+    /**
+     * @return the average time in milliseconds, which one job needs in this
+     *         stage
+     */
+    public double getAverageMillis() {
+        long processed = processedJobs.get();
+        return processed == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(busyNanos
+                .get()) / 1000.0 / processed;
+    }
+
+    /**
+     * @return the number of jobs per second, which passed the stage since the
+     *         pipeline was started
+     */
+    public double getThroughput() {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                - startNanos);
+        return processedJobs.get() * 1000.0 / Math.max(elapsedMillis, 1);
+    }
+
+    void recordJob(long nanos) {
+        processedJobs.incrementAndGet();
+        busyNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%-10s threads: %2d, queued: %4d, processed: %6d, avg: %8.1f ms, throughput: %7.1f/s",
+                stage, threads, getQueueDepth(), getProcessedJobs(),
+                getAverageMillis(), getThroughput());
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.Source;
+
+import ch.qos.logback.classic.Level;
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.XsdVerdictCache;
+import de.uniba.dsg.ppn.ba.cache.ImportCache;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+import de.uniba.dsg.ppn.ba.validation.BpmnValidator;
+import de.uniba.dsg.ppn.ba.validation.SchematronBPMNValidator;
+
+/**
+ * Thread-safe {@link BpmnValidator} which delegates every call to a
+ * {@link SchematronBPMNValidator} owned by the calling thread. The validator
+ * itself holds parsers and xpath expressions, which must not be shared between
+ * threads.
+ *
+ * @version 1.0
+ *
+ */
+public class ThreadLocalValidator implements BpmnValidator {
+
+    private final ExecutorService importExecutor;
+    private volatile long timeoutMillis;
+    private volatile ImportCache importCache;
+    private volatile XsdVerdictCache verdictCache;
+    private final ThreadLocal<SchematronBPMNValidator> validators = new ThreadLocal<SchematronBPMNValidator>() {
+        @Override
+        protected SchematronBPMNValidator initialValue() {
+            SchematronBPMNValidator validator = new SchematronBPMNValidator();
+            validator.setImportExecutor(importExecutor);
+            return validator;
+        }
+    };
+
+    /**
+     * creates a validator loading the imported files sequentially
+     */
+    public ThreadLocalValidator() {
+        this(null);
+    }
+
+    /**
+     * @param importExecutor
+     *            the executor used by all validators to load the imported
+     *            files concurrently or null to load them sequentially
+     */
+    public ThreadLocalValidator(ExecutorService importExecutor) {
+        this.importExecutor = importExecutor;
+    }
+
+    @Override
+    public Level getLogLevel() {
+        return validators.get().getLogLevel();
+    }
+
+    @Override
+    public void setLogLevel(Level logLevel) {
+        validators.get().setLogLevel(logLevel);
+    }
+
+    /**
+     * sets the time, which every validation may take, for the validators of
+     * all threads
+     *
+     * @param timeout
+     *            the maximum time of a validation, 0 for no limit
+     * @param unit
+     *            the unit of the timeout
+     * @see SchematronBPMNValidator#setTimeout(long, TimeUnit)
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * sets the cache of the work done for imported files for the validators
+     * of all threads
+     *
+     * @param importCache
+     *            the shared cache or null
+     * @see SchematronBPMNValidator#setImportCache(ImportCache)
+     */
+    public void setImportCache(ImportCache importCache) {
+        this.importCache = importCache;
+    }
+
+    /**
+     * sets the persistent cache of xsd verdicts for the validators of all
+     * threads
+     *
+     * @param verdictCache
+     *            the shared cache or null
+     * @see SchematronBPMNValidator#setVerdictCache(XsdVerdictCache)
+     */
+    public void setVerdictCache(XsdVerdictCache verdictCache) {
+        this.verdictCache = verdictCache;
+    }
+
+    @Override
+    public ValidationResult validate(File xmlFile)
+            throws BpmnValidationException {
+        return getValidator().validate(xmlFile);
+    }
+
+    @Override
+    public ValidationResult validate(File xmlFile, ModelSource source)
+            throws BpmnValidationException {
+        return getValidator().validate(xmlFile, source);
+    }
+
+    @Override
+    public ValidationResult validate(Source xmlSource, File xmlFile,
+            ModelSource source) throws BpmnValidationException {
+        return getValidator().validate(xmlSource, xmlFile, source);
+    }
+
+    @Override
+    public List<ValidationResult> validateFiles(List<File> xmlFiles)
+            throws BpmnValidationException {
+        List<ValidationResult> validationResults = new ArrayList<>();
+        for (File xmlFile : xmlFiles) {
+            validationResults.add(validate(xmlFile));
+        }
+        return validationResults;
+    }
+
+    /**
+     * @return the validator of the calling thread configured with the current
+     *         timeout and caches
+     */
+    public SchematronBPMNValidator getValidator() {
+        SchematronBPMNValidator validator = validators.get();
+        validator.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        validator.setImportCache(importCache);
+        validator.setVerdictCache(verdictCache);
+        return validator;
+    }
+}
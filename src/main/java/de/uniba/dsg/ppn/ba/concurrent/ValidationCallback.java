@@ -0,0 +1,55 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+
+/**
+ * Callback which is informed as soon as an asynchronous validation is
+ * completed. The callback is executed by the thread completing the validation,
+ * so implementations should hand over long-running work to their own threads.
+ *
+ * @version 1.0
+ *
+ */
+public interface ValidationCallback {
+
+    /**
+     * called if the validation finished with a result
+     *
+     * @param result
+     *            the result of the validation
+     */
+    void onSuccess(ValidationResult result);
+
+    /**
+     * called if the validation failed, was cancelled or timed out
+     *
+     * @param cause
+     *            a {@link de.uniba.dsg.ppn.ba.helper.BpmnValidationException}
+     *            if the validation failed, a
+     *            {@link java.util.concurrent.CancellationException} if it was
+     *            cancelled or a {@link java.util.concurrent.TimeoutException}
+     *            if it timed out
+     */
+    void onFailure(Throwable cause);
+}
@@ -0,0 +1,174 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+
+/**
+ * Future of an asynchronous validation of one file. Besides the blocking
+ * methods of {@link Future}, callbacks can be registered to get the result
+ * without blocking the calling thread.
+ * <p>
+ * Cancelling the future with {@code cancel(true)} interrupts the validating
+ * thread, which stops the validation at the next stage boundary.
+ *
+ * @version 1.0
+ *
+ */
+public class ValidationFuture extends FutureTask<ValidationResult> {
+
+    private final File file;
+    private final List<ValidationCallback> callbacks = new ArrayList<>();
+    private volatile boolean timedOut;
+    private volatile Future<?> timeoutTask;
+    private static final Logger LOGGER;
+
+    static {
+        LOGGER = LoggerFactory.getLogger(ValidationFuture.class
+                .getSimpleName());
+    }
+
+    /**
+     * @param file
+     *            the file, which is validated
+     * @param validation
+     *            the validation to run
+     */
+    public ValidationFuture(File file, Callable<ValidationResult> validation) {
+        super(validation);
+        this.file = file;
+    }
+
+    /**
+     * @return the file, which is validated
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return true, if the validation was cancelled because its timeout
+     *         elapsed
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * registers a callback, which is called as soon as the validation is
+     * completed. If the validation is already completed, the callback is
+     * called immediately by the calling thread.
+     *
+     * @param callback
+     *            the callback to inform
+     * @return this future for chaining
+     */
+    public ValidationFuture addCallback(ValidationCallback callback) {
+        synchronized (callbacks) {
+            if (!isDone()) {
+                callbacks.add(callback);
+                return this;
+            }
+        }
+        notifyCallback(callback);
+        return this;
+    }
+
+    /**
+     * cancels the validation because its timeout elapsed
+     */
+    void expire() {
+        if (!isDone()) {
+            timedOut = true;
+            if (!cancel(true)) {
+                timedOut = false;
+            }
+        }
+    }
+
+    /**
+     * sets the scheduled task, which expires this future, so that it can be
+     * discarded as soon as the validation is completed
+     */
+    void setTimeoutTask(Future<?> timeoutTask) {
+        this.timeoutTask = timeoutTask;
+        if (isDone()) {
+            timeoutTask.cancel(false);
+        }
+    }
+
+    @Override
+    protected void done() {
+        Future<?> task = timeoutTask;
+        if (task != null) {
+            task.cancel(false);
+        }
+        List<ValidationCallback> registeredCallbacks;
+        synchronized (callbacks) {
+            registeredCallbacks = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (ValidationCallback callback : registeredCallbacks) {
+            notifyCallback(callback);
+        }
+    }
+
+    private void notifyCallback(ValidationCallback callback) {
+        ValidationResult result = null;
+        Throwable failure = null;
+        try {
+            result = get();
+        } catch (CancellationException e) {
+            failure = timedOut ? new TimeoutException(String.format(
+                    "Validation of %s timed out", file.getName())) : e;
+        } catch (ExecutionException e) {
+            failure = e.getCause();
+        } catch (InterruptedException e) {
+            // can't happen, the future is already done
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            if (failure == null) {
+                callback.onSuccess(result);
+            } else {
+                callback.onFailure(failure);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("validation callback for {} failed: {}",
+                    file.getName(), e);
+        }
+    }
+}
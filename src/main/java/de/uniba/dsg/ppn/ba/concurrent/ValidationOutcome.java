@@ -0,0 +1,123 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.io.File;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+
+/**
+ * The outcome of the validation of one file within a stream or batch of
+ * validations. Either contains the result of the validation or the cause why
+ * the validation failed.
+ *
+ * @version 1.0
+ *
+ */
+public class ValidationOutcome {
+
+    private final File file;
+    private final ValidationResult result;
+    private final Throwable failure;
+    private final String digest;
+
+    private ValidationOutcome(File file, ValidationResult result,
+            Throwable failure, String digest) {
+        this.file = file;
+        this.result = result;
+        this.failure = failure;
+        this.digest = digest;
+    }
+
+    /**
+     * @param file
+     *            the validated file
+     * @param result
+     *            the result of the validation
+     * @return the outcome of a completed validation
+     */
+    public static ValidationOutcome success(File file, ValidationResult result) {
+        return success(file, result, null);
+    }
+
+    /**
+     * @param file
+     *            the validated file
+     * @param result
+     *            the result of the validation
+     * @param digest
+     *            the digest of the content, which was validated, or null
+     * @return the outcome of a completed validation
+     */
+    public static ValidationOutcome success(File file,
+            ValidationResult result, String digest) {
+        return new ValidationOutcome(file, result, null, digest);
+    }
+
+    /**
+     * @param file
+     *            the file, which couldn't be validated
+     * @param failure
+     *            the cause of the failed validation
+     * @return the outcome of a failed validation
+     */
+    public static ValidationOutcome failure(File file, Throwable failure) {
+        return new ValidationOutcome(file, null, failure, null);
+    }
+
+    /**
+     * @return the validated file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the result of the validation or null, if the validation failed
+     */
+    public ValidationResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return the cause of the failed validation or null, if the validation
+     *         was completed
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return the SHA-256 digest of the validated content or null, if it
+     *         wasn't computed during the validation
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * @return true, if the validation was completed with a result
+     */
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+}
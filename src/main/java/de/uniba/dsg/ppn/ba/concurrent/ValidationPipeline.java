@@ -0,0 +1,572 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.transform.Source;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.XsdVerdictCache;
+import de.uniba.dsg.ppn.ba.cache.ImportCache;
+import de.uniba.dsg.ppn.ba.concurrent.SchedulingPlan.PlannedFile;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+import de.uniba.dsg.ppn.ba.validation.BpmnValidator;
+import de.uniba.dsg.ppn.ba.validation.SchematronBPMNValidator;
+import de.uniba.dsg.ppn.ba.validation.ValidationDeadline;
+import de.uniba.dsg.ppn.ba.validation.ValidationJob;
+import de.uniba.dsg.ppn.ba.validation.ValidationStage;
+
+/**
+ * Validates batches of files in a staged producer/consumer pipeline
+ * <p>
+ * Every {@link ValidationStage} is run by its own threads, which are connected
+ * by bounded queues. Thereby, I/O-bound stages like reading the files overlap
+ * with CPU-bound stages like the schematron validation of other files, and
+ * the bounded queues keep the number of files in the pipeline limited. The
+ * outcomes are handed to a {@link ValidationOutcomeHandler} by the threads
+ * completing the jobs, which is where the results are written.
+ * <p>
+ * The threads and their validators are created for every run, so the
+ * pipeline pays off for batches of files rather than for single files. If a
+ * {@link CostEstimator} is set, batches are started longest job first
+ * according to a {@link SchedulingPlan}. If a {@link MemoryBudget} is set, files
+ * only enter the pipeline, while their estimated memory fits into the budget.
+ *
+ * @version 1.0
+ *
+ */
+public class ValidationPipeline implements BpmnValidator {
+
+    private static final int DEFAULTREADTHREADS = 2;
+    private static final int DEFAULTQUEUECAPACITY = 16;
+    private static final Logger LOGGER;
+
+    private final Map<ValidationStage, Integer> stageThreads;
+    private final ThreadLocalValidator validator;
+    private int queueCapacity = DEFAULTQUEUECAPACITY;
+    private CostEstimator costEstimator;
+    private MemoryBudget memoryBudget;
+    private long timeoutMillis;
+    private volatile List<StageStatistics> statistics = Collections
+            .emptyList();
+
+    static {
+        LOGGER = LoggerFactory.getLogger(ValidationPipeline.class
+                .getSimpleName());
+    }
+
+    /**
+     * creates a pipeline with two reading threads and one thread per
+     * available processor for every other stage
+     */
+    public ValidationPipeline() {
+        validator = new ThreadLocalValidator();
+        stageThreads = new EnumMap<>(ValidationStage.class);
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (ValidationStage stage : ValidationStage.values()) {
+            stageThreads.put(stage, processors);
+        }
+        stageThreads.put(ValidationStage.READ, DEFAULTREADTHREADS);
+    }
+
+    /**
+     * @param stage
+     *            the stage to configure
+     * @param threads
+     *            the number of threads running the given stage
+     */
+    public void setStageThreads(ValidationStage stage, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "Every stage needs at least one thread");
+        }
+        stageThreads.put(stage, threads);
+    }
+
+    /**
+     * @param stage
+     *            the stage
+     * @return the number of threads running the given stage
+     */
+    public int getStageThreads(ValidationStage stage) {
+        return stageThreads.get(stage);
+    }
+
+    /**
+     * @param queueCapacity
+     *            the maximum number of jobs waiting in front of every stage
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "The queues must hold at least one job");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @param costEstimator
+     *            the estimator used to order the batches of
+     *            {@link #validateFiles(List)} longest job first or null to
+     *            keep the order of the files
+     */
+    public void setCostEstimator(CostEstimator costEstimator) {
+        this.costEstimator = costEstimator;
+    }
+
+    /**
+     * @param memoryBudget
+     *            the budget limiting the memory of the files in the pipeline or
+     *            null to limit the files by the queue capacities only
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * sets the time, which the validation of every file may take from the
+     * start of its first stage. A validation exceeding it is completed with
+     * its partial result in the stage, in which it timed out.
+     *
+     * @param timeout
+     *            the maximum time of a validation, 0 for no limit
+     * @param unit
+     *            the unit of the timeout
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutMillis = unit.toMillis(timeout);
+        validator.setTimeout(timeout, unit);
+    }
+
+    /**
+     * @param importCache
+     *            the cache of the work done for imported files shared by all
+     *            stage threads or null
+     */
+    public void setImportCache(ImportCache importCache) {
+        validator.setImportCache(importCache);
+    }
+
+    /**
+     * @param verdictCache
+     *            the persistent cache of xsd verdicts shared by all stage threads or
+     *            null
+     */
+    public void setVerdictCache(XsdVerdictCache verdictCache) {
+        validator.setVerdictCache(verdictCache);
+    }
+
+    /**
+     * @return the statistics of all stages of the current or last run in the
+     *         order of the stages
+     */
+    public List<StageStatistics> getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public Level getLogLevel() {
+        return validator.getLogLevel();
+    }
+
+    @Override
+    public void setLogLevel(Level logLevel) {
+        validator.setLogLevel(logLevel);
+    }
+
+    @Override
+    public ValidationResult validate(File xmlFile)
+            throws BpmnValidationException {
+        return validator.validate(xmlFile);
+    }
+
+    @Override
+    public ValidationResult validate(File xmlFile, ModelSource source)
+            throws BpmnValidationException {
+        return validator.validate(xmlFile, source);
+    }
+
+    @Override
+    public ValidationResult validate(Source xmlSource, File xmlFile,
+            ModelSource source) throws BpmnValidationException {
+        return validator.validate(xmlSource, xmlFile, source);
+    }
+
+    /**
+     * validates the given files in the pipeline
+     *
+     * @throws BpmnValidationException
+     *             the exception of the first file in the list, whose
+     *             validation failed
+     */
+    @Override
+    public List<ValidationResult> validateFiles(List<File> xmlFiles)
+            throws BpmnValidationException {
+        final ValidationOutcome[] outcomes = new ValidationOutcome[xmlFiles
+                .size()];
+        IndexedOutcomeHandler handler = new IndexedOutcomeHandler() {
+            @Override
+            public void handle(int index, ValidationOutcome outcome) {
+                outcomes[index] = outcome;
+            }
+        };
+        try {
+            if (costEstimator == null) {
+                process(xmlFiles.iterator(), null, handler);
+            } else {
+                process(null, SchedulingPlan.create(xmlFiles, costEstimator)
+                        .getPlannedFiles(), handler);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BpmnValidationException(
+                    "Validation of the files was cancelled!");
+        }
+
+        List<ValidationResult> validationResults = new ArrayList<>();
+        for (ValidationOutcome outcome : outcomes) {
+            if (!outcome.isSuccessful()) {
+                if (outcome.getFailure() instanceof BpmnValidationException) {
+                    throw (BpmnValidationException) outcome.getFailure();
+                }
+                throw new BpmnValidationException(String.format(
+                        "Validation of %s failed!", outcome.getFile()
+                                .getName()));
+            }
+            validationResults.add(outcome.getResult());
+        }
+        return validationResults;
+    }
+
+    /**
+     * validates all files of the given source in the pipeline and blocks until
+     * all outcomes are handled
+     *
+     * @param xmlFiles
+     *            the source of the xml files to validate
+     * @param handler
+     *            the handler of the outcomes, which is called concurrently by
+     *            the threads of the pipeline
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting for the
+     *             pipeline, which stops all threads of the pipeline
+     */
+    public void run(Iterator<File> xmlFiles,
+            final ValidationOutcomeHandler handler)
+            throws InterruptedException {
+        process(xmlFiles, null, new IndexedOutcomeHandler() {
+            @Override
+            public void handle(int index, ValidationOutcome outcome) {
+                handler.handle(outcome);
+            }
+        });
+    }
+
+    /**
+     * validates all files of the given plan in the pipeline in the planned
+     * order and blocks until all outcomes are handled. The time spent in the
+     * stages is recorded as the actual time of every planned file.
+     *
+     * @param plan
+     *            the plan of the files to validate
+     * @param handler
+     *            the handler of the outcomes, which is called concurrently by
+     *            the threads of the pipeline
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting for the
+     *             pipeline, which stops all threads of the pipeline
+     */
+    public void run(SchedulingPlan plan,
+            final ValidationOutcomeHandler handler)
+            throws InterruptedException {
+        process(null, plan.getPlannedFiles(), new IndexedOutcomeHandler() {
+            @Override
+            public void handle(int index, ValidationOutcome outcome) {
+                handler.handle(outcome);
+            }
+        });
+    }
+
+    /**
+     * runs the pipeline either for the given source of files or for the given
+     * planned files
+     */
+    private void process(Iterator<File> xmlFiles,
+            List<PlannedFile> plannedFiles, IndexedOutcomeHandler handler)
+            throws InterruptedException {
+        ValidationStage[] stages = ValidationStage.values();
+        List<BlockingQueue<PipelineItem>> queues = new ArrayList<>();
+        List<StageStatistics> runStatistics = new ArrayList<>();
+        for (ValidationStage stage : stages) {
+            BlockingQueue<PipelineItem> queue = new ArrayBlockingQueue<>(
+                    queueCapacity);
+            queues.add(queue);
+            runStatistics.add(new StageStatistics(stage, stageThreads
+                    .get(stage), queue));
+        }
+        statistics = Collections.unmodifiableList(runStatistics);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < stages.length; i++) {
+            ValidationStage stage = stages[i];
+            BlockingQueue<PipelineItem> output = i + 1 < stages.length ? queues
+                    .get(i + 1) : null;
+            int nextThreads = i + 1 < stages.length ? stageThreads
+                    .get(stages[i + 1]) : 0;
+            StageWorker worker = new StageWorker(stage, queues.get(i), output,
+                    nextThreads, runStatistics.get(i), handler,
+                    new AtomicInteger(stageThreads.get(stage)));
+            for (int j = 0; j < stageThreads.get(stage); j++) {
+                Thread thread = new Thread(worker, "bpmn-pipeline-"
+                        + stage.name().toLowerCase() + "-" + j);
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        try {
+            BlockingQueue<PipelineItem> input = queues.get(0);
+            if (plannedFiles != null) {
+                for (PlannedFile plannedFile : plannedFiles) {
+                    submit(input, plannedFile.getIndex(),
+                            plannedFile.getFile(), plannedFile);
+                }
+            } else {
+                int index = 0;
+                while (xmlFiles.hasNext()) {
+                    submit(input, index++, xmlFiles.next(), null);
+                }
+            }
+            for (int j = 0; j < stageThreads.get(stages[0]); j++) {
+                input.put(PipelineItem.POISON);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            // jobs left in the queues are never completed
+            for (BlockingQueue<PipelineItem> queue : queues) {
+                for (PipelineItem item : queue) {
+                    item.releaseMemory();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void submit(BlockingQueue<PipelineItem> input, int index,
+            File xmlFile, PlannedFile plannedFile) throws InterruptedException {
+        PipelineItem item = new PipelineItem(index, new ValidationJob(xmlFile),
+                plannedFile);
+        if (memoryBudget != null) {
+            item.budget = memoryBudget;
+            item.reservedBytes = memoryBudget.acquire(xmlFile);
+        }
+        try {
+            input.put(item);
+        } catch (InterruptedException e) {
+            item.releaseMemory();
+            throw e;
+        }
+    }
+
+    /**
+     * a job within the pipeline with its position in the source of files and
+     * the time spent in the stages so far
+     */
+    private static class PipelineItem {
+
+        static final PipelineItem POISON = new PipelineItem(-1, null, null);
+
+        private final int index;
+        private final ValidationJob job;
+        private final PlannedFile plannedFile;
+        private long processingNanos;
+        private boolean completed;
+        private MemoryBudget budget;
+        private long reservedBytes;
+
+        PipelineItem(int index, ValidationJob job, PlannedFile plannedFile) {
+            this.index = index;
+            this.job = job;
+            this.plannedFile = plannedFile;
+        }
+
+        synchronized void releaseMemory() {
+            if (budget != null) {
+                budget.release(reservedBytes);
+                budget = null;
+            }
+        }
+    }
+
+    /**
+     * handler, which also gets the position of the file in the source
+     */
+    private interface IndexedOutcomeHandler {
+        void handle(int index, ValidationOutcome outcome);
+    }
+
+    /**
+     * runs one stage for the jobs of its input queue and passes them to the
+     * next stage or to the handler, if they are completed. The last thread of a
+     * stage, which leaves, informs all threads of the next stage about the
+     * end. A job, which fails unexpectedly, is completed with the failure, so
+     * that the worker keeps running.
+     */
+    private class StageWorker implements Runnable {
+
+        private final ValidationStage stage;
+        private final BlockingQueue<PipelineItem> input;
+        private final BlockingQueue<PipelineItem> output;
+        private final int nextThreads;
+        private final StageStatistics stageStatistics;
+        private final IndexedOutcomeHandler handler;
+        private final AtomicInteger runningThreads;
+
+        StageWorker(ValidationStage stage, BlockingQueue<PipelineItem> input,
+                BlockingQueue<PipelineItem> output, int nextThreads,
+                StageStatistics stageStatistics,
+                IndexedOutcomeHandler handler, AtomicInteger runningThreads) {
+            this.stage = stage;
+            this.input = input;
+            this.output = output;
+            this.nextThreads = nextThreads;
+            this.stageStatistics = stageStatistics;
+            this.handler = handler;
+            this.runningThreads = runningThreads;
+        }
+
+        @Override
+        public void run() {
+            SchematronBPMNValidator stageValidator = validator.getValidator();
+            try {
+                while (true) {
+                    PipelineItem item = input.take();
+                    if (item == PipelineItem.POISON) {
+                        return;
+                    }
+                    try {
+                        process(stageValidator, item);
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        fail(item, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                LOGGER.debug("pipeline stage {} interrupted", stage);
+            } finally {
+                leave();
+            }
+        }
+
+        private void fail(PipelineItem item, Throwable e) {
+            LOGGER.error("pipeline stage {} failed for {}: {}", new Object[] {
+                    stage, item.job.getFile().getName(), e });
+            if (!item.completed) {
+                complete(item,
+                        ValidationOutcome.failure(item.job.getFile(), e));
+            }
+        }
+
+        /**
+         * informs the next stage about the end, if this is the last running
+         * thread of the stage
+         */
+        private void leave() {
+            if (runningThreads.decrementAndGet() == 0 && output != null) {
+                try {
+                    for (int i = 0; i < nextThreads; i++) {
+                        output.put(PipelineItem.POISON);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void process(SchematronBPMNValidator stageValidator,
+                PipelineItem item) throws InterruptedException {
+            ValidationJob job = item.job;
+            if (stage == ValidationStage.READ) {
+                job.setDeadline(ValidationDeadline.after(timeoutMillis,
+                        TimeUnit.MILLISECONDS));
+            }
+            long start = System.nanoTime();
+            try {
+                stageValidator.runStage(stage, job);
+            } catch (BpmnValidationException e) {
+                record(item, System.nanoTime() - start);
+                complete(item, ValidationOutcome.failure(job.getFile(), e));
+                return;
+            }
+            record(item, System.nanoTime() - start);
+            if (job.isCompleted()) {
+                complete(item, ValidationOutcome.success(job.getFile(),
+                        job.getValidationResult(), job.getDigest()));
+            } else {
+                output.put(item);
+            }
+        }
+
+        private void record(PipelineItem item, long nanos) {
+            stageStatistics.recordJob(nanos);
+            item.processingNanos += nanos;
+        }
+
+        private void complete(PipelineItem item, ValidationOutcome outcome) {
+            item.completed = true;
+            item.releaseMemory();
+            if (item.plannedFile != null) {
+                item.plannedFile.setActualMillis(TimeUnit.NANOSECONDS
+                        .toMillis(item.processingNanos));
+            }
+            try {
+                handler.handle(item.index, outcome);
+            } catch (RuntimeException e) {
+                LOGGER.error("handling the result of {} failed: {}", outcome
+                        .getFile().getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.concurrent;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Streams the validation of an arbitrary long sequence of files with a bounded
+ * number of validations in flight
+ * <p>
+ * The stream is demand-driven: files are only taken from the source, when the
+ * consumer asks for further outcomes and less than the configured number of
+ * validations are running. Thus, neither the files nor the results of the
+ * whole sequence are ever held in memory. A validation, whose outcome is
+ * awaited by the consumer, counts as in flight, until its outcome is there.
+ * The outcomes are returned in the order of the files.
+ *
+ * @version 1.0
+ *
+ */
+public class ValidationStream implements Iterator<ValidationOutcome>,
+        Closeable {
+
+    private final AsyncBpmnValidator asyncValidator;
+    private final Iterator<File> files;
+    private final int maxInFlight;
+    private final Deque<ValidationFuture> inFlight;
+    private final List<ValidationFuture> awaited = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * @param asyncValidator
+     *            the validator running the validations
+     * @param files
+     *            the source of the files to validate
+     * @param maxInFlight
+     *            the maximum number of validations running or waiting for
+     *            consumption at the same time
+     */
+    public ValidationStream(AsyncBpmnValidator asyncValidator,
+            Iterator<File> files, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException(
+                    "At least one validation must be allowed in flight");
+        }
+        this.asyncValidator = asyncValidator;
+        this.files = files;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new ArrayDeque<>(maxInFlight);
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        requestFiles();
+        return !inFlight.isEmpty();
+    }
+
+    /**
+     * waits for the validation of the next file, while the following files are
+     * validated in the background. The stream isn't locked while waiting, so
+     * that it can be closed meanwhile.
+     */
+    @Override
+    public ValidationOutcome next() {
+        ValidationFuture future;
+        synchronized (this) {
+            requestFiles();
+            future = inFlight.poll();
+            if (future == null) {
+                throw new NoSuchElementException();
+            }
+            awaited.add(future);
+        }
+        try {
+            return getOutcome(future);
+        } finally {
+            synchronized (this) {
+                awaited.remove(future);
+                requestFiles();
+            }
+        }
+    }
+
+    private ValidationOutcome getOutcome(ValidationFuture future) {
+        try {
+            return ValidationOutcome.success(future.getFile(), future.get());
+        } catch (ExecutionException e) {
+            return ValidationOutcome.failure(future.getFile(), e.getCause());
+        } catch (CancellationException e) {
+            return ValidationOutcome.failure(future.getFile(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ValidationOutcome.failure(future.getFile(), e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * stops taking files from the source and cancels all validations, whose
+     * outcomes weren't consumed yet, including the awaited ones
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (ValidationFuture future : inFlight) {
+            future.cancel(true);
+        }
+        for (ValidationFuture future : awaited) {
+            future.cancel(true);
+        }
+        inFlight.clear();
+    }
+
+    /**
+     * @return the number of validations started, but not consumed yet
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight.size() + awaited.size();
+    }
+
+    private void requestFiles() {
+        while (!closed && getInFlightCount() < maxInFlight && files.hasNext()) {
+            inFlight.add(asyncValidator.validateAsync(files.next()));
+        }
+    }
+}
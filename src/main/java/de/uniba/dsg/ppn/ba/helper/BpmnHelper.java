@@ -21,9 +21,18 @@
  */
 package de.uniba.dsg.ppn.ba.helper;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.DocumentBuilder;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import de.uniba.dsg.ppn.ba.source.ModelSource;
 
 /**
  * helper class for all bpmn class-across methods
@@ -60,4 +69,28 @@ public class BpmnHelper {
     public static String createIdBpmnExpression(String id) {
         return String.format("//bpmn:*[@id = '%s']", id);
     }
+
+    /**
+     * parses the given file read from the given source
+     *
+     * @param documentBuilder
+     *            the builder of the calling thread
+     * @param file
+     *            the file to parse, whose uri is the base uri of the document
+     * @param source
+     *            the source providing the content of the file
+     * @return the parsed document
+     * @throws IOException
+     *             if the file can't be read or exceeds the maximum document
+     *             size
+     * @throws SAXException
+     *             if the file can't be parsed
+     */
+    public static Document parse(DocumentBuilder documentBuilder, File file,
+            ModelSource source) throws IOException, SAXException {
+        try (InputStream inputStream = ParserProfile.getCurrent().limit(
+                source.open(file))) {
+            return documentBuilder.parse(inputStream, file.toURI().toString());
+        }
+    }
 }
@@ -0,0 +1,137 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.helper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * helper class for calculating content digests of validated files
+ *
+ * @version 1.0
+ *
+ */
+public class DigestHelper {
+
+    /**
+     * @return a new SHA-256 message digest
+     */
+    public static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * calculates the SHA-256 digest of the given content
+     *
+     * @param content
+     *            the content to digest
+     * @return the digest as lower case hex string
+     */
+    public static String digest(byte[] content) {
+        return toHex(createDigest().digest(content));
+    }
+
+    /**
+     * calculates the SHA-256 digest of the content of the given file without
+     * loading the whole file into memory
+     *
+     * @param file
+     *            the file to digest
+     * @return the digest as lower case hex string
+     * @throws IOException
+     *             if the file can't be read
+     */
+    public static String digest(File file) throws IOException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return digest(inputStream);
+        }
+    }
+
+    /**
+     * calculates the SHA-256 digest of the remaining content of the given
+     * stream without loading it into memory. The stream isn't closed.
+     *
+     * @param inputStream
+     *            the stream to digest
+     * @return the digest as lower case hex string
+     * @throws IOException
+     *             if the stream can't be read
+     */
+    public static String digest(InputStream inputStream) throws IOException {
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * calculates the SHA-256 digest of the given class path resources
+     *
+     * @param resourceNames
+     *            the names of the resources relative to the class path root
+     * @return the digest of all resources as lower case hex string
+     * @throws IOException
+     *             if a resource doesn't exist or can't be read
+     */
+    public static String digestResources(String... resourceNames)
+            throws IOException {
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[8192];
+        for (String resourceName : resourceNames) {
+            try (InputStream inputStream = DigestHelper.class
+                    .getResourceAsStream("/" + resourceName)) {
+                if (inputStream == null) {
+                    throw new IOException("Resource " + resourceName
+                            + " doesn't exist");
+                }
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @param digest
+     *            the bytes of a calculated digest
+     * @return the digest as lower case hex string
+     */
+    public static String toHex(byte[] digest) {
+        return DatatypeConverter.printHexBinary(digest).toLowerCase();
+    }
+}
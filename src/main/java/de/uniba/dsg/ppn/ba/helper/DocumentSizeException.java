@@ -0,0 +1,46 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.helper;
+
+import java.io.IOException;
+
+/**
+ * Thrown while reading a file, which exceeds the maximum document size of the
+ * {@link ParserProfile}
+ *
+ * @version 1.0
+ *
+ */
+public class DocumentSizeException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param maxDocumentSize
+     *            the exceeded maximum size in bytes
+     */
+    public DocumentSizeException(long maxDocumentSize) {
+        super(String.format(
+                "The file exceeds the maximum document size of %d bytes.",
+                maxDocumentSize));
+    }
+}
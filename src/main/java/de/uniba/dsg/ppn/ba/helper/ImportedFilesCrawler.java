@@ -68,14 +68,8 @@ public class ImportedFilesCrawler {
                     .getNamedItem("importType").getTextContent();
             if (!onlyBpmnFiles
                     || ConstantHelper.BPMNNAMESPACE.equals(importType)) {
-                File file = new File(importedFileNode.getAttributes()
-                        .getNamedItem("location").getTextContent());
-                if (!file.isAbsolute()) {
-                    file = new File(folder.getPath()
-                            + File.separator
-                            + importedFileNode.getAttributes()
-                            .getNamedItem("location").getTextContent());
-                }
+                File file = resolveLocation(importedFileNode.getAttributes()
+                        .getNamedItem("location").getTextContent(), folder);
                 String prefix = "ns" + (i + size);
                 String namespace = importedFileNode.getAttributes()
                         .getNamedItem("namespace").getTextContent();
@@ -87,4 +81,21 @@ public class ImportedFilesCrawler {
         return importedFiles;
     }
 
+    /**
+     * resolves the location of an import
+     *
+     * @param location
+     *            the location attribute of the import
+     * @param folder
+     *            the parent folder of the importing document
+     * @return the imported file, which is either absolute or relative to the
+     *         given folder
+     */
+    public static File resolveLocation(String location, File folder) {
+        File file = new File(location);
+        if (!file.isAbsolute()) {
+            file = new File(folder.getPath() + File.separator + location);
+        }
+        return file;
+    }
 }
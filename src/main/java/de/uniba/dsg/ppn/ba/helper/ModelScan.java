@@ -0,0 +1,109 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.helper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.uniba.dsg.ppn.ba.preprocessing.ImportedFile;
+
+/**
+ * The result of a {@link ModelScanner} run: size, element census and imports
+ * of a file
+ *
+ * @version 1.0
+ *
+ */
+public class ModelScan {
+
+    private final File file;
+    private final long size;
+    private final Map<String, Integer> census = new HashMap<>();
+    private final List<ImportedFile> importedFiles = new ArrayList<>();
+    private int elementCount;
+
+    ModelScan(File file, long size) {
+        this.file = file;
+        this.size = size;
+    }
+
+    /**
+     * @return the scanned file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of all elements in the file
+     */
+    public int getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * @param localName
+     *            the local name of the elements, e.g. sequenceFlow
+     * @return the number of elements in the bpmn namespace with the given name
+     */
+    public int getElementCount(String localName) {
+        Integer count = census.get(localName);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return the number of elements in the bpmn namespace by their local names
+     */
+    public Map<String, Integer> getCensus() {
+        return Collections.unmodifiableMap(census);
+    }
+
+    /**
+     * @return all imports of the file with their resolved locations
+     */
+    public List<ImportedFile> getImportedFiles() {
+        return Collections.unmodifiableList(importedFiles);
+    }
+
+    void countElement(String namespace, String localName) {
+        elementCount++;
+        if (ConstantHelper.BPMNNAMESPACE.equals(namespace)) {
+            Integer count = census.get(localName);
+            census.put(localName, count == null ? 1 : count + 1);
+        }
+    }
+
+    void addImportedFile(ImportedFile importedFile) {
+        importedFiles.add(importedFile);
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.helper;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import de.uniba.dsg.ppn.ba.preprocessing.ImportedFile;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+
+/**
+ * Scans files with a non-validating streaming parser and collects their size,
+ * element census and imports without building a document. A scan is much
+ * cheaper than parsing the file into a document. A scanner must not be used by
+ * several threads at the same time.
+ *
+ * @version 1.0
+ *
+ */
+public class ModelScanner {
+
+    private final XMLInputFactory inputFactory;
+
+    {
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        ParserProfile.getCurrent().configure(inputFactory);
+    }
+
+    /**
+     * scans the given file
+     *
+     * @param file
+     *            the file to scan
+     * @return the scan of the file
+     * @throws IOException
+     *             if the file can't be read
+     * @throws XMLStreamException
+     *             if the file isn't well-formed
+     */
+    public ModelScan scan(File file) throws IOException, XMLStreamException {
+        try (InputStream inputStream = new BufferedInputStream(ParserProfile
+                .getCurrent().limit(FileSystemSource.INSTANCE.open(file)))) {
+            return scan(file, FileSystemSource.INSTANCE
+                    .getContentLength(file), inputStream);
+        }
+    }
+
+    /**
+     * scans the already read content of the given file
+     *
+     * @param file
+     *            the file, whose location is used to resolve the imports
+     * @param content
+     *            the content of the file
+     * @return the scan of the file
+     * @throws XMLStreamException
+     *             if the content isn't well-formed
+     */
+    public ModelScan scan(File file, byte[] content) throws XMLStreamException {
+        return scan(file, content.length, new ByteArrayInputStream(content));
+    }
+
+    /**
+     * scans the content of the given file, which is read from the given stream
+     *
+     * @param file
+     *            the file, whose location is used to resolve the imports
+     * @param size
+     *            the size of the content in bytes
+     * @param inputStream
+     *            the stream of the content, which isn't closed
+     * @return the scan of the file
+     * @throws XMLStreamException
+     *             if the content isn't well-formed
+     */
+    public ModelScan scan(File file, long size, InputStream inputStream)
+            throws XMLStreamException {
+        ModelScan scan = new ModelScan(file, size);
+        XMLStreamReader reader = inputFactory
+                .createXMLStreamReader(inputStream);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    scan.countElement(reader.getNamespaceURI(),
+                            reader.getLocalName());
+                    if (ConstantHelper.BPMNNAMESPACE.equals(reader
+                            .getNamespaceURI())
+                            && "import".equals(reader.getLocalName())) {
+                        addImportedFile(scan, reader);
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return scan;
+    }
+
+    private void addImportedFile(ModelScan scan, XMLStreamReader reader) {
+        String location = reader.getAttributeValue(null, "location");
+        if (location == null) {
+            return;
+        }
+        File file = ImportedFilesCrawler.resolveLocation(location, scan
+                .getFile().getAbsoluteFile().getParentFile());
+        scan.addImportedFile(new ImportedFile(file, "ns"
+                + scan.getImportedFiles().size(), reader.getAttributeValue(
+                null, "namespace"), reader.getAttributeValue(null,
+                "importType")));
+    }
+}
@@ -0,0 +1,395 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.helper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import org.jdom2.input.SAXBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.ResourceResolver;
+
+/**
+ * The hardened configuration of all xml parsers of the validator, as the
+ * validated files are untrusted uploads. Every parser processes securely,
+ * doesn't access external DTDs and schemas except those of the local
+ * {@link ResourceResolver catalog} and fails fast, if a file exceeds the
+ * limits of the profile: the expansion of entities, the depth of elements,
+ * the number of attributes of an element and the size of the document.
+ * <p>
+ * Parsers are configured with the current profile, when they are created, so
+ * a changed profile applies to the validators created afterwards.
+ *
+ * @version 1.0
+ *
+ */
+public final class ParserProfile {
+
+    /**
+     * the default limits: 64 MiB per document, an element depth of 500, 1000
+     * attributes per element and 10000 entity expansions per document
+     */
+    public static final ParserProfile DEFAULT = new ParserProfile(
+            64L * 1024 * 1024, 500, 1000, 10000);
+
+    private static final String JDKPROPERTYPREFIX = "http://www.oracle.com/xml/jaxp/properties/";
+    private static final String ENTITYEXPANSIONLIMIT = JDKPROPERTYPREFIX
+            + "entityExpansionLimit";
+    private static final String MAXELEMENTDEPTH = JDKPROPERTYPREFIX
+            + "maxElementDepth";
+    private static final String ELEMENTATTRIBUTELIMIT = JDKPROPERTYPREFIX
+            + "elementAttributeLimit";
+    /**
+     * the protocols of the class path, from which the bundled schemas and
+     * their includes are read
+     */
+    private static final String CLASSPATHPROTOCOLS = "file,jar";
+    private static final Logger LOGGER;
+
+    private static volatile ParserProfile current = DEFAULT;
+
+    private final long maxDocumentSize;
+    private final int maxElementDepth;
+    private final int maxAttributes;
+    private final int maxEntityExpansions;
+
+    static {
+        LOGGER = LoggerFactory.getLogger(ParserProfile.class.getSimpleName());
+    }
+
+    /**
+     * @param maxDocumentSize
+     *            the maximum size of a file in bytes
+     * @param maxElementDepth
+     *            the maximum depth of the elements of a file
+     * @param maxAttributes
+     *            the maximum number of attributes of an element
+     * @param maxEntityExpansions
+     *            the maximum number of entity expansions of a file
+     */
+    public ParserProfile(long maxDocumentSize, int maxElementDepth,
+            int maxAttributes, int maxEntityExpansions) {
+        if (maxDocumentSize <= 0 || maxElementDepth <= 0 || maxAttributes <= 0
+                || maxEntityExpansions <= 0) {
+            throw new IllegalArgumentException("limits must be positive");
+        }
+        this.maxDocumentSize = maxDocumentSize;
+        this.maxElementDepth = maxElementDepth;
+        this.maxAttributes = maxAttributes;
+        this.maxEntityExpansions = maxEntityExpansions;
+    }
+
+    /**
+     * @return the profile, with which new parsers are configured
+     */
+    public static ParserProfile getCurrent() {
+        return current;
+    }
+
+    /**
+     * @param profile
+     *            the profile, with which new parsers are configured
+     */
+    public static void setCurrent(ParserProfile profile) {
+        if (profile == null) {
+            throw new IllegalArgumentException("profile must not be null");
+        }
+        current = profile;
+    }
+
+    /**
+     * @return the maximum size of a file in bytes
+     */
+    public long getMaxDocumentSize() {
+        return maxDocumentSize;
+    }
+
+    /**
+     * @return the maximum depth of the elements of a file
+     */
+    public int getMaxElementDepth() {
+        return maxElementDepth;
+    }
+
+    /**
+     * @return the maximum number of attributes of an element
+     */
+    public int getMaxAttributes() {
+        return maxAttributes;
+    }
+
+    /**
+     * @return the maximum number of entity expansions of a file
+     */
+    public int getMaxEntityExpansions() {
+        return maxEntityExpansions;
+    }
+
+    /**
+     * @param size
+     *            the maximum size of a file in bytes
+     * @return a profile with the limits of this profile, but the given
+     *         maximum document size
+     */
+    public ParserProfile withMaxDocumentSize(long size) {
+        return new ParserProfile(size, maxElementDepth, maxAttributes,
+                maxEntityExpansions);
+    }
+
+    /**
+     * @param size
+     *            the size of a file in bytes
+     * @throws DocumentSizeException
+     *             if the size exceeds the maximum document size
+     */
+    public void checkDocumentSize(long size) throws DocumentSizeException {
+        if (size > maxDocumentSize) {
+            throw new DocumentSizeException(maxDocumentSize);
+        }
+    }
+
+    /**
+     * @param inputStream
+     *            the stream of the content of a file
+     * @return a stream, which fails with a {@link DocumentSizeException}, as
+     *         soon as more than the maximum document size is read
+     */
+    public InputStream limit(InputStream inputStream) {
+        return new LimitedInputStream(inputStream, maxDocumentSize);
+    }
+
+    /**
+     * configures the given factory of document builders. The builders must
+     * additionally use the {@link ResourceResolver} as entity resolver.
+     */
+    public void configure(DocumentBuilderFactory factory) {
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (ParserConfigurationException e) {
+            logUnsupported(XMLConstants.FEATURE_SECURE_PROCESSING, e);
+        }
+        factory.setXIncludeAware(false);
+        setAttribute(factory, XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        setAttribute(factory, XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        setAttribute(factory, ENTITYEXPANSIONLIMIT,
+                String.valueOf(maxEntityExpansions));
+        setAttribute(factory, MAXELEMENTDEPTH, String.valueOf(maxElementDepth));
+        setAttribute(factory, ELEMENTATTRIBUTELIMIT,
+                String.valueOf(maxAttributes));
+    }
+
+    /**
+     * configures the given factory of streaming parsers, which read internal
+     * DTDs like the document builders, so that both accept the same files
+     */
+    public void configure(XMLInputFactory factory) {
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+                false);
+        setProperty(factory, XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        setProperty(factory, ENTITYEXPANSIONLIMIT,
+                String.valueOf(maxEntityExpansions));
+        setProperty(factory, MAXELEMENTDEPTH, String.valueOf(maxElementDepth));
+        setProperty(factory, ELEMENTATTRIBUTELIMIT,
+                String.valueOf(maxAttributes));
+    }
+
+    /**
+     * configures the given JDOM builder including its entity resolver
+     */
+    public void configure(SAXBuilder builder) {
+        builder.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        builder.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        builder.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        builder.setProperty(ENTITYEXPANSIONLIMIT,
+                String.valueOf(maxEntityExpansions));
+        builder.setProperty(MAXELEMENTDEPTH, String.valueOf(maxElementDepth));
+        builder.setProperty(ELEMENTATTRIBUTELIMIT,
+                String.valueOf(maxAttributes));
+        builder.setEntityResolver(new ResourceResolver());
+    }
+
+    /**
+     * configures the given schema factory including its resource resolver.
+     * The factory only compiles the bundled schemas, so their limits aren't
+     * restricted and it may read from the class path, i.e. from files and
+     * jars. Some JDKs, e.g. JDK 8, check the access also for the includes
+     * served by the resource resolver. All other protocols are refused.
+     */
+    public void configure(SchemaFactory factory) {
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (SAXException e) {
+            logUnsupported(XMLConstants.FEATURE_SECURE_PROCESSING, e);
+        }
+        setProperty(factory, XMLConstants.ACCESS_EXTERNAL_DTD,
+                CLASSPATHPROTOCOLS);
+        setProperty(factory, XMLConstants.ACCESS_EXTERNAL_SCHEMA,
+                CLASSPATHPROTOCOLS);
+        factory.setResourceResolver(new ResourceResolver());
+    }
+
+    /**
+     * configures the given validator, which parses the validated file,
+     * including its resource resolver
+     */
+    public void configure(Validator validator) {
+        setProperty(validator, XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        setProperty(validator, XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        setProperty(validator, ENTITYEXPANSIONLIMIT,
+                String.valueOf(maxEntityExpansions));
+        setProperty(validator, MAXELEMENTDEPTH,
+                String.valueOf(maxElementDepth));
+        setProperty(validator, ELEMENTATTRIBUTELIMIT,
+                String.valueOf(maxAttributes));
+        validator.setResourceResolver(new ResourceResolver());
+    }
+
+    /**
+     * configures the given transformer factory, which serializes documents
+     * and sources supplied by the caller
+     */
+    public void configure(TransformerFactory factory) {
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (TransformerConfigurationException e) {
+            logUnsupported(XMLConstants.FEATURE_SECURE_PROCESSING, e);
+        }
+        setAttribute(factory, XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        setAttribute(factory, XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+    }
+
+    private static void setAttribute(DocumentBuilderFactory factory,
+            String name, String value) {
+        try {
+            factory.setAttribute(name, value);
+        } catch (IllegalArgumentException e) {
+            logUnsupported(name, e);
+        }
+    }
+
+    private static void setAttribute(TransformerFactory factory, String name,
+            String value) {
+        try {
+            factory.setAttribute(name, value);
+        } catch (IllegalArgumentException e) {
+            logUnsupported(name, e);
+        }
+    }
+
+    private static void setProperty(XMLInputFactory factory, String name,
+            String value) {
+        try {
+            factory.setProperty(name, value);
+        } catch (IllegalArgumentException e) {
+            logUnsupported(name, e);
+        }
+    }
+
+    private static void setProperty(SchemaFactory factory, String name,
+            String value) {
+        try {
+            factory.setProperty(name, value);
+        } catch (SAXException e) {
+            logUnsupported(name, e);
+        }
+    }
+
+    private static void setProperty(Validator validator, String name,
+            String value) {
+        try {
+            validator.setProperty(name, value);
+        } catch (SAXException e) {
+            logUnsupported(name, e);
+        }
+    }
+
+    private static void logUnsupported(String name, Exception e) {
+        LOGGER.warn("xml parser doesn't support {}: {}", name, e.getMessage());
+    }
+
+    /**
+     * stream, which counts the read bytes and fails, when the maximum size is
+     * exceeded
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private final long maxSize;
+        private long readBytes;
+
+        LimitedInputStream(InputStream inputStream, long maxSize) {
+            super(inputStream);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                count(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length)
+                throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read != -1) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long bytes) throws DocumentSizeException {
+            readBytes += bytes;
+            if (readBytes > maxSize) {
+                throw new DocumentSizeException(maxSize);
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import de.uniba.dsg.ppn.ba.preprocessing.ImportedFile;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+
+/**
+ * Calculates semantic fingerprints of models. The fingerprint is the digest of
+ * a canonical form of the model, which ignores everything the validator
+ * doesn't check: the bpmn diagram, comments, processing instructions, the
+ * prefixes of namespaces, the order of attributes and the formatting
+ * whitespace. Prefixed names in attribute values and texts, like references
+ * to elements of imports or types, are included with the namespace bound to
+ * their prefix, and declarations of the default namespace are included, as
+ * unprefixed references are resolved against it. Imported files are included
+ * by their own fingerprints, so a fingerprint changes, when the model or one
+ * of its imports is changed semantically, but not when shapes are moved or the
+ * file is reformatted.
+ * Files, which can't be parsed, are included by the digest of their content.
+ * <p>
+ * Line numbers of violations aren't part of the fingerprint, so a result
+ * cached by fingerprint may refer to the lines of a reformatted version of the
+ * model.
+ * <p>
+ * A fingerprinter holds a document builder and must not be shared between
+ * threads.
+ *
+ * @version 1.0
+ *
+ */
+public class SemanticFingerprinter {
+
+    private final DocumentBuilder documentBuilder;
+    private static final String NCNAME = "([\\p{L}_][\\w.\\-]*)";
+    private static final Pattern PREFIXEDNAME = Pattern.compile("(?<![^\\s])"
+            + NCNAME + ":" + NCNAME + "(?![^\\s])");
+    private static final Comparator<Attr> ATTRIBUTEORDER = new Comparator<Attr>() {
+        @Override
+        public int compare(Attr first, Attr second) {
+            int comparison = String.valueOf(first.getNamespaceURI())
+                    .compareTo(String.valueOf(second.getNamespaceURI()));
+            if (comparison == 0) {
+                comparison = getLocalName(first).compareTo(
+                        getLocalName(second));
+            }
+            return comparison;
+        }
+    };
+
+    {
+        documentBuilder = SetupHelper.setupDocumentBuilder();
+    }
+
+    /**
+     * calculates the fingerprint of the given model and its imports
+     *
+     * @param file
+     *            the model
+     * @return the fingerprint as lower case hex string
+     * @throws IOException
+     *             if the model can't be read
+     */
+    public String fingerprint(File file) throws IOException {
+        return fingerprint(file, new HashMap<File, String>(),
+                new HashSet<File>());
+    }
+
+    /**
+     * @param fingerprints
+     *            the fingerprints of the files, which were already calculated
+     *            for the current model
+     * @param inProgress
+     *            the files, whose fingerprints are being calculated, for
+     *            detecting cyclic imports
+     */
+    private String fingerprint(File file, Map<File, String> fingerprints,
+            Set<File> inProgress) throws IOException {
+        File canonicalFile = file.getCanonicalFile();
+        String fingerprint = fingerprints.get(canonicalFile);
+        if (fingerprint != null) {
+            return fingerprint;
+        }
+        inProgress.add(canonicalFile);
+        MessageDigest digest = DigestHelper.createDigest();
+        byte[] content = FileSystemSource.INSTANCE.readAllBytes(file);
+        Document document;
+        try {
+            documentBuilder.reset();
+            document = documentBuilder.parse(new ByteArrayInputStream(
+                    content), file.toURI().toString());
+        } catch (SAXException e) {
+            document = null;
+        }
+        if (document == null) {
+            update(digest, 'B', DigestHelper.digest(content));
+        } else {
+            BpmnHelper.removeBPMNDINode(document);
+            updateElement(digest, document.getDocumentElement());
+            for (ImportedFile importedFile : ImportedFilesCrawler
+                    .selectImportedFiles(document, file.getParentFile(), 0,
+                            false)) {
+                updateImport(digest, importedFile.getFile(), fingerprints,
+                        inProgress);
+            }
+        }
+        inProgress.remove(canonicalFile);
+        fingerprint = DigestHelper.toHex(digest.digest());
+        fingerprints.put(canonicalFile, fingerprint);
+        return fingerprint;
+    }
+
+    private void updateImport(MessageDigest digest, File importedFile,
+            Map<File, String> fingerprints, Set<File> inProgress)
+            throws IOException {
+        if (!FileSystemSource.INSTANCE.exists(importedFile)) {
+            // missing imports are reported by the validator
+            update(digest, 'M', importedFile.getName());
+        } else if (inProgress.contains(importedFile.getCanonicalFile())) {
+            // the cycle is already part of the fingerprint of the first file
+            update(digest, 'C', importedFile.getName());
+        } else {
+            update(digest, 'I', fingerprint(importedFile, fingerprints,
+                    inProgress));
+        }
+    }
+
+    /**
+     * adds the canonical form of the element and its descendants, i.e. its
+     * name, the declared default namespace, its sorted attributes except
+     * namespace declarations, its child elements and its text with collapsed
+     * whitespace, to the digest
+     */
+    private void updateElement(MessageDigest digest, Element element) {
+        update(digest, 'E', String.valueOf(element.getNamespaceURI()));
+        update(digest, ':', getLocalName(element));
+        NamedNodeMap attributes = element.getAttributes();
+        List<Attr> sortedAttributes = new ArrayList<>();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            if (!XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute
+                    .getNamespaceURI())) {
+                sortedAttributes.add(attribute);
+            } else if (XMLConstants.XMLNS_ATTRIBUTE.equals(attribute
+                    .getNodeName())) {
+                update(digest, 'D', attribute.getValue());
+            }
+        }
+        Collections.sort(sortedAttributes, ATTRIBUTEORDER);
+        for (Attr attribute : sortedAttributes) {
+            update(digest, 'A', String.valueOf(attribute.getNamespaceURI()));
+            update(digest, ':', getLocalName(attribute));
+            update(digest, '=', resolvePrefixes(element, attribute.getValue()));
+        }
+        StringBuilder text = new StringBuilder();
+        for (Node child = element.getFirstChild(); child != null; child = child
+                .getNextSibling()) {
+            if (child.getNodeType() == Node.TEXT_NODE
+                    || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+                text.append(child.getNodeValue());
+            } else if (child.getNodeType() == Node.ELEMENT_NODE) {
+                updateText(digest, element, text);
+                updateElement(digest, (Element) child);
+            }
+        }
+        updateText(digest, element, text);
+        update(digest, '/', "");
+    }
+
+    private void updateText(MessageDigest digest, Element element,
+            StringBuilder text) {
+        String collapsedText = text.toString().replaceAll("\\s+", " ").trim();
+        if (!collapsedText.isEmpty()) {
+            update(digest, 'T', resolvePrefixes(element, collapsedText));
+        }
+        text.setLength(0);
+    }
+
+    /**
+     * replaces the prefix of every whitespace separated name in the value,
+     * which is bound to a namespace in the scope of the element, by the
+     * namespace, so that the value doesn't depend on the chosen prefixes
+     */
+    private static String resolvePrefixes(Element element, String value) {
+        if (value.indexOf(':') < 0) {
+            return value;
+        }
+        Matcher matcher = PREFIXEDNAME.matcher(value);
+        StringBuffer resolvedValue = new StringBuffer();
+        while (matcher.find()) {
+            String namespace = element.lookupNamespaceURI(matcher.group(1));
+            String replacement = namespace == null ? matcher.group() : "{"
+                    + namespace + "}" + matcher.group(2);
+            matcher.appendReplacement(resolvedValue,
+                    Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(resolvedValue);
+        return resolvedValue.toString();
+    }
+
+    private void update(MessageDigest digest, char type, String value) {
+        digest.update((byte) type);
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String getLocalName(Node node) {
+        return node.getLocalName() == null ? node.getNodeName() : node
+                .getLocalName();
+    }
+}
@@ -29,6 +29,8 @@ import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.ResourceResolver;
+
 /**
  * This class is a setup helper class for the document builder and xpath
  * handling
@@ -40,15 +42,18 @@ import javax.xml.xpath.XPathFactory;
 public class SetupHelper {
 
     /**
-     * sets up the documentbuilder with the required namespace-awareness
+     * sets up the documentbuilder with the required namespace-awareness and
+     * the current {@link ParserProfile}
      */
     public static DocumentBuilder setupDocumentBuilder() {
         DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory
                 .newInstance();
         documentBuilderFactory.setNamespaceAware(true);
+        ParserProfile.getCurrent().configure(documentBuilderFactory);
         DocumentBuilder documentBuilder = null;
         try {
             documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            documentBuilder.setEntityResolver(new ResourceResolver());
         } catch (ParserConfigurationException e) {
             // ignore
         }
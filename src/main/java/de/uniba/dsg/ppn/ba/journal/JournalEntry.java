@@ -0,0 +1,73 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.journal;
+
+import java.io.File;
+
+/**
+ * An input recorded in the validation journal
+ *
+ * @version 1.0
+ *
+ */
+public class JournalEntry {
+
+    private final File input;
+    private final String digest;
+    private final String status;
+    private final File resultFile;
+
+    JournalEntry(File input, String digest, String status, File resultFile) {
+        this.input = input;
+        this.digest = digest;
+        this.status = status;
+        this.resultFile = resultFile;
+    }
+
+    /**
+     * @return the absolute path of the input
+     */
+    public File getInput() {
+        return input;
+    }
+
+    /**
+     * @return the digest of the content of the input when it was recorded
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * @return the status of the input, e.g. <code>valid</code>
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the file, where the result of the input was written to
+     */
+    public File getResultFile() {
+        return resultFile;
+    }
+}
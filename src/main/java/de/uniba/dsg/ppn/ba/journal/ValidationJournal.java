@@ -0,0 +1,274 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.journal;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.uniba.dsg.ppn.ba.helper.DigestHelper;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+
+/**
+ * Append-only journal of the completed inputs of a batch run, so that a run,
+ * which died, can be resumed with exactly the remaining inputs. Every
+ * completed input is appended as one line with the tab separated digest of
+ * its content, its status, the location of its result and its path. The
+ * lines are buffered and flushed in batches, so a crash loses at most the
+ * last batch, whose inputs are simply validated again. A torn last line is
+ * cut off on opening.
+ *
+ * An input counts as completed, if its content still has the journaled digest
+ * and its result still exists. Later lines of the same input replace earlier
+ * ones. The class is thread-safe.
+ *
+ * @version 1.0
+ *
+ */
+public class ValidationJournal implements Closeable {
+
+    private final File file;
+    private final Map<String, JournalEntry> entries = new HashMap<>();
+    private final Writer writer;
+    private int batchSize = 64;
+    private long flushMillis = 2000;
+    private int unflushedEntries;
+    private long lastFlush = System.currentTimeMillis();
+    private static final char SEPARATOR = '\t';
+    private static final Logger LOGGER;
+
+    static {
+        LOGGER = LoggerFactory.getLogger(ValidationJournal.class
+                .getSimpleName());
+    }
+
+    /**
+     * opens the journal in the given file, reads its entries and appends new
+     * entries to it
+     *
+     * @param file
+     *            the journal file, which is created if it doesn't exist
+     * @throws IOException
+     *             if the journal can't be read or opened for appending
+     */
+    public ValidationJournal(File file) throws IOException {
+        this.file = file;
+        if (file.exists()) {
+            read();
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * sets the number of entries, after which the journal is flushed
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * sets the time, after which the journal is flushed at the next entry,
+     * even if the batch isn't full
+     */
+    public void setFlushMillis(long flushMillis) {
+        this.flushMillis = flushMillis;
+    }
+
+    /**
+     * @return the file of the journal
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of distinct inputs in the journal
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param input
+     *            the input of the batch run
+     * @return the journaled entry of the input or null
+     */
+    public synchronized JournalEntry getEntry(File input) {
+        return entries.get(input.getAbsolutePath());
+    }
+
+    /**
+     * @param input
+     *            the input of the batch run
+     * @return true, if the input is journaled with its current content and
+     *         its result still exists
+     */
+    public boolean isCompleted(File input) {
+        JournalEntry entry = getEntry(input);
+        if (entry == null || !entry.getResultFile().exists()) {
+            return false;
+        }
+        try {
+            return entry.getDigest().equals(digest(input));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param inputs
+     *            the inputs of the batch run
+     * @return the inputs, which aren't completed, in the given order
+     */
+    public List<File> getRemaining(List<File> inputs) {
+        List<File> remainingInputs = new ArrayList<>();
+        for (File input : inputs) {
+            if (!isCompleted(input)) {
+                remainingInputs.add(input);
+            }
+        }
+        return remainingInputs;
+    }
+
+    /**
+     * appends the completed input to the journal
+     *
+     * @param input
+     *            the validated input
+     * @param status
+     *            the status of the input, e.g. <code>valid</code>
+     * @param resultFile
+     *            the file, where the result was written to
+     * @throws IOException
+     *             if the input can't be read or the entry can't be written
+     */
+    public void record(File input, String status, File resultFile)
+            throws IOException {
+        record(input, null, status, resultFile);
+    }
+
+    /**
+     * appends the completed input with the digest of the validated content to
+     * the journal, so that the input needn't be read again
+     *
+     * @param input
+     *            the validated input
+     * @param digest
+     *            the SHA-256 digest of the validated content or null, if the
+     *            input must be read to compute it
+     * @param status
+     *            the status of the input, e.g. <code>valid</code>
+     * @param resultFile
+     *            the file, where the result was written to
+     * @throws IOException
+     *             if the input can't be read or the entry can't be written
+     */
+    public void record(File input, String digest, String status,
+            File resultFile) throws IOException {
+        JournalEntry entry = new JournalEntry(input.getAbsoluteFile(),
+                digest == null ? digest(input) : digest, status,
+                resultFile.getAbsoluteFile());
+        synchronized (this) {
+            writer.write(entry.getDigest() + SEPARATOR + entry.getStatus()
+                    + SEPARATOR + entry.getResultFile().getPath()
+                    + SEPARATOR + entry.getInput().getPath() + '\n');
+            entries.put(entry.getInput().getPath(), entry);
+            unflushedEntries++;
+            if (unflushedEntries >= batchSize
+                    || System.currentTimeMillis() - lastFlush >= flushMillis) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * writes all buffered entries to the journal file
+     *
+     * @throws IOException
+     *             if the entries can't be written
+     */
+    public synchronized void flush() throws IOException {
+        writer.flush();
+        unflushedEntries = 0;
+        lastFlush = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * digests the content of the input like the validation reads it, i.e. the
+     * content of a compressed input is digested after decompressing it
+     */
+    private static String digest(File input) throws IOException {
+        try (InputStream inputStream = FileSystemSource.INSTANCE.open(input)) {
+            return DigestHelper.digest(inputStream);
+        }
+    }
+
+    /**
+     * reads the entries of the journal file and cuts off a torn last line, so
+     * that new entries don't continue it
+     */
+    private void read() throws IOException {
+        byte[] content = Files.readAllBytes(file.toPath());
+        int length = content.length;
+        while (length > 0 && content[length - 1] != '\n') {
+            length--;
+        }
+        if (length < content.length) {
+            LOGGER.warn("incomplete last line of journal {} ignored",
+                    file.getName());
+            try (FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.WRITE)) {
+                channel.truncate(length);
+            }
+        }
+        for (String line : new String(content, 0, length,
+                StandardCharsets.UTF_8).split("\n")) {
+            String[] fields = line.split(String.valueOf(SEPARATOR), 4);
+            if (fields.length == 4) {
+                entries.put(fields[3], new JournalEntry(new File(fields[3]),
+                        fields[0], fields[1], new File(fields[2])));
+            }
+        }
+    }
+}
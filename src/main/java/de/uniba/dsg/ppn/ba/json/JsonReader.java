@@ -0,0 +1,234 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is used for reading json messages, e.g. requests of the stdio
+ * protocol. Objects are read as maps, arrays as lists, numbers without
+ * fraction and exponent as long and other numbers as double.
+ *
+ * @version 1.0
+ *
+ */
+public class JsonReader {
+
+    private final String json;
+    private int position;
+
+    private JsonReader(String json) {
+        this.json = json;
+    }
+
+    /**
+     * @param json
+     *            the json text
+     * @return the read value
+     * @throws IOException
+     *             if the text isn't valid json
+     */
+    public static Object read(String json) throws IOException {
+        JsonReader reader = new JsonReader(json);
+        Object value = reader.readValue();
+        reader.skipWhitespace();
+        if (reader.position < json.length()) {
+            throw reader.error("unexpected content");
+        }
+        return value;
+    }
+
+    private Object readValue() throws IOException {
+        skipWhitespace();
+        if (position >= json.length()) {
+            throw error("unexpected end");
+        }
+        char c = json.charAt(position);
+        switch (c) {
+        case '{':
+            return readObject();
+        case '[':
+            return readArray();
+        case '"':
+            return readString();
+        case 't':
+            return readLiteral("true", Boolean.TRUE);
+        case 'f':
+            return readLiteral("false", Boolean.FALSE);
+        case 'n':
+            return readLiteral("null", null);
+        default:
+            return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() throws IOException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("expected member name");
+            }
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            object.put(name, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> readArray() throws IOException {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        StringBuilder value = new StringBuilder();
+        position++;
+        while (position < json.length()) {
+            char c = json.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= json.length()) {
+                break;
+            }
+            char escaped = json.charAt(position++);
+            switch (escaped) {
+            case 'b':
+                value.append('\b');
+                break;
+            case 'f':
+                value.append('\f');
+                break;
+            case 'n':
+                value.append('\n');
+                break;
+            case 'r':
+                value.append('\r');
+                break;
+            case 't':
+                value.append('\t');
+                break;
+            case 'u':
+                if (position + 4 > json.length()) {
+                    throw error("truncated unicode escape");
+                }
+                try {
+                    value.append((char) Integer.parseInt(
+                            json.substring(position, position + 4), 16));
+                } catch (NumberFormatException e) {
+                    throw error("invalid unicode escape");
+                }
+                position += 4;
+                break;
+            default:
+                value.append(escaped);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private Object readNumber() throws IOException {
+        int start = position;
+        while (position < json.length()
+                && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) {
+            position++;
+        }
+        String number = json.substring(start, position);
+        try {
+            if (number.matches("-?\\d+")) {
+                return Long.valueOf(number);
+            }
+            return Double.valueOf(number);
+        } catch (NumberFormatException e) {
+            throw error("invalid value");
+        }
+    }
+
+    private Object readLiteral(String literal, Object value)
+            throws IOException {
+        if (!json.startsWith(literal, position)) {
+            throw error("invalid value");
+        }
+        position += literal.length();
+        return value;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peek() != expected) {
+            throw error("expected " + expected);
+        }
+        position++;
+    }
+
+    private char peek() {
+        return position < json.length() ? json.charAt(position) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length()
+                && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException(String.format("invalid json at %d: %s",
+                position, message));
+    }
+}
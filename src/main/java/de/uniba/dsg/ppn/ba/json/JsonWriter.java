@@ -0,0 +1,178 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.json;
+
+import java.util.List;
+import java.util.Map;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.Violation;
+
+/**
+ * This class is used for writing validation results as json with the same
+ * content as the xml result files
+ *
+ * @version 1.0
+ *
+ */
+public class JsonWriter {
+
+    /**
+     * @param result
+     *            the validation result
+     * @return the result as json object
+     */
+    public String writeResult(ValidationResult result) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"valid\":").append(result.isValid());
+        if (result.getTimedOutStage() != null) {
+            json.append(",\"timedOutStage\":");
+            appendString(json, result.getTimedOutStage());
+        }
+        json.append(",\"checkedFiles\":[");
+        List<String> checkedFiles = result.getCheckedFiles();
+        for (int i = 0; i < checkedFiles.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendString(json, checkedFiles.get(i));
+        }
+        json.append("],\"violations\":[");
+        List<Violation> violations = result.getViolations();
+        for (int i = 0; i < violations.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(writeViolation(violations.get(i)));
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * @param violation
+     *            the violation
+     * @return the violation as json object
+     */
+    public String writeViolation(Violation violation) {
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"constraint\":");
+        appendString(json, violation.getConstraint());
+        json.append(",\"fileName\":");
+        appendString(json, violation.getFileName());
+        json.append(",\"line\":").append(violation.getLine());
+        json.append(",\"xPath\":");
+        appendString(json, violation.getxPath());
+        json.append(",\"message\":");
+        appendString(json, violation.getMessage());
+        return json.append('}').toString();
+    }
+
+    /**
+     * @param value
+     *            a string, number, boolean, map with string keys, list or
+     *            null, e.g. as read by {@link JsonReader}
+     * @return the value as json
+     */
+    public static String writeValue(Object value) {
+        StringBuilder json = new StringBuilder();
+        appendValue(json, value);
+        return json.toString();
+    }
+
+    /**
+     * @param value
+     *            the string or null
+     * @return the value as json string literal or null
+     */
+    public static String quote(String value) {
+        StringBuilder json = new StringBuilder();
+        appendString(json, value);
+        return json.toString();
+    }
+
+    private static void appendValue(StringBuilder json, Object value) {
+        if (value instanceof Map) {
+            json.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                appendString(json, String.valueOf(entry.getKey()));
+                json.append(':');
+                appendValue(json, entry.getValue());
+            }
+            json.append('}');
+        } else if (value instanceof List) {
+            json.append('[');
+            boolean first = true;
+            for (Object element : (List<?>) value) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                appendValue(json, element);
+            }
+            json.append(']');
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else {
+            appendString(json, value == null ? null : value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                json.append("\\\"");
+                break;
+            case '\\':
+                json.append("\\\\");
+                break;
+            case '\n':
+                json.append("\\n");
+                break;
+            case '\r':
+                json.append("\\r");
+                break;
+            case '\t':
+                json.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    json.append(String.format("\\u%04x", (int) c));
+                } else {
+                    json.append(c);
+                }
+            }
+        }
+        json.append('"');
+    }
+}
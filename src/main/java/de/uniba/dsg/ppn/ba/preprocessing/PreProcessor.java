@@ -40,9 +40,15 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import de.uniba.dsg.ppn.ba.cache.ImportCache;
 import de.uniba.dsg.ppn.ba.helper.BpmnHelper;
 import de.uniba.dsg.ppn.ba.helper.ImportedFilesCrawler;
 import de.uniba.dsg.ppn.ba.helper.SetupHelper;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+import de.uniba.dsg.ppn.ba.validation.ValidationDeadline;
+import de.uniba.dsg.ppn.ba.validation.ValidationStage;
+import de.uniba.dsg.ppn.ba.validation.ValidationTimeoutException;
 
 /**
  * Does the preprocessing step for creating only one document containing
@@ -59,6 +65,9 @@ public class PreProcessor {
     private final XPathExpression xPathChangeNamespaceIds;
     private final XPathExpression xPathReplaceIds;
     private static final Logger LOGGER;
+    private ValidationDeadline deadline = ValidationDeadline.NONE;
+    private ImportCache importCache;
+    private ModelSource modelSource = FileSystemSource.INSTANCE;
 
     static {
         LOGGER = LoggerFactory.getLogger(PreProcessor.class.getSimpleName());
@@ -71,6 +80,34 @@ public class PreProcessor {
         xPathReplaceIds = setupXPathReplaceIds();
     }
 
+    /**
+     * @param deadline
+     *            the deadline of the current validation, which is checked for
+     *            every renamed id and every imported file
+     */
+    public void setDeadline(ValidationDeadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @param importCache
+     *            the cache of the parsed imported files without their
+     *            diagrams or null, if every imported file should be parsed
+     *            again
+     */
+    public void setImportCache(ImportCache importCache) {
+        this.importCache = importCache;
+    }
+
+    /**
+     * @param modelSource
+     *            the source of the content of the preprocessed file and its
+     *            imports
+     */
+    public void setModelSource(ModelSource modelSource) {
+        this.modelSource = modelSource;
+    }
+
     /**
      *
      * does the preprocess step for creating one document including the content
@@ -89,9 +126,12 @@ public class PreProcessor {
      *         their unique prefixes
      * @throws XPathExpressionException
      *             if a xpath expression is invalid
+     * @throws ValidationTimeoutException
+     *             if the deadline passed
      */
     public PreProcessResult preProcess(Document headFileDocument, File folder,
-            Map<String, String> namespaceTable) throws XPathExpressionException {
+            Map<String, String> namespaceTable)
+            throws XPathExpressionException, ValidationTimeoutException {
         List<ImportedFile> importedFiles = ImportedFilesCrawler
                 .selectImportedFiles(headFileDocument, folder,
                         namespaceTable.size(), true);
@@ -109,6 +149,7 @@ public class PreProcessor {
                     .evaluate(headFileDocument, XPathConstants.NODESET);
 
             for (int j = 0; j < foundNodesHeadFile.getLength(); j++) {
+                deadline.check(ValidationStage.PREPROCESS);
                 Node idNode = foundNodesHeadFile.item(j);
                 if (idNode.getTextContent().contains(":")) {
                     renameGlobalIds(headFileDocument, importedFiles, idNode);
@@ -116,7 +157,8 @@ public class PreProcessor {
             }
 
             for (ImportedFile importedFile : importedFiles) {
-                if (importedFile.getFile().exists()) {
+                deadline.check(ValidationStage.PREPROCESS);
+                if (modelSource.exists(importedFile.getFile())) {
                     addNamespacesAndRenameIds(headFileDocument, importedFile,
                             namespaceTable, folder);
                 }
@@ -173,16 +215,17 @@ public class PreProcessor {
      *            the folder of the headFileDocument
      * @throws XPathExpressionException
      *             if the xpath is not valid
+     * @throws ValidationTimeoutException
+     *             if the deadline passed
      */
     private void addNamespacesAndRenameIds(Document headFileDocument,
             ImportedFile file, Map<String, String> namespaceTable, File folder)
-            throws XPathExpressionException {
+            throws XPathExpressionException, ValidationTimeoutException {
         try {
-            Document importedDocument = documentBuilder.parse(file.getFile());
+            Document importedDocument = parseImportedFile(file.getFile());
 
             Element importDefinitionsNode = importedDocument
                     .getDocumentElement();
-            BpmnHelper.removeBPMNDINode(importedDocument);
 
             LOGGER.debug("namespace of file read: {}", file.getNamespace());
             if (!namespaceTable.containsKey(file.getNamespace())) {
@@ -204,6 +247,21 @@ public class PreProcessor {
         }
     }
 
+    /**
+     * parses the given imported file and removes its diagram or takes a copy
+     * of the document from the import cache, if the file is read from disk
+     */
+    private Document parseImportedFile(File file) throws SAXException,
+            IOException {
+        if (importCache != null && FileSystemSource.isFileSystem(modelSource)) {
+            return importCache.getEntry(file).getDocument(documentBuilder);
+        }
+        Document importedDocument = BpmnHelper.parse(documentBuilder, file,
+                modelSource);
+        BpmnHelper.removeBPMNDINode(importedDocument);
+        return importedDocument;
+    }
+
     /**
      * adds to all nodes new and unique prefixes in the given document for the
      * validation process and violation searching
@@ -0,0 +1,184 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reader of multipart/form-data request bodies, which carry a model together
+ * with its imports
+ *
+ * @version 1.0
+ *
+ */
+class MultipartReader {
+
+    private static final byte[] HEADEREND = { '\r', '\n', '\r', '\n' };
+
+    /**
+     * @param contentType
+     *            the content type header of the request
+     * @return the boundary of the parts or null, if the content type isn't
+     *         multipart/form-data
+     */
+    static String getBoundary(String contentType) {
+        if (contentType == null
+                || !contentType.toLowerCase(Locale.ENGLISH).startsWith(
+                        "multipart/form-data")) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            String trimmedParameter = parameter.trim();
+            if (trimmedParameter.toLowerCase(Locale.ENGLISH).startsWith(
+                    "boundary=")) {
+                return unquote(trimmedParameter.substring("boundary="
+                        .length()));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * splits the body into its parts
+     *
+     * @param body
+     *            the request body
+     * @param boundary
+     *            the boundary of the parts
+     * @return the parts in the order of the body
+     * @throws IOException
+     *             if the body isn't a valid multipart body
+     */
+    static List<Part> read(byte[] body, String boundary) throws IOException {
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        byte[] partDelimiter = ("\r\n--" + boundary)
+                .getBytes(StandardCharsets.US_ASCII);
+        int position = indexOf(body, delimiter, 0);
+        if (position < 0) {
+            throw new IOException("multipart body without boundary");
+        }
+        position += delimiter.length;
+        List<Part> parts = new ArrayList<>();
+        while (!startsWith(body, position, "--")) {
+            if (!startsWith(body, position, "\r\n")) {
+                throw new IOException("malformed multipart boundary");
+            }
+            int headerStart = position + 2;
+            int headerEnd = indexOf(body, HEADEREND, headerStart);
+            int contentEnd = headerEnd < 0 ? -1 : indexOf(body,
+                    partDelimiter, headerEnd + HEADEREND.length);
+            if (contentEnd < 0) {
+                throw new IOException("truncated multipart body");
+            }
+            String headers = new String(body, headerStart, headerEnd
+                    - headerStart, StandardCharsets.UTF_8);
+            parts.add(new Part(getDispositionParameter(headers, "name"),
+                    getDispositionParameter(headers, "filename"),
+                    Arrays.copyOfRange(body, headerEnd + HEADEREND.length,
+                            contentEnd)));
+            position = contentEnd + partDelimiter.length;
+        }
+        return parts;
+    }
+
+    private static String getDispositionParameter(String headers,
+            String parameterName) {
+        for (String header : headers.split("\r\n")) {
+            if (!header.toLowerCase(Locale.ENGLISH).startsWith(
+                    "content-disposition:")) {
+                continue;
+            }
+            for (String parameter : header.split(";")) {
+                String trimmedParameter = parameter.trim();
+                if (trimmedParameter.startsWith(parameterName + "=")) {
+                    return unquote(trimmedParameter.substring(parameterName
+                            .length() + 1));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"")
+                && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static boolean startsWith(byte[] body, int position, String prefix) {
+        if (position + prefix.length() > body.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (body[position + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] body, byte[] pattern, int from) {
+        outer: for (int i = from; i <= body.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (body[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * a part of a multipart body
+     */
+    static class Part {
+        private final String name;
+        private final String fileName;
+        private final byte[] content;
+
+        Part(String name, String fileName, byte[] content) {
+            this.name = name;
+            this.fileName = fileName;
+            this.content = content;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getFileName() {
+            return fileName;
+        }
+
+        byte[] getContent() {
+            return content;
+        }
+    }
+}
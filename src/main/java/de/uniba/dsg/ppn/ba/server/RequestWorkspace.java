@@ -0,0 +1,138 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.validation.BpmnValidator;
+
+/**
+ * Temporary directory holding a model and its imports, which were sent with a
+ * request, so that the validator can resolve the imports relative to the
+ * model. The directory is deleted, when the workspace is closed.
+ *
+ * @version 1.0
+ *
+ */
+class RequestWorkspace implements Closeable {
+
+    private final Path directory;
+
+    RequestWorkspace() throws IOException {
+        directory = Files.createTempDirectory("bpmn-request");
+    }
+
+    /**
+     * stores a file of the request
+     *
+     * @param name
+     *            the name of the file relative to the workspace, which may
+     *            contain subdirectories, but mustn't leave the workspace
+     * @param content
+     *            the content of the file
+     * @throws BpmnValidationException
+     *             if the name is invalid
+     * @throws IOException
+     *             if the file can't be written
+     */
+    void addFile(String name, byte[] content) throws BpmnValidationException,
+            IOException {
+        Files.write(resolve(name), content);
+    }
+
+    /**
+     * @return the given file of the workspace
+     * @throws BpmnValidationException
+     *             if the name is invalid
+     */
+    File getFile(String name) throws BpmnValidationException {
+        return resolve(name).toFile();
+    }
+
+    /**
+     * validates the given file of the workspace
+     *
+     * @return the result, whose checked files are relative to the workspace
+     */
+    ValidationResult validate(BpmnValidator validator, String name)
+            throws BpmnValidationException {
+        ValidationResult result = validator.validate(resolve(name).toFile());
+        List<String> checkedFiles = new ArrayList<>();
+        for (String checkedFile : result.getCheckedFiles()) {
+            Path path = Paths.get(checkedFile);
+            checkedFiles.add(path.startsWith(directory) ? directory
+                    .relativize(path).toString() : checkedFile);
+        }
+        result.getCheckedFiles().clear();
+        result.getCheckedFiles().addAll(checkedFiles);
+        return result;
+    }
+
+    private Path resolve(String name) throws BpmnValidationException {
+        if (name == null || name.isEmpty()) {
+            throw new BpmnValidationException("File name is missing!");
+        }
+        Path path = directory.resolve(name).normalize();
+        if (!path.startsWith(directory) || path.equals(directory)) {
+            throw new BpmnValidationException(String.format(
+                    "Invalid file name %s!", name));
+        }
+        try {
+            Files.createDirectories(path.getParent());
+        } catch (IOException e) {
+            throw new BpmnValidationException(String.format(
+                    "Invalid file name %s!", name));
+        }
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file,
+                    BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path folder,
+                    IOException e) throws IOException {
+                Files.delete(folder);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
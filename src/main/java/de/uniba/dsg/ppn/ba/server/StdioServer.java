@@ -0,0 +1,435 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.ppn.ba.cache.WeightedImportCache;
+import de.uniba.dsg.ppn.ba.concurrent.MemoryBudget;
+import de.uniba.dsg.ppn.ba.concurrent.ThreadLocalValidator;
+import de.uniba.dsg.ppn.ba.concurrent.ValidatorThreadFactory;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.json.JsonReader;
+import de.uniba.dsg.ppn.ba.json.JsonWriter;
+
+/**
+ * Long-lived validation service speaking line-delimited JSON-RPC 2.0 on a pair
+ * of streams, usually stdin and stdout, for editors and tools. Every line is
+ * one message. The supported methods are
+ * <ul>
+ * <li><code>validateFile</code> with the parameter <code>path</code></li>
+ * <li><code>validateContent</code> with the parameters <code>content</code>,
+ * <code>name</code> and <code>imports</code>, an object mapping the file names
+ * of the imports to their contents</li>
+ * <li><code>cancel</code> with the parameter <code>id</code> of a running
+ * request</li>
+ * <li><code>invalidateCache</code> clearing the cached imports</li>
+ * <li><code>shutdown</code> ending the session after the running requests</li>
+ * </ul>
+ * Validations run concurrently. The violations of a validation are streamed
+ * as <code>violation</code> notifications carrying the request id, followed by
+ * the response with the summary of the result. A cancelled request gets an
+ * error response at once and no further messages, while its validation stops
+ * at the next check of the deadline. Validations are admitted within a
+ * {@link MemoryBudget}. The imports are cached by their name and content, as
+ * every <code>validateContent</code> request is stored in its own temporary
+ * directory.
+ *
+ * @version 1.0
+ *
+ */
+public class StdioServer {
+
+    private final BufferedReader reader;
+    private final Writer writer;
+    private final ThreadLocalValidator validator;
+    private final WeightedImportCache importCache;
+    private final ExecutorService executor;
+    private final JsonWriter jsonWriter = new JsonWriter();
+    private final ConcurrentMap<Object, Request> runningRequests = new ConcurrentHashMap<>();
+    private volatile MemoryBudget memoryBudget = MemoryBudget
+            .ofMaxHeap(DEFAULTHEAPFRACTION);
+    private static final Logger LOGGER;
+    private static final long IMPORTCACHEBYTES = 64L * 1024 * 1024;
+    private static final double DEFAULTHEAPFRACTION = 0.75;
+    private static final String DEFAULTMODELNAME = "model.bpmn";
+    private static final int PARSEERROR = -32700;
+    private static final int INVALIDREQUEST = -32600;
+    private static final int METHODNOTFOUND = -32601;
+    private static final int INVALIDPARAMS = -32602;
+    private static final int VALIDATIONFAILED = -32000;
+    private static final int REQUESTCANCELLED = -32800;
+
+    static {
+        LOGGER = LoggerFactory.getLogger(StdioServer.class.getSimpleName());
+    }
+
+    /**
+     * @param inputStream
+     *            the stream of the requests
+     * @param outputStream
+     *            the stream of the responses and notifications
+     * @param threads
+     *            the number of concurrent validations
+     */
+    public StdioServer(InputStream inputStream, OutputStream outputStream,
+            int threads) {
+        reader = new BufferedReader(new InputStreamReader(inputStream,
+                StandardCharsets.UTF_8));
+        writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        executor = Executors.newFixedThreadPool(threads,
+                new ValidatorThreadFactory("stdio"));
+        validator = new ThreadLocalValidator();
+        importCache = WeightedImportCache.byContent(IMPORTCACHEBYTES);
+        validator.setImportCache(importCache);
+    }
+
+    /**
+     * @return the validator of the validation threads for configuring
+     *         timeouts and caches
+     */
+    public ThreadLocalValidator getValidator() {
+        return validator;
+    }
+
+    /**
+     * @param memoryBudget
+     *            the budget limiting the memory of the running validations,
+     *            by default three quarters of the maximum heap
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        if (memoryBudget == null) {
+            throw new IllegalArgumentException(
+                    "memory budget must not be null");
+        }
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return the budget limiting the memory of the running validations
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * handles the requests until the input ends or a shutdown is requested
+     * and waits for the running validations
+     *
+     * @throws IOException
+     *             if the input can't be read
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting for the running
+     *             validations
+     */
+    public void run() throws IOException, InterruptedException {
+        String line;
+        Object shutdownId = null;
+        boolean shutdown = false;
+        while (!shutdown && (line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            Map<String, Object> message;
+            try {
+                Object json = JsonReader.read(line);
+                if (!(json instanceof Map)) {
+                    sendError(null, INVALIDREQUEST, "Request isn't an object");
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                Map<String, Object> object = (Map<String, Object>) json;
+                message = object;
+            } catch (IOException e) {
+                sendError(null, PARSEERROR, e.getMessage());
+                continue;
+            }
+            if ("shutdown".equals(message.get("method"))) {
+                shutdown = true;
+                shutdownId = message.get("id");
+            } else {
+                dispatch(message);
+            }
+        }
+        executor.shutdown();
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+            LOGGER.debug("waiting for {} running requests",
+                    runningRequests.size());
+        }
+        if (shutdownId != null) {
+            send(response(shutdownId, null));
+        }
+    }
+
+    private void dispatch(Map<String, Object> message) throws IOException {
+        Object id = message.get("id");
+        Object method = message.get("method");
+        Map<String, Object> params = getObject(message.get("params"));
+        if (!(method instanceof String)) {
+            sendError(id, INVALIDREQUEST, "Method is missing");
+        } else if ("validateFile".equals(method)) {
+            Object path = params.get("path");
+            if (path instanceof String) {
+                startValidation(id, new File((String) path), null, null);
+            } else {
+                sendError(id, INVALIDPARAMS, "Parameter path is missing");
+            }
+        } else if ("validateContent".equals(method)) {
+            Object content = params.get("content");
+            Object name = params.get("name");
+            if (content instanceof String) {
+                startValidation(id, null, name instanceof String ? (String) name
+                        : DEFAULTMODELNAME, params);
+            } else {
+                sendError(id, INVALIDPARAMS, "Parameter content is missing");
+            }
+        } else if ("cancel".equals(method)) {
+            boolean cancelled = cancel(params.get("id"));
+            if (id != null) {
+                send(response(id, cancelled));
+            }
+        } else if ("invalidateCache".equals(method)) {
+            importCache.clear();
+            if (id != null) {
+                send(response(id, true));
+            }
+        } else {
+            sendError(id, METHODNOTFOUND, "Unknown method " + method);
+        }
+    }
+
+    /**
+     * starts the validation of a file or of sent content on a validation
+     * thread
+     */
+    private void startValidation(final Object id, final File file,
+            final String name, final Map<String, Object> params)
+            throws IOException {
+        if (id == null) {
+            // a validation without id has nobody to report to
+            return;
+        }
+        final Request request = new Request();
+        if (runningRequests.putIfAbsent(id, request) != null) {
+            sendError(id, INVALIDREQUEST, "Request id is already running");
+            return;
+        }
+        synchronized (request) {
+            request.future = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ValidationResult result = file == null ? validateContent(
+                                name, params) : validateFile(file);
+                        sendResult(id, request, result);
+                    } catch (BpmnValidationException | IOException e) {
+                        sendRequestError(id, request, VALIDATIONFAILED,
+                                e.getMessage());
+                    } catch (InterruptedException e) {
+                        // only a cancelled request is interrupted, which has
+                        // been answered already
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        LOGGER.error("request {} failed: {}", id, e);
+                        sendRequestError(id, request, VALIDATIONFAILED,
+                                "Validation failed unexpectedly: " + e);
+                    } finally {
+                        runningRequests.remove(id, request);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * validates the given file within the memory budget
+     */
+    private ValidationResult validateFile(File file)
+            throws BpmnValidationException, InterruptedException {
+        MemoryBudget budget = memoryBudget;
+        long reservedBytes = budget.acquire(file);
+        try {
+            return validator.validate(file);
+        } finally {
+            budget.release(reservedBytes);
+        }
+    }
+
+    /**
+     * validates the sent content and imports in a workspace of their own
+     * within the memory budget
+     */
+    private ValidationResult validateContent(String name,
+            Map<String, Object> params) throws BpmnValidationException,
+            IOException, InterruptedException {
+        try (RequestWorkspace workspace = new RequestWorkspace()) {
+            workspace.addFile(name, ((String) params.get("content"))
+                    .getBytes(StandardCharsets.UTF_8));
+            for (Map.Entry<String, Object> importedFile : getObject(
+                    params.get("imports")).entrySet()) {
+                if (!(importedFile.getValue() instanceof String)) {
+                    throw new BpmnValidationException(String.format(
+                            "Content of import %s is missing!",
+                            importedFile.getKey()));
+                }
+                workspace.addFile(importedFile.getKey(),
+                        ((String) importedFile.getValue())
+                                .getBytes(StandardCharsets.UTF_8));
+            }
+            MemoryBudget budget = memoryBudget;
+            long reservedBytes = budget.acquire(workspace.getFile(name));
+            try {
+                return workspace.validate(validator, name);
+            } finally {
+                budget.release(reservedBytes);
+            }
+        }
+    }
+
+    /**
+     * cancels the running request with the given id, which gets an error
+     * response at once and no further messages. Its validation thread is
+     * interrupted, so that the validation stops at the next check of the
+     * deadline.
+     *
+     * @return true, if the request was running
+     */
+    private boolean cancel(Object id) throws IOException {
+        Request request = id == null ? null : runningRequests.remove(id);
+        if (request == null) {
+            return false;
+        }
+        synchronized (request) {
+            request.cancelled = true;
+            request.future.cancel(true);
+        }
+        sendError(id, REQUESTCANCELLED, "Request cancelled");
+        return true;
+    }
+
+    /**
+     * streams the violations of the result followed by the summary, unless
+     * the request was cancelled
+     */
+    private void sendResult(Object id, Request request, ValidationResult result) {
+        List<String> messages = new ArrayList<>();
+        for (Violation violation : result.getViolations()) {
+            messages.add(String.format(
+                    "{\"jsonrpc\":\"2.0\",\"method\":\"violation\",\"params\":{\"id\":%s,\"violation\":%s}}",
+                    JsonWriter.writeValue(id),
+                    jsonWriter.writeViolation(violation)));
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("valid", result.isValid());
+        summary.put("timedOutStage", result.getTimedOutStage());
+        summary.put("checkedFiles", result.getCheckedFiles());
+        summary.put("violations", result.getViolations().size());
+        messages.add(response(id, summary));
+        synchronized (request) {
+            if (!request.cancelled) {
+                for (String message : messages) {
+                    sendQuietly(message);
+                }
+            }
+        }
+    }
+
+    private void sendRequestError(Object id, Request request, int code,
+            String message) {
+        synchronized (request) {
+            if (!request.cancelled) {
+                sendQuietly(error(id, code, message));
+            }
+        }
+    }
+
+    private void sendError(Object id, int code, String message)
+            throws IOException {
+        send(error(id, code, message));
+    }
+
+    private String response(Object id, Object result) {
+        return String.format("{\"jsonrpc\":\"2.0\",\"id\":%s,\"result\":%s}",
+                JsonWriter.writeValue(id), JsonWriter.writeValue(result));
+    }
+
+    private String error(Object id, int code, String message) {
+        return String.format(
+                "{\"jsonrpc\":\"2.0\",\"id\":%s,\"error\":{\"code\":%d,\"message\":%s}}",
+                JsonWriter.writeValue(id), code, JsonWriter.quote(message));
+    }
+
+    private void sendQuietly(String message) {
+        try {
+            send(message);
+        } catch (IOException e) {
+            LOGGER.error("message couldn't be sent: {}", e.getMessage());
+        }
+    }
+
+    private void send(String message) throws IOException {
+        synchronized (writer) {
+            writer.write(message);
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getObject(Object value) {
+        if (value instanceof Map) {
+            return (Map<String, Object>) value;
+        }
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * a running validation request
+     */
+    private static class Request {
+        private Future<?> future;
+        private boolean cancelled;
+    }
+}
@@ -0,0 +1,508 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.cache.WeightedImportCache;
+import de.uniba.dsg.ppn.ba.concurrent.MemoryBudget;
+import de.uniba.dsg.ppn.ba.concurrent.ThreadLocalValidator;
+import de.uniba.dsg.ppn.ba.concurrent.ValidatorThreadFactory;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.json.JsonWriter;
+import de.uniba.dsg.ppn.ba.source.MapSource;
+import de.uniba.dsg.ppn.ba.xml.XmlWriter;
+
+/**
+ * Resident validation server with a local http endpoint, which keeps the
+ * validators with their compiled schemas and rules warm between requests
+ * <ul>
+ * <li><code>POST /validate</code> validates the model in the body or, for
+ * multipart/form-data, the part named <code>model</code> or the first part
+ * together with the imports in the other parts, which are stored under their
+ * file names. The name of an inline model is given by the query parameter
+ * <code>name</code>. The result is returned as xml or, for the query parameter
+ * <code>format=json</code> or an accept header of application/json, as json.</li>
+ * <li><code>GET /health</code> answers, as long as the server is running.</li>
+ * <li><code>GET /ready</code> answers with 200, when the validators are warmed
+ * up, and with 503 while warming up or draining.</li>
+ * </ul>
+ * Requests are validated concurrently by a fixed number of threads, each
+ * with its own validator, which is warmed up by the validation of a small
+ * model, so its schemas and rules are loaded before the server is ready. A
+ * request only starts, while its estimated memory fits into the
+ * {@link MemoryBudget}. The imports are cached by their name and content, as
+ * every request is stored in a new temporary directory.
+ * {@link #drain(long, TimeUnit)} rejects new validations and waits for the
+ * running ones before stopping the server.
+ *
+ * @version 1.0
+ *
+ */
+public class ValidationServer {
+
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final ThreadLocalValidator validator;
+    private final WeightedImportCache importCache;
+    private final int threads;
+    private final JsonWriter jsonWriter = new JsonWriter();
+    private final XmlWriter xmlWriter = new XmlWriter();
+    private final Object requestLock = new Object();
+    private int activeRequests;
+    private volatile boolean warmedUp;
+    private volatile boolean warmUpFailed;
+    private volatile MemoryBudget memoryBudget = MemoryBudget
+            .ofMaxHeap(DEFAULTHEAPFRACTION);
+    private volatile boolean draining;
+    private volatile long maxRequestBytes = DEFAULTMAXREQUESTBYTES;
+    private static final Logger LOGGER;
+    private static final long DEFAULTMAXREQUESTBYTES = 32L * 1024 * 1024;
+    private static final long IMPORTCACHEBYTES = 64L * 1024 * 1024;
+    private static final double DEFAULTHEAPFRACTION = 0.75;
+    private static final String WARMUPMODEL = "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\""
+            + " id=\"warmUp\" targetNamespace=\"http://example.org/warmUp\">"
+            + "<process id=\"process\"/></definitions>";
+    private static final String DEFAULTMODELNAME = "model.bpmn";
+    private static final String MODELPART = "model";
+
+    static {
+        LOGGER = LoggerFactory.getLogger(ValidationServer.class
+                .getSimpleName());
+    }
+
+    /**
+     * @param address
+     *            the address to listen on, usually a loopback address
+     * @param threads
+     *            the number of concurrently handled requests
+     * @throws IOException
+     *             if the address can't be bound
+     */
+    public ValidationServer(InetSocketAddress address, int threads)
+            throws IOException {
+        this.threads = threads;
+        executor = Executors.newFixedThreadPool(threads,
+                new ValidatorThreadFactory("server"));
+        validator = new ThreadLocalValidator();
+        importCache = WeightedImportCache.byContent(IMPORTCACHEBYTES);
+        validator.setImportCache(importCache);
+        httpServer = HttpServer.create(address, 0);
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/validate", new ValidateHandler());
+        httpServer.createContext("/health", new StatusHandler(false));
+        httpServer.createContext("/ready", new StatusHandler(true));
+    }
+
+    /**
+     * @return the validator of the request threads for configuring timeouts
+     *         and caches
+     */
+    public ThreadLocalValidator getValidator() {
+        return validator;
+    }
+
+    /**
+     * @return the cache of the imports of all requests
+     */
+    public WeightedImportCache getImportCache() {
+        return importCache;
+    }
+
+    /**
+     * @param memoryBudget
+     *            the budget limiting the memory of the running validations,
+     *            by default three quarters of the maximum heap
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        if (memoryBudget == null) {
+            throw new IllegalArgumentException(
+                    "memory budget must not be null");
+        }
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return the budget limiting the memory of the running validations
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @param maxRequestBytes
+     *            the maximum size of a request body
+     */
+    public void setMaxRequestBytes(long maxRequestBytes) {
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    /**
+     * @return the address the server listens on, including the actual port
+     */
+    public InetSocketAddress getAddress() {
+        return httpServer.getAddress();
+    }
+
+    /**
+     * @return true, if the validators are warmed up and the server isn't
+     *         draining
+     */
+    public boolean isReady() {
+        return warmedUp && !warmUpFailed && !draining;
+    }
+
+    /**
+     * starts the server and warms up the validator of every request thread
+     * in the background by validating a small model
+     */
+    public void start() {
+        httpServer.start();
+        final CountDownLatch warmUpLatch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        warmUp();
+                    } finally {
+                        warmUpLatch.countDown();
+                    }
+                    try {
+                        // keeps the thread busy, so that every thread warms
+                        // up its own validator
+                        warmUpLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    warmedUp = true;
+                }
+            });
+        }
+        LOGGER.info("validation server listening on {}", getAddress());
+    }
+
+    /**
+     * validates the warm-up model with the validator of the calling thread,
+     * which loads its schemas and compiles its rules
+     */
+    private void warmUp() {
+        MapSource source = new MapSource();
+        File model = source.put("warmUp.bpmn",
+                WARMUPMODEL.getBytes(StandardCharsets.UTF_8));
+        try {
+            validator.validate(model, source);
+        } catch (BpmnValidationException | RuntimeException e) {
+            LOGGER.error("validator couldn't be warmed up: {}", e.getMessage());
+            warmUpFailed = true;
+        }
+    }
+
+    /**
+     * rejects new validations, waits for the running validations and stops
+     * the server
+     *
+     * @param timeout
+     *            the maximum time to wait for running validations
+     * @param unit
+     *            the unit of the timeout
+     * @return true, if all running validations completed within the timeout
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    public boolean drain(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        draining = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean drained;
+        synchronized (requestLock) {
+            long remainingNanos = deadline - System.nanoTime();
+            while (activeRequests > 0 && remainingNanos > 0) {
+                TimeUnit.NANOSECONDS.timedWait(requestLock, remainingNanos);
+                remainingNanos = deadline - System.nanoTime();
+            }
+            drained = activeRequests == 0;
+        }
+        httpServer.stop(0);
+        executor.shutdownNow();
+        LOGGER.info("validation server stopped");
+        return drained;
+    }
+
+    private boolean enterRequest() {
+        synchronized (requestLock) {
+            if (draining) {
+                return false;
+            }
+            activeRequests++;
+            return true;
+        }
+    }
+
+    private void leaveRequest() {
+        synchronized (requestLock) {
+            activeRequests--;
+            requestLock.notifyAll();
+        }
+    }
+
+    /**
+     * validates the model of a request
+     */
+    private class ValidateHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    sendText(exchange, 405, "Only POST is supported");
+                } else if (!enterRequest()) {
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    sendText(exchange, 503, "Server is draining");
+                } else {
+                    try {
+                        validate(exchange);
+                    } finally {
+                        leaveRequest();
+                    }
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void validate(HttpExchange exchange) throws IOException {
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                sendText(exchange, 413, "Request is too large");
+                return;
+            }
+            Map<String, String> parameters = parseQuery(exchange
+                    .getRequestURI().getRawQuery());
+            String boundary = MultipartReader.getBoundary(exchange
+                    .getRequestHeaders().getFirst("Content-Type"));
+            List<MultipartReader.Part> parts = null;
+            if (boundary != null) {
+                try {
+                    parts = MultipartReader.read(body, boundary);
+                } catch (IOException e) {
+                    sendText(exchange, 400, "Malformed multipart body: "
+                            + e.getMessage());
+                    return;
+                }
+            }
+            ValidationResult result;
+            try (RequestWorkspace workspace = new RequestWorkspace()) {
+                String modelName = storeFiles(workspace, body, parts,
+                        parameters.get("name"));
+                MemoryBudget budget = memoryBudget;
+                long reservedBytes = budget.acquire(workspace
+                        .getFile(modelName));
+                try {
+                    result = workspace.validate(validator, modelName);
+                } finally {
+                    budget.release(reservedBytes);
+                }
+            } catch (BpmnValidationException e) {
+                sendText(exchange, 422, e.getMessage());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendText(exchange, 503, "Server is draining");
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("request failed: {}", e);
+                sendText(exchange, 500, "Validation failed unexpectedly: " + e);
+                return;
+            }
+            if (isJsonRequested(exchange, parameters)) {
+                send(exchange, 200, "application/json",
+                        jsonWriter.writeResult(result).getBytes(
+                                StandardCharsets.UTF_8));
+            } else {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                try {
+                    xmlWriter.writeResult(result, output);
+                } catch (JAXBException e) {
+                    sendText(exchange, 500, "Result couldn't be written");
+                    return;
+                }
+                send(exchange, 200, "application/xml", output.toByteArray());
+            }
+        }
+
+        /**
+         * stores the model and its imports in the workspace
+         *
+         * @param parts
+         *            the parts of a multipart body or null, if the body is the
+         *            model
+         * @return the name of the model
+         */
+        private String storeFiles(RequestWorkspace workspace, byte[] body,
+                List<MultipartReader.Part> parts, String modelName)
+                throws BpmnValidationException, IOException {
+            if (parts == null) {
+                String name = modelName == null ? DEFAULTMODELNAME
+                        : modelName;
+                workspace.addFile(name, body);
+                return name;
+            }
+            if (parts.isEmpty()) {
+                throw new BpmnValidationException("Request contains no model!");
+            }
+            MultipartReader.Part modelPart = parts.get(0);
+            for (MultipartReader.Part part : parts) {
+                if (MODELPART.equals(part.getName())) {
+                    modelPart = part;
+                }
+            }
+            String name = DEFAULTMODELNAME;
+            for (MultipartReader.Part part : parts) {
+                String partName = part.getFileName() == null ? part
+                        .getName() : part.getFileName();
+                if (part == modelPart) {
+                    if (part.getFileName() != null) {
+                        name = part.getFileName();
+                    }
+                    partName = name;
+                }
+                workspace.addFile(partName, part.getContent());
+            }
+            return name;
+        }
+
+        private boolean isJsonRequested(HttpExchange exchange,
+                Map<String, String> parameters) {
+            String format = parameters.get("format");
+            if (format != null) {
+                return "json".equalsIgnoreCase(format);
+            }
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            return accept != null && accept.contains("application/json");
+        }
+
+        /**
+         * @return the body or null, if it's larger than the maximum size
+         */
+        private byte[] readBody(InputStream inputStream) throws IOException {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+                if (output.size() > maxRequestBytes) {
+                    return null;
+                }
+            }
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * answers health and readiness checks
+     */
+    private class StatusHandler implements HttpHandler {
+
+        private final boolean readiness;
+
+        StatusHandler(boolean readiness) {
+            this.readiness = readiness;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!readiness) {
+                    sendText(exchange, 200, "UP");
+                } else if (isReady()) {
+                    sendText(exchange, 200, "READY");
+                } else {
+                    sendText(exchange, 503, draining ? "DRAINING"
+                            : warmUpFailed ? "WARM-UP FAILED" : "WARMING UP");
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query)
+            throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(
+                        parameter.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(separator + 1),
+                                "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static void sendText(HttpExchange exchange, int status,
+            String text) throws IOException {
+        send(exchange, status, "text/plain; charset=utf-8",
+                text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status,
+            String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+}
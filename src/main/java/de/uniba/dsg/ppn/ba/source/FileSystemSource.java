@@ -0,0 +1,183 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.source;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The default {@link ModelSource}, which reads the files from disk
+ * <p>
+ * Files ending with <code>.gz</code> are decompressed while they are read, so
+ * that the parsers and the line numbers of the violations refer to the
+ * uncompressed content. A file, which doesn't exist, is read from its
+ * compressed sibling, e.g. an import of <code>order.bpmn</code> from
+ * <code>order.bpmn.gz</code>, so that imports of compressed model stores
+ * resolve without changing their locations.
+ *
+ * @version 1.0
+ *
+ */
+public final class FileSystemSource implements ModelSource {
+
+    /**
+     * the only instance
+     */
+    public static final FileSystemSource INSTANCE = new FileSystemSource();
+
+    private static final String COMPRESSEDSUFFIX = ".gz";
+    private static final int BUFFERSIZE = 65536;
+    private static final int STREAMBUFFERSIZE = 8192;
+    private static final int TRAILERSIZE = 18;
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFERSIZE];
+        }
+    };
+
+    private FileSystemSource() {
+    }
+
+    /**
+     * @param source
+     *            any source
+     * @return true, if the source reads the files from disk, either directly
+     *         or once through an {@link IngestingSource}
+     */
+    public static boolean isFileSystem(ModelSource source) {
+        return source == INSTANCE || source instanceof IngestingSource
+                && ((IngestingSource) source).getSource() == INSTANCE;
+    }
+
+    /**
+     * @param file
+     *            a file on disk
+     * @return true, if the file is gzip compressed
+     */
+    public static boolean isCompressed(File file) {
+        return file.getName().toLowerCase(Locale.ENGLISH)
+                .endsWith(COMPRESSEDSUFFIX);
+    }
+
+    /**
+     * @param file
+     *            the validated or imported file
+     * @return the file itself or its compressed sibling, if only the sibling
+     *         exists
+     */
+    public File getStoredFile(File file) {
+        if (!file.exists() && !isCompressed(file)) {
+            File compressedFile = new File(file.getPath() + COMPRESSEDSUFFIX);
+            if (compressedFile.exists()) {
+                return compressedFile;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * returns the size of the uncompressed content of the given file. The size
+     * of a compressed file is taken from its gzip trailer without
+     * decompressing it.
+     *
+     * @param file
+     *            the validated or imported file
+     * @return the size of the content in bytes or 0, if the file doesn't exist
+     */
+    public long getContentLength(File file) {
+        File storedFile = getStoredFile(file);
+        if (!isCompressed(storedFile)) {
+            return storedFile.length();
+        }
+        try (RandomAccessFile input = new RandomAccessFile(storedFile, "r")) {
+            if (input.length() < TRAILERSIZE) {
+                return 0;
+            }
+            // the trailer holds the size modulo 2^32 in little endian order
+            input.seek(input.length() - 4);
+            return Integer.reverseBytes(input.readInt()) & 0xffffffffL;
+        } catch (IOException e) {
+            return storedFile.length();
+        }
+    }
+
+    @Override
+    public InputStream open(File file) throws IOException {
+        File storedFile = getStoredFile(file);
+        InputStream inputStream = new FileInputStream(storedFile);
+        if (!isCompressed(storedFile)) {
+            return inputStream;
+        }
+        try {
+            return new GZIPInputStream(inputStream, STREAMBUFFERSIZE);
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean exists(File file) {
+        return getStoredFile(file).exists();
+    }
+
+    /**
+     * reads the uncompressed content of the given file. The decompression
+     * reuses a buffer of the calling thread.
+     *
+     * @param file
+     *            the validated or imported file
+     * @return the uncompressed content
+     * @throws IOException
+     *             if the file doesn't exist or can't be read or decompressed
+     */
+    public byte[] readAllBytes(File file) throws IOException {
+        File storedFile = getStoredFile(file);
+        if (!isCompressed(storedFile)) {
+            return Files.readAllBytes(storedFile.toPath());
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(
+                (int) Math.min(Integer.MAX_VALUE / 2,
+                        Math.max(getContentLength(storedFile), BUFFERSIZE)));
+        byte[] buffer = BUFFERS.get();
+        try (InputStream inputStream = open(storedFile)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return "file system";
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.source;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The content of a file, which was read once by an {@link IngestingSource},
+ * with its digest. The content is either held in a byte array or in a memory
+ * mapped buffer of the file and every stream of it reads the same bytes
+ * without copying them.
+ *
+ * @version 1.0
+ *
+ */
+public final class IngestedContent {
+
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+    private final String digest;
+
+    IngestedContent(byte[] bytes, String digest) {
+        this.bytes = bytes;
+        this.buffer = null;
+        this.digest = digest;
+    }
+
+    IngestedContent(ByteBuffer buffer, String digest) {
+        this.bytes = null;
+        this.buffer = buffer;
+        this.digest = digest;
+    }
+
+    /**
+     * @return a new stream of the content
+     */
+    public InputStream openStream() {
+        if (bytes != null) {
+            return new ByteArrayInputStream(bytes);
+        }
+        return new ByteBufferInputStream(buffer.duplicate());
+    }
+
+    /**
+     * @return the size of the content in bytes
+     */
+    public int getLength() {
+        return bytes == null ? buffer.capacity() : bytes.length;
+    }
+
+    /**
+     * @return the SHA-256 digest of the content as lower case hex string
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * @return true, if the content is a memory mapped buffer of the file
+     */
+    public boolean isMapped() {
+        return buffer != null;
+    }
+
+    /**
+     * stream of a buffer, which reads the buffer from its position to its limit
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
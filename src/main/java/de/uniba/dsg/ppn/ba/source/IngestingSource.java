@@ -0,0 +1,176 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.source;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.uniba.dsg.ppn.ba.helper.DigestHelper;
+import de.uniba.dsg.ppn.ba.helper.ParserProfile;
+
+/**
+ * {@link ModelSource}, which reads every file of an underlying source only
+ * once and serves all further reads of the file from the read content, e.g.
+ * for the parser, the xsd validation and the location of the violations of a
+ * validation. The digest of a file is calculated while it's read.
+ * <p>
+ * Large uncompressed files on disk are memory mapped instead of being copied
+ * into the heap. Small files are read into an array, as the parsers consume
+ * streams, so that direct buffers would have to be copied again. The content
+ * is kept until {@link #clear()} is called.
+ *
+ * @version 1.0
+ *
+ */
+public class IngestingSource implements ModelSource {
+
+    private static final long MAPTHRESHOLD = 1024 * 1024;
+    private static final int BUFFERSIZE = 65536;
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFERSIZE];
+        }
+    };
+
+    private final ModelSource source;
+    private final ConcurrentMap<File, IngestedContent> contents = new ConcurrentHashMap<>();
+
+    /**
+     * @param source
+     *            the source, from which the files are read
+     */
+    public IngestingSource(ModelSource source) {
+        this.source = source;
+    }
+
+    /**
+     * @param source
+     *            any source
+     * @return the given source, if it's already an ingesting source, or a new
+     *         ingesting source reading from it
+     */
+    public static IngestingSource of(ModelSource source) {
+        if (source instanceof IngestingSource) {
+            return (IngestingSource) source;
+        }
+        return new IngestingSource(source);
+    }
+
+    /**
+     * @return the source, from which the files are read
+     */
+    public ModelSource getSource() {
+        return source;
+    }
+
+    /**
+     * returns the content of the given file, which is read on the first
+     * request
+     *
+     * @param file
+     *            the validated or imported file
+     * @return the content of the file
+     * @throws IOException
+     *             if the file doesn't exist, can't be read or exceeds the
+     *             maximum document size of the {@link ParserProfile}
+     */
+    public IngestedContent getContent(File file) throws IOException {
+        File key = file.getAbsoluteFile();
+        IngestedContent content = contents.get(key);
+        if (content == null) {
+            IngestedContent readContent = read(file);
+            content = contents.putIfAbsent(key, readContent);
+            if (content == null) {
+                content = readContent;
+            }
+        }
+        return content;
+    }
+
+    @Override
+    public InputStream open(File file) throws IOException {
+        return getContent(file).openStream();
+    }
+
+    @Override
+    public boolean exists(File file) {
+        return contents.containsKey(file.getAbsoluteFile())
+                || source.exists(file);
+    }
+
+    /**
+     * releases the content of all read files
+     */
+    public void clear() {
+        contents.clear();
+    }
+
+    private IngestedContent read(File file) throws IOException {
+        ParserProfile profile = ParserProfile.getCurrent();
+        if (source == FileSystemSource.INSTANCE) {
+            File storedFile = FileSystemSource.INSTANCE.getStoredFile(file);
+            if (!FileSystemSource.isCompressed(storedFile)
+                    && storedFile.length() >= MAPTHRESHOLD) {
+                profile.checkDocumentSize(storedFile.length());
+                return map(storedFile);
+            }
+        }
+        MessageDigest digest = DigestHelper.createDigest();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = BUFFERS.get();
+        try (InputStream inputStream = profile.limit(source.open(file))) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                output.write(buffer, 0, read);
+            }
+        }
+        return new IngestedContent(output.toByteArray(),
+                DigestHelper.toHex(digest.digest()));
+    }
+
+    private IngestedContent map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            MessageDigest digest = DigestHelper.createDigest();
+            digest.update(buffer.duplicate());
+            return new IngestedContent(buffer, DigestHelper.toHex(digest
+                    .digest()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ingesting " + source;
+    }
+}
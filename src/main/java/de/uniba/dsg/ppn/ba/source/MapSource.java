@@ -0,0 +1,108 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.source;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link ModelSource} of files held in memory, e.g. of uploaded models and
+ * their imports, which are validated without writing them to disk. The
+ * contents aren't copied, so they mustn't be changed after they were added.
+ *
+ * @version 1.0
+ *
+ */
+public class MapSource extends MountedSource {
+
+    private final ConcurrentMap<String, byte[]> contents = new ConcurrentHashMap<>();
+
+    /**
+     * creates an empty source
+     */
+    public MapSource() {
+    }
+
+    /**
+     * @param contents
+     *            the contents of the files by their locations separated by '/'
+     */
+    public MapSource(Map<String, byte[]> contents) {
+        for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * adds or replaces a file
+     *
+     * @param location
+     *            the location of the file separated by '/', e.g.
+     *            <code>processes/order.bpmn</code>
+     * @param content
+     *            the content of the file
+     * @return the virtual file, which can be validated with this source
+     * @throws IllegalArgumentException
+     *             if the location leaves the source
+     */
+    public File put(String location, byte[] content) {
+        File file = getFile(location);
+        String normalizedLocation = getLocation(file);
+        if (normalizedLocation == null) {
+            throw new IllegalArgumentException("Invalid location " + location);
+        }
+        contents.put(normalizedLocation, content);
+        return file;
+    }
+
+    /**
+     * @return the number of files
+     */
+    public int size() {
+        return contents.size();
+    }
+
+    @Override
+    protected InputStream openLocation(String location)
+            throws FileNotFoundException {
+        byte[] content = contents.get(location);
+        if (content == null) {
+            throw new FileNotFoundException(location);
+        }
+        return new ByteArrayInputStream(content);
+    }
+
+    @Override
+    protected boolean existsLocation(String location) {
+        return contents.containsKey(location);
+    }
+
+    @Override
+    public String toString() {
+        return "memory source of " + size() + " files";
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.source;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Provides the content of validated and imported files. The files are
+ * identified by their paths, so that imports are resolved by the same path
+ * arithmetic as for files on disk. The files of a source needn't exist on disk,
+ * e.g. if they are kept in memory or in an archive. Implementations must be
+ * thread-safe.
+ *
+ * @version 1.0
+ *
+ */
+public interface ModelSource {
+
+    /**
+     * opens the content of the given file
+     *
+     * @param file
+     *            the validated or imported file
+     * @return a new stream of the content, which must be closed by the caller
+     * @throws IOException
+     *             if the file doesn't exist or can't be read
+     */
+    InputStream open(File file) throws IOException;
+
+    /**
+     * @param file
+     *            the validated or imported file
+     * @return true, if the source contains the file
+     */
+    boolean exists(File file);
+}
@@ -0,0 +1,108 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.source;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Base class of the sources, whose files don't exist on disk. Their files are
+ * mounted below a virtual folder, so that a location inside the source, e.g.
+ * <code>processes/order.bpmn</code>, is validated as the file
+ * {@link #getFile(String)} and the relative locations of its imports resolve to
+ * files of the same source.
+ *
+ * @version 1.0
+ *
+ */
+public abstract class MountedSource implements ModelSource {
+
+    private final File mountPoint = new File(File.listRoots()[0],
+            "bpmn-source");
+
+    /**
+     * @return the virtual folder, below which the files of the source are
+     *         mounted
+     */
+    public File getMountPoint() {
+        return mountPoint;
+    }
+
+    /**
+     * @param location
+     *            the location of a file inside the source, separated by '/'
+     * @return the virtual file, which can be validated with this source
+     */
+    public File getFile(String location) {
+        return new File(mountPoint, location.replace('/', File.separatorChar));
+    }
+
+    /**
+     * @param file
+     *            a virtual file of this source
+     * @return the normalized location of the file inside the source separated
+     *         by '/' or null, if the file isn't below the mount point
+     */
+    public String getLocation(File file) {
+        Path mountPath = mountPoint.toPath();
+        Path path = file.getAbsoluteFile().toPath().normalize();
+        if (!path.startsWith(mountPath) || path.equals(mountPath)) {
+            return null;
+        }
+        return mountPath.relativize(path).toString()
+                .replace(File.separatorChar, '/');
+    }
+
+    @Override
+    public InputStream open(File file) throws IOException {
+        String location = getLocation(file);
+        if (location == null) {
+            throw new IOException(file + " isn't part of " + this);
+        }
+        return openLocation(location);
+    }
+
+    @Override
+    public boolean exists(File file) {
+        String location = getLocation(file);
+        return location != null && existsLocation(location);
+    }
+
+    /**
+     * @param location
+     *            the normalized location of a file inside the source
+     * @return a new stream of the content of the file
+     * @throws IOException
+     *             if the source doesn't contain the file or it can't be read
+     */
+    protected abstract InputStream openLocation(String location)
+            throws IOException;
+
+    /**
+     * @param location
+     *            the normalized location of a file inside the source
+     * @return true, if the source contains the file
+     */
+    protected abstract boolean existsLocation(String location);
+}
@@ -0,0 +1,79 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.source;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * {@link ModelSource}, which provides the content of one file from memory and
+ * the content of all other files from an underlying source, e.g. a model held
+ * by the caller, whose imports are read from disk
+ *
+ * @version 1.0
+ *
+ */
+public class OverlaySource implements ModelSource {
+
+    private final ModelSource source;
+    private final Path path;
+    private final byte[] content;
+
+    /**
+     * @param source
+     *            the source of all other files
+     * @param file
+     *            the file, whose content is provided from memory
+     * @param content
+     *            the content of the file, which mustn't be changed afterwards
+     */
+    public OverlaySource(ModelSource source, File file, byte[] content) {
+        this.source = source;
+        this.path = toPath(file);
+        this.content = content;
+    }
+
+    @Override
+    public InputStream open(File file) throws IOException {
+        if (path.equals(toPath(file))) {
+            return new ByteArrayInputStream(content);
+        }
+        return source.open(file);
+    }
+
+    @Override
+    public boolean exists(File file) {
+        return path.equals(toPath(file)) || source.exists(file);
+    }
+
+    private static Path toPath(File file) {
+        return file.getAbsoluteFile().toPath().normalize();
+    }
+
+    @Override
+    public String toString() {
+        return path + " over " + source;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * {@link ModelSource} of the files below a folder of any NIO file system, e.g.
+ * of a zip or jar archive opened with the zip file system provider, so that
+ * deployment archives are validated without extracting them
+ *
+ * @version 1.0
+ *
+ */
+public class PathSource extends MountedSource {
+
+    private final Path root;
+
+    /**
+     * @param root
+     *            the folder, to which the locations are relative, e.g. the
+     *            root directory of a zip file system
+     */
+    public PathSource(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * @return the folder, to which the locations are relative
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    protected InputStream openLocation(String location) throws IOException {
+        return Files.newInputStream(root.resolve(location));
+    }
+
+    @Override
+    protected boolean existsLocation(String location) {
+        return Files.isRegularFile(root.resolve(location));
+    }
+
+    @Override
+    public String toString() {
+        return "path source of " + root.toUri();
+    }
+}
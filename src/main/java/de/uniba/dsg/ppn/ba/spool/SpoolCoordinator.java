@@ -0,0 +1,229 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.spool;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.uniba.dsg.ppn.ba.Main;
+import de.uniba.dsg.ppn.ba.concurrent.CostEstimator;
+import de.uniba.dsg.ppn.ba.concurrent.SchedulingPlan;
+import de.uniba.dsg.ppn.ba.concurrent.SchedulingPlan.PlannedFile;
+import de.uniba.dsg.ppn.ba.json.JsonWriter;
+
+/**
+ * Coordinator of a job distributed by a spool. It enqueues the models of the
+ * job longest first, tracks the progress of the workers, requeues the tasks
+ * of crashed workers and merges the outcomes of all tasks into one report.
+ * The coordinator doesn't validate itself; the workers may run in this or in
+ * other processes.
+ *
+ * @version 1.0
+ *
+ */
+public class SpoolCoordinator {
+
+    private final SpoolDirectory spool;
+    private long pollMillis = 500;
+    private long staleMillis = 30000;
+    private static final Logger LOGGER;
+
+    static {
+        LOGGER = LoggerFactory.getLogger(SpoolCoordinator.class
+                .getSimpleName());
+    }
+
+    /**
+     * @param spool
+     *            the spool of the job
+     */
+    public SpoolCoordinator(SpoolDirectory spool) {
+        this.spool = spool;
+    }
+
+    /**
+     * sets the interval, in which the progress is checked
+     */
+    public void setPollMillis(long pollMillis) {
+        this.pollMillis = pollMillis;
+    }
+
+    /**
+     * sets the time after which a worker without heartbeat is considered
+     * crashed and its claims are requeued
+     */
+    public void setStaleMillis(long staleMillis) {
+        this.staleMillis = staleMillis;
+    }
+
+    /**
+     * enqueues the given models ordered by their estimated costs and seals
+     * the spool. Models, which are already enqueued or done, aren't enqueued
+     * again, so an interrupted coordinator may be restarted with the same
+     * models.
+     *
+     * @param models
+     *            the models of the job
+     * @return the number of enqueued tasks
+     * @throws IOException
+     *             if the tasks can't be written
+     */
+    public int enqueue(List<File> models) throws IOException {
+        SchedulingPlan plan = SchedulingPlan.create(models,
+                new CostEstimator());
+        int enqueuedTasks = 0;
+        int position = 0;
+        for (PlannedFile plannedFile : plan.getPlannedFiles()) {
+            // the position keeps the tasks in the order of the plan and
+            // distinguishes models with equal names
+            String taskName = String.format("%06d-%s", position++,
+                    plannedFile.getFile().getName());
+            if (spool.enqueue(taskName, plannedFile.getFile())) {
+                enqueuedTasks++;
+            }
+        }
+        spool.seal();
+        LOGGER.info("{} tasks enqueued", enqueuedTasks);
+        return enqueuedTasks;
+    }
+
+    /**
+     * waits until no task is pending or claimed anymore and requeues the
+     * tasks of crashed workers in the meantime
+     *
+     * @param timeout
+     *            the maximum time to wait
+     * @param unit
+     *            the unit of the timeout
+     * @return true, if the spool was drained within the timeout
+     * @throws IOException
+     *             if the spool can't be read
+     * @throws InterruptedException
+     *             if the coordinator was interrupted while waiting
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit)
+            throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        String lastProgress = null;
+        while (true) {
+            int requeuedTasks = spool.requeueStaleClaims(staleMillis);
+            if (requeuedTasks > 0) {
+                LOGGER.warn("{} tasks of crashed workers requeued",
+                        requeuedTasks);
+            }
+            SpoolProgress progress = spool.getProgress();
+            if (!progress.toString().equals(lastProgress)) {
+                lastProgress = progress.toString();
+                LOGGER.info(lastProgress);
+            }
+            if (progress.isDrained()) {
+                return true;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(pollMillis);
+        }
+    }
+
+    /**
+     * writes the outcomes of all done tasks as json report
+     *
+     * @param reportFile
+     *            the file of the report
+     * @return the outcomes of all done tasks
+     * @throws IOException
+     *             if the spool can't be read or the report can't be written
+     */
+    public List<SpoolOutcome> writeReport(File reportFile) throws IOException {
+        List<SpoolOutcome> outcomes = spool.getOutcomes();
+        int valid = 0;
+        int invalid = 0;
+        int failed = 0;
+        List<Object> models = new ArrayList<>();
+        for (SpoolOutcome outcome : outcomes) {
+            Map<String, Object> model = new LinkedHashMap<>();
+            model.put("task", outcome.getTaskName());
+            model.put("model", outcome.getModel().getPath());
+            model.put("status", outcome.getStatus());
+            model.put("worker", outcome.getWorkerId());
+            if (outcome.isSuccessful()) {
+                model.put("violations", outcome.getViolations());
+                model.put("result", outcome.getResultFile() == null ? null
+                        : outcome.getResultFile().getPath());
+            } else {
+                model.put("message", outcome.getMessage());
+            }
+            models.add(model);
+            if (!outcome.isSuccessful()) {
+                failed++;
+            } else if ("valid".equals(outcome.getStatus())) {
+                valid++;
+            } else {
+                invalid++;
+            }
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("total", outcomes.size());
+        report.put("valid", valid);
+        report.put("invalid", invalid);
+        report.put("failed", failed);
+        report.put("models", models);
+        Files.write(reportFile.toPath(), JsonWriter.writeValue(report)
+                .getBytes(StandardCharsets.UTF_8));
+        LOGGER.info("report of {} models written: {} valid, {} invalid, {}"
+                + " failed", outcomes.size(), valid, invalid, failed);
+        return outcomes;
+    }
+
+    /**
+     * starts a worker of the spool in a new local JVM with the classpath and
+     * options of the running JVM
+     *
+     * @return the process of the worker, whose output is inherited
+     * @throws IOException
+     *             if the process can't be started
+     */
+    public Process startLocalWorker() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java");
+        command.addAll(ManagementFactory.getRuntimeMXBean()
+                .getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.add("--spool-worker=" + spool.getDirectory().getPath());
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+}
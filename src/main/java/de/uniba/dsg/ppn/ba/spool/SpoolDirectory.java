@@ -0,0 +1,471 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.spool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import javax.xml.bind.JAXBException;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.xml.XmlWriter;
+
+/**
+ * Directory shared by the processes of a distributed validation, which works
+ * as queue without any broker. Its folders hold the states of the tasks:
+ * <ul>
+ * <li><code>pending</code> holds a task file for every model to validate.</li>
+ * <li><code>claimed</code> holds the tasks being validated. A worker claims a
+ * task by atomically renaming it into this folder with its worker id appended,
+ * so every task is claimed by exactly one worker, and counts the attempt in
+ * the task file.</li>
+ * <li><code>done</code> holds the result xml of every validated task and its
+ * completion marker, which is written last.</li>
+ * <li><code>workers</code> holds a heartbeat file for every worker, whose
+ * modification time is updated regularly. Claims of workers without a recent
+ * heartbeat are moved back to the pending tasks. A task, whose maximum
+ * number of attempts is used up, is marked as failed instead, so that a model
+ * crashing every worker can't stall the job.</li>
+ * </ul>
+ * The file <code>sealed</code> marks, that all tasks of the job are enqueued.
+ * All files are written to a temporary name and renamed, so no process ever
+ * reads a partially written file. The directory may be located on a file
+ * system shared by several hosts, if it supports atomic renames.
+ *
+ * @version 1.0
+ *
+ */
+public class SpoolDirectory {
+
+    private final Path pendingFolder;
+    private final Path claimedFolder;
+    private final Path doneFolder;
+    private final Path workersFolder;
+    private final Path root;
+    private final XmlWriter xmlWriter = new XmlWriter();
+    private int maxAttempts = DEFAULTMAXATTEMPTS;
+    static final String TASKSUFFIX = ".task";
+    static final String RESULTSUFFIX = ".xml";
+    static final String MARKERSUFFIX = ".done";
+    private static final char WORKERSEPARATOR = '@';
+    private static final String SEALFILE = "sealed";
+    private static final int DEFAULTMAXATTEMPTS = 3;
+
+    /**
+     * opens the spool in the given directory and creates its folders
+     *
+     * @param directory
+     *            the directory of the spool
+     * @throws IOException
+     *             if the folders can't be created
+     */
+    public SpoolDirectory(File directory) throws IOException {
+        root = directory.toPath().toAbsolutePath();
+        pendingFolder = Files.createDirectories(root.resolve("pending"));
+        claimedFolder = Files.createDirectories(root.resolve("claimed"));
+        doneFolder = Files.createDirectories(root.resolve("done"));
+        workersFolder = Files.createDirectories(root.resolve("workers"));
+    }
+
+    /**
+     * @return the directory of the spool
+     */
+    public File getDirectory() {
+        return root.toFile();
+    }
+
+    /**
+     * sets the number of claims of the tasks enqueued afterwards, after which
+     * a task of a crashed worker is marked as failed instead of being
+     * requeued
+     *
+     * @param maxAttempts
+     *            the maximum number of attempts, 3 by default
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException(
+                    "At least one attempt must be allowed");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * @return the maximum number of attempts of the tasks enqueued afterwards
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return an id of the calling process, which is unique on its host
+     */
+    public static String createWorkerId() {
+        return ManagementFactory.getRuntimeMXBean().getName()
+                .replaceAll("[^A-Za-z0-9_.-]", "-");
+    }
+
+    /**
+     * adds a pending task for the given model, unless the task already exists
+     *
+     * @param taskName
+     *            the unique name of the task, which determines the order, in
+     *            which the tasks are claimed
+     * @param model
+     *            the model to validate
+     * @return true, if the task was added
+     * @throws IOException
+     *             if the task can't be written
+     */
+    public boolean enqueue(String taskName, File model) throws IOException {
+        String fileName = taskName + TASKSUFFIX;
+        if (Files.exists(pendingFolder.resolve(fileName))
+                || Files.exists(doneFolder.resolve(taskName + MARKERSUFFIX))
+                || !findClaims(fileName).isEmpty()) {
+            return false;
+        }
+        Properties task = new Properties();
+        task.setProperty("model", model.getAbsolutePath());
+        task.setProperty("maxAttempts", Integer.toString(maxAttempts));
+        writeAtomically(pendingFolder.resolve(fileName), task);
+        return true;
+    }
+
+    /**
+     * marks, that all tasks of the job are enqueued, so that workers stop,
+     * when no task is pending or claimed anymore
+     *
+     * @throws IOException
+     *             if the mark can't be written
+     */
+    public void seal() throws IOException {
+        writeAtomically(root.resolve(SEALFILE), new Properties());
+    }
+
+    /**
+     * @return true, if all tasks of the job are enqueued
+     */
+    public boolean isSealed() {
+        return Files.exists(root.resolve(SEALFILE));
+    }
+
+    /**
+     * claims the first pending task for the given worker and counts the
+     * attempt
+     *
+     * @param workerId
+     *            the id of the claiming worker
+     * @return the claimed task or null, if no task is pending
+     * @throws IOException
+     *             if the spool can't be read
+     */
+    public SpoolTask claim(String workerId) throws IOException {
+        for (Path pendingTask : list(pendingFolder, TASKSUFFIX)) {
+            String fileName = pendingTask.getFileName().toString();
+            Path claimedTask = claimedFolder.resolve(fileName
+                    + WORKERSEPARATOR + workerId);
+            try {
+                Files.move(pendingTask, claimedTask,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                // claimed by another worker in the meantime
+                continue;
+            }
+            Properties task = read(claimedTask);
+            task.setProperty("attempts",
+                    Integer.toString(getAttempts(task) + 1));
+            writeAtomically(claimedTask, task);
+            return new SpoolTask(fileName.substring(0, fileName.length()
+                    - TASKSUFFIX.length()), new File(
+                    task.getProperty("model")), claimedTask);
+        }
+        return null;
+    }
+
+    /**
+     * stores the result of the claimed task and marks the task as done
+     *
+     * @param task
+     *            the claimed task
+     * @param outcome
+     *            the outcome of the validation of the task
+     * @param workerId
+     *            the id of the worker
+     * @throws IOException
+     *             if the result can't be written
+     */
+    public void complete(SpoolTask task, ValidationOutcome outcome,
+            String workerId) throws IOException {
+        Properties marker = new Properties();
+        marker.setProperty("model", task.getModel().getPath());
+        marker.setProperty("worker", workerId);
+        if (!outcome.isSuccessful()) {
+            marker.setProperty("status", "failed");
+            marker.setProperty("message",
+                    String.valueOf(outcome.getFailure().getMessage()));
+        } else {
+            ValidationResult result = outcome.getResult();
+            Path resultFile = doneFolder.resolve(task.getName()
+                    + RESULTSUFFIX);
+            Path temporaryFile = Files.createTempFile(doneFolder,
+                    task.getName(), ".tmp");
+            try {
+                xmlWriter.writeResult(result, temporaryFile.toFile());
+                move(temporaryFile, resultFile);
+            } catch (JAXBException e) {
+                throw new IOException("result couldn't be written", e);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+            marker.setProperty("status", result.isValid() ? "valid"
+                    : "invalid");
+            marker.setProperty("violations",
+                    Integer.toString(result.getViolations().size()));
+        }
+        writeAtomically(doneFolder.resolve(task.getName() + MARKERSUFFIX),
+                marker);
+        // the claim may have been requeued meanwhile, if the worker stalled
+        Files.deleteIfExists(task.getClaim());
+    }
+
+    /**
+     * updates the heartbeat of the given worker
+     *
+     * @param workerId
+     *            the id of the worker
+     * @throws IOException
+     *             if the heartbeat can't be written
+     */
+    public void heartbeat(String workerId) throws IOException {
+        Path heartbeat = workersFolder.resolve(workerId);
+        if (!Files.exists(heartbeat)) {
+            Files.write(heartbeat, new byte[0]);
+        }
+        Files.setLastModifiedTime(heartbeat,
+                FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    /**
+     * removes the heartbeat of a worker, which stops regularly
+     *
+     * @param workerId
+     *            the id of the worker
+     * @throws IOException
+     *             if the heartbeat can't be removed
+     */
+    public void retire(String workerId) throws IOException {
+        Files.deleteIfExists(workersFolder.resolve(workerId));
+    }
+
+    /**
+     * moves the claims of workers, whose heartbeat is missing or older than
+     * the given time, back to the pending tasks. A claim, whose attempts are
+     * used up, is marked as failed instead.
+     *
+     * @param staleMillis
+     *            the time after which a worker without heartbeat is
+     *            considered crashed
+     * @return the number of requeued tasks
+     * @throws IOException
+     *             if the spool can't be read
+     */
+    public int requeueStaleClaims(long staleMillis) throws IOException {
+        int requeuedTasks = 0;
+        long now = System.currentTimeMillis();
+        for (Path claim : list(claimedFolder, null)) {
+            String fileName = claim.getFileName().toString();
+            int separator = fileName.lastIndexOf(WORKERSEPARATOR);
+            if (separator < 0) {
+                continue;
+            }
+            Path heartbeat = workersFolder.resolve(fileName
+                    .substring(separator + 1));
+            long lastHeartbeat;
+            try {
+                lastHeartbeat = Files.getLastModifiedTime(heartbeat)
+                        .toMillis();
+            } catch (NoSuchFileException e) {
+                lastHeartbeat = Files.getLastModifiedTime(claim).toMillis();
+            }
+            if (now - lastHeartbeat > staleMillis) {
+                try {
+                    if (!failIfAttemptsUsedUp(claim, fileName.substring(0,
+                            separator), fileName.substring(separator + 1))) {
+                        Files.move(claim, pendingFolder.resolve(fileName
+                                .substring(0, separator)),
+                                StandardCopyOption.ATOMIC_MOVE);
+                        requeuedTasks++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // completed or requeued in the meantime
+                    continue;
+                }
+            }
+        }
+        return requeuedTasks;
+    }
+
+    /**
+     * marks the task of the stale claim as failed, if its attempts are used
+     * up, unless it was completed in the meantime
+     *
+     * @return true, if the task was marked as failed
+     */
+    private boolean failIfAttemptsUsedUp(Path claim, String taskFileName,
+            String workerId) throws IOException {
+        Properties task = read(claim);
+        int attempts = getAttempts(task);
+        if (attempts < Integer.parseInt(task.getProperty("maxAttempts",
+                Integer.toString(DEFAULTMAXATTEMPTS)))) {
+            return false;
+        }
+        String taskName = taskFileName.substring(0, taskFileName.length()
+                - TASKSUFFIX.length());
+        Path markerFile = doneFolder.resolve(taskName + MARKERSUFFIX);
+        if (!Files.exists(markerFile)) {
+            Properties marker = new Properties();
+            marker.setProperty("model", task.getProperty("model"));
+            marker.setProperty("worker", workerId);
+            marker.setProperty("status", "failed");
+            marker.setProperty("message", String.format(
+                    "Validation didn't complete in %d attempts", attempts));
+            writeAtomically(markerFile, marker);
+        }
+        Files.deleteIfExists(claim);
+        return true;
+    }
+
+    private int getAttempts(Properties task) {
+        return Integer.parseInt(task.getProperty("attempts", "0"));
+    }
+
+    /**
+     * @return the current numbers of pending, claimed and done tasks
+     * @throws IOException
+     *             if the spool can't be read
+     */
+    public SpoolProgress getProgress() throws IOException {
+        return new SpoolProgress(list(pendingFolder, TASKSUFFIX).size(), list(
+                claimedFolder, null).size(), list(doneFolder, MARKERSUFFIX)
+                .size());
+    }
+
+    /**
+     * @return the outcomes of all done tasks ordered by their names
+     * @throws IOException
+     *             if the spool can't be read
+     */
+    public List<SpoolOutcome> getOutcomes() throws IOException {
+        List<SpoolOutcome> outcomes = new ArrayList<>();
+        for (Path markerFile : list(doneFolder, MARKERSUFFIX)) {
+            String fileName = markerFile.getFileName().toString();
+            String taskName = fileName.substring(0, fileName.length()
+                    - MARKERSUFFIX.length());
+            Properties marker = read(markerFile);
+            Path resultFile = doneFolder.resolve(taskName + RESULTSUFFIX);
+            outcomes.add(new SpoolOutcome(taskName, new File(marker
+                    .getProperty("model")), marker.getProperty("status"),
+                    Integer.parseInt(marker.getProperty("violations", "0")),
+                    marker.getProperty("message"), marker
+                            .getProperty("worker"),
+                    Files.exists(resultFile) ? resultFile.toFile() : null));
+        }
+        return outcomes;
+    }
+
+    private List<Path> findClaims(String fileName) throws IOException {
+        List<Path> claims = new ArrayList<>();
+        for (Path claim : list(claimedFolder, null)) {
+            if (claim.getFileName().toString()
+                    .startsWith(fileName + WORKERSEPARATOR)) {
+                claims.add(claim);
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * @return the files of the folder with the given suffix ordered by name,
+     *         temporary files are skipped
+     */
+    private List<Path> list(Path folder, String suffix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                if (!fileName.endsWith(".tmp")
+                        && (suffix == null || fileName.endsWith(suffix))) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private Properties read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            properties.load(inputStream);
+        }
+        return properties;
+    }
+
+    private void writeAtomically(Path file, Properties properties)
+            throws IOException {
+        Path temporaryFile = Files.createTempFile(file.getParent(), file
+                .getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream outputStream = Files
+                    .newOutputStream(temporaryFile)) {
+                properties.store(outputStream, null);
+            }
+            move(temporaryFile, file);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
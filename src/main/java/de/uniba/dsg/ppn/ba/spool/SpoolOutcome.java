@@ -0,0 +1,110 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.spool;
+
+import java.io.File;
+
+/**
+ * The outcome of a done task of the spool as recorded by its completion marker
+ *
+ * @version 1.0
+ *
+ */
+public class SpoolOutcome {
+
+    private final String taskName;
+    private final File model;
+    private final String status;
+    private final int violations;
+    private final String message;
+    private final String workerId;
+    private final File resultFile;
+
+    SpoolOutcome(String taskName, File model, String status, int violations,
+            String message, String workerId, File resultFile) {
+        this.taskName = taskName;
+        this.model = model;
+        this.status = status;
+        this.violations = violations;
+        this.message = message;
+        this.workerId = workerId;
+        this.resultFile = resultFile;
+    }
+
+    /**
+     * @return the unique name of the task within the spool
+     */
+    public String getTaskName() {
+        return taskName;
+    }
+
+    /**
+     * @return the validated model
+     */
+    public File getModel() {
+        return model;
+    }
+
+    /**
+     * @return <code>valid</code>, <code>invalid</code> or <code>failed</code>,
+     *         if the validation couldn't be completed
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true, if the validation was completed with a result
+     */
+    public boolean isSuccessful() {
+        return !"failed".equals(status);
+    }
+
+    /**
+     * @return the number of found violations
+     */
+    public int getViolations() {
+        return violations;
+    }
+
+    /**
+     * @return the message of the failed validation or null
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the id of the worker, which validated the model
+     */
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * @return the result xml within the spool or null, if the validation
+     *         failed
+     */
+    public File getResultFile() {
+        return resultFile;
+    }
+}
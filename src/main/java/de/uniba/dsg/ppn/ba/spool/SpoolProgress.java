@@ -0,0 +1,76 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.spool;
+
+/**
+ * The numbers of pending, claimed and done tasks of a spool at one point in
+ * time
+ *
+ * @version 1.0
+ *
+ */
+public class SpoolProgress {
+
+    private final int pending;
+    private final int claimed;
+    private final int done;
+
+    SpoolProgress(int pending, int claimed, int done) {
+        this.pending = pending;
+        this.claimed = claimed;
+        this.done = done;
+    }
+
+    /**
+     * @return the number of tasks, which weren't claimed yet
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * @return the number of tasks, which are validated at the moment
+     */
+    public int getClaimed() {
+        return claimed;
+    }
+
+    /**
+     * @return the number of tasks with a completion marker
+     */
+    public int getDone() {
+        return done;
+    }
+
+    /**
+     * @return true, if no task is pending or claimed
+     */
+    public boolean isDrained() {
+        return pending == 0 && claimed == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "spool: " + pending + " pending, " + claimed + " claimed, "
+                + done + " done";
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.spool;
+
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * A task of the spool, which was claimed by a worker
+ *
+ * @version 1.0
+ *
+ */
+public class SpoolTask {
+
+    private final String name;
+    private final File model;
+    private final Path claim;
+
+    SpoolTask(String name, File model, Path claim) {
+        this.name = name;
+        this.model = model;
+        this.claim = claim;
+    }
+
+    /**
+     * @return the unique name of the task within the spool
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the model to validate
+     */
+    public File getModel() {
+        return model;
+    }
+
+    /**
+     * @return the file of the claim within the spool
+     */
+    Path getClaim() {
+        return claim;
+    }
+}
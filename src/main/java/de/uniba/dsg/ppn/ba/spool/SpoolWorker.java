@@ -0,0 +1,157 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.spool;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.concurrent.ValidatorThreadFactory;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.validation.BpmnValidator;
+
+/**
+ * Worker validating the tasks of a spool one after another. Any number of
+ * workers in any number of processes may work on the same spool. A worker
+ * updates its heartbeat in the background while it runs and moves the claims
+ * of crashed workers back to the pending tasks or marks them as failed after
+ * their last attempt, while it waits for other workers. It stops, when the
+ * spool is sealed and no task is pending or claimed anymore.
+ *
+ * @version 1.0
+ *
+ */
+public class SpoolWorker {
+
+    private final SpoolDirectory spool;
+    private final BpmnValidator validator;
+    private final String workerId;
+    private long pollMillis = 500;
+    private long staleMillis = 30000;
+    private static final Logger LOGGER;
+
+    static {
+        LOGGER = LoggerFactory.getLogger(SpoolWorker.class.getSimpleName());
+    }
+
+    /**
+     * @param spool
+     *            the spool to work on
+     * @param validator
+     *            the validator of the claimed models
+     * @param workerId
+     *            the id of the worker, which must be unique across all
+     *            workers of the spool
+     */
+    public SpoolWorker(SpoolDirectory spool, BpmnValidator validator,
+            String workerId) {
+        this.spool = spool;
+        this.validator = validator;
+        this.workerId = workerId;
+    }
+
+    /**
+     * sets the interval, in which the spool is checked for new tasks, while
+     * no task is pending
+     */
+    public void setPollMillis(long pollMillis) {
+        this.pollMillis = pollMillis;
+    }
+
+    /**
+     * sets the time after which a worker without heartbeat is considered
+     * crashed. The own heartbeat is updated three times within this time.
+     */
+    public void setStaleMillis(long staleMillis) {
+        this.staleMillis = staleMillis;
+    }
+
+    /**
+     * @return the id of the worker
+     */
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * validates the tasks of the spool until it's sealed and drained
+     *
+     * @return the number of tasks validated by this worker
+     * @throws IOException
+     *             if the spool can't be accessed
+     * @throws InterruptedException
+     *             if the worker was interrupted while waiting for tasks
+     */
+    public int run() throws IOException, InterruptedException {
+        spool.heartbeat(workerId);
+        ScheduledExecutorService heartbeat = Executors
+                .newSingleThreadScheduledExecutor(new ValidatorThreadFactory(
+                        "spool-heartbeat"));
+        heartbeat.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    spool.heartbeat(workerId);
+                } catch (IOException e) {
+                    LOGGER.error("heartbeat couldn't be written: {}",
+                            e.getMessage());
+                }
+            }
+        }, staleMillis / 3, staleMillis / 3, TimeUnit.MILLISECONDS);
+        int validatedTasks = 0;
+        try {
+            while (true) {
+                SpoolTask task = spool.claim(workerId);
+                if (task != null) {
+                    spool.complete(task, validate(task), workerId);
+                    validatedTasks++;
+                } else if (spool.isSealed()
+                        && spool.getProgress().isDrained()) {
+                    break;
+                } else {
+                    spool.requeueStaleClaims(staleMillis);
+                    Thread.sleep(pollMillis);
+                }
+            }
+        } finally {
+            heartbeat.shutdownNow();
+            spool.retire(workerId);
+        }
+        LOGGER.info("worker {} validated {} tasks", workerId, validatedTasks);
+        return validatedTasks;
+    }
+
+    private ValidationOutcome validate(SpoolTask task) {
+        LOGGER.debug("worker {} validates {}", workerId, task.getName());
+        try {
+            return ValidationOutcome.success(task.getModel(),
+                    validator.validate(task.getModel()));
+        } catch (BpmnValidationException | RuntimeException e) {
+            return ValidationOutcome.failure(task.getModel(), e);
+        }
+    }
+}
@@ -24,9 +24,12 @@ package de.uniba.dsg.ppn.ba.validation;
 import java.io.File;
 import java.util.List;
 
+import javax.xml.transform.Source;
+
 import ch.qos.logback.classic.Level;
 import de.uniba.dsg.bpmnspector.common.ValidationResult;
 import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
 
 /**
  * Interface for the implementation of the validator. Allows the usage of the
@@ -65,6 +68,42 @@ public interface BpmnValidator {
      */
     ValidationResult validate(File xmlFile) throws BpmnValidationException;
 
+    /**
+     * checks the given xmlFile read from the given source for bpmn constraint
+     * violations. The imports of the file are read from the same source.
+     *
+     * @param xmlFile
+     *            the xml file to validate, e.g. a file of
+     *            {@link de.uniba.dsg.ppn.ba.source.MountedSource#getFile(String)}
+     * @param source
+     *            the source providing the content of the file and its imports
+     * @return ValidationResult including all checked files and found violations
+     * @throws BpmnValidationException
+     *             if something fails during validation process
+     */
+    ValidationResult validate(File xmlFile, ModelSource source)
+            throws BpmnValidationException;
+
+    /**
+     * checks the given model, which is held by the caller, for bpmn constraint
+     * violations without writing it to disk, e.g. a
+     * {@link javax.xml.transform.dom.DOMSource} of a parsed document. The
+     * imports of the model are read from the given source.
+     *
+     * @param xmlSource
+     *            the model to validate
+     * @param xmlFile
+     *            the location of the model, which names it in the result and
+     *            to which its imports are relative
+     * @param source
+     *            the source providing the content of the imports
+     * @return ValidationResult including all checked files and found violations
+     * @throws BpmnValidationException
+     *             if something fails during validation process
+     */
+    ValidationResult validate(Source xmlSource, File xmlFile,
+            ModelSource source) throws BpmnValidationException;
+
     /**
      * checks the given xmlFiles for bpmn constraint violations
      *
@@ -26,6 +26,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
@@ -34,6 +36,8 @@ import javax.xml.transform.stream.StreamResult;
 
 import org.w3c.dom.Document;
 
+import de.uniba.dsg.ppn.ba.helper.ParserProfile;
+
 /**
  * This class handles the transformation from documents to input streams which
  * is required to apply the schematron validation
@@ -62,6 +66,7 @@ public class DocumentTransformer {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         TransformerFactory transformerFactory = TransformerFactory
                 .newInstance();
+        ParserProfile.getCurrent().configure(transformerFactory);
         Transformer transformer = transformerFactory.newTransformer();
         transformer
         .transform(new DOMSource(headFileDocument), new StreamResult(
@@ -69,4 +74,26 @@ public class DocumentTransformer {
 
         return new ByteArrayInputStream(outputStream.toByteArray());
     }
+
+    /**
+     * serializes the given source, e.g. a document held by the caller, to its
+     * UTF-8 encoded content
+     *
+     * @param source
+     *            the source to serialize
+     * @return the content of the source
+     * @throws TransformerException
+     *             if the source can't be read or serialized
+     */
+    public static byte[] transformToBytes(Source source)
+            throws TransformerException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        TransformerFactory transformerFactory = TransformerFactory
+                .newInstance();
+        ParserProfile.getCurrent().configure(transformerFactory);
+        Transformer transformer = transformerFactory.newTransformer();
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        transformer.transform(source, new StreamResult(outputStream));
+        return outputStream.toByteArray();
+    }
 }
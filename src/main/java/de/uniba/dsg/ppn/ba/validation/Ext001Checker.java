@@ -23,7 +23,15 @@ package de.uniba.dsg.ppn.ba.validation;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.xml.parsers.DocumentBuilder;
 
@@ -35,15 +43,22 @@ import org.xml.sax.SAXParseException;
 
 import de.uniba.dsg.bpmnspector.common.ValidationResult;
 import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.AbstractXsdValidator;
 import de.uniba.dsg.bpmnspector.common.xsdvalidation.BpmnXsdValidator;
 import de.uniba.dsg.bpmnspector.common.xsdvalidation.WsdlValidator;
 import de.uniba.dsg.bpmnspector.common.xsdvalidation.XmlValidator;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.XsdVerdictCache;
+import de.uniba.dsg.ppn.ba.cache.ImportCache;
+import de.uniba.dsg.ppn.ba.helper.BpmnHelper;
 import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
 import de.uniba.dsg.ppn.ba.helper.ConstantHelper;
+import de.uniba.dsg.ppn.ba.helper.DocumentSizeException;
 import de.uniba.dsg.ppn.ba.helper.ImportedFilesCrawler;
 import de.uniba.dsg.ppn.ba.helper.PrintHelper;
 import de.uniba.dsg.ppn.ba.helper.SetupHelper;
 import de.uniba.dsg.ppn.ba.preprocessing.ImportedFile;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
 
 /**
  * This class is resposible for the check of the EXT.001 constraint
@@ -61,6 +76,13 @@ public class Ext001Checker {
     private final BpmnXsdValidator bpmnXsdValidator;
     private final XmlLocator xmlLocator;
     private static final String CONSTRAINTNUMBER = "EXT.001";
+    private static final String WSDLIMPORTTYPE = "http://www.w3.org/TR/wsdl20/";
+    private static final String XSDIMPORTTYPE = "http://www.w3.org/2001/XMLSchema";
+    private ExecutorService importExecutor;
+    private ValidationDeadline deadline = ValidationDeadline.NONE;
+    private ImportCache importCache;
+    private XsdVerdictCache verdictCache;
+    private ModelSource modelSource = FileSystemSource.INSTANCE;
 
     static {
         LOGGER = LoggerFactory.getLogger(Ext001Checker.class.getSimpleName());
@@ -72,6 +94,60 @@ public class Ext001Checker {
         xmlLocator = new XmlLocator();
     }
 
+    /**
+     * sets the executor, which loads and validates the imported WSDL and XML
+     * Schema files concurrently
+     *
+     * @param importExecutor
+     *            the executor or null, if the imports should be checked
+     *            sequentially
+     */
+    public void setImportExecutor(ExecutorService importExecutor) {
+        this.importExecutor = importExecutor;
+    }
+
+    /**
+     * @param deadline
+     *            the deadline of the current validation, which is checked for
+     *            every import
+     */
+    public void setDeadline(ValidationDeadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @param importCache
+     *            the cache of the xsd checks of imported files or null, if
+     *            every imported file should be checked again
+     */
+    public void setImportCache(ImportCache importCache) {
+        this.importCache = importCache;
+    }
+
+    /**
+     * @param modelSource
+     *            the source of the content of the checked file and its
+     *            imports
+     */
+    public void setModelSource(ModelSource modelSource) {
+        this.modelSource = modelSource;
+    }
+
+    /**
+     * @param verdictCache
+     *            the persistent cache of the xsd verdicts of imported WSDL and
+     *            XML Schema files or null, if they should always be validated
+     */
+    public void setVerdictCache(XsdVerdictCache verdictCache) {
+        this.verdictCache = verdictCache;
+        if (wsdlValidator != null) {
+            wsdlValidator.setVerdictCache(verdictCache);
+        }
+        if (xmlValidator != null) {
+            xmlValidator.setVerdictCache(verdictCache);
+        }
+    }
+
     /**
      * checks, if there are violations of the EXT.001 constraint
      *
@@ -82,24 +158,88 @@ public class Ext001Checker {
      * @param validationResult
      *            the current validation result of validating process for adding
      *            found violations
+     * @throws ValidationTimeoutException
+     *             if the deadline passed
      */
     public void checkConstraint001(File headFile, File folder,
-            ValidationResult validationResult) {
+            ValidationResult validationResult)
+            throws ValidationTimeoutException {
+        checkConstraint001(headFile, null, folder, validationResult);
+    }
+
+    /**
+     * checks, if there are violations of the EXT.001 constraint, without
+     * parsing the file again
+     *
+     * @param headFile
+     *            the file which should be checked
+     * @param headFileDocument
+     *            the unmodified document of the file, which is only read, or
+     *            null, if the file should be parsed
+     * @param folder
+     *            the parent folder of the file
+     * @param validationResult
+     *            the current validation result of validating process for adding
+     *            found violations
+     * @throws ValidationTimeoutException
+     *             if the deadline passed
+     */
+    public void checkConstraint001(File headFile, Document headFileDocument,
+            File folder, ValidationResult validationResult)
+            throws ValidationTimeoutException {
+        checkBpmnFile(headFile, headFileDocument, folder, validationResult,
+                false);
+    }
+
+    /**
+     * checks the given bpmn file and its imports
+     *
+     * @param headFileDocument
+     *            the document of the file or null, if it must be parsed
+     * @param imported
+     *            true, if the file is imported, so that its xsd check can be
+     *            taken from the import cache
+     */
+    private void checkBpmnFile(File headFile, Document headFileDocument,
+            File folder, ValidationResult validationResult, boolean imported)
+            throws ValidationTimeoutException {
+        Map<ImportedFile, Future<ValidationResult>> concurrentChecks = new HashMap<>();
         try {
-            bpmnXsdValidator.validateAgainstXsd(headFile, validationResult);
-            Document headFileDocument = documentBuilder.parse(headFile);
+            validateAgainstXsd(bpmnXsdValidator, headFile, validationResult,
+                    imported);
+            Document document = headFileDocument;
+            if (document == null) {
+                document = imported && usesImportCache() ? importCache
+                        .getEntry(headFile).getDocument(documentBuilder)
+                        : BpmnHelper.parse(documentBuilder, headFile,
+                                modelSource);
+            }
 
             List<ImportedFile> importedFiles = ImportedFilesCrawler
-                    .selectImportedFiles(headFileDocument, folder, 0, false);
+                    .selectImportedFiles(document, folder, 0, false);
 
+            concurrentChecks = startConcurrentXsdChecks(importedFiles);
             for (ImportedFile importedFile : importedFiles) {
-                checkConstraintsinFile(importedFile, headFile, folder,
-                        validationResult);
+                deadline.check(ValidationStage.XSD);
+                Future<ValidationResult> concurrentCheck = concurrentChecks
+                        .get(importedFile);
+                if (concurrentCheck == null) {
+                    checkConstraintsinFile(importedFile, headFile, folder,
+                            validationResult);
+                } else {
+                    mergeConcurrentXsdCheck(concurrentCheck, validationResult);
+                }
             }
         } catch (SAXException | IOException e) {
             PrintHelper.printFileNotFoundLogs(LOGGER, e, headFile.getName());
         } catch (BpmnValidationException e) {
             LOGGER.error("Checking of EXT.001 failed: ", e);
+        } finally {
+            // checks, which weren't merged, mustn't keep the import loaders
+            for (Future<ValidationResult> concurrentCheck : concurrentChecks
+                    .values()) {
+                concurrentCheck.cancel(true);
+            }
         }
     }
 
@@ -113,39 +253,166 @@ public class Ext001Checker {
             File headFile, File folder, ValidationResult validationResult)
                     throws IOException, SAXException, BpmnValidationException {
         File file = importedFile.getFile();
-        if (!file.exists()) { // NOPMD
+        if (!modelSource.exists(file)) { // NOPMD
             String xpathLocation = createImportString(file.getName());
             String fileName = file.getName();
-            int line = xmlLocator.findLine(headFile, xpathLocation);
+            int line = xmlLocator.findLine(headFile, modelSource,
+                    xpathLocation);
             validationResult.getViolations().add(
                     new Violation(CONSTRAINTNUMBER, fileName, line,
                             xpathLocation + "[0]",
                             "The imported file does not exist"));
             LOGGER.info("violation of constraint {} in {} found.",
                     CONSTRAINTNUMBER, fileName);
-        } else if (ConstantHelper.BPMNNAMESPACE.equals(importedFile
-                .getImportType())) {
-            checkConstraint001(file, folder, validationResult);
-        } else if ("http://www.w3.org/TR/wsdl20/".equals(importedFile
-                .getImportType())) {
+        } else {
+            try {
+                if (ConstantHelper.BPMNNAMESPACE.equals(importedFile
+                        .getImportType())) {
+                    checkBpmnFile(file, null, folder, validationResult, true);
+                } else if (isXsdCheckedImport(importedFile)) {
+                    checkXsd(importedFile, validationResult);
+                }
+            } catch (DocumentSizeException e) {
+                validationResult.getViolations().add(
+                        new Violation("XSD-Check", file.getName(), -1, "", e
+                                .getMessage()));
+                validationResult.getCheckedFiles().add(file.getName());
+                LOGGER.info("imported file {} is too large", file.getName());
+            }
+        }
+    }
+
+    /**
+     * checks, if the given import is a WSDL or XML Schema file, which is
+     * validated against its xsd
+     */
+    private boolean isXsdCheckedImport(ImportedFile importedFile) {
+        return WSDLIMPORTTYPE.equals(importedFile.getImportType())
+                || XSDIMPORTTYPE.equals(importedFile.getImportType());
+    }
+
+    /**
+     * validates the given WSDL or XML Schema file against its xsd
+     */
+    private void checkXsd(ImportedFile importedFile,
+            ValidationResult validationResult) throws IOException,
+            SAXException, BpmnValidationException {
+        File file = importedFile.getFile();
+        try {
+            validateAgainstXsd(getXsdValidator(importedFile), file,
+                    validationResult, true);
+        } catch (SAXParseException e) {
+            createAndLogWellFormednesViolation(e, file, validationResult);
+        }
+    }
+
+    /**
+     * validates the given file with the given validator or takes the check of
+     * an imported file from the import cache
+     */
+    private void validateAgainstXsd(AbstractXsdValidator validator, File file,
+            ValidationResult validationResult, boolean imported)
+            throws IOException, SAXException, BpmnValidationException {
+        if (imported && usesImportCache()) {
+            importCache.getEntry(file).validateAgainstXsd(validator,
+                    validationResult);
+        } else {
+            validator.validateAgainstXsd(file, modelSource, validationResult);
+        }
+    }
+
+    /**
+     * the import cache identifies files by their state on disk, so it's only
+     * used for files read from disk
+     */
+    private boolean usesImportCache() {
+        return importCache != null
+                && FileSystemSource.isFileSystem(modelSource);
+    }
+
+    /**
+     * returns the validator for the type of the given import and creates it,
+     * if it's used the first time
+     */
+    private AbstractXsdValidator getXsdValidator(ImportedFile importedFile) {
+        if (WSDLIMPORTTYPE.equals(importedFile.getImportType())) {
             if (wsdlValidator == null) {
                 wsdlValidator = new WsdlValidator();
+                wsdlValidator.setVerdictCache(verdictCache);
             }
-            try {
-                wsdlValidator.validateAgainstXsd(file, validationResult);
-            } catch (SAXParseException e) {
-                createAndLogWellFormednesViolation(e, file, validationResult);
-            }
-        } else if ("http://www.w3.org/2001/XMLSchema".equals(importedFile
-                .getImportType())) {
-            if (xmlValidator == null) {
-                xmlValidator = new XmlValidator();
+            return wsdlValidator;
+        }
+        if (xmlValidator == null) {
+            xmlValidator = new XmlValidator();
+            xmlValidator.setVerdictCache(verdictCache);
+        }
+        return xmlValidator;
+    }
+
+    /**
+     * starts the xsd validation of all existing WSDL and XML Schema imports on
+     * the import executor, so that the files are loaded and validated
+     * concurrently. The xsd validators are thread-safe, as they create a new
+     * validator of their schema for every validated file.
+     *
+     * @return the started checks with their own validation results or an
+     *         empty map, if no import executor is set
+     */
+    private Map<ImportedFile, Future<ValidationResult>> startConcurrentXsdChecks(
+            List<ImportedFile> importedFiles) {
+        Map<ImportedFile, Future<ValidationResult>> concurrentChecks = new HashMap<>();
+        if (importExecutor == null) {
+            return concurrentChecks;
+        }
+        for (final ImportedFile importedFile : importedFiles) {
+            if (isXsdCheckedImport(importedFile)
+                    && modelSource.exists(importedFile.getFile())) {
+                getXsdValidator(importedFile);
+                concurrentChecks.put(importedFile,
+                        importExecutor.submit(new Callable<ValidationResult>() {
+                            @Override
+                            public ValidationResult call() throws Exception {
+                                ValidationResult importResult = new ValidationResult();
+                                checkXsd(importedFile, importResult);
+                                return importResult;
+                            }
+                        }));
             }
-            try {
-                xmlValidator.validateAgainstXsd(file, validationResult);
-            } catch (SAXParseException e) {
-                createAndLogWellFormednesViolation(e, file, validationResult);
+        }
+        return concurrentChecks;
+    }
+
+    /**
+     * waits for the given concurrent xsd check until the deadline and adds its
+     * violations and checked files to the validation result
+     */
+    private void mergeConcurrentXsdCheck(
+            Future<ValidationResult> concurrentCheck,
+            ValidationResult validationResult) throws IOException,
+            SAXException, BpmnValidationException {
+        try {
+            ValidationResult importResult = concurrentCheck.get(
+                    deadline.getRemainingNanos(), TimeUnit.NANOSECONDS);
+            validationResult.getViolations().addAll(
+                    importResult.getViolations());
+            validationResult.getCheckedFiles().addAll(
+                    importResult.getCheckedFiles());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            throw new ValidationTimeoutException(ValidationStage.XSD);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof BpmnValidationException) {
+                throw (BpmnValidationException) cause;
             }
+            throw new IllegalStateException(cause);
+        } finally {
+            concurrentCheck.cancel(true);
         }
     }
 
@@ -27,24 +27,27 @@ import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
 import de.uniba.dsg.bpmnspector.common.ValidationResult;
 import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.ppn.ba.cache.BatchImportCache;
+import de.uniba.dsg.ppn.ba.cache.ImportCache;
+import de.uniba.dsg.ppn.ba.cache.ImportEntry;
 import de.uniba.dsg.ppn.ba.helper.BpmnHelper;
 import de.uniba.dsg.ppn.ba.helper.ImportedFilesCrawler;
 import de.uniba.dsg.ppn.ba.helper.PrintHelper;
 import de.uniba.dsg.ppn.ba.helper.SetupHelper;
 import de.uniba.dsg.ppn.ba.preprocessing.ImportedFile;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
 
 /**
  * This class is resposible for the check of the EXT.002 constraint
@@ -60,6 +63,9 @@ public class Ext002Checker {
     private final XmlLocator xmlLocator;
     private final static Logger LOGGER;
     private static final String CONSTRAINTNUMBER = "EXT.002";
+    private ValidationDeadline deadline = ValidationDeadline.NONE;
+    private ImportCache importCache;
+    private ModelSource modelSource = FileSystemSource.INSTANCE;
 
     static {
         LOGGER = LoggerFactory.getLogger(Ext002Checker.class.getSimpleName());
@@ -71,6 +77,33 @@ public class Ext002Checker {
         xmlLocator = new XmlLocator();
     }
 
+    /**
+     * @param deadline
+     *            the deadline of the current validation, which is checked for
+     *            every compared pair of files and ids
+     */
+    public void setDeadline(ValidationDeadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @param importCache
+     *            the cache of the parsed imported files or null, if every
+     *            imported file should only be parsed once per checked file
+     */
+    public void setImportCache(ImportCache importCache) {
+        this.importCache = importCache;
+    }
+
+    /**
+     * @param modelSource
+     *            the source of the content of the checked file and its
+     *            imports
+     */
+    public void setModelSource(ModelSource modelSource) {
+        this.modelSource = modelSource;
+    }
+
     /**
      * checks, if there are violations of the EXT.002 constraint
      *
@@ -83,29 +116,64 @@ public class Ext002Checker {
      *            found violations
      * @throws XPathExpressionException
      *             if there's an invalid xpath expression used
+     * @throws ValidationTimeoutException
+     *             if the deadline passed
      */
     public void checkConstraint002(File headFile, File folder,
-            ValidationResult validationResult) throws XPathExpressionException {
-        List<File> importedFileList = searchForImports(headFile, folder,
-                validationResult);
+            ValidationResult validationResult) throws XPathExpressionException,
+            ValidationTimeoutException {
+        checkConstraint002(headFile, null, folder, validationResult);
+    }
+
+    /**
+     * checks, if there are violations of the EXT.002 constraint, without
+     * parsing the file again to find its imports
+     *
+     * @param headFile
+     *            the file which should be checked
+     * @param headFileDocument
+     *            the unmodified document of the file, which is only read, or
+     *            null, if the file should be parsed
+     * @param folder
+     *            the parent folder of the file
+     * @param validationResult
+     *            the current validation result of validating process for adding
+     *            found violations
+     * @throws XPathExpressionException
+     *             if there's an invalid xpath expression used
+     * @throws ValidationTimeoutException
+     *             if the deadline passed
+     */
+    public void checkConstraint002(File headFile, Document headFileDocument,
+            File folder, ValidationResult validationResult)
+            throws XPathExpressionException, ValidationTimeoutException {
+        List<File> importedFileList = searchForImports(headFile,
+                headFileDocument, folder, validationResult);
+        // every file is parsed once, the imported files only once per batch,
+        // if a cache is set and can identify the files of the source
+        ImportCache cache = importCache;
+        if (cache == null || !FileSystemSource.isFileSystem(modelSource)) {
+            cache = new BatchImportCache(modelSource);
+        }
 
         for (int i = 0; i < importedFileList.size(); i++) {
             File file1 = importedFileList.get(i);
             try {
-                Document document1 = documentBuilder.parse(file1);
-                BpmnHelper.removeBPMNDINode(document1);
-                String namespace1 = document1.getDocumentElement()
-                        .getAttribute("targetNamespace");
+                ImportEntry entry1 = getEntry(cache, file1, i);
+                String namespace1 = entry1.getTargetNamespace(documentBuilder);
                 for (int j = i + 1; j < importedFileList.size(); j++) {
+                    deadline.check(ValidationStage.XSD);
                     File file2 = importedFileList.get(j);
                     try {
-                        Document document2 = documentBuilder.parse(file2);
-                        BpmnHelper.removeBPMNDINode(document2);
-                        String namespace2 = document2.getDocumentElement()
-                                .getAttribute("targetNamespace");
+                        ImportEntry entry2 = getEntry(cache, file2, j);
+                        String namespace2 = entry2
+                                .getTargetNamespace(documentBuilder);
                         if (namespace1.equals(namespace2)) {
                             checkNamespacesAndIdDuplicates(file1, file2,
-                                    document1, document2, validationResult);
+                                    entry1.getIds(documentBuilder,
+                                            xPathExpression), entry2.getIds(
+                                            documentBuilder, xPathExpression),
+                                    validationResult);
                         }
                     } catch (IOException | SAXException e) {
                         PrintHelper.printFileNotFoundLogs(LOGGER, e,
@@ -118,34 +186,47 @@ public class Ext002Checker {
         }
     }
 
+    /**
+     * returns the entry of the file at the given position of the list of
+     * files. The first file is the checked file, which isn't cached.
+     */
+    private ImportEntry getEntry(ImportCache cache, File file, int position)
+            throws IOException {
+        return position == 0 ? ImportEntry.of(file, modelSource) : cache
+                .getEntry(file);
+    }
+
     /**
      * searches for all existing files, which are imported in the given file and
      * their imports and so on
      *
      * @param file
      *            where the imports are searched
+     * @param fileDocument
+     *            the document of the file or null, if it must be parsed
      * @param folder
      *            parent folder of file
      * @param validationResult
      *            to add all imported files to the checked file list
      * @return List<File> including all imported files in file
      */
-    private List<File> searchForImports(File file, File folder,
-            ValidationResult validationResult) {
+    private List<File> searchForImports(File file, Document fileDocument,
+            File folder, ValidationResult validationResult) {
         List<File> importedFileList = new ArrayList<>();
         try {
-            Document document = documentBuilder.parse(file);
+            Document document = fileDocument == null ? BpmnHelper.parse(
+                    documentBuilder, file, modelSource) : fileDocument;
             List<ImportedFile> importedFiles = ImportedFilesCrawler
                     .selectImportedFiles(document, folder, 0, true);
             importedFileList.add(file);
 
             for (ImportedFile importedFile : importedFiles) {
                 File impFile = importedFile.getFile();
-                if (impFile.exists()) {
+                if (modelSource.exists(impFile)) {
                     validationResult.getCheckedFiles().add(
                             impFile.getAbsolutePath());
-                    importedFileList.addAll(searchForImports(impFile, folder,
-                            validationResult));
+                    importedFileList.addAll(searchForImports(impFile, null,
+                            folder, validationResult));
                 }
             }
         } catch (SAXParseException e) {
@@ -170,37 +251,36 @@ public class Ext002Checker {
      *            first file to check
      * @param file2
      *            second file to check
-     * @param document1
-     *            parsed file1
-     * @param document2
-     *            parsed file2
+     * @param ids1
+     *            the ids of the bpmn elements of file1
+     * @param ids2
+     *            the ids of the bpmn elements of file2
      * @param validationResult
      *            for adding violations to the current validation result
-     * @throws XPathExpressionException
-     *             if there are invalid xpath expressions
+     * @throws ValidationTimeoutException
+     *             if the deadline passed
      */
     private void checkNamespacesAndIdDuplicates(File file1, File file2,
-            Document document1, Document document2,
-            ValidationResult validationResult) throws XPathExpressionException {
-        NodeList foundNodes1 = (NodeList) xPathExpression.evaluate(document1,
-                XPathConstants.NODESET);
-        NodeList foundNodes2 = (NodeList) xPathExpression.evaluate(document2,
-                XPathConstants.NODESET);
-        for (int k = 1; k < foundNodes1.getLength(); k++) {
-            String importedFile1Id = foundNodes1.item(k).getNodeValue();
-            for (int l = 1; l < foundNodes2.getLength(); l++) {
-                String importedFile2Id = foundNodes2.item(l).getNodeValue();
+            List<String> ids1, List<String> ids2,
+            ValidationResult validationResult) throws ValidationTimeoutException {
+        for (int k = 1; k < ids1.size(); k++) {
+            deadline.check(ValidationStage.XSD);
+            String importedFile1Id = ids1.get(k);
+            for (int l = 1; l < ids2.size(); l++) {
+                String importedFile2Id = ids2.get(l);
                 if (importedFile1Id.equals(importedFile2Id)) {
                     String xpathLocation = BpmnHelper
                             .createIdBpmnExpression(importedFile1Id);
                     validationResult.getViolations().add(
                             new Violation(CONSTRAINTNUMBER, file1.getName(),
-                                    xmlLocator.findLine(file1, xpathLocation),
+                                    xmlLocator.findLine(file1, modelSource,
+                                            xpathLocation),
                                     xpathLocation + "[0]",
                                     "Files have id duplicates"));
                     validationResult.getViolations().add(
                             new Violation(CONSTRAINTNUMBER, file2.getName(),
-                                    xmlLocator.findLine(file2, xpathLocation),
+                                    xmlLocator.findLine(file2, modelSource,
+                                            xpathLocation),
                                     xpathLocation + "[0]",
                                     "Files have id duplicates"));
                     LOGGER.info("violation of constraint {} found.",
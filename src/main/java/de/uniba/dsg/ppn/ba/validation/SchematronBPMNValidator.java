@@ -21,15 +21,36 @@
  */
 package de.uniba.dsg.ppn.ba.validation;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamSource;
+import javax.xml.xpath.XPathExpressionException;
 
 import org.oclc.purl.dsdl.svrl.FailedAssert;
 import org.oclc.purl.dsdl.svrl.SchematronOutputType;
@@ -46,12 +67,22 @@ import com.phloc.schematron.pure.SchematronResourcePure;
 
 import de.uniba.dsg.bpmnspector.common.ValidationResult;
 import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.XsdVerdictCache;
+import de.uniba.dsg.ppn.ba.cache.ImportCache;
 import de.uniba.dsg.ppn.ba.helper.BpmnHelper;
 import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.DigestHelper;
+import de.uniba.dsg.ppn.ba.helper.DocumentSizeException;
+import de.uniba.dsg.ppn.ba.helper.ModelScan;
+import de.uniba.dsg.ppn.ba.helper.ModelScanner;
 import de.uniba.dsg.ppn.ba.helper.PrintHelper;
 import de.uniba.dsg.ppn.ba.helper.SetupHelper;
 import de.uniba.dsg.ppn.ba.preprocessing.PreProcessResult;
 import de.uniba.dsg.ppn.ba.preprocessing.PreProcessor;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.IngestedContent;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+import de.uniba.dsg.ppn.ba.source.OverlaySource;
 
 /**
  * Implementation of BpmnValidator
@@ -67,11 +98,19 @@ import de.uniba.dsg.ppn.ba.preprocessing.PreProcessor;
 public class SchematronBPMNValidator implements BpmnValidator {
 
     private final DocumentBuilder documentBuilder;
+    private final ModelScanner modelScanner;
     private final PreProcessor preProcessor;
     private final XmlLocator xmlLocator;
     private final Ext001Checker ext001Checker;
     private final Ext002Checker ext002Checker;
+    private ISchematronResource schematronSchema;
+    private ThreadPoolExecutor schematronExecutor;
+    private final Deque<SchematronTask> abandonedSchematronTasks = new ArrayDeque<>();
+    private long timeoutMillis;
     private final static Logger LOGGER;
+    private static final String STREAMMESSAGEPREFIX = "Message: ";
+    private static final int MAXABANDONEDSCHEMATRONTASKS = 2;
+    private static final long SCHEMATRONTHREADKEEPALIVESECONDS = 30;
 
     static {
         LOGGER = (Logger) LoggerFactory.getLogger(SchematronBPMNValidator.class
@@ -80,6 +119,7 @@ public class SchematronBPMNValidator implements BpmnValidator {
 
     {
         documentBuilder = SetupHelper.setupDocumentBuilder();
+        modelScanner = new ModelScanner();
         preProcessor = new PreProcessor();
         xmlLocator = new XmlLocator();
         ext001Checker = new Ext001Checker();
@@ -97,6 +137,76 @@ public class SchematronBPMNValidator implements BpmnValidator {
                 .setLevel(logLevel);
     }
 
+    /**
+     * @return the version of the validation rules, which is the digest of the
+     *         schematron file and of the xml schemas used by the validator.
+     *         Results of the same content are only comparable, if they were
+     *         created with the same rules version.
+     */
+    public static String getRulesVersion() {
+        return RulesVersionHolder.RULESVERSION;
+    }
+
+    /**
+     * sets the time, which every validation of {@link #validate(File)} may
+     * take. A validation exceeding it is stopped in its current stage and
+     * returns the partial result marked with
+     * {@link ValidationResult#getTimedOutStage()}.
+     *
+     * @param timeout
+     *            the maximum time of a validation, 0 for no limit
+     * @param unit
+     *            the unit of the timeout
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * @return the maximum time of a validation in milliseconds, 0 for no limit
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * sets the cache of the work done for imported files, which is shared by
+     * all validations using the cache, e.g. during a batch of validations
+     *
+     * @param importCache
+     *            the cache or null, if imported files should be processed
+     *            again for every validation
+     */
+    public void setImportCache(ImportCache importCache) {
+        ext001Checker.setImportCache(importCache);
+        ext002Checker.setImportCache(importCache);
+        preProcessor.setImportCache(importCache);
+    }
+
+    /**
+     * sets the persistent cache of the xsd verdicts of imported WSDL and XML
+     * Schema files, so that unchanged files aren't validated again in later
+     * runs
+     *
+     * @param verdictCache
+     *            the cache or null, if the files should always be validated
+     */
+    public void setVerdictCache(XsdVerdictCache verdictCache) {
+        ext001Checker.setVerdictCache(verdictCache);
+    }
+
+    /**
+     * sets the executor, which loads and checks the imported WSDL and XML
+     * Schema files of a validated file concurrently
+     *
+     * @param importExecutor
+     *            the executor or null, if the imported files should be loaded
+     *            sequentially by the validating thread
+     */
+    public void setImportExecutor(ExecutorService importExecutor) {
+        ext001Checker.setImportExecutor(importExecutor);
+    }
+
     @Override
     public List<ValidationResult> validateFiles(List<File> xmlFiles)
             throws BpmnValidationException {
@@ -110,75 +220,505 @@ public class SchematronBPMNValidator implements BpmnValidator {
     @Override
     public ValidationResult validate(File xmlFile)
             throws BpmnValidationException {
-        final ISchematronResource schematronSchema = SchematronResourcePure
-                .fromClassPath("validation.sch");
-        if (!schematronSchema.isValidSchematron()) {
-            LOGGER.debug("schematron file is invalid");
-            throw new BpmnValidationException("Invalid Schematron file!");
-        }
-
-        LOGGER.info("Validating {}", xmlFile.getName());
+        return validate(xmlFile, FileSystemSource.INSTANCE);
+    }
 
-        ValidationResult validationResult = new ValidationResult();
+    @Override
+    public ValidationResult validate(File xmlFile, ModelSource source)
+            throws BpmnValidationException {
+        return validate(new ValidationJob(xmlFile, source));
+    }
 
+    /**
+     * validates the given source without writing it to disk. The tree of a
+     * {@link DOMSource} of a document is reused instead of parsing the
+     * document again and only copied for the preprocessing, which merges the
+     * imports into it, so it mustn't be changed during the validation. The
+     * lines of the violations refer to the serialized document.
+     */
+    @Override
+    public ValidationResult validate(Source xmlSource, File xmlFile,
+            ModelSource source) throws BpmnValidationException {
+        byte[] content;
         try {
-            Document headFileDocument = documentBuilder.parse(xmlFile);
-            validationResult.getCheckedFiles().add(xmlFile.getAbsolutePath());
-            File parentFolder = xmlFile.getParentFile();
-
-            ext001Checker.checkConstraint001(xmlFile, parentFolder,
-                    validationResult);
-            ext002Checker.checkConstraint002(xmlFile, parentFolder,
-                    validationResult);
-
-            PreProcessResult preProcessResult = preProcessor.preProcess(
-                    headFileDocument, parentFolder,
-                    new HashMap<String, String>());
-
-            SchematronOutputType schematronOutputType = schematronSchema
-                    .applySchematronValidationToSVRL(new StreamSource(
-                            DocumentTransformer
-                            .transformToInputStream(headFileDocument)));
-            for (int i = 0; i < schematronOutputType
-                    .getActivePatternAndFiredRuleAndFailedAssertCount(); i++) {
-                if (schematronOutputType
-                        .getActivePatternAndFiredRuleAndFailedAssertAtIndex(i) instanceof FailedAssert) {
-                    handleSchematronErrors(
-                            xmlFile,
-                            validationResult,
-                            preProcessResult,
-                            (FailedAssert) schematronOutputType
-                            .getActivePatternAndFiredRuleAndFailedAssertAtIndex(i));
-                }
+            content = readSource(xmlSource);
+        } catch (IOException | TransformerException e) {
+            PrintHelper.printFileNotFoundLogs(LOGGER, e, xmlFile.getName());
+            throw new BpmnValidationException(
+                    "Given source couldn't be read!");
+        }
+        ValidationJob job = new ValidationJob(xmlFile, new OverlaySource(
+                source, xmlFile, content));
+        if (xmlSource instanceof DOMSource
+                && ((DOMSource) xmlSource).getNode() instanceof Document) {
+            job.setSuppliedDocument((Document) ((DOMSource) xmlSource)
+                    .getNode());
+        }
+        return validate(job);
+    }
+
+    /**
+     * reads the bytes of a stream source as they are, so that a model, which
+     * isn't well-formed, is reported like a file, and serializes all other
+     * sources
+     */
+    private byte[] readSource(Source xmlSource) throws IOException,
+            TransformerException {
+        if (xmlSource instanceof StreamSource
+                && ((StreamSource) xmlSource).getInputStream() != null) {
+            return readFully(((StreamSource) xmlSource).getInputStream());
+        }
+        return DocumentTransformer.transformToBytes(xmlSource);
+    }
+
+    private ValidationResult validate(ValidationJob job)
+            throws BpmnValidationException {
+        job.setDeadline(ValidationDeadline.after(timeoutMillis,
+                TimeUnit.MILLISECONDS));
+        for (ValidationStage stage : ValidationStage.values()) {
+            runStage(stage, job);
+            if (job.isCompleted()) {
+                break;
             }
+        }
+        return job.getValidationResult();
+    }
 
-            for (int i = 0; i < validationResult.getCheckedFiles().size(); i++) {
-                File f = new File(validationResult.getCheckedFiles().get(i));
-                validationResult.getCheckedFiles().set(i, f.getName());
+    /**
+     * runs one stage of the validation of the given job. The stages of a job
+     * must be run in the order of {@link ValidationStage}, until the job is
+     * completed. Stages of different jobs may be run by different threads, as
+     * long as every thread uses its own validator. If the deadline of the job
+     * passes, the job is completed with the partial result.
+     *
+     * @param stage
+     *            the stage to run
+     * @param job
+     *            the job, which has already passed all previous stages
+     * @throws BpmnValidationException
+     *             if something fails during the stage
+     */
+    public void runStage(ValidationStage stage, ValidationJob job)
+            throws BpmnValidationException {
+        File xmlFile = job.getFile();
+        checkInterrupted(xmlFile);
+        ValidationDeadline deadline = job.getDeadline();
+        ext001Checker.setDeadline(deadline);
+        ext002Checker.setDeadline(deadline);
+        preProcessor.setDeadline(deadline);
+        ext001Checker.setModelSource(job.getSource());
+        ext002Checker.setModelSource(job.getSource());
+        preProcessor.setModelSource(job.getSource());
+        try {
+            deadline.check(stage);
+            switch (stage) {
+            case READ:
+                readFile(job);
+                break;
+            case SCAN:
+                scanFile(job);
+                break;
+            case PARSE:
+                parseFile(job);
+                break;
+            case XSD:
+                checkXsdAndImports(job);
+                break;
+            case PREPROCESS:
+                preProcess(job);
+                break;
+            case SCHEMATRON:
+                applySchematron(job);
+                break;
+            case LOCATE:
+                locateViolations(job);
+                completeJob(job);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown stage " + stage);
             }
+        } catch (XMLStreamException e) {
+            // Occurs if the scanned content is not well-formed
+            Location location = e.getLocation();
+            int line = location == null ? -1 : location.getLineNumber();
+            int column = location == null ? -1 : location.getColumnNumber();
+            completeNotWellFormedJob(job, line, column, getMessage(e));
         } catch (SAXParseException e) {
-            // Occurs if Document is not well-formed
-            validationResult.getViolations().add(
-                    new Violation("XSD-Check", xmlFile.getName(), e
-                            .getLineNumber(), "", e.getMessage()));
-            validationResult.getCheckedFiles().add(xmlFile.getName());
-            LOGGER.info("XML not well-formed in {} at line {}",
-                    xmlFile.getName(), e.getLineNumber());
+            // Occurs if Document is not well-formed or exceeds a limit of the
+            // parser profile
+            completeNotWellFormedJob(job, e.getLineNumber(),
+                    e.getColumnNumber(), e.getMessage());
+        } catch (DocumentSizeException e) {
+            completeRejectedJob(job, -1, e.getMessage());
+        } catch (ValidationCancelledException e) {
+            throw createCancelledException(xmlFile);
+        } catch (ValidationTimeoutException e) {
+            completeTimedOutJob(job, e.getStage());
         } catch (SAXException | IOException e) {
             PrintHelper.printFileNotFoundLogs(LOGGER, e, xmlFile.getName());
             throw new BpmnValidationException(
                     "Given file couldn't be read or doesn't exist!");
+        } catch (BpmnValidationException e) {
+            throw e;
         } catch (Exception e) { // NOPMD
             LOGGER.debug("exception at schematron validation. Cause: {}", e);
             throw new BpmnValidationException(
                     "Something went wrong during schematron validation!");
         }
+    }
+
+    /**
+     * reads the content of the file to validate and calculates its digest
+     */
+    private void readFile(ValidationJob job) throws IOException {
+        LOGGER.info("Validating {}", job.getFile().getName());
+        job.setContent(job.getSource().getContent(job.getFile()));
+    }
+
+    private static byte[] readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * scans the read content of the file to validate, so that content, which
+     * isn't well-formed, is rejected without building a document. A document
+     * supplied by the caller is well-formed and isn't scanned.
+     */
+    private void scanFile(ValidationJob job) throws XMLStreamException {
+        if (job.getSuppliedDocument() == null) {
+            IngestedContent content = job.getContent();
+            job.setScan(modelScanner.scan(job.getFile(), content.getLength(),
+                    content.openStream()));
+        }
+    }
+
+    /**
+     * parses the read content of the file to validate or copies the document
+     * supplied by the caller, as the preprocessing modifies it
+     */
+    private void parseFile(ValidationJob job) throws SAXException,
+            IOException {
+        File xmlFile = job.getFile();
+        if (job.getSuppliedDocument() == null) {
+            job.setDocument(documentBuilder.parse(job.getContent()
+                    .openStream(), xmlFile.toURI().toString()));
+        } else {
+            job.setDocument((Document) job.getSuppliedDocument().cloneNode(
+                    true));
+        }
+        job.getValidationResult().getCheckedFiles()
+                .add(xmlFile.getAbsolutePath());
+    }
+
+    /**
+     * validates the file and its imports against their xsds and checks the
+     * constraints EXT.001 and EXT.002
+     */
+    private void checkXsdAndImports(ValidationJob job)
+            throws BpmnValidationException, XPathExpressionException {
+        File xmlFile = job.getFile();
+        File parentFolder = xmlFile.getParentFile();
+        ext001Checker.checkConstraint001(xmlFile, job.getDocument(),
+                parentFolder, job.getValidationResult());
+        checkInterrupted(xmlFile);
+        ext002Checker.checkConstraint002(xmlFile, job.getDocument(),
+                parentFolder, job.getValidationResult());
+    }
+
+    /**
+     * merges the imported bpmn files into the parsed document. If the scan of
+     * the file found no imports, only the diagram is removed without searching
+     * the document for imports.
+     */
+    private void preProcess(ValidationJob job)
+            throws XPathExpressionException, ValidationTimeoutException {
+        ModelScan scan = job.getScan();
+        if (scan != null && scan.getElementCount("import") == 0) {
+            BpmnHelper.removeBPMNDINode(job.getDocument());
+            job.setPreProcessResult(new PreProcessResult(job.getDocument(),
+                    new HashMap<String, String>()));
+            return;
+        }
+        job.setPreProcessResult(preProcessor.preProcess(job.getDocument(), job
+                .getFile().getParentFile(), new HashMap<String, String>()));
+    }
+
+    /**
+     * applies the schematron rules to the preprocessed document. The rules
+     * can't check the deadline themselves, so they are applied by a thread of
+     * the schematron executor, if the job has a deadline. A timed out
+     * application can't be stopped and is abandoned. If too many abandoned
+     * applications are still running, the oldest one is awaited within the
+     * deadline, so that runaway models can't pile up threads.
+     */
+    private void applySchematron(ValidationJob job) throws Exception { // NOPMD
+        ValidationDeadline deadline = job.getDeadline();
+        Document document = job.getDocument();
+        if (!deadline.isLimited()) {
+            job.setSchematronOutput(applySchematron(getSchematronSchema(),
+                    document));
+            return;
+        }
 
+        removeFinishedSchematronTasks();
+        if (abandonedSchematronTasks.size() >= MAXABANDONEDSCHEMATRONTASKS) {
+            LOGGER.debug("waiting for {} abandoned schematron validations",
+                    abandonedSchematronTasks.size());
+            awaitAbandonedSchematronTask(job);
+        }
+        SchematronTask schematronTask = new SchematronTask(
+                getSchematronSchema(), document);
+        getSchematronExecutor().execute(schematronTask);
+        try {
+            job.setSchematronOutput(schematronTask.get(
+                    deadline.getRemainingNanos(), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            abandon(schematronTask);
+            throw new ValidationTimeoutException(ValidationStage.SCHEMATRON);
+        } catch (InterruptedException e) {
+            abandon(schematronTask);
+            Thread.currentThread().interrupt();
+            checkInterrupted(job.getFile());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * applies the schematron rules to the document. A compiled schema must
+     * only be used by one thread at a time.
+     *
+     * @param schema
+     *            the compiled schematron rules
+     * @param document
+     *            the preprocessed document
+     * @return the output of the rules
+     * @throws Exception
+     *             if the rules can't be applied
+     */
+    protected SchematronOutputType applySchematron(ISchematronResource schema,
+            Document document) throws Exception { // NOPMD
+        return schema.applySchematronValidationToSVRL(new StreamSource(
+                DocumentTransformer.transformToInputStream(document)));
+    }
+
+    /**
+     * cancels the timed out task, whose thread may keep using the schema until
+     * the rules are applied completely
+     */
+    private void abandon(SchematronTask schematronTask) {
+        schematronTask.cancel(true);
+        if (!schematronTask.isFinished()) {
+            abandonedSchematronTasks.add(schematronTask);
+        }
+    }
+
+    /**
+     * waits within the deadline of the job until the oldest abandoned task
+     * doesn't use its thread any more
+     */
+    private void awaitAbandonedSchematronTask(ValidationJob job)
+            throws BpmnValidationException {
+        boolean finished;
+        try {
+            finished = abandonedSchematronTasks.peek().awaitFinish(
+                    job.getDeadline().getRemainingNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw createCancelledException(job.getFile());
+        }
+        if (!finished) {
+            throw new ValidationTimeoutException(ValidationStage.SCHEMATRON);
+        }
+        removeFinishedSchematronTasks();
+    }
+
+    private void removeFinishedSchematronTasks() {
+        Iterator<SchematronTask> iterator = abandonedSchematronTasks
+                .iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * creates the executor of the schematron validations with deadlines on
+     * the first usage. It has a thread for every abandoned validation, which
+     * may still run, and one for the current validation, and its idle threads
+     * end after a while.
+     */
+    private ThreadPoolExecutor getSchematronExecutor() {
+        if (schematronExecutor == null) {
+            int threads = MAXABANDONEDSCHEMATRONTASKS + 1;
+            schematronExecutor = new ThreadPoolExecutor(threads, threads,
+                    SCHEMATRONTHREADKEEPALIVESECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable,
+                                    "bpmn-schematron");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            schematronExecutor.allowCoreThreadTimeOut(true);
+        }
+        return schematronExecutor;
+    }
+
+    /**
+     * locates the failed schematron asserts and replaces the paths of the
+     * checked files by their names
+     */
+    private void locateViolations(ValidationJob job)
+            throws BpmnValidationException {
+        File xmlFile = job.getFile();
+        ValidationResult validationResult = job.getValidationResult();
+        SchematronOutputType schematronOutputType = job.getSchematronOutput();
+        for (int i = 0; i < schematronOutputType
+                .getActivePatternAndFiredRuleAndFailedAssertCount(); i++) {
+            checkInterrupted(xmlFile);
+            job.getDeadline().check(ValidationStage.LOCATE);
+            if (schematronOutputType
+                    .getActivePatternAndFiredRuleAndFailedAssertAtIndex(i) instanceof FailedAssert) {
+                handleSchematronErrors(
+                        xmlFile,
+                        job.getSource(),
+                        validationResult,
+                        job.getPreProcessResult(),
+                        (FailedAssert) schematronOutputType
+                        .getActivePatternAndFiredRuleAndFailedAssertAtIndex(i));
+            }
+        }
+
+        replaceCheckedFilePaths(validationResult);
+    }
+
+    private void replaceCheckedFilePaths(ValidationResult validationResult) {
+        for (int i = 0; i < validationResult.getCheckedFiles().size(); i++) {
+            File f = new File(validationResult.getCheckedFiles().get(i));
+            validationResult.getCheckedFiles().set(i, f.getName());
+        }
+    }
+
+    /**
+     * sets the validity of the result and marks the job as completed
+     */
+    private void completeJob(ValidationJob job) {
+        ValidationResult validationResult = job.getValidationResult();
         validationResult.setValid(validationResult.getViolations().isEmpty());
+        job.complete();
         LOGGER.info("Validating process successfully done, file is valid: {}",
                 validationResult.isValid());
+    }
+
+    /**
+     * reports the file of a job, which isn't well-formed, at the given line and
+     * column and completes the job
+     */
+    private void completeNotWellFormedJob(ValidationJob job, int line,
+            int column, String message) {
+        LOGGER.info("XML not well-formed in {} at line {}, column {}",
+                new Object[] { job.getFile().getName(), line, column });
+        completeRejectedJob(job, line, message + " (column " + column + ")");
+    }
+
+    /**
+     * reports the file of a job, which couldn't be parsed, e.g. as it exceeds
+     * the maximum document size, and completes the job
+     */
+    private void completeRejectedJob(ValidationJob job, int line,
+            String message) {
+        File xmlFile = job.getFile();
+        ValidationResult validationResult = job.getValidationResult();
+        validationResult.getViolations().add(
+                new Violation("XSD-Check", xmlFile.getName(), line, "",
+                        message));
+        validationResult.getCheckedFiles().add(xmlFile.getName());
+        completeJob(job);
+    }
+
+    /**
+     * removes the location prefix, which the streaming parser adds to the
+     * message, as the line and the column are reported separately
+     */
+    static String getMessage(XMLStreamException e) {
+        String message = e.getMessage();
+        if (message == null) {
+            return "";
+        }
+        int index = message.indexOf(STREAMMESSAGEPREFIX);
+        return index == -1 ? message : message.substring(index
+                + STREAMMESSAGEPREFIX.length());
+    }
+
+    /**
+     * marks the partial result of a job, whose deadline passed, as invalid and
+     * timed out and completes the job
+     */
+    private void completeTimedOutJob(ValidationJob job, ValidationStage stage) {
+        ValidationResult validationResult = job.getValidationResult();
+        replaceCheckedFilePaths(validationResult);
+        validationResult.setTimedOutStage(stage.name());
+        validationResult.setValid(false);
+        job.complete();
+        LOGGER.warn("Validation of {} timed out in stage {}", job.getFile()
+                .getName(), stage);
+    }
 
-        return validationResult;
+    /**
+     * loads the schematron rules on the first usage. They are loaded again
+     * only while an abandoned validation still uses the loaded rules.
+     *
+     * @return the schematron rules
+     * @throws BpmnValidationException
+     *             if the schematron file is invalid
+     */
+    private ISchematronResource getSchematronSchema()
+            throws BpmnValidationException {
+        if (schematronSchema == null
+                || isUsedByAbandonedTask(schematronSchema)) {
+            ISchematronResource schema = SchematronResourcePure
+                    .fromClassPath("validation.sch");
+            if (!schema.isValidSchematron()) {
+                LOGGER.debug("schematron file is invalid");
+                throw new BpmnValidationException("Invalid Schematron file!");
+            }
+            schematronSchema = schema;
+        }
+        return schematronSchema;
+    }
+
+    /**
+     * stops the validation, if the validating thread was interrupted, e.g.
+     * because an asynchronous validation was cancelled
+     *
+     * @param xmlFile
+     *            the file, which is validated
+     * @throws BpmnValidationException
+     *             if the current thread was interrupted
+     */
+    private void checkInterrupted(File xmlFile) throws BpmnValidationException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw createCancelledException(xmlFile);
+        }
+    }
+
+    private BpmnValidationException createCancelledException(File xmlFile) {
+        LOGGER.info("Validation of {} cancelled", xmlFile.getName());
+        return new BpmnValidationException(String.format(
+                "Validation of %s was cancelled!", xmlFile.getName()));
     }
 
     /**
@@ -187,6 +727,8 @@ public class SchematronBPMNValidator implements BpmnValidator {
      * @param xmlFile
      *            the file where the error must be located with the help of the
      *            {@link XmlLocator}
+     * @param source
+     *            the source providing the content of the checked files
      * @param validationResult
      *            the result of the validation to add new found errors
      * @param preProcessResult
@@ -195,13 +737,14 @@ public class SchematronBPMNValidator implements BpmnValidator {
      * @param failedAssert
      *            the error of the schematron validation
      */
-    private void handleSchematronErrors(File xmlFile,
+    private void handleSchematronErrors(File xmlFile, ModelSource source,
             ValidationResult validationResult,
             PreProcessResult preProcessResult, FailedAssert failedAssert) {
         String message = failedAssert.getText().trim();
         String constraint = message.substring(0, message.indexOf('|'));
         String errorMessage = message.substring(message.indexOf('|') + 1);
-        int line = xmlLocator.findLine(xmlFile, failedAssert.getLocation());
+        int line = xmlLocator.findLine(xmlFile, source,
+                failedAssert.getLocation());
         String fileName = xmlFile.getName();
         String location = failedAssert.getLocation();
 
@@ -212,7 +755,7 @@ public class SchematronBPMNValidator implements BpmnValidator {
                     xpathId = failedAssert.getDiagnosticReference().get(0)
                             .getText().trim();
                 }
-                String[] result = searchForViolationFile(xpathId,
+                String[] result = searchForViolationFile(xpathId, source,
                         validationResult, preProcessResult.getNamespaceTable());
                 fileName = result[0];
                 line = Integer.parseInt(result[1]);
@@ -241,6 +784,8 @@ public class SchematronBPMNValidator implements BpmnValidator {
      * @param xpathExpression
      *            the expression, through which the file and line should be
      *            identified
+     * @param source
+     *            the source providing the content of the checked files
      * @param validationResult
      *            for getting all checked files
      * @param namespaceTable
@@ -251,7 +796,7 @@ public class SchematronBPMNValidator implements BpmnValidator {
      *             if no element can be found
      */
     private String[] searchForViolationFile(String xpathExpression,
-            ValidationResult validationResult,
+            ModelSource source, ValidationResult validationResult,
             Map<String, String> namespaceTable) throws BpmnValidationException {
         String fileName = "";
         String line = "-1";
@@ -269,14 +814,15 @@ public class SchematronBPMNValidator implements BpmnValidator {
         for (String checkedFilePath : validationResult.getCheckedFiles()) {
             File checkedFile = new File(checkedFilePath);
             try {
-                Document document = documentBuilder.parse(checkedFile);
+                Document document = BpmnHelper.parse(documentBuilder,
+                        checkedFile, source);
                 if (document.getDocumentElement()
                         .getAttribute("targetNamespace").equals(namespace)) {
                     xpathObjectId = BpmnHelper
                             .createIdBpmnExpression(xpathExpression
                                     .substring(xpathExpression.indexOf('_') + 1));
                     line = String.valueOf(xmlLocator.findLine(checkedFile,
-                            xpathObjectId));
+                            source, xpathObjectId));
                     xpathObjectId += "[0]"; // NOPMD
                     fileName = checkedFile.getName();
                     break;
@@ -293,4 +839,77 @@ public class SchematronBPMNValidator implements BpmnValidator {
 
         return new String[] { fileName, line, xpathObjectId };
     }
+
+    private boolean isUsedByAbandonedTask(ISchematronResource schema) {
+        removeFinishedSchematronTasks();
+        for (SchematronTask abandonedTask : abandonedSchematronTasks) {
+            if (abandonedTask.schema == schema) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * a schematron validation on a thread of the schematron executor, which
+     * tells, when its thread doesn't use the schema any more, even if it was
+     * cancelled
+     */
+    private class SchematronTask extends FutureTask<SchematronOutputType> {
+
+        private final ISchematronResource schema;
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private SchematronTask(final ISchematronResource schema,
+                final Document document) {
+            super(new Callable<SchematronOutputType>() {
+                @Override
+                public SchematronOutputType call() throws Exception { // NOPMD
+                    return applySchematron(schema, document);
+                }
+            });
+            this.schema = schema;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        private boolean isFinished() {
+            return finished.getCount() == 0;
+        }
+
+        private boolean awaitFinish(long timeoutNanos)
+                throws InterruptedException {
+            return finished.await(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * calculates the rules version on the first usage
+     */
+    private static class RulesVersionHolder {
+
+        static final String RULESVERSION;
+
+        static {
+            String rulesVersion;
+            try {
+                rulesVersion = DigestHelper.digestResources("validation.sch",
+                        "BPMN20.xsd", "BPMNDI.xsd", "DC.xsd", "DI.xsd",
+                        "Semantic.xsd", "XMLSchema.xsd", "xml.xsd",
+                        "wsdl20.xsd", "empty.dtd");
+            } catch (IOException e) {
+                LOGGER.error("rules version couldn't be calculated: {}",
+                        e.getMessage());
+                rulesVersion = "unknown";
+            }
+            RULESVERSION = rulesVersion;
+        }
+    }
 }
@@ -0,0 +1,432 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.validation;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.ConstantHelper;
+import de.uniba.dsg.ppn.ba.helper.DocumentSizeException;
+import de.uniba.dsg.ppn.ba.helper.ParserProfile;
+import de.uniba.dsg.ppn.ba.helper.PrintHelper;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+
+/**
+ * Validates huge models in a single pass of a streaming parser without building
+ * a document. Only the constraints, which can be decided from an element and
+ * its direct children, are checked, i.e. EXT.036, EXT.056, EXT.079, EXT.096,
+ * EXT.101, EXT.104, EXT.107 and EXT.135. The message flows referencing start or
+ * end events (EXT.102, EXT.108) are resolved at the end of the file from the
+ * collected ids of the events. The imports of the file, the xml schema and all
+ * other constraints are not checked, so a valid result of this validator is
+ * only a partial result of the {@link SchematronBPMNValidator}. The size of
+ * the file isn't limited by default, as the memory of a pass only grows with
+ * the depth of the elements and the number of events. The violations
+ * are reported with the same constraint, message, xpath and line. A validator
+ * must not be used by several threads at the same time.
+ *
+ * @version 1.0
+ *
+ */
+public class StreamingBpmnValidator {
+
+    private static final Logger LOGGER;
+    private static final String CHOREOGRAPHYMESSAGE = "must not contain Choreography Activities";
+    private static final Map<String, String> MESSAGES;
+    private static final Set<String> SUBPROCESSES;
+    private static final Set<String> GATEWAYS;
+    private static final Set<String> CHOREOGRAPHYACTIVITIES;
+    private static final String SOURCEREFCONTEXT = "messageFlow[@sourceRef]";
+    private static final String TARGETREFCONTEXT = "messageFlow[@targetRef]";
+
+    private final XMLInputFactory inputFactory;
+    private long maxDocumentSize = Long.MAX_VALUE;
+
+    static {
+        LOGGER = LoggerFactory.getLogger(StreamingBpmnValidator.class
+                .getSimpleName());
+        MESSAGES = new HashMap<>();
+        MESSAGES.put("EXT.036", "A Process " + CHOREOGRAPHYMESSAGE);
+        MESSAGES.put("EXT.056", "A SubProcess " + CHOREOGRAPHYMESSAGE);
+        MESSAGES.put("EXT.079",
+                "InputOutputSpecifications are not allowed in SubProcesses");
+        MESSAGES.put("EXT.096",
+                "A Start Event must not have an incoming sequence flow");
+        MESSAGES.put("EXT.101", "A startEvent must have a outgoing subelement");
+        MESSAGES.put("EXT.102",
+                "A Start Event MUST NOT be a source for a message flow");
+        MESSAGES.put("EXT.104",
+                "An End Event must not have an outgoing sequence flow");
+        MESSAGES.put("EXT.107",
+                "An End Event MUST have at least one incoming Sequence Flow");
+        MESSAGES.put("EXT.108",
+                "An End Event MUST NOT be a target for a message flow");
+        MESSAGES.put("EXT.135",
+                "A Gateway MUST have either multiple incoming Sequence Flows or multiple outgoing Sequence Flows");
+        SUBPROCESSES = new HashSet<>();
+        Collections.addAll(SUBPROCESSES, "subProcess", "transaction",
+                "adHocSubProcess");
+        GATEWAYS = new HashSet<>();
+        Collections.addAll(GATEWAYS, "parallelGateway", "exclusiveGateway",
+                "inclusiveGateway", "complexGateway", "eventBasedGateway");
+        CHOREOGRAPHYACTIVITIES = new HashSet<>();
+        Collections.addAll(CHOREOGRAPHYACTIVITIES, "choreographyTask",
+                "subChoreography", "callChoreography");
+    }
+
+    {
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        ParserProfile.getCurrent().configure(inputFactory);
+    }
+
+    /**
+     * @return the maximum size of a file in bytes
+     */
+    public long getMaxDocumentSize() {
+        return maxDocumentSize;
+    }
+
+    /**
+     * sets the maximum size of a file. The memory of a pass doesn't grow with
+     * the size of the file, so by default the size isn't limited and only the
+     * other limits of the {@link ParserProfile} apply.
+     *
+     * @param maxDocumentSize
+     *            the maximum size of a file in bytes
+     */
+    public void setMaxDocumentSize(long maxDocumentSize) {
+        if (maxDocumentSize <= 0) {
+            throw new IllegalArgumentException(
+                    "maximum document size must be positive");
+        }
+        this.maxDocumentSize = maxDocumentSize;
+    }
+
+    /**
+     * checks the given xmlFile for violations of the local constraints
+     *
+     * @param xmlFile
+     *            the xml file to validate
+     * @return ValidationResult including the checked file and found violations
+     * @throws BpmnValidationException
+     *             if the file can't be read
+     */
+    public ValidationResult validate(File xmlFile)
+            throws BpmnValidationException {
+        return validate(xmlFile, FileSystemSource.INSTANCE);
+    }
+
+    /**
+     * checks the given xmlFile read from the given source for violations of
+     * the local constraints
+     *
+     * @param xmlFile
+     *            the xml file to validate
+     * @param source
+     *            the source providing the content of the file
+     * @return ValidationResult including the checked file and found violations
+     * @throws BpmnValidationException
+     *             if the file can't be read
+     */
+    public ValidationResult validate(File xmlFile, ModelSource source)
+            throws BpmnValidationException {
+        LOGGER.info("Validating {} in streaming mode", xmlFile.getName());
+        ValidationResult validationResult = new ValidationResult();
+        String fileName = xmlFile.getName();
+        try (InputStream inputStream = new BufferedInputStream(ParserProfile
+                .getCurrent().withMaxDocumentSize(maxDocumentSize)
+                .limit(source.open(xmlFile)))) {
+            Pass pass = new Pass();
+            XMLStreamReader reader = inputFactory
+                    .createXMLStreamReader(inputStream);
+            try {
+                pass.run(reader);
+            } finally {
+                reader.close();
+            }
+            for (Finding finding : pass.getFindings()) {
+                LOGGER.info(String.format(
+                        "violation of constraint %s found in %s at line %s.",
+                        finding.constraint, fileName, finding.line));
+                validationResult.getViolations().add(
+                        new Violation(finding.constraint, fileName,
+                                finding.line, finding.xpath, MESSAGES
+                                        .get(finding.constraint)));
+            }
+        } catch (XMLStreamException e) {
+            Location location = e.getLocation();
+            int line = location == null ? -1 : location.getLineNumber();
+            int column = location == null ? -1 : location.getColumnNumber();
+            LOGGER.info("XML not well-formed in {} at line {}, column {}",
+                    new Object[] { fileName, line, column });
+            validationResult.getViolations().add(
+                    new Violation("XSD-Check", fileName, line, "",
+                            SchematronBPMNValidator.getMessage(e)
+                                    + " (column " + column + ")"));
+        } catch (DocumentSizeException e) {
+            validationResult.getViolations().add(
+                    new Violation("XSD-Check", fileName, -1, "", e
+                            .getMessage()));
+        } catch (IOException e) {
+            PrintHelper.printFileNotFoundLogs(LOGGER, e, fileName);
+            throw new BpmnValidationException(
+                    "Given file couldn't be read or doesn't exist!");
+        }
+        validationResult.getCheckedFiles().add(fileName);
+        validationResult.setValid(validationResult.getViolations().isEmpty());
+        LOGGER.info("Validating process successfully done, file is valid: {}",
+                validationResult.isValid());
+        return validationResult;
+    }
+
+    /**
+     * a single pass over a file. Only the open elements, the ids of the start
+     * and end events and the references of the message flows are held.
+     */
+    private static class Pass {
+
+        private final Deque<OpenElement> openElements = new ArrayDeque<>();
+        private final Map<String, Integer> contextCounts = new HashMap<>();
+        private final Set<String> startEventIds = new HashSet<>();
+        private final Set<String> endEventIds = new HashSet<>();
+        private final List<Finding> references = new ArrayList<>();
+        private final List<Finding> findings = new ArrayList<>();
+        private long sequence;
+
+        void run(XMLStreamReader reader) throws XMLStreamException {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    startElement(reader);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    endElement(openElements.pop());
+                }
+            }
+        }
+
+        private void startElement(XMLStreamReader reader) {
+            long elementSequence = sequence++;
+            if (!ConstantHelper.BPMNNAMESPACE.equals(reader
+                    .getNamespaceURI())) {
+                openElements.push(OpenElement.OTHER);
+                return;
+            }
+            String name = reader.getLocalName();
+            int line = reader.getLocation().getLineNumber();
+            OpenElement parent = openElements.peek();
+            if (parent != null) {
+                parent.addChild(name);
+            }
+            if ("startEvent".equals(name)) {
+                addId(startEventIds, reader);
+            } else if ("endEvent".equals(name)) {
+                addId(endEventIds, reader);
+            } else if ("messageFlow".equals(name)) {
+                addReference(reader, "sourceRef", SOURCEREFCONTEXT,
+                        "EXT.102", elementSequence, line);
+                addReference(reader, "targetRef", TARGETREFCONTEXT,
+                        "EXT.108", elementSequence, line);
+            }
+            if ("process".equals(name) || SUBPROCESSES.contains(name)
+                    || GATEWAYS.contains(name) || "startEvent".equals(name)
+                    || "endEvent".equals(name)) {
+                openElements.push(new OpenElement(name, createXpath(name),
+                        elementSequence, line));
+            } else {
+                openElements.push(OpenElement.OTHER);
+            }
+        }
+
+        private void endElement(OpenElement element) {
+            String name = element.name;
+            if (name == null) {
+                return;
+            }
+            if ("process".equals(name)) {
+                addFinding(element.choreographyActivity, "EXT.036", element);
+            } else if (SUBPROCESSES.contains(name)) {
+                addFinding(element.choreographyActivity, "EXT.056", element);
+                addFinding(element.ioSpecification, "EXT.079", element);
+            } else if ("startEvent".equals(name)) {
+                addFinding(element.incoming > 0, "EXT.096", element);
+                addFinding(element.outgoing == 0, "EXT.101", element);
+            } else if ("endEvent".equals(name)) {
+                addFinding(element.outgoing > 0, "EXT.104", element);
+                addFinding(element.incoming == 0, "EXT.107", element);
+            } else if (GATEWAYS.contains(name)) {
+                addFinding(element.incoming <= 1 && element.outgoing <= 1,
+                        "EXT.135", element);
+            }
+        }
+
+        /**
+         * returns the findings of the pass ordered by their constraint and the
+         * position of their element like the schematron validation, after the
+         * references of the message flows are resolved
+         */
+        List<Finding> getFindings() {
+            for (Finding reference : references) {
+                Set<String> ids = endEventIds;
+                if ("EXT.102".equals(reference.constraint)) {
+                    ids = startEventIds;
+                }
+                if (ids.contains(reference.reference)) {
+                    findings.add(reference);
+                }
+            }
+            Collections.sort(findings, new Comparator<Finding>() {
+                @Override
+                public int compare(Finding first, Finding second) {
+                    int result = first.constraint.compareTo(second.constraint);
+                    if (result != 0) {
+                        return result;
+                    }
+                    return Long.compare(first.sequence, second.sequence);
+                }
+            });
+            return findings;
+        }
+
+        private void addId(Set<String> ids, XMLStreamReader reader) {
+            String id = reader.getAttributeValue(null, "id");
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+
+        private void addReference(XMLStreamReader reader, String attribute,
+                String context, String constraint, long elementSequence,
+                int line) {
+            String reference = reader.getAttributeValue(null, attribute);
+            if (reference != null) {
+                references.add(new Finding(constraint, elementSequence, line,
+                        createXpath(context), reference));
+            }
+        }
+
+        private void addFinding(boolean violated, String constraint,
+                OpenElement element) {
+            if (violated) {
+                findings.add(new Finding(constraint, element.sequence,
+                        element.line, element.xpath, null));
+            }
+        }
+
+        /**
+         * creates the xpath of the next element of the given rule context,
+         * which counts the elements like the schematron validation
+         */
+        private String createXpath(String context) {
+            Integer count = contextCounts.get(context);
+            int index = count == null ? 0 : count;
+            contextCounts.put(context, index + 1);
+            return "//bpmn:" + context + "[" + index + "]";
+        }
+    }
+
+    /**
+     * an open element of a rule context and what is known about its children
+     */
+    private static class OpenElement {
+
+        static final OpenElement OTHER = new OpenElement(null, null, -1, -1);
+
+        final String name;
+        final String xpath;
+        final long sequence;
+        final int line;
+        int incoming;
+        int outgoing;
+        boolean ioSpecification;
+        boolean choreographyActivity;
+
+        OpenElement(String name, String xpath, long sequence, int line) {
+            this.name = name;
+            this.xpath = xpath;
+            this.sequence = sequence;
+            this.line = line;
+        }
+
+        void addChild(String childName) {
+            if (name == null) {
+                return;
+            }
+            if ("incoming".equals(childName)) {
+                incoming++;
+            } else if ("outgoing".equals(childName)) {
+                outgoing++;
+            } else if ("ioSpecification".equals(childName)) {
+                ioSpecification = true;
+            } else if (CHOREOGRAPHYACTIVITIES.contains(childName)) {
+                choreographyActivity = true;
+            }
+        }
+    }
+
+    /**
+     * a violation found in the pass or a reference of a message flow, which
+     * is a violation, if it references a start or end event
+     */
+    private static class Finding {
+
+        final String constraint;
+        final long sequence;
+        final int line;
+        final String xpath;
+        final String reference;
+
+        Finding(String constraint, long sequence, int line, String xpath,
+                String reference) {
+            this.constraint = constraint;
+            this.sequence = sequence;
+            this.line = line;
+            this.xpath = xpath;
+            this.reference = reference;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.validation;
+
+/**
+ * Thrown by a stage, which noticed that its thread was interrupted, because
+ * the validation was cancelled. It unwinds the stages like a passed deadline,
+ * but the validation fails instead of being completed with a partial result.
+ *
+ * @version 1.0
+ *
+ */
+public class ValidationCancelledException extends ValidationTimeoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param stage
+     *            the stage, in which the validation was cancelled
+     */
+    public ValidationCancelledException(ValidationStage stage) {
+        super(String.format("Validation was cancelled in stage %s!", stage),
+                stage);
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.validation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The point in time, until which a validation has to be completed. The stages
+ * of the validation check the deadline regularly and stop with a
+ * {@link ValidationTimeoutException} after it has passed or with a
+ * {@link ValidationCancelledException} after their thread was interrupted.
+ *
+ * @version 1.0
+ *
+ */
+public class ValidationDeadline {
+
+    /**
+     * a deadline, which never passes
+     */
+    public static final ValidationDeadline NONE = new ValidationDeadline(0,
+            false);
+
+    private final long deadlineNanos;
+    private final boolean limited;
+
+    private ValidationDeadline(long deadlineNanos, boolean limited) {
+        this.deadlineNanos = deadlineNanos;
+        this.limited = limited;
+    }
+
+    /**
+     * @param timeout
+     *            the time the validation may take from now on, 0 for no limit
+     * @param unit
+     *            the unit of the timeout
+     * @return the deadline after the given timeout
+     */
+    public static ValidationDeadline after(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            return NONE;
+        }
+        return new ValidationDeadline(System.nanoTime()
+                + unit.toNanos(timeout), true);
+    }
+
+    /**
+     * @return true, if the deadline limits the validation
+     */
+    public boolean isLimited() {
+        return limited;
+    }
+
+    /**
+     * @return true, if the deadline has passed
+     */
+    public boolean isExpired() {
+        return limited && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * @return the remaining time in nanoseconds, which is 0 after the deadline
+     *         and {@link Long#MAX_VALUE} for unlimited deadlines
+     */
+    public long getRemainingNanos() {
+        if (!limited) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * stops the validation, if the deadline has passed or the current thread
+     * was interrupted
+     *
+     * @param stage
+     *            the stage, which checks the deadline
+     * @throws ValidationTimeoutException
+     *             if the deadline has passed
+     * @throws ValidationCancelledException
+     *             if the current thread was interrupted
+     */
+    public void check(ValidationStage stage) throws ValidationTimeoutException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ValidationCancelledException(stage);
+        }
+        if (isExpired()) {
+            throw new ValidationTimeoutException(stage);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.validation;
+
+import java.io.File;
+
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.helper.ModelScan;
+import de.uniba.dsg.ppn.ba.preprocessing.PreProcessResult;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.IngestedContent;
+import de.uniba.dsg.ppn.ba.source.IngestingSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
+
+/**
+ * Holds the state of the validation of one file between the
+ * {@link ValidationStage}s. A job may be handed over between threads, but must
+ * only be processed by one thread at a time.
+ *
+ * @version 1.0
+ *
+ */
+public class ValidationJob {
+
+    private final File file;
+    private final IngestingSource source;
+    private final boolean ownedSource;
+    private final ValidationResult validationResult;
+    private IngestedContent content;
+    private String digest;
+    private ModelScan scan;
+    private Document document;
+    private Document suppliedDocument;
+    private PreProcessResult preProcessResult;
+    private SchematronOutputType schematronOutput;
+    private boolean completed;
+    private ValidationDeadline deadline = ValidationDeadline.NONE;
+
+    /**
+     * @param file
+     *            the file to validate
+     */
+    public ValidationJob(File file) {
+        this(file, FileSystemSource.INSTANCE);
+    }
+
+    /**
+     * @param file
+     *            the file to validate
+     * @param source
+     *            the source providing the content of the file and its
+     *            imports, which is read only once by the job
+     */
+    public ValidationJob(File file, ModelSource source) {
+        this.file = file;
+        this.source = IngestingSource.of(source);
+        // a source ingested by the caller is shared with other validations
+        this.ownedSource = this.source != source;
+        this.validationResult = new ValidationResult();
+    }
+
+    /**
+     * @return the file to validate
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the source providing the content of the file and its imports,
+     *         which holds the read files until the job is completed, unless
+     *         it was given by the caller
+     */
+    public IngestingSource getSource() {
+        return source;
+    }
+
+    /**
+     * @return the result of the validation, which is only complete when
+     *         {@link #isCompleted()} returns true
+     */
+    public ValidationResult getValidationResult() {
+        return validationResult;
+    }
+
+    /**
+     * @return the SHA-256 digest of the file content, available after the
+     *         {@link ValidationStage#READ} stage
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * @return the imports and the element census of the file, available after
+     *         the {@link ValidationStage#SCAN} stage, or null if the document
+     *         was supplied by the caller. The
+     *         {@link ValidationStage#PREPROCESS} stage uses it to skip the
+     *         search for imports.
+     */
+    public ModelScan getScan() {
+        return scan;
+    }
+
+    /**
+     * @return the deadline of the validation
+     */
+    public ValidationDeadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @param deadline
+     *            the deadline, which every stage checks
+     */
+    public void setDeadline(ValidationDeadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return true, if all required stages are done, either because all stages
+     *         were run or because the validation could be finished early
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    IngestedContent getContent() {
+        return content;
+    }
+
+    void setContent(IngestedContent content) {
+        this.content = content;
+        this.digest = content.getDigest();
+    }
+
+    void setScan(ModelScan scan) {
+        this.scan = scan;
+    }
+
+    Document getSuppliedDocument() {
+        return suppliedDocument;
+    }
+
+    void setSuppliedDocument(Document suppliedDocument) {
+        this.suppliedDocument = suppliedDocument;
+    }
+
+    Document getDocument() {
+        return document;
+    }
+
+    void setDocument(Document document) {
+        this.document = document;
+        // the content isn't needed any more after parsing, the later stages
+        // read the file from the source
+        this.content = null;
+    }
+
+    PreProcessResult getPreProcessResult() {
+        return preProcessResult;
+    }
+
+    void setPreProcessResult(PreProcessResult preProcessResult) {
+        this.preProcessResult = preProcessResult;
+    }
+
+    SchematronOutputType getSchematronOutput() {
+        return schematronOutput;
+    }
+
+    void setSchematronOutput(SchematronOutputType schematronOutput) {
+        this.schematronOutput = schematronOutput;
+    }
+
+    void complete() {
+        completed = true;
+        document = null;
+        suppliedDocument = null;
+        if (ownedSource) {
+            source.clear();
+        }
+        preProcessResult = null;
+        schematronOutput = null;
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.validation;
+
+/**
+ * The stages of the validation of one file in the order of their execution.
+ * Every stage can be run on its own by
+ * {@link SchematronBPMNValidator#runStage(ValidationStage, ValidationJob)},
+ * which allows to execute the stages of different files concurrently.
+ *
+ * @version 1.0
+ *
+ */
+public enum ValidationStage {
+
+    /**
+     * reads the content of the file and calculates its digest
+     */
+    READ,
+
+    /**
+     * scans the read content with a non-validating streaming parser, which
+     * rejects content, that isn't well-formed, before it's parsed and collects
+     * the imports and the element census of the file
+     */
+    SCAN,
+
+    /**
+     * parses the read content into a document
+     */
+    PARSE,
+
+    /**
+     * checks the file and its imports against their xsds and checks the
+     * constraints EXT.001 and EXT.002
+     */
+    XSD,
+
+    /**
+     * merges the imported bpmn files into the parsed document and removes the
+     * BPMNDI nodes
+     */
+    PREPROCESS,
+
+    /**
+     * applies the schematron rules to the preprocessed document
+     */
+    SCHEMATRON,
+
+    /**
+     * locates the files and lines of the failed schematron asserts and
+     * completes the validation result
+     */
+    LOCATE
+}
@@ -0,0 +1,65 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.validation;
+
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+
+/**
+ * Thrown by a stage, which noticed that the deadline of the validation has
+ * passed
+ *
+ * @version 1.0
+ *
+ */
+public class ValidationTimeoutException extends BpmnValidationException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ValidationStage stage;
+
+    /**
+     * @param stage
+     *            the stage, in which the deadline passed
+     */
+    public ValidationTimeoutException(ValidationStage stage) {
+        this(String.format("Validation timed out in stage %s!", stage), stage);
+    }
+
+    /**
+     * @param message
+     *            the message of the exception
+     * @param stage
+     *            the stage, in which the validation stopped
+     */
+    protected ValidationTimeoutException(String message,
+            ValidationStage stage) {
+        super(message);
+        this.stage = stage;
+    }
+
+    /**
+     * @return the stage, in which the deadline passed
+     */
+    public ValidationStage getStage() {
+        return stage;
+    }
+}
@@ -23,6 +23,7 @@ package de.uniba.dsg.ppn.ba.validation;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 import org.jdom2.Document;
@@ -39,6 +40,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.uniba.dsg.ppn.ba.helper.ConstantHelper;
+import de.uniba.dsg.ppn.ba.helper.ParserProfile;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.ModelSource;
 
 /**
  *
@@ -61,6 +65,7 @@ public class XmlLocator {
     public XmlLocator() {
         saxBuilder = new SAXBuilder();
         saxBuilder.setJDOMFactory(new LocatedJDOMFactory());
+        ParserProfile.getCurrent().configure(saxBuilder);
         xPathFactory = XPathFactory.instance();
     }
 
@@ -76,8 +81,30 @@ public class XmlLocator {
      * @return line or -1
      */
     public int findLine(File xmlFile, String xpathExpression) {
+        return findLine(xmlFile, FileSystemSource.INSTANCE, xpathExpression);
+    }
+
+    /**
+     * Searches the line of the given xpath expression in the given file read
+     * from the given source
+     *
+     * @param xmlFile
+     *            the xml file where the error has to be found
+     * @param source
+     *            the source providing the content of the file
+     * @param xpathExpression
+     *            the xpath expression to find the error in the file
+     * @return line or -1
+     * @see #findLine(File, String)
+     */
+    public int findLine(File xmlFile, ModelSource source,
+            String xpathExpression) {
         try {
-            Document doc = saxBuilder.build(xmlFile);
+            Document doc;
+            try (InputStream inputStream = source.open(xmlFile)) {
+                doc = saxBuilder.build(inputStream, xmlFile.toURI()
+                        .toString());
+            }
             int bracketPosition = xpathExpression.lastIndexOf('[');
             int elementPosition = 0;
             try {
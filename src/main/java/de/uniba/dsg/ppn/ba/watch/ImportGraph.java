@@ -0,0 +1,161 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.watch;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Graph of the imports between files with reverse edges, so that the models
+ * importing a changed file directly or indirectly can be found. Files are
+ * identified by their normalized absolute path. The graph isn't thread-safe.
+ *
+ * @version 1.0
+ *
+ */
+public class ImportGraph {
+
+    private final Map<File, Set<File>> imports = new HashMap<>();
+    private final Map<File, Set<File>> importers = new HashMap<>();
+
+    /**
+     * replaces the imports of the given file
+     *
+     * @param file
+     *            the importing file
+     * @param importedFiles
+     *            the files directly imported by the file
+     */
+    public void setImports(File file, Collection<File> importedFiles) {
+        removeImports(file);
+        Set<File> normalizedFiles = new LinkedHashSet<>();
+        for (File importedFile : importedFiles) {
+            normalizedFiles.add(normalize(importedFile));
+        }
+        File normalizedFile = normalize(file);
+        imports.put(normalizedFile, normalizedFiles);
+        for (File importedFile : normalizedFiles) {
+            Set<File> fileImporters = importers.get(importedFile);
+            if (fileImporters == null) {
+                fileImporters = new LinkedHashSet<>();
+                importers.put(importedFile, fileImporters);
+            }
+            fileImporters.add(normalizedFile);
+        }
+    }
+
+    /**
+     * removes the imports of the given file, e.g. when it's deleted. Edges of
+     * files importing the given file are kept, so they are found again, when
+     * the file is recreated.
+     *
+     * @param file
+     *            the importing file
+     */
+    public void removeImports(File file) {
+        File normalizedFile = normalize(file);
+        Set<File> importedFiles = imports.remove(normalizedFile);
+        if (importedFiles == null) {
+            return;
+        }
+        for (File importedFile : importedFiles) {
+            Set<File> fileImporters = importers.get(importedFile);
+            fileImporters.remove(normalizedFile);
+            if (fileImporters.isEmpty()) {
+                importers.remove(importedFile);
+            }
+        }
+    }
+
+    /**
+     * @param file
+     *            the importing file
+     * @return the files directly imported by the given file
+     */
+    public Set<File> getImports(File file) {
+        Set<File> importedFiles = imports.get(normalize(file));
+        if (importedFiles == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(importedFiles);
+    }
+
+    /**
+     * @param file
+     *            the imported file
+     * @return the files directly importing the given file
+     */
+    public Set<File> getImporters(File file) {
+        Set<File> fileImporters = importers.get(normalize(file));
+        if (fileImporters == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(fileImporters);
+    }
+
+    /**
+     * @param file
+     *            the file
+     * @return true, if the given file is imported by any file of the graph
+     */
+    public boolean isImported(File file) {
+        return importers.containsKey(normalize(file));
+    }
+
+    /**
+     * collects the files, whose validation depends on the given file
+     *
+     * @param changedFile
+     *            the changed file
+     * @return the changed file followed by all files importing it directly or
+     *         indirectly in breadth-first order
+     */
+    public Set<File> getAffectedFiles(File changedFile) {
+        Set<File> affectedFiles = new LinkedHashSet<>();
+        Deque<File> pendingFiles = new ArrayDeque<>();
+        pendingFiles.add(normalize(changedFile));
+        while (!pendingFiles.isEmpty()) {
+            File file = pendingFiles.poll();
+            if (affectedFiles.add(file)) {
+                pendingFiles.addAll(getImporters(file));
+            }
+        }
+        return affectedFiles;
+    }
+
+    /**
+     * @param file
+     *            a file
+     * @return the file with a normalized absolute path, which identifies it in
+     *         the graph
+     */
+    public static File normalize(File file) {
+        return file.toPath().toAbsolutePath().normalize().toFile();
+    }
+}
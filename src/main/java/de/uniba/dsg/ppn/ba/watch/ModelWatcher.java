@@ -0,0 +1,403 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.watch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcomeHandler;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.ModelScanner;
+import de.uniba.dsg.ppn.ba.preprocessing.ImportedFile;
+import de.uniba.dsg.ppn.ba.validation.BpmnValidator;
+
+/**
+ * Watches models and keeps their validation results up to date. The watcher
+ * monitors the directories of the models and of all files they import and
+ * maintains an {@link ImportGraph} of the models. When files change, only the
+ * changed models and the models importing a changed file directly or
+ * indirectly are validated again with the same warm validator. Changes are
+ * collected until no further change occurs within the quiet period, so that
+ * the several events of saving a file trigger one validation.
+ * <p>
+ * The watcher is used by a single thread, which runs the validations.
+ *
+ * @version 1.0
+ *
+ */
+public class ModelWatcher implements Closeable {
+
+    private final BpmnValidator validator;
+    private final ValidationOutcomeHandler outcomeHandler;
+    private final WatchService watchService;
+    private final ImportGraph importGraph = new ImportGraph();
+    private final ModelScanner modelScanner = new ModelScanner();
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Set<Path> modelDirectories = new HashSet<>();
+    private final Set<File> models = new TreeSet<>();
+    private long quietMillis = DEFAULTQUIETMILLIS;
+    private static final Logger LOGGER;
+    private static final long DEFAULTQUIETMILLIS = 100;
+    private static final String MODELSUFFIX = ".bpmn";
+
+    static {
+        LOGGER = LoggerFactory.getLogger(ModelWatcher.class.getSimpleName());
+    }
+
+    /**
+     * @param validator
+     *            the validator, which validates the changed models
+     * @param outcomeHandler
+     *            the handler of the outcomes of all validations, e.g. for
+     *            writing the results
+     * @throws IOException
+     *             if the file system can't be watched
+     */
+    public ModelWatcher(BpmnValidator validator,
+            ValidationOutcomeHandler outcomeHandler) throws IOException {
+        this.validator = validator;
+        this.outcomeHandler = outcomeHandler;
+        watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * @param quietMillis
+     *            the time without further changes, after which collected
+     *            changes are validated
+     */
+    public void setQuietMillis(long quietMillis) {
+        this.quietMillis = quietMillis;
+    }
+
+    /**
+     * @return the graph of the imports of the watched models
+     */
+    public ImportGraph getImportGraph() {
+        return importGraph;
+    }
+
+    /**
+     * @return the watched models
+     */
+    public Set<File> getModels() {
+        return Collections.unmodifiableSet(models);
+    }
+
+    /**
+     * starts watching the given model or all models in the given directory
+     * and its subdirectories, including models created later
+     *
+     * @param fileOrDirectory
+     *            a model or a directory of models
+     * @return the models found
+     * @throws IOException
+     *             if the directory can't be watched
+     */
+    public List<File> watch(File fileOrDirectory) throws IOException {
+        File file = ImportGraph.normalize(fileOrDirectory);
+        List<File> foundModels = new ArrayList<>();
+        if (file.isDirectory()) {
+            watchModelDirectory(file.toPath(), foundModels);
+        } else {
+            registerDirectory(file.getParentFile().toPath());
+            addModel(file, foundModels);
+        }
+        return foundModels;
+    }
+
+    /**
+     * validates all watched models
+     */
+    public void validateAll() {
+        validate(new ArrayList<>(models));
+    }
+
+    /**
+     * waits for changes of the watched files and validates the affected
+     * models
+     *
+     * @param timeout
+     *            the maximum time to wait for the first change
+     * @param unit
+     *            the unit of the timeout
+     * @return the validated models, which are empty, if no model was affected
+     *         within the timeout
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    public List<File> awaitChanges(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        WatchKey key = watchService.poll(timeout, unit);
+        Set<File> changedFiles = new LinkedHashSet<>();
+        boolean overflow = false;
+        while (key != null) {
+            overflow |= processEvents(key, changedFiles);
+            key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS);
+        }
+        List<File> affectedModels = overflow ? rescan()
+                : collectAffectedModels(changedFiles);
+        if (!affectedModels.isEmpty()) {
+            LOGGER.info("{} changed, validating {} models", changedFiles,
+                    affectedModels.size());
+        }
+        validate(affectedModels);
+        return affectedModels;
+    }
+
+    /**
+     * validates the affected models of all changes until the watcher is
+     * closed
+     *
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    public void run() throws InterruptedException {
+        try {
+            while (true) {
+                awaitChanges(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.debug("watcher was closed");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * collects the changed files of the events of the given key
+     *
+     * @return true, if events were lost, so that all models must be scanned
+     *         again
+     */
+    private boolean processEvents(WatchKey key, Set<File> changedFiles) {
+        Path directory = watchedDirectories.get(key);
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || directory == null) {
+                overflow = true;
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            File file = path.toFile();
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                    && modelDirectories.contains(directory)
+                    && Files.isDirectory(path)) {
+                List<File> foundModels = new ArrayList<>();
+                try {
+                    watchModelDirectory(path, foundModels);
+                } catch (IOException e) {
+                    LOGGER.error("directory {} can't be watched: {}", path,
+                            e.getMessage());
+                }
+                changedFiles.addAll(foundModels);
+            } else if (models.contains(file) || isModelFile(file)
+                    && modelDirectories.contains(directory)
+                    || importGraph.isImported(file)) {
+                changedFiles.add(file);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+        return overflow;
+    }
+
+    /**
+     * updates the imports of the changed models and collects the existing
+     * models, which depend on a changed file
+     */
+    private List<File> collectAffectedModels(Set<File> changedFiles) {
+        for (File file : changedFiles) {
+            if (file.isFile()) {
+                if (models.contains(file) || isModelFile(file)
+                        && modelDirectories.contains(file.getParentFile()
+                                .toPath())) {
+                    models.add(file);
+                    updateImports(file);
+                }
+            } else {
+                models.remove(file);
+                importGraph.removeImports(file);
+            }
+        }
+        Set<File> affectedModels = new TreeSet<>();
+        for (File file : changedFiles) {
+            for (File affectedFile : importGraph.getAffectedFiles(file)) {
+                if (models.contains(affectedFile)) {
+                    affectedModels.add(affectedFile);
+                }
+            }
+        }
+        return new ArrayList<>(affectedModels);
+    }
+
+    /**
+     * scans all watched models and directories again after lost events
+     *
+     * @return all watched models
+     */
+    private List<File> rescan() {
+        LOGGER.info("events were lost, validating all models");
+        for (File model : new ArrayList<>(models)) {
+            if (model.isFile()) {
+                updateImports(model);
+            } else {
+                models.remove(model);
+                importGraph.removeImports(model);
+            }
+        }
+        for (Path directory : new ArrayList<>(modelDirectories)) {
+            try (DirectoryStream<Path> files = Files
+                    .newDirectoryStream(directory)) {
+                for (Path path : files) {
+                    File file = path.toFile();
+                    if (isModelFile(file) && file.isFile()
+                            && models.add(file)) {
+                        updateImports(file);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.debug("directory {} can't be read: {}", directory,
+                        e.getMessage());
+            }
+        }
+        return new ArrayList<>(models);
+    }
+
+    private void watchModelDirectory(Path directory,
+            final List<File> foundModels) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path path,
+                    BasicFileAttributes attributes) throws IOException {
+                modelDirectories.add(path);
+                registerDirectory(path);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path path,
+                    BasicFileAttributes attributes) {
+                if (isModelFile(path.toFile())) {
+                    addModel(path.toFile(), foundModels);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void addModel(File model, List<File> foundModels) {
+        if (models.add(model)) {
+            updateImports(model);
+            foundModels.add(model);
+        }
+    }
+
+    /**
+     * scans the imports of the given model into the graph and watches the
+     * directories of the imported files
+     */
+    private void updateImports(File model) {
+        List<File> importedFiles = new ArrayList<>();
+        try {
+            for (ImportedFile importedFile : modelScanner.scan(model)
+                    .getImportedFiles()) {
+                importedFiles.add(importedFile.getFile());
+            }
+        } catch (IOException | XMLStreamException e) {
+            // the validator reports the broken model, whose imports are
+            // scanned again after its next change
+            LOGGER.debug("imports of {} couldn't be scanned: {}",
+                    model.getName(), e.getMessage());
+        }
+        importGraph.setImports(model, importedFiles);
+        for (File importedFile : importGraph.getImports(model)) {
+            try {
+                registerDirectory(importedFile.getParentFile().toPath());
+            } catch (IOException e) {
+                LOGGER.debug("directory of {} can't be watched: {}",
+                        importedFile, e.getMessage());
+            }
+        }
+    }
+
+    private void registerDirectory(Path directory) throws IOException {
+        if (!watchedDirectories.containsValue(directory)
+                && Files.isDirectory(directory)) {
+            watchedDirectories.put(directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY), directory);
+        }
+    }
+
+    private void validate(List<File> affectedModels) {
+        for (File model : affectedModels) {
+            try {
+                ValidationResult result = validator.validate(model);
+                outcomeHandler.handle(ValidationOutcome.success(model, result));
+            } catch (BpmnValidationException e) {
+                outcomeHandler.handle(ValidationOutcome.failure(model, e));
+            }
+        }
+    }
+
+    private static boolean isModelFile(File file) {
+        return file.getName().toLowerCase(Locale.ENGLISH)
+                .endsWith(MODELSUFFIX);
+    }
+}
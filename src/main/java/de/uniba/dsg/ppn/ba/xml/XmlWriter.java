@@ -22,6 +22,7 @@
 package de.uniba.dsg.ppn.ba.xml;
 
 import java.io.File;
+import java.io.OutputStream;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -60,7 +61,9 @@ public class XmlWriter {
     }
 
     /**
-     * writes the result to the given file
+     * writes the result to the given file. The method may be called by
+     * several threads, the access to the marshaller, which isn't thread-safe,
+     * is synchronized.
      *
      * @param result
      *            the validation result, which should be writen to a file
@@ -69,9 +72,24 @@ public class XmlWriter {
      * @throws JAXBException
      *             if an error occurs during xml writing process
      */
-    public void writeResult(ValidationResult result, File file)
+    public synchronized void writeResult(ValidationResult result, File file)
             throws JAXBException {
         marshaller.marshal(result, file);
         LOGGER.info("XML Result written: {}", file.getName());
     }
+
+    /**
+     * writes the result to the given stream, e.g. as response of a request
+     *
+     * @param result
+     *            the validation result
+     * @param outputStream
+     *            the stream, which isn't closed
+     * @throws JAXBException
+     *             if an error occurs during xml writing process
+     */
+    public synchronized void writeResult(ValidationResult result,
+            OutputStream outputStream) throws JAXBException {
+        marshaller.marshal(result, outputStream);
+    }
 }
\ No newline at end of file
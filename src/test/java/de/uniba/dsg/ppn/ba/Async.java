@@ -0,0 +1,169 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.concurrent.AsyncBpmnValidator;
+import de.uniba.dsg.ppn.ba.concurrent.ExecutionMode;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationCallback;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationFuture;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+
+/**
+ * Test class for testing the asynchronous validation
+ *
+ * @version 1.0
+ *
+ */
+public class Async extends TestCase {
+
+    private final AsyncBpmnValidator asyncValidator = new AsyncBpmnValidator();
+
+    @After
+    public void shutdown() {
+        asyncValidator.shutdown();
+    }
+
+    @Test
+    public void testValidateAllAsync() throws InterruptedException,
+            ExecutionException, BpmnValidationException {
+        List<File> files = Arrays.asList(createFile("fail_import.bpmn"),
+                createFile("success_import.bpmn"));
+        List<ValidationFuture> futures = asyncValidator.validateAllAsync(files);
+        assertEquals(2, futures.size());
+        for (int i = 0; i < files.size(); i++) {
+            ValidationResult expected = validate(files.get(i));
+            ValidationResult actual = futures.get(i).get();
+            assertEquals(files.get(i), futures.get(i).getFile());
+            assertEquals(expected.isValid(), actual.isValid());
+            assertEquals(expected.getViolations().size(), actual
+                    .getViolations().size());
+        }
+    }
+
+    @Test
+    public void testIoBoundMode() throws InterruptedException,
+            ExecutionException {
+        AsyncBpmnValidator ioBoundValidator = new AsyncBpmnValidator(
+                ExecutionMode.IO_BOUND);
+        try {
+            ValidationResult result = ioBoundValidator.validateAsync(
+                    createFile("fail_import3.bpmn")).get();
+            assertFalse(result.isValid());
+            assertEquals(16, result.getViolations().size());
+        } finally {
+            ioBoundValidator.shutdown();
+        }
+    }
+
+    @Test
+    public void testCallback() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<ValidationResult> result = new AtomicReference<>();
+        asyncValidator.validateAsync(createFile("fail_import.bpmn"))
+                .addCallback(new ValidationCallback() {
+                    @Override
+                    public void onSuccess(ValidationResult validationResult) {
+                        result.set(validationResult);
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable cause) {
+                        latch.countDown();
+                    }
+                });
+        assertTrue(latch.await(1, TimeUnit.MINUTES));
+        assertFalse(result.get().isValid());
+        assertEquals(8, result.get().getViolations().size());
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        ValidationFuture future = asyncValidator
+                .validateAsync(createFile("fail_import.bpmn"));
+        future.cancel(true);
+        assertTrue(future.isCancelled());
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        future.addCallback(new FailureRecorder(failure));
+        assertTrue(failure.get() instanceof CancellationException);
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        ValidationFuture future = asyncValidator.validateAsync(
+                createFile("fail_import.bpmn"), 1, TimeUnit.NANOSECONDS);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        future.addCallback(new FailureRecorder(failure) {
+            @Override
+            public void onFailure(Throwable cause) {
+                super.onFailure(cause);
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(1, TimeUnit.MINUTES));
+        assertTrue(future.isTimedOut());
+        assertTrue(failure.get() instanceof TimeoutException);
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+
+    private static class FailureRecorder implements ValidationCallback {
+
+        private final AtomicReference<Throwable> failure;
+
+        FailureRecorder(AtomicReference<Throwable> failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public void onSuccess(ValidationResult result) {
+            // not expected
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            failure.set(cause);
+        }
+    }
+}
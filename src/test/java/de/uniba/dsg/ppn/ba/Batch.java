@@ -0,0 +1,179 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.dsg.ppn.ba.batch.AggregatedOutput;
+import de.uniba.dsg.ppn.ba.batch.BatchSummary;
+import de.uniba.dsg.ppn.ba.batch.InputCollector;
+import de.uniba.dsg.ppn.ba.batch.ResultDirectory;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+
+/**
+ * Test class for testing the collection of inputs and the aggregated output
+ * of batch runs
+ *
+ * @version 1.0
+ *
+ */
+public class Batch extends TestCase {
+
+    private Path folder;
+    private InputCollector inputCollector;
+
+    @Before
+    public void createModels() throws IOException {
+        folder = Files.createTempDirectory("batch");
+        Files.createDirectories(folder.resolve("a/b"));
+        copy("fail_import.bpmn", "a/fail_import.bpmn");
+        copy("import.bpmn", "a/import.bpmn");
+        copy("success_import.bpmn", "a/b/success_import.bpmn");
+        Files.write(folder.resolve("a/notes.txt"), new byte[] { 'x' });
+        inputCollector = new InputCollector(folder.toFile());
+    }
+
+    @After
+    public void deleteModels() throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file,
+                    BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory,
+                    IOException e) throws IOException {
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testDirectoryIsWalkedRecursively() throws IOException {
+        inputCollector.add("a");
+        assertEquals(Arrays.asList(model("a/b/success_import.bpmn"),
+                model("a/fail_import.bpmn"), model("a/import.bpmn")),
+                inputCollector.getFiles());
+    }
+
+    @Test
+    public void testGlobPatterns() throws IOException {
+        inputCollector.add("a/*.bpmn");
+        assertEquals(Arrays.asList(model("a/fail_import.bpmn"),
+                model("a/import.bpmn")), inputCollector.getFiles());
+        inputCollector.add("a/**/success_*");
+        assertEquals(3, inputCollector.getFiles().size());
+    }
+
+    @Test
+    public void testIncludeAndExcludePatterns() throws IOException {
+        inputCollector.addInclude("*.txt");
+        inputCollector.addInclude("b/*.bpmn");
+        inputCollector.addExclude("fail_*");
+        inputCollector.add("a");
+        inputCollector.add("a/fail_import.bpmn");
+        assertEquals(Arrays.asList(model("a/b/success_import.bpmn"),
+                model("a/notes.txt")), inputCollector.getFiles());
+    }
+
+    @Test
+    public void testFileListIsReadLineByLine() throws IOException {
+        inputCollector.addFileList(new StringReader(
+                "a/import.bpmn\n\na/b\na/import.bpmn\n"));
+        assertEquals(Arrays.asList(model("a/import.bpmn"),
+                model("a/b/success_import.bpmn")), inputCollector.getFiles());
+    }
+
+    @Test
+    public void testAggregatedOutputAndExitCode() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        BatchSummary summary;
+        try (AggregatedOutput output = new AggregatedOutput(outputStream,
+                folder.toFile())) {
+            summary = new BatchSummary(output);
+            for (File file : Arrays.asList(model("a/import.bpmn"),
+                    model("a/fail_import.bpmn"))) {
+                summary.handle(ValidationOutcome.success(file,
+                        validator.validate(file)));
+            }
+            assertEquals(BatchSummary.EXITINVALID, summary.getExitCode());
+            summary.handle(ValidationOutcome.failure(model("missing.bpmn"),
+                    new BpmnValidationException("missing")));
+        }
+        assertEquals(BatchSummary.EXITFAILED, summary.getExitCode());
+        String[] lines = new String(outputStream.toByteArray(),
+                StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"file\":\"a"));
+        assertTrue(lines[0].contains("\"result\":{\"valid\":true"));
+        assertTrue(lines[1].contains("\"result\":{\"valid\":false"));
+        assertEquals("{\"file\":\"missing.bpmn\",\"failure\":\"missing\"}",
+                lines[2]);
+        assertEquals("batch: 1 valid, 1 invalid, 1 failed", summary.toString());
+    }
+
+    @Test
+    public void testResultDirectoryMirrorsModelDirectories() {
+        ResultDirectory resultDirectory = new ResultDirectory(folder.resolve(
+                "results").toFile(), folder.toFile());
+        assertEquals(folder.resolve(
+                "results/a/b/validation_result_success_import.bpmn.xml")
+                .toFile(), resultDirectory
+                .getResultFile(model("a/b/success_import.bpmn")));
+        assertTrue(folder.resolve("results/a/b").toFile().isDirectory());
+    }
+
+    private File model(String path) {
+        return folder.resolve(path).toFile();
+    }
+
+    private void copy(String name, String target) throws IOException {
+        Files.copy(createFile(name).toPath(), folder.resolve(target));
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+
+/**
+ * Test class for testing the validation of gzip compressed models and imports
+ *
+ * @version 1.0
+ *
+ */
+public class Compression extends TestCase {
+
+    private Path folder;
+
+    @Before
+    public void createFolder() throws IOException {
+        folder = Files.createTempDirectory("compression");
+    }
+
+    @After
+    public void deleteFolder() throws IOException {
+        for (File file : folder.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(folder);
+    }
+
+    @Test
+    public void testCompressedModelAndImportAreValidated() throws IOException,
+            BpmnValidationException {
+        File model = compress("fail_import.bpmn");
+        compress("import.bpmn");
+
+        ValidationResult expected = validate(createFile("fail_import.bpmn"));
+        ValidationResult result = validate(model);
+        assertFalse(result.isValid());
+        assertEquals(8, result.getViolations().size());
+        for (int i = 0; i < expected.getViolations().size(); i++) {
+            assertEquals(expected.getViolations().get(i).getLine(), result
+                    .getViolations().get(i).getLine());
+        }
+    }
+
+    @Test
+    public void testUncompressedImportIsReadFromCompressedSibling()
+            throws IOException {
+        File compressedFile = compress("import.bpmn");
+        File file = folder.resolve("import.bpmn").toFile();
+        byte[] content = Files.readAllBytes(createFile("import.bpmn").toPath());
+
+        FileSystemSource fileSystem = FileSystemSource.INSTANCE;
+        assertTrue(fileSystem.exists(file));
+        assertEquals(compressedFile, fileSystem.getStoredFile(file));
+        assertEquals(content.length, fileSystem.getContentLength(file));
+        assertArrayEquals(content, fileSystem.readAllBytes(file));
+    }
+
+    private File compress(String name) throws IOException {
+        File compressedFile = folder.resolve(name + ".gz").toFile();
+        try (OutputStream output = new GZIPOutputStream(
+                Files.newOutputStream(compressedFile.toPath()))) {
+            Files.copy(createFile(name).toPath(), output);
+        }
+        return compressedFile;
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.ConstantHelper;
+import de.uniba.dsg.ppn.ba.helper.SetupHelper;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.MapSource;
+
+/**
+ * Test class for testing the validation of models held by the caller
+ *
+ * @version 1.0
+ *
+ */
+public class Documents extends TestCase {
+
+    @Test
+    public void testDocumentIsValidatedWithoutChangingIt()
+            throws IOException, SAXException, BpmnValidationException {
+        File model = createFile("fail_import.bpmn");
+        Document document = SetupHelper.setupDocumentBuilder().parse(model);
+        int diagrams = countDiagrams(document);
+
+        ValidationResult expected = validate(model);
+        ValidationResult result = validator.validate(new DOMSource(document),
+                model, FileSystemSource.INSTANCE);
+        assertFalse(result.isValid());
+        assertEquals(8, result.getViolations().size());
+        assertEquals(expected.getCheckedFiles(), result.getCheckedFiles());
+        assertEquals(diagrams, countDiagrams(document));
+    }
+
+    @Test
+    public void testStreamIsValidatedWithImportsOfSource()
+            throws IOException, BpmnValidationException {
+        MapSource source = new MapSource();
+        source.put("import.bpmn", read("import.bpmn"));
+        ValidationResult result = validator.validate(new StreamSource(
+                new ByteArrayInputStream(read("fail_import.bpmn"))), source
+                .getFile("fail_import.bpmn"), source);
+        assertEquals(8, result.getViolations().size());
+    }
+
+    @Test
+    public void testMalformedStreamIsReportedAsViolation()
+            throws BpmnValidationException {
+        ValidationResult result = validator.validate(new StreamSource(
+                new ByteArrayInputStream("<definitions>"
+                        .getBytes(StandardCharsets.UTF_8))), new File(
+                "malformed.bpmn"), FileSystemSource.INSTANCE);
+        assertFalse(result.isValid());
+        assertEquals(1, result.getViolations().size());
+        assertEquals("XSD-Check", result.getViolations().get(0)
+                .getConstraint());
+    }
+
+    private int countDiagrams(Document document) {
+        return document.getElementsByTagNameNS(ConstantHelper.BPMNDINAMESPACE,
+                "BPMNDiagram").getLength();
+    }
+
+    private byte[] read(String name) throws IOException {
+        return Files.readAllBytes(createFile(name).toPath());
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.dsg.ppn.ba.helper.SemanticFingerprinter;
+
+/**
+ * Test class for testing the semantic fingerprints of models
+ *
+ * @version 1.0
+ *
+ */
+public class Fingerprint extends TestCase {
+
+    private final SemanticFingerprinter fingerprinter = new SemanticFingerprinter();
+    private Path folder;
+    private String model;
+    private String importedModel;
+
+    @Before
+    public void copyModels() throws IOException {
+        folder = Files.createTempDirectory("fingerprint");
+        model = read("fail_import.bpmn");
+        importedModel = read("import.bpmn");
+    }
+
+    @After
+    public void deleteModels() throws IOException {
+        for (File file : folder.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(folder);
+    }
+
+    @Test
+    public void testLayoutChangesAreIgnored() throws IOException {
+        String fingerprint = fingerprint(model, importedModel);
+        String movedShapes = model.replace("x=\"89.76315789473685\"",
+                "x=\"120.0\"").replace("<di:waypoint x=\"121.60517543835283\"",
+                "<di:waypoint x=\"150.0\"");
+        assertEquals(fingerprint, fingerprint(movedShapes, importedModel));
+        String reformatted = model.replace("\n    ", "\n\t\t").replace(
+                "id=\"_3\" name=\"End Event\"", "name=\"End Event\"\n id=\"_3\"");
+        assertEquals(fingerprint, fingerprint(reformatted, importedModel));
+        String withComment = model.replace("<process ",
+                "<!-- reviewed -->\n  <process ");
+        assertEquals(fingerprint, fingerprint(withComment, importedModel));
+    }
+
+    @Test
+    public void testSemanticChangesAreDetected() throws IOException {
+        String fingerprint = fingerprint(model, importedModel);
+        assertNotEquals(fingerprint, fingerprint(
+                model.replace("name=\"End Event\"", "name=\"Done\""),
+                importedModel));
+        assertNotEquals(fingerprint, fingerprint(
+                model.replace("<incoming>_4</incoming>", ""), importedModel));
+    }
+
+    @Test
+    public void testPrefixedNamesAreResolved() throws IOException {
+        String reference = model.replace("xmlns:tns=",
+                "xmlns:ref=\"urn:first\" xmlns:tns=").replace(
+                "sourceRef=\"_2\"", "sourceRef=\"ref:_2\"");
+        String fingerprint = fingerprint(reference, importedModel);
+        assertEquals(fingerprint, fingerprint(
+                reference.replace("xmlns:ref=", "xmlns:other=").replace(
+                        "\"ref:_2\"", "\"other:_2\""), importedModel));
+        assertNotEquals(fingerprint, fingerprint(
+                reference.replace("urn:first", "urn:second"), importedModel));
+    }
+
+    @Test
+    public void testImportsAreIncluded() throws IOException {
+        String fingerprint = fingerprint(model, importedModel);
+        assertEquals(fingerprint, fingerprint(model, importedModel.replace(
+                "\n  ", "\n    ")));
+        assertNotEquals(fingerprint, fingerprint(model, importedModel.replace(
+                "name=\"End Event\"", "name=\"Done\"")));
+        Files.delete(folder.resolve("import.bpmn"));
+        assertNotEquals(fingerprint,
+                fingerprinter.fingerprint(folder.resolve("model.bpmn").toFile()));
+    }
+
+    private String fingerprint(String headModel, String imported)
+            throws IOException {
+        write("import.bpmn", imported);
+        return fingerprinter.fingerprint(write("model.bpmn", headModel));
+    }
+
+    private String read(String name) throws IOException {
+        return new String(Files.readAllBytes(createFile(name).toPath()),
+                StandardCharsets.UTF_8);
+    }
+
+    private File write(String name, String content) throws IOException {
+        return Files.write(folder.resolve(name),
+                content.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
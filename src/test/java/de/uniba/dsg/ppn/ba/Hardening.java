@@ -0,0 +1,160 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.BpmnXsdValidator;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.WsdlValidator;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.XmlValidator;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.ParserProfile;
+import de.uniba.dsg.ppn.ba.source.MapSource;
+import de.uniba.dsg.ppn.ba.validation.SchematronBPMNValidator;
+
+/**
+ * Test class for testing the limits and the offline resolution of the
+ * {@link ParserProfile}
+ *
+ * @version 1.0
+ *
+ */
+public class Hardening extends TestCase {
+
+    private static final String DEFINITIONS = "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\""
+            + " targetNamespace=\"http://example.org\">&lol3;</definitions>";
+
+    @After
+    public void resetProfile() {
+        ParserProfile.setCurrent(ParserProfile.DEFAULT);
+    }
+
+    @Test
+    public void testEntityExpansionIsRejected() throws BpmnValidationException {
+        StringBuilder model = new StringBuilder(
+                "<!DOCTYPE definitions [<!ENTITY lol0 \"lol\">");
+        for (int i = 1; i <= 3; i++) {
+            model.append("<!ENTITY lol").append(i).append(" \"");
+            for (int j = 0; j < 100; j++) {
+                model.append("&lol").append(i - 1).append(';');
+            }
+            model.append("\">");
+        }
+        model.append("]>").append(DEFINITIONS);
+
+        Violation v = assertRejected(validate("laughs.bpmn", model.toString()));
+        assertTrue(v.getMessage().contains("entity expansions"));
+    }
+
+    @Test
+    public void testExternalDtdIsNotFetched() throws BpmnValidationException {
+        ValidationResult result = validate("external.bpmn",
+                "<!DOCTYPE definitions SYSTEM \"http://example.invalid/bpmn.dtd\">"
+                        + DEFINITIONS.replace("&lol3;", ""));
+
+        Violation v = assertRejected(result);
+        assertTrue(v.getMessage().contains("accessExternalDTD"));
+    }
+
+    @Test
+    public void testElementDepthIsLimited() throws BpmnValidationException {
+        ParserProfile.setCurrent(new ParserProfile(1024 * 1024, 2, 1000,
+                10000));
+
+        Violation v = assertRejected(new SchematronBPMNValidator()
+                .validate(createFile("success_import.bpmn")));
+        assertTrue(v.getMessage().contains("maxElementDepth"));
+    }
+
+    @Test
+    public void testDocumentSizeIsLimited() throws IOException,
+            BpmnValidationException {
+        File model = createFile("success_import.bpmn");
+        ParserProfile.setCurrent(new ParserProfile(
+                Files.size(model.toPath()) - 1, 500, 1000, 10000));
+
+        Violation v = assertRejected(new SchematronBPMNValidator()
+                .validate(model));
+        assertTrue(v.getMessage().contains("maximum document size"));
+    }
+
+    @Test
+    public void testDefaultProfileAcceptsModels()
+            throws BpmnValidationException {
+        verifyValidResult(createFile("success_import.bpmn"));
+    }
+
+    @Test
+    public void testBundledSchemasAreLoaded() throws Exception {
+        ValidationResult result = new ValidationResult();
+        new BpmnXsdValidator().validateAgainstXsd(createFile("import.bpmn"),
+                result);
+        new WsdlValidator().validateAgainstXsd(new File(getTestFilePath(),
+                "wsdl/wsdl2primer.wsdl"), result);
+        new XmlValidator().validateAgainstXsd(Paths
+                .get(System.getProperty("user.dir"))
+                .resolve("src/main/resources/xml.xsd").toFile(), result);
+        assertTrue(result.getViolations().isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingSchemaFailsValidator() {
+        new BpmnXsdValidator() {
+            {
+                createSchema("missing.xsd");
+            }
+        };
+    }
+
+    private ValidationResult validate(String name, String content)
+            throws BpmnValidationException {
+        MapSource source = new MapSource();
+        File model = source.put(name, content.getBytes(StandardCharsets.UTF_8));
+        return validator.validate(model, source);
+    }
+
+    private Violation assertRejected(ValidationResult result) {
+        assertFalse(result.isValid());
+        assertEquals(1, result.getViolations().size());
+        Violation v = result.getViolations().get(0);
+        assertEquals("XSD-Check", v.getConstraint());
+        return v;
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
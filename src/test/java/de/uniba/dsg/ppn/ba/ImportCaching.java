@@ -0,0 +1,175 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.BpmnXsdValidator;
+import de.uniba.dsg.ppn.ba.cache.BatchImportCache;
+import de.uniba.dsg.ppn.ba.cache.ImportEntry;
+import de.uniba.dsg.ppn.ba.cache.WeightedImportCache;
+import de.uniba.dsg.ppn.ba.helper.ConstantHelper;
+import de.uniba.dsg.ppn.ba.helper.SetupHelper;
+import de.uniba.dsg.ppn.ba.validation.SchematronBPMNValidator;
+
+/**
+ * Test class for testing the memoization of the work done for shared imports
+ *
+ * @version 1.0
+ *
+ */
+public class ImportCaching extends TestCase {
+
+    private final BatchImportCache importCache = new BatchImportCache();
+
+    @Test
+    public void testSharedImportsAreProcessedOnce() throws Exception {
+        SchematronBPMNValidator validator = new SchematronBPMNValidator();
+        validator.setImportCache(importCache);
+        for (String name : new String[] { "fail_import.bpmn",
+                "success_import.bpmn", "fail_import.bpmn" }) {
+            ValidationResult expected = validate(createFile(name));
+            ValidationResult result = validator.validate(createFile(name));
+            assertEquals(expected.isValid(), result.isValid());
+            assertEquals(expected.getCheckedFiles(), result.getCheckedFiles());
+            assertEquals(expected.getViolations().toString(), result
+                    .getViolations().toString());
+        }
+        assertEquals(1, importCache.size());
+        assertEquals(1, importCache.getMisses());
+        assertTrue(importCache.getHits() > 0);
+    }
+
+    @Test
+    public void testDocumentsAreCopies() throws Exception {
+        ImportEntry entry = importCache.getEntry(createFile("import.bpmn"));
+        Document document = entry.getDocument(SetupHelper
+                .setupDocumentBuilder());
+        assertNotSame(document,
+                entry.getDocument(SetupHelper.setupDocumentBuilder()));
+        assertEquals(0, document.getElementsByTagNameNS(
+                ConstantHelper.BPMNDINAMESPACE, "BPMNDiagram").getLength());
+        assertSame(entry, importCache.getEntry(createFile("import.bpmn")));
+    }
+
+    @Test
+    public void testXsdCheckIsMemoized() throws Exception {
+        ImportEntry entry = importCache.getEntry(createFile("import.bpmn"));
+        ValidationResult first = new ValidationResult();
+        ValidationResult second = new ValidationResult();
+        entry.validateAgainstXsd(new BpmnXsdValidator(), first);
+        entry.validateAgainstXsd(new BpmnXsdValidator(), second);
+        assertEquals(first.getViolations(), second.getViolations());
+    }
+
+    @Test
+    public void testModifiedFileGetsNewEntry() throws Exception {
+        Path folder = Files.createTempDirectory("import-cache");
+        File file = folder.resolve("import.bpmn").toFile();
+        try {
+            Files.copy(createFile("import.bpmn").toPath(), file.toPath());
+            ImportEntry entry = importCache.getEntry(file);
+            assertTrue(file.setLastModified(file.lastModified() + 2000));
+            assertNotSame(entry, importCache.getEntry(file));
+            assertEquals(2, importCache.size());
+        } finally {
+            Files.delete(file.toPath());
+            Files.delete(folder);
+        }
+    }
+
+    @Test
+    public void testWeightedCacheEvictsLeastRecentlyUsed() throws Exception {
+        File importFile = createFile("import.bpmn");
+        File otherImportFile = createFile("import2.bpmn");
+        WeightedImportCache weightedCache = new WeightedImportCache(
+                importFile.length() * 10 + 1024 + otherImportFile.length());
+        ImportEntry entry = weightedCache.getEntry(importFile);
+        assertSame(entry, weightedCache.getEntry(importFile));
+        weightedCache.getEntry(otherImportFile);
+        assertEquals(1, weightedCache.size());
+        assertEquals(1, weightedCache.getEvictions());
+        assertNotSame(entry, weightedCache.getEntry(importFile));
+        assertEquals(0.25, weightedCache.getHitRatio(), 0.001);
+        assertEquals(importFile.length() * 10 + 1024,
+                weightedCache.getRetainedBytes());
+    }
+
+    @Test
+    public void testWeightedCacheSkipsOversizedFiles() throws Exception {
+        WeightedImportCache weightedCache = new WeightedImportCache(1);
+        File importFile = createFile("import.bpmn");
+        assertNotSame(weightedCache.getEntry(importFile),
+                weightedCache.getEntry(importFile));
+        assertEquals(0, weightedCache.size());
+        assertEquals(0, weightedCache.getRetainedBytes());
+    }
+
+    @Test
+    public void testWeightedCacheInvalidatesModifiedFiles() throws Exception {
+        WeightedImportCache weightedCache = new WeightedImportCache(
+                1024 * 1024);
+        Path folder = Files.createTempDirectory("import-cache");
+        File file = folder.resolve("import.bpmn").toFile();
+        try {
+            Files.copy(createFile("import.bpmn").toPath(), file.toPath());
+            ImportEntry entry = weightedCache.getEntry(file);
+            assertTrue(file.setLastModified(file.lastModified() + 2000));
+            assertNotSame(entry, weightedCache.getEntry(file));
+            assertEquals(1, weightedCache.size());
+            assertEquals(1, weightedCache.getInvalidations());
+        } finally {
+            Files.delete(file.toPath());
+            Files.delete(folder);
+        }
+    }
+
+    @Test
+    public void testValidationWithWeightedCache() throws Exception {
+        SchematronBPMNValidator validator = new SchematronBPMNValidator();
+        WeightedImportCache weightedCache = new WeightedImportCache(
+                1024 * 1024);
+        validator.setImportCache(weightedCache);
+        for (int i = 0; i < 2; i++) {
+            ValidationResult result = validator
+                    .validate(createFile("fail_import.bpmn"));
+            assertEquals(8, result.getViolations().size());
+        }
+        assertTrue(weightedCache.getHitRatio() > 0);
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.helper.DigestHelper;
+import de.uniba.dsg.ppn.ba.source.FileSystemSource;
+import de.uniba.dsg.ppn.ba.source.IngestedContent;
+import de.uniba.dsg.ppn.ba.source.IngestingSource;
+
+/**
+ * Test class for testing the reading of models and imports through an
+ * {@link IngestingSource}
+ *
+ * @version 1.0
+ *
+ */
+public class Ingestion extends TestCase {
+
+    private Path folder;
+
+    @Before
+    public void createFolder() throws IOException {
+        folder = Files.createTempDirectory("ingestion");
+    }
+
+    @After
+    public void deleteFolder() throws IOException {
+        for (File file : folder.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(folder);
+    }
+
+    @Test
+    public void testLargeModelIsMappedAndValidated() throws IOException,
+            BpmnValidationException {
+        File model = pad("fail_import.bpmn");
+        Files.copy(createFile("import.bpmn").toPath(),
+                folder.resolve("import.bpmn"));
+        IngestingSource source = new IngestingSource(FileSystemSource.INSTANCE);
+
+        IngestedContent content = source.getContent(model);
+        assertTrue(content.isMapped());
+        assertEquals(model.length(), content.getLength());
+        assertEquals(DigestHelper.digest(model), content.getDigest());
+        assertArrayEquals(Files.readAllBytes(model.toPath()),
+                readAll(content.openStream()));
+
+        ValidationResult expected = validate(createFile("fail_import.bpmn"));
+        ValidationResult result = validator.validate(model, source);
+        assertFalse(result.isValid());
+        assertEquals(8, result.getViolations().size());
+        for (int i = 0; i < expected.getViolations().size(); i++) {
+            assertEquals(expected.getViolations().get(i).getLine(), result
+                    .getViolations().get(i).getLine());
+        }
+    }
+
+    @Test
+    public void testFileIsReadOnlyOnce() throws IOException {
+        Path file = folder.resolve("import.bpmn");
+        Files.copy(createFile("import.bpmn").toPath(), file);
+        byte[] expected = Files.readAllBytes(file);
+        IngestingSource source = new IngestingSource(FileSystemSource.INSTANCE);
+
+        IngestedContent content = source.getContent(file.toFile());
+        assertFalse(content.isMapped());
+        assertEquals(DigestHelper.digest(expected), content.getDigest());
+        Files.delete(file);
+        assertSame(content, source.getContent(file.toFile()));
+        assertTrue(source.exists(file.toFile()));
+        assertArrayEquals(expected, readAll(source.open(file.toFile())));
+
+        source.clear();
+        assertFalse(source.exists(file.toFile()));
+    }
+
+    private File pad(String name) throws IOException {
+        byte[] content = Files.readAllBytes(createFile(name).toPath());
+        char[] padding = new char[1024 * 1024];
+        Arrays.fill(padding, ' ');
+        byte[] comment = ("\n<!--" + new String(padding) + "-->\n")
+                .getBytes(StandardCharsets.UTF_8);
+        Path file = folder.resolve(name);
+        Files.write(file, content);
+        Files.write(file, comment, StandardOpenOption.APPEND);
+        return file.toFile();
+    }
+
+    private byte[] readAll(InputStream inputStream) throws IOException {
+        try (InputStream input = inputStream) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcomeHandler;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationPipeline;
+import de.uniba.dsg.ppn.ba.helper.DigestHelper;
+import de.uniba.dsg.ppn.ba.journal.ValidationJournal;
+
+/**
+ * Test class for testing the journal of completed inputs of batch runs
+ *
+ * @version 1.0
+ *
+ */
+public class Journal extends TestCase {
+
+    private Path folder;
+    private File journalFile;
+    private File model;
+    private File resultFile;
+
+    @Before
+    public void createFolder() throws IOException {
+        folder = Files.createTempDirectory("journal");
+        journalFile = folder.resolve("validation.journal").toFile();
+        model = folder.resolve("import.bpmn").toFile();
+        Files.copy(createFile("import.bpmn").toPath(), model.toPath());
+        resultFile = folder.resolve("validation_result_import.bpmn.xml")
+                .toFile();
+        Files.write(resultFile.toPath(), new byte[] { '<', 'a', '/', '>' });
+    }
+
+    @After
+    public void deleteFolder() throws IOException {
+        for (File file : folder.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(folder);
+    }
+
+    @Test
+    public void testCompletedInputIsSkippedOnResume() throws IOException {
+        File otherModel = createFile("import2.bpmn");
+        try (ValidationJournal journal = new ValidationJournal(journalFile)) {
+            journal.record(model, "valid", resultFile);
+        }
+        try (ValidationJournal journal = new ValidationJournal(journalFile)) {
+            assertEquals(1, journal.size());
+            assertEquals("valid", journal.getEntry(model).getStatus());
+            assertTrue(journal.isCompleted(model));
+            assertEquals(Arrays.asList(otherModel),
+                    journal.getRemaining(Arrays.asList(model, otherModel)));
+        }
+    }
+
+    @Test
+    public void testChangedInputOrMissingResultIsNotCompleted()
+            throws IOException {
+        try (ValidationJournal journal = new ValidationJournal(journalFile)) {
+            journal.record(model, "valid", resultFile);
+            Files.write(model.toPath(), new byte[] { ' ' },
+                    StandardOpenOption.APPEND);
+            assertFalse(journal.isCompleted(model));
+            journal.record(model, "valid", resultFile);
+            assertTrue(journal.isCompleted(model));
+            Files.delete(resultFile.toPath());
+            assertFalse(journal.isCompleted(model));
+        }
+    }
+
+    @Test
+    public void testDigestOfValidationIsRecorded() throws Exception {
+        final List<ValidationOutcome> outcomes = new ArrayList<>();
+        new ValidationPipeline().run(Arrays.asList(model).iterator(),
+                new ValidationOutcomeHandler() {
+                    @Override
+                    public void handle(ValidationOutcome outcome) {
+                        outcomes.add(outcome);
+                    }
+                });
+        ValidationOutcome outcome = outcomes.get(0);
+        assertEquals(DigestHelper.digest(model), outcome.getDigest());
+        try (ValidationJournal journal = new ValidationJournal(journalFile)) {
+            journal.record(model, outcome.getDigest(), "valid", resultFile);
+            assertEquals(outcome.getDigest(), journal.getEntry(model)
+                    .getDigest());
+            assertTrue(journal.isCompleted(model));
+        }
+    }
+
+    @Test
+    public void testEntriesAreFlushedInBatches() throws IOException {
+        try (ValidationJournal journal = new ValidationJournal(journalFile)) {
+            journal.setBatchSize(2);
+            journal.setFlushMillis(Long.MAX_VALUE);
+            journal.record(model, "valid", resultFile);
+            assertEquals(0, journalFile.length());
+            journal.record(model, "valid", resultFile);
+            assertEquals(2, Files.readAllLines(journalFile.toPath(),
+                    StandardCharsets.UTF_8).size());
+        }
+    }
+
+    @Test
+    public void testTornLastLineIsIgnored() throws IOException {
+        try (ValidationJournal journal = new ValidationJournal(journalFile)) {
+            journal.record(model, "valid", resultFile);
+        }
+        String entry = new String(Files.readAllBytes(journalFile.toPath()),
+                StandardCharsets.UTF_8);
+        Files.write(journalFile.toPath(), entry.substring(0,
+                entry.length() - 5).getBytes(StandardCharsets.UTF_8));
+        try (ValidationJournal journal = new ValidationJournal(journalFile)) {
+            assertNull(journal.getEntry(model));
+            journal.record(model, "valid", resultFile);
+        }
+        try (ValidationJournal journal = new ValidationJournal(journalFile)) {
+            assertEquals(1, journal.size());
+            assertTrue(journal.isCompleted(model));
+        }
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
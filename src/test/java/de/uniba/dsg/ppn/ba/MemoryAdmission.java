@@ -0,0 +1,148 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.concurrent.AsyncBpmnValidator;
+import de.uniba.dsg.ppn.ba.concurrent.MemoryBudget;
+import de.uniba.dsg.ppn.ba.concurrent.MemoryEstimator;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationFuture;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationPipeline;
+
+/**
+ * Test class for testing the memory-aware admission of validations
+ *
+ * @version 1.0
+ *
+ */
+public class MemoryAdmission extends TestCase {
+
+    @Test
+    public void testImportsIncreaseEstimation() {
+        MemoryEstimator memoryEstimator = new MemoryEstimator();
+        assertTrue(memoryEstimator.estimate(createFile("fail_import.bpmn")) > memoryEstimator
+                .estimate(createFile("import.bpmn")));
+    }
+
+    @Test
+    public void testOversizedValidationRunsAlone() throws Exception {
+        final MemoryBudget memoryBudget = new MemoryBudget(100);
+        memoryBudget.acquire(150);
+        Thread waitingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    memoryBudget.acquire(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        waitingThread.start();
+        while (memoryBudget.getWaitingValidations() == 0) {
+            Thread.sleep(10);
+        }
+        assertEquals(150, memoryBudget.getReservedBytes());
+        memoryBudget.release(150);
+        waitingThread.join();
+        assertEquals(10, memoryBudget.getReservedBytes());
+        assertEquals(150, memoryBudget.getPeakReservedBytes());
+        assertEquals(2, memoryBudget.getAdmittedValidations());
+        assertEquals(1, memoryBudget.getDelayedValidations());
+        assertEquals(1, memoryBudget.getOversizedValidations());
+    }
+
+    @Test
+    public void testInterruptedValidationReservesNothing() throws Exception {
+        final MemoryBudget memoryBudget = new MemoryBudget(100);
+        memoryBudget.acquire(90);
+        Thread waitingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    memoryBudget.acquire(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        waitingThread.start();
+        while (memoryBudget.getWaitingValidations() == 0) {
+            Thread.sleep(10);
+        }
+        waitingThread.interrupt();
+        waitingThread.join();
+        assertEquals(0, memoryBudget.getWaitingValidations());
+        assertEquals(90, memoryBudget.getReservedBytes());
+        memoryBudget.acquire(10);
+        assertEquals(100, memoryBudget.getReservedBytes());
+    }
+
+    @Test
+    public void testPipelineWithinBudget() throws Exception {
+        MemoryBudget memoryBudget = new MemoryBudget(1);
+        ValidationPipeline pipeline = new ValidationPipeline();
+        pipeline.setMemoryBudget(memoryBudget);
+        List<ValidationResult> results = pipeline.validateFiles(createFiles());
+        assertTrue(results.get(0).isValid());
+        assertEquals(8, results.get(1).getViolations().size());
+        assertEquals(2, memoryBudget.getAdmittedValidations());
+        assertEquals(0, memoryBudget.getReservedBytes());
+    }
+
+    @Test
+    public void testAsyncWithinBudget() throws Exception {
+        MemoryBudget memoryBudget = new MemoryBudget(1);
+        AsyncBpmnValidator validator = new AsyncBpmnValidator();
+        validator.setMemoryBudget(memoryBudget);
+        try {
+            List<ValidationFuture> futures = validator
+                    .validateAllAsync(createFiles());
+            assertTrue(futures.get(0).get().isValid());
+            assertFalse(futures.get(1).get().isValid());
+            assertEquals(2, memoryBudget.getAdmittedValidations());
+            assertEquals(0, memoryBudget.getReservedBytes());
+        } finally {
+            validator.shutdown();
+        }
+    }
+
+    private List<File> createFiles() {
+        return Arrays.asList(createFile("success_import.bpmn"),
+                createFile("fail_import.bpmn"));
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.concurrent.StageStatistics;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcomeHandler;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationPipeline;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.validation.ValidationStage;
+
+/**
+ * Test class for testing the staged validation pipeline
+ *
+ * @version 1.0
+ *
+ */
+public class Pipeline extends TestCase {
+
+    private final ValidationPipeline pipeline = new ValidationPipeline();
+
+    {
+        pipeline.setStageThreads(ValidationStage.SCHEMATRON, 2);
+        pipeline.setQueueCapacity(2);
+    }
+
+    @Test
+    public void testValidateFiles() throws BpmnValidationException {
+        List<File> files = createFiles();
+        List<ValidationResult> results = pipeline.validateFiles(files);
+        assertEquals(files.size(), results.size());
+        for (int i = 0; i < files.size(); i++) {
+            ValidationResult expected = validate(files.get(i));
+            assertEquals(expected.isValid(), results.get(i).isValid());
+            assertEquals(expected.getCheckedFiles(), results.get(i)
+                    .getCheckedFiles());
+            assertEquals(expected.getViolations().size(), results.get(i)
+                    .getViolations().size());
+        }
+    }
+
+    @Test
+    public void testRunWithHandler() throws InterruptedException {
+        final List<ValidationOutcome> outcomes = new ArrayList<>();
+        List<File> files = createFiles();
+        pipeline.run(files.iterator(), new ValidationOutcomeHandler() {
+            @Override
+            public void handle(ValidationOutcome outcome) {
+                synchronized (outcomes) {
+                    outcomes.add(outcome);
+                }
+            }
+        });
+        assertEquals(files.size(), outcomes.size());
+        List<StageStatistics> statistics = pipeline.getStatistics();
+        assertEquals(ValidationStage.values().length, statistics.size());
+        assertEquals(files.size(), statistics.get(0).getProcessedJobs());
+        for (StageStatistics stageStatistics : statistics) {
+            assertEquals(0, stageStatistics.getQueueDepth());
+        }
+    }
+
+    @Test
+    public void testMissingFile() throws InterruptedException {
+        final List<ValidationOutcome> outcomes = new ArrayList<>();
+        List<File> files = Arrays.asList(new File(getTestFilePath()
+                + File.separator + "001" + File.separator + "missing.bpmn"));
+        pipeline.run(files.iterator(), new ValidationOutcomeHandler() {
+            @Override
+            public void handle(ValidationOutcome outcome) {
+                synchronized (outcomes) {
+                    outcomes.add(outcome);
+                }
+            }
+        });
+        assertEquals(1, outcomes.size());
+        assertFalse(outcomes.get(0).isSuccessful());
+        assertTrue(outcomes.get(0).getFailure() instanceof BpmnValidationException);
+    }
+
+    @Test(timeout = 60000)
+    public void testFailingHandler() throws InterruptedException {
+        final List<ValidationOutcome> outcomes = new ArrayList<>();
+        List<File> files = createFiles();
+        pipeline.run(files.iterator(), new ValidationOutcomeHandler() {
+            @Override
+            public void handle(ValidationOutcome outcome) {
+                synchronized (outcomes) {
+                    outcomes.add(outcome);
+                }
+                throw new AssertionError("handler failed");
+            }
+        });
+        assertEquals(files.size(), outcomes.size());
+    }
+
+    private List<File> createFiles() {
+        List<File> files = new ArrayList<>();
+        for (String name : new String[] { "fail_import.bpmn",
+                "fail_import2.bpmn", "fail_import3.bpmn", "success_import.bpmn" }) {
+            files.add(createFile(name));
+        }
+        files.add(new File(getTestFilePath() + File.separator
+                + "preprocessing" + File.separator
+                + "fail_call_ref_process_call.bpmn"));
+        return files;
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.ppn.ba.helper.ModelScan;
+import de.uniba.dsg.ppn.ba.source.MapSource;
+import de.uniba.dsg.ppn.ba.validation.ValidationJob;
+import de.uniba.dsg.ppn.ba.validation.ValidationStage;
+
+/**
+ * Test class for testing the well-formedness check of the scan, which runs
+ * before a file is parsed
+ *
+ * @version 1.0
+ *
+ */
+public class Preflight extends TestCase {
+
+    @Test
+    public void testMalformedFileIsRejectedByScan() throws Exception {
+        MapSource source = new MapSource();
+        File model = source.put("malformed.bpmn",
+                "<definitions>\n  <process></definitions>"
+                        .getBytes(StandardCharsets.UTF_8));
+        ValidationJob job = new ValidationJob(model, source);
+        validator.runStage(ValidationStage.READ, job);
+        validator.runStage(ValidationStage.SCAN, job);
+        assertTrue(job.isCompleted());
+        assertNull(job.getScan());
+
+        ValidationResult result = job.getValidationResult();
+        assertFalse(result.isValid());
+        assertEquals(1, result.getViolations().size());
+        Violation v = result.getViolations().get(0);
+        assertEquals("XSD-Check", v.getConstraint());
+        assertEquals("malformed.bpmn", v.getFileName());
+        assertEquals(2, v.getLine());
+        assertTrue(v.getMessage().contains("process"));
+        assertTrue(v.getMessage().contains("(column "));
+        assertFalse(v.getMessage().contains("ParseError"));
+    }
+
+    @Test
+    public void testScanOfWellFormedFileIsKept() throws Exception {
+        ValidationJob job = new ValidationJob(createFile("fail_import.bpmn"));
+        validator.runStage(ValidationStage.READ, job);
+        validator.runStage(ValidationStage.SCAN, job);
+        assertFalse(job.isCompleted());
+
+        ModelScan scan = job.getScan();
+        assertEquals(1, scan.getImportedFiles().size());
+        assertEquals(createFile("import.bpmn").getAbsoluteFile(), scan
+                .getImportedFiles().get(0).getFile().getAbsoluteFile());
+        assertTrue(scan.getElementCount() > 0);
+    }
+
+    @Test
+    public void testFileWithoutImportsIsPreprocessedByScan() throws Exception {
+        ValidationJob job = new ValidationJob(createFile("import.bpmn"));
+        for (ValidationStage stage : ValidationStage.values()) {
+            validator.runStage(stage, job);
+        }
+        assertEquals(0, job.getScan().getElementCount("import"));
+        assertTrue(job.isCompleted());
+        assertTrue(job.getValidationResult().isValid());
+    }
+
+        @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
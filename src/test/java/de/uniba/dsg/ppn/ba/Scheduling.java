@@ -0,0 +1,171 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.concurrent.CostEstimator;
+import de.uniba.dsg.ppn.ba.concurrent.SchedulingPlan;
+import de.uniba.dsg.ppn.ba.concurrent.SchedulingPlan.PlannedFile;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcomeHandler;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationPipeline;
+import de.uniba.dsg.ppn.ba.helper.ModelScan;
+import de.uniba.dsg.ppn.ba.helper.ModelScanner;
+
+/**
+ * Test class for testing the cost-aware scheduling of batches
+ *
+ * @version 1.0
+ *
+ */
+public class Scheduling extends TestCase {
+
+    private final CostEstimator costEstimator = new CostEstimator();
+
+    @Test
+    public void testScan() throws Exception {
+        ModelScan scan = new ModelScanner().scan(createFile("fail_import.bpmn"));
+        assertEquals(createFile("fail_import.bpmn").length(), scan.getSize());
+        assertEquals(1, scan.getElementCount("import"));
+        assertTrue(scan.getElementCount() > scan.getElementCount("import"));
+        assertEquals(1, scan.getImportedFiles().size());
+        assertEquals("import.bpmn", scan.getImportedFiles().get(0).getFile()
+                .getName());
+        assertTrue(scan.getImportedFiles().get(0).getFile().exists());
+    }
+
+    @Test
+    public void testImportsIncreaseCost() {
+        assertTrue(costEstimator.estimate(createFile("fail_import.bpmn")) > costEstimator
+                .estimate(createFile("import.bpmn")));
+    }
+
+    @Test
+    public void testImportCostDoesNotDependOnImportingFile()
+            throws IOException {
+        Path folder = Files.createTempDirectory("cost");
+        File shared = writeModel(folder, "shared.bpmn");
+        File library = writeModel(folder, "library.bpmn", "shared.bpmn");
+        File first = writeModel(folder, "first.bpmn", "shared.bpmn",
+                "library.bpmn");
+        File second = writeModel(folder, "second.bpmn", "library.bpmn");
+        try {
+            long expectedCost = new CostEstimator().estimate(second);
+            costEstimator.estimate(first);
+            assertEquals(expectedCost, costEstimator.estimate(second));
+        } finally {
+            for (File file : Arrays.asList(shared, library, first, second)) {
+                Files.delete(file.toPath());
+            }
+            Files.delete(folder);
+        }
+    }
+
+    @Test
+    public void testLongestJobFirst() {
+        List<File> files = Arrays.asList(createFile("missing.bpmn"),
+                createFile("import.bpmn"), createFile("fail_import.bpmn"));
+        SchedulingPlan plan = SchedulingPlan.create(files, costEstimator);
+        List<PlannedFile> plannedFiles = plan.getPlannedFiles();
+        assertEquals(files.size(), plannedFiles.size());
+        assertEquals(createFile("fail_import.bpmn"), plannedFiles.get(0)
+                .getFile());
+        assertEquals(2, plannedFiles.get(0).getIndex());
+        assertEquals(createFile("missing.bpmn"), plannedFiles.get(2)
+                .getFile());
+        for (int i = 1; i < plannedFiles.size(); i++) {
+            assertTrue(plannedFiles.get(i - 1).getPredictedMillis() >= plannedFiles
+                    .get(i).getPredictedMillis());
+            assertEquals(-1, plannedFiles.get(i).getActualMillis());
+        }
+    }
+
+    @Test
+    public void testRunRecordsActualTime() throws InterruptedException {
+        SchedulingPlan plan = SchedulingPlan.create(
+                Arrays.asList(createFile("import.bpmn"),
+                        createFile("fail_import.bpmn")), costEstimator);
+        final List<ValidationOutcome> outcomes = new ArrayList<>();
+        new ValidationPipeline().run(plan, new ValidationOutcomeHandler() {
+            @Override
+            public void handle(ValidationOutcome outcome) {
+                synchronized (outcomes) {
+                    outcomes.add(outcome);
+                }
+            }
+        });
+        assertEquals(2, outcomes.size());
+        for (PlannedFile plannedFile : plan.getPlannedFiles()) {
+            assertTrue(plannedFile.getActualMillis() >= 0);
+        }
+        assertTrue(plan.createReport().contains("mean absolute error"));
+    }
+
+    @Test
+    public void testValidateFilesKeepsOrder() throws Exception {
+        ValidationPipeline pipeline = new ValidationPipeline();
+        pipeline.setCostEstimator(costEstimator);
+        List<ValidationResult> results = pipeline.validateFiles(Arrays.asList(
+                createFile("success_import.bpmn"),
+                createFile("fail_import.bpmn")));
+        assertTrue(results.get(0).isValid());
+        assertEquals(8, results.get(1).getViolations().size());
+    }
+
+    private File writeModel(Path folder, String name, String... imports)
+            throws IOException {
+        StringBuilder model = new StringBuilder(
+                "<definitions xmlns=\"http://www.omg.org/spec/BPMN/20100524/MODEL\""
+                        + " targetNamespace=\"urn:" + name + "\">");
+        for (String importedName : imports) {
+            model.append("<import importType=\"http://www.omg.org/spec/BPMN/20100524/MODEL\""
+                    + " location=\"" + importedName + "\" namespace=\"urn:"
+                    + importedName + "\"/>");
+        }
+        model.append("<process id=\"process\">");
+        for (int i = 0; i < 100; i++) {
+            model.append("<task id=\"task").append(i).append("\"/>");
+        }
+        model.append("</process></definitions>");
+        return Files.write(folder.resolve(name),
+                model.toString().getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.dsg.ppn.ba.server.ValidationServer;
+
+/**
+ * Test class for testing the validation server
+ *
+ * @version 1.0
+ *
+ */
+public class Server extends TestCase {
+
+    private static final String BOUNDARY = "----bpmn-boundary";
+    private ValidationServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new ValidationServer(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), 0), 2);
+        server.start();
+        long deadline = System.currentTimeMillis() + 60000;
+        while (request("GET", "/ready", null, null).status != 200) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    @After
+    public void stopServer() throws InterruptedException {
+        server.drain(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testHealth() throws IOException {
+        assertEquals(200, request("GET", "/health", null, null).status);
+        assertTrue(server.isReady());
+    }
+
+    @Test
+    public void testInlineModel() throws IOException {
+        Response response = request("POST",
+                "/validate?name=import.bpmn&format=json", null,
+                read("import.bpmn"));
+        assertEquals(200, response.status);
+        assertTrue(response.body.startsWith("{\"valid\":true"));
+        assertTrue(response.body.contains("\"checkedFiles\":[\"import.bpmn\"]"));
+    }
+
+    @Test
+    public void testModelWithImports() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        addPart(body, "model", "fail_import.bpmn");
+        addPart(body, "import", "import.bpmn");
+        body.write(("--" + BOUNDARY + "--\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        Response response = request("POST", "/validate",
+                "multipart/form-data; boundary=" + BOUNDARY,
+                body.toByteArray());
+        assertEquals(200, response.status);
+        assertTrue(response.body.contains("validationResult"));
+        assertEquals(8, response.body.split("<violation ", -1).length - 1);
+    }
+
+    @Test
+    public void testImportsAreCachedAcrossRequests() throws IOException {
+        long misses = 0;
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            addPart(body, "model", "fail_import.bpmn");
+            addPart(body, "import", "import.bpmn");
+            body.write(("--" + BOUNDARY + "--\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            assertEquals(200, request("POST", "/validate",
+                    "multipart/form-data; boundary=" + BOUNDARY,
+                    body.toByteArray()).status);
+            if (i == 0) {
+                misses = server.getImportCache().getMisses();
+            }
+        }
+        // the second request only hits the entries of the first one
+        assertTrue(misses > 0);
+        assertEquals(misses, server.getImportCache().getMisses());
+        assertEquals(0, server.getMemoryBudget().getReservedBytes());
+        assertEquals(2, server.getMemoryBudget().getAdmittedValidations());
+    }
+
+    @Test
+    public void testInvalidName() throws IOException {
+        assertEquals(422, request("POST", "/validate?name=../escape.bpmn",
+                null, read("import.bpmn")).status);
+        assertEquals(405, request("GET", "/validate", null, null).status);
+    }
+
+    @Test
+    public void testMalformedMultipartBody() throws IOException {
+        Response response = request("POST", "/validate",
+                "multipart/form-data; boundary=XYZ",
+                ("--XYZ\r\nContent-Disposition: form-data; name=\"model\""
+                        + "\r\n\r\n<x/>").getBytes(StandardCharsets.US_ASCII));
+        assertEquals(400, response.status);
+        assertEquals(200, request("GET", "/health", null, null).status);
+    }
+
+    @Test
+    public void testDrain() throws Exception {
+        assertTrue(server.drain(5, TimeUnit.SECONDS));
+        assertFalse(server.isReady());
+    }
+
+    private void addPart(ByteArrayOutputStream body, String name,
+            String fileName) throws IOException {
+        body.write(String.format(
+                "--%s\r\nContent-Disposition: form-data; name=\"%s\"; "
+                        + "filename=\"%s\"\r\n\r\n", BOUNDARY, name, fileName)
+                .getBytes(StandardCharsets.US_ASCII));
+        body.write(read(fileName));
+        body.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private byte[] read(String name) throws IOException {
+        return Files.readAllBytes(createFile(name).toPath());
+    }
+
+    private Response request(String method, String path, String contentType,
+            byte[] body) throws IOException {
+        URL url = new URL("http", "127.0.0.1", server.getAddress().getPort(),
+                path);
+        HttpURLConnection connection = (HttpURLConnection) url
+                .openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            if (contentType != null) {
+                connection.setRequestProperty("Content-Type", contentType);
+            }
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(body);
+            }
+        }
+        Response response = new Response();
+        response.status = connection.getResponseCode();
+        try (InputStream inputStream = response.status < 400 ? connection
+                .getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while (inputStream != null
+                    && (read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            response.body = new String(output.toByteArray(),
+                    StandardCharsets.UTF_8);
+        }
+        return response;
+    }
+
+    private static class Response {
+        private int status;
+        private String body;
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
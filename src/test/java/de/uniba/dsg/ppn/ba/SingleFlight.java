@@ -0,0 +1,193 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.concurrent.SingleFlightValidator;
+import de.uniba.dsg.ppn.ba.concurrent.ThreadLocalValidator;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+
+/**
+ * Test class for testing the coalescing of concurrent validations
+ *
+ * @version 1.0
+ *
+ */
+public class SingleFlight extends TestCase {
+
+    private static final int THREADS = 4;
+
+    @Test
+    public void testConcurrentValidationsAreCoalesced() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger validations = new AtomicInteger();
+        final SingleFlightValidator validator = new SingleFlightValidator(
+                new ThreadLocalValidator() {
+                    @Override
+                    public ValidationResult validate(File xmlFile)
+                            throws BpmnValidationException {
+                        validations.incrementAndGet();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new BpmnValidationException("interrupted");
+                        }
+                        return super.validate(xmlFile);
+                    }
+                });
+        final File file = createFile("fail_import.bpmn");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<ValidationResult>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(new Callable<ValidationResult>() {
+                @Override
+                public ValidationResult call() throws BpmnValidationException {
+                    return validator.validate(file);
+                }
+            }));
+        }
+        while (validator.getCoalescedValidations() < THREADS - 1) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        for (Future<ValidationResult> result : results) {
+            assertFalse(result.get().isValid());
+            assertEquals(8, result.get().getViolations().size());
+        }
+        assertNotSame(results.get(0).get(), results.get(1).get());
+        assertEquals(1, validations.get());
+        assertEquals(1, validator.getExecutedValidations());
+        assertEquals(THREADS - 1, validator.getCoalescedValidations());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testViolationsOfOtherVersionsAreNotShared() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger validations = new AtomicInteger();
+        final SingleFlightValidator validator = new SingleFlightValidator(
+                new ThreadLocalValidator() {
+                    @Override
+                    public ValidationResult validate(File xmlFile)
+                            throws BpmnValidationException {
+                        if (validations.incrementAndGet() == 1) {
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                throw new BpmnValidationException(
+                                        "interrupted");
+                            }
+                        }
+                        return super.validate(xmlFile);
+                    }
+                });
+        validator.setSemanticKeys(true);
+        String model = new String(Files.readAllBytes(createFile(
+                "fail_import.bpmn").toPath()), StandardCharsets.UTF_8);
+        final File original = copyModel("original", model);
+        final File reformatted = copyModel("reformatted",
+                model.replace("?>", "?>\n\n"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<ValidationResult> originalResult = executor
+                .submit(new Callable<ValidationResult>() {
+                    @Override
+                    public ValidationResult call()
+                            throws BpmnValidationException {
+                        return validator.validate(original);
+                    }
+                });
+        while (validations.get() == 0) {
+            Thread.sleep(10);
+        }
+        Future<ValidationResult> reformattedResult = executor
+                .submit(new Callable<ValidationResult>() {
+                    @Override
+                    public ValidationResult call()
+                            throws BpmnValidationException {
+                        return validator.validate(reformatted);
+                    }
+                });
+        Thread.sleep(100);
+        release.countDown();
+        assertEquals(originalResult.get().getViolations().get(0).getLine() + 2,
+                reformattedResult.get().getViolations().get(0).getLine());
+        assertEquals(2, validator.getExecutedValidations());
+        assertEquals(0, validator.getCoalescedValidations());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCompletedValidationsAreNotReused()
+            throws BpmnValidationException {
+        SingleFlightValidator validator = new SingleFlightValidator();
+        assertTrue(validator.validate(createFile("success_import.bpmn"))
+                .isValid());
+        assertTrue(validator.validate(createFile("success_import.bpmn"))
+                .isValid());
+        assertFalse(validator.validate(createFile("fail_import.bpmn"))
+                .isValid());
+        assertEquals(3, validator.getExecutedValidations());
+        assertEquals(0, validator.getCoalescedValidations());
+    }
+
+    @Test(expected = BpmnValidationException.class)
+    public void testMissingFile() throws BpmnValidationException {
+        new SingleFlightValidator().validate(createFile("missing.bpmn"));
+    }
+
+    private File copyModel(String folderName, String model) throws Exception {
+        Path folder = Files.createTempDirectory(folderName);
+        folder.toFile().deleteOnExit();
+        Files.copy(createFile("import.bpmn").toPath(),
+                folder.resolve("import.bpmn"));
+        folder.resolve("import.bpmn").toFile().deleteOnExit();
+        File file = Files.write(folder.resolve("fail_import.bpmn"),
+                model.getBytes(StandardCharsets.UTF_8)).toFile();
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.source.MapSource;
+import de.uniba.dsg.ppn.ba.source.PathSource;
+
+/**
+ * Test class for testing the validation of models, which are read from memory
+ * or from an archive instead of from disk
+ *
+ * @version 1.0
+ *
+ */
+public class Sources extends TestCase {
+
+    @Test
+    public void testMapSourceMatchesFileValidation() throws IOException,
+            BpmnValidationException {
+        MapSource source = new MapSource();
+        File model = source.put("models/fail_import.bpmn",
+                read("fail_import.bpmn"));
+        source.put("models/import.bpmn", read("import.bpmn"));
+
+        ValidationResult expected = validate(createFile("fail_import.bpmn"));
+        ValidationResult result = validator.validate(model, source);
+        assertFalse(result.isValid());
+        assertEquals(8, result.getViolations().size());
+        assertEquals(expected.getViolations().size(), result.getViolations()
+                .size());
+        assertEquals(expected.getCheckedFiles(), result.getCheckedFiles());
+    }
+
+    @Test
+    public void testMissingImportOfMapSourceIsReported() throws IOException,
+            BpmnValidationException {
+        MapSource source = new MapSource();
+        File model = source.put("fail_import.bpmn", read("fail_import.bpmn"));
+
+        ValidationResult result = validator.validate(model, source);
+        assertFalse(result.isValid());
+        boolean missingImport = false;
+        for (Violation violation : result.getViolations()) {
+            missingImport |= "EXT.001".equals(violation.getConstraint())
+                    && "import.bpmn".equals(violation.getFileName());
+        }
+        assertTrue(missingImport);
+    }
+
+    @Test
+    public void testZipArchiveIsValidatedWithoutExtraction()
+            throws IOException, BpmnValidationException {
+        Path archive = Files.createTempFile("models", ".zip");
+        Files.delete(archive);
+        URI uri = URI.create("jar:" + archive.toUri());
+        try {
+            try (FileSystem zip = FileSystems.newFileSystem(uri,
+                    Collections.singletonMap("create", "true"))) {
+                Files.createDirectory(zip.getPath("/processes"));
+                for (String name : new String[] { "import.bpmn",
+                        "success_import.bpmn", "fail_import.bpmn" }) {
+                    Files.copy(createFile(name).toPath(),
+                            zip.getPath("/processes", name));
+                }
+            }
+            try (FileSystem zip = FileSystems.newFileSystem(uri,
+                    Collections.<String, Object> emptyMap())) {
+                PathSource source = new PathSource(zip.getPath("/"));
+                assertTrue(validator.validate(
+                        source.getFile("processes/success_import.bpmn"),
+                        source).isValid());
+                ValidationResult result = validator.validate(
+                        source.getFile("processes/fail_import.bpmn"), source);
+                assertEquals(8, result.getViolations().size());
+            }
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    private byte[] read(String name) throws IOException {
+        return Files.readAllBytes(createFile(name).toPath());
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
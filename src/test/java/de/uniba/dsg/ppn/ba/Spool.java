@@ -0,0 +1,179 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.dsg.ppn.ba.spool.SpoolCoordinator;
+import de.uniba.dsg.ppn.ba.spool.SpoolDirectory;
+import de.uniba.dsg.ppn.ba.spool.SpoolOutcome;
+import de.uniba.dsg.ppn.ba.spool.SpoolTask;
+import de.uniba.dsg.ppn.ba.spool.SpoolWorker;
+
+/**
+ * Test class for testing the distribution of a job by a spool directory
+ *
+ * @version 1.0
+ *
+ */
+public class Spool extends TestCase {
+
+    private Path folder;
+    private SpoolDirectory spool;
+    private SpoolCoordinator coordinator;
+
+    @Before
+    public void createSpool() throws IOException {
+        folder = Files.createTempDirectory("spool");
+        spool = new SpoolDirectory(folder.toFile());
+        coordinator = new SpoolCoordinator(spool);
+        coordinator.setPollMillis(50);
+    }
+
+    @After
+    public void deleteSpool() throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file,
+                    BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory,
+                    IOException e) throws IOException {
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testWorkersInSeparateJvms() throws Exception {
+        assertEquals(3, coordinator.enqueue(models()));
+        Process firstWorker = coordinator.startLocalWorker();
+        Process secondWorker = coordinator.startLocalWorker();
+        assertTrue(coordinator.awaitCompletion(2, TimeUnit.MINUTES));
+        assertEquals(0, firstWorker.waitFor());
+        assertEquals(0, secondWorker.waitFor());
+        File reportFile = folder.resolve("report.json").toFile();
+        List<SpoolOutcome> outcomes = coordinator.writeReport(reportFile);
+        assertEquals(3, outcomes.size());
+        for (SpoolOutcome outcome : outcomes) {
+            assertNotNull(outcome.getResultFile());
+            if (outcome.getModel().getName().equals("fail_import.bpmn")) {
+                assertEquals("invalid", outcome.getStatus());
+                assertEquals(8, outcome.getViolations());
+            } else {
+                assertEquals("valid", outcome.getStatus());
+            }
+        }
+        String report = new String(Files.readAllBytes(reportFile.toPath()),
+                StandardCharsets.UTF_8);
+        assertTrue(report.startsWith("{\"total\":3,\"valid\":2,\"invalid\":1"));
+    }
+
+    @Test
+    public void testTaskIsClaimedOnce() throws IOException {
+        assertTrue(spool.enqueue("a", createFile("import.bpmn")));
+        SpoolTask task = spool.claim("first");
+        assertNotNull(task);
+        assertEquals("a", task.getName());
+        assertNull(spool.claim("second"));
+        assertFalse(spool.enqueue("a", createFile("import.bpmn")));
+        assertEquals(1, spool.getProgress().getClaimed());
+    }
+
+    @Test
+    public void testClaimsOfCrashedWorkersAreRequeued() throws Exception {
+        coordinator.enqueue(models());
+        spool.heartbeat("crashed");
+        assertNotNull(spool.claim("crashed"));
+        assertNotNull(spool.claim("crashed"));
+        assertEquals(0, spool.requeueStaleClaims(60000));
+        Files.setLastModifiedTime(folder.resolve("workers")
+                .resolve("crashed"), FileTime.fromMillis(System
+                .currentTimeMillis() - 120000));
+        assertEquals(2, spool.requeueStaleClaims(60000));
+        assertEquals(3, spool.getProgress().getPending());
+
+        SpoolWorker worker = new SpoolWorker(spool, validator, "worker");
+        worker.setPollMillis(50);
+        assertEquals(3, worker.run());
+        assertTrue(spool.getProgress().isDrained());
+        assertEquals(3, spool.getProgress().getDone());
+        for (SpoolOutcome outcome : spool.getOutcomes()) {
+            assertEquals("worker", outcome.getWorkerId());
+        }
+    }
+
+    @Test
+    public void testCrashingTaskFailsAfterMaxAttempts() throws Exception {
+        spool.setMaxAttempts(2);
+        assertTrue(spool.enqueue("a", createFile("import.bpmn")));
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            assertNotNull(spool.claim("crashed"));
+            Files.setLastModifiedTime(folder.resolve("claimed").resolve(
+                    "a.task@crashed"), FileTime.fromMillis(System
+                    .currentTimeMillis() - 120000));
+            assertEquals(attempt < 2 ? 1 : 0, spool.requeueStaleClaims(60000));
+        }
+        assertTrue(spool.getProgress().isDrained());
+        List<SpoolOutcome> outcomes = spool.getOutcomes();
+        assertEquals(1, outcomes.size());
+        assertEquals("failed", outcomes.get(0).getStatus());
+        assertEquals("crashed", outcomes.get(0).getWorkerId());
+        assertFalse(spool.enqueue("a", createFile("import.bpmn")));
+    }
+
+    private List<File> models() {
+        return Arrays.asList(createFile("fail_import.bpmn"),
+                createFile("success_import.bpmn"), createFile("import.bpmn"));
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
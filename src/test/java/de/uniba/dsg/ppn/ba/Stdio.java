@@ -0,0 +1,238 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.uniba.dsg.ppn.ba.concurrent.MemoryBudget;
+import de.uniba.dsg.ppn.ba.concurrent.MemoryEstimator;
+import de.uniba.dsg.ppn.ba.json.JsonReader;
+import de.uniba.dsg.ppn.ba.json.JsonWriter;
+import de.uniba.dsg.ppn.ba.server.StdioServer;
+
+/**
+ * Test class for testing the stdio JSON-RPC protocol
+ *
+ * @version 1.0
+ *
+ */
+public class Stdio extends TestCase {
+
+    @Test
+    public void testValidateFile() throws Exception {
+        List<Map<String, Object>> messages = run(request(1, "validateFile",
+                "{\"path\":" + JsonWriter.quote(createFile("fail_import.bpmn")
+                        .getPath()) + "}"));
+        assertEquals(8, getNotifications(messages, 1L).size());
+        Map<String, Object> result = getResult(messages, 1L);
+        assertEquals(Boolean.FALSE, result.get("valid"));
+        assertEquals(8L, result.get("violations"));
+    }
+
+    @Test
+    public void testValidateContentWithImports() throws Exception {
+        Map<String, Object> imports = new LinkedHashMap<>();
+        imports.put("import.bpmn", read("import.bpmn"));
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("name", "fail_import.bpmn");
+        params.put("content", read("fail_import.bpmn"));
+        params.put("imports", imports);
+        List<Map<String, Object>> messages = run(request("a",
+                "validateContent", JsonWriter.writeValue(params)));
+        List<Map<String, Object>> notifications = getNotifications(messages,
+                "a");
+        assertEquals(8, notifications.size());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> violation = (Map<String, Object>) notifications
+                .get(0).get("violation");
+        assertEquals("fail_import.bpmn", violation.get("fileName"));
+        assertEquals(Arrays.asList("fail_import.bpmn", "import.bpmn"),
+                getResult(messages, "a").get("checkedFiles"));
+    }
+
+    @Test
+    public void testProtocolErrors() throws Exception {
+        List<Map<String, Object>> messages = run("{not json",
+                request(2, "unknown", "{}"), request(3, "cancel", "{\"id\":9}"),
+                request(4, "invalidateCache", "{}"),
+                request(5, "validateFile", "{}"));
+        assertEquals(-32700L, getError(messages, null).get("code"));
+        assertEquals(-32601L, getError(messages, 2L).get("code"));
+        assertEquals(Boolean.FALSE, getResponse(messages, 3L).get("result"));
+        assertEquals(Boolean.TRUE, getResponse(messages, 4L).get("result"));
+        assertEquals(-32602L, getError(messages, 5L).get("code"));
+    }
+
+    @Test
+    public void testShutdownIsAnsweredLast() throws Exception {
+        List<Map<String, Object>> messages = run(
+                request(1, "validateFile", "{\"path\":"
+                        + JsonWriter.quote(createFile("import.bpmn")
+                                .getPath()) + "}"),
+                request(2, "shutdown", "{}"),
+                request(3, "validateFile", "{}"));
+        Map<String, Object> last = messages.get(messages.size() - 1);
+        assertEquals(2L, last.get("id"));
+        assertNull(last.get("result"));
+        assertEquals(Boolean.TRUE, getResult(messages, 1L).get("valid"));
+        assertNull(getResponse(messages, 3L));
+    }
+
+    @Test
+    public void testUnexpectedFailureIsAnswered() throws Exception {
+        MemoryBudget memoryBudget = new MemoryBudget(1024 * 1024,
+                new MemoryEstimator() {
+                    @Override
+                    public long estimate(File xmlFile) {
+                        throw new IllegalStateException("estimate failed");
+                    }
+                });
+        List<Map<String, Object>> messages = run(memoryBudget,
+                request(1, "validateFile", "{\"path\":"
+                        + JsonWriter.quote(createFile("import.bpmn")
+                                .getPath()) + "}"));
+        assertEquals(-32000L, getError(messages, 1L).get("code"));
+        assertEquals(0, memoryBudget.getReservedBytes());
+    }
+
+    @Test
+    public void testValidationsAreAdmittedByBudget() throws Exception {
+        MemoryBudget memoryBudget = new MemoryBudget(Long.MAX_VALUE);
+        List<Map<String, Object>> messages = run(memoryBudget,
+                request(1, "validateFile", "{\"path\":"
+                        + JsonWriter.quote(createFile("import.bpmn")
+                                .getPath()) + "}"),
+                request(2, "validateContent", "{\"content\":"
+                        + JsonWriter.quote(read("import.bpmn")) + "}"));
+        assertEquals(Boolean.TRUE, getResult(messages, 1L).get("valid"));
+        assertEquals(Boolean.TRUE, getResult(messages, 2L).get("valid"));
+        assertEquals(2, memoryBudget.getAdmittedValidations());
+        assertEquals(0, memoryBudget.getReservedBytes());
+    }
+
+    @Test
+    public void testJsonEscapes() throws IOException {
+        String value = "line\n\"quoted\" \\ \u0001";
+        assertEquals(value, JsonReader.read(JsonWriter.quote(value)));
+        assertEquals(Arrays.asList(1L, 2.5, null, true),
+                JsonReader.read(" [1, 2.5, null, true] "));
+    }
+
+    private String request(Object id, String method, String params) {
+        return String.format(
+                "{\"jsonrpc\":\"2.0\",\"id\":%s,\"method\":\"%s\",\"params\":%s}",
+                JsonWriter.writeValue(id), method, params);
+    }
+
+    private List<Map<String, Object>> run(String... lines) throws Exception {
+        return run(MemoryBudget.ofMaxHeap(0.75), lines);
+    }
+
+    private List<Map<String, Object>> run(MemoryBudget memoryBudget,
+            String... lines) throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (String line : lines) {
+            input.append(line).append('\n');
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StdioServer server = new StdioServer(new ByteArrayInputStream(input
+                .toString().getBytes(StandardCharsets.UTF_8)), output, 2);
+        server.setMemoryBudget(memoryBudget);
+        server.run();
+        List<Map<String, Object>> messages = new ArrayList<>();
+        for (String line : new String(output.toByteArray(),
+                StandardCharsets.UTF_8).split("\n")) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> message = (Map<String, Object>) JsonReader
+                    .read(line);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> getNotifications(
+            List<Map<String, Object>> messages, Object id) {
+        List<Map<String, Object>> notifications = new ArrayList<>();
+        for (Map<String, Object> message : messages) {
+            Map<String, Object> params = (Map<String, Object>) message
+                    .get("params");
+            if ("violation".equals(message.get("method"))
+                    && id.equals(params.get("id"))) {
+                notifications.add(params);
+            }
+        }
+        return notifications;
+    }
+
+    private Map<String, Object> getResponse(
+            List<Map<String, Object>> messages, Object id) {
+        for (Map<String, Object> message : messages) {
+            if (message.containsKey("id")
+                    && (id == null ? message.get("id") == null : id
+                            .equals(message.get("id")))) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getResult(List<Map<String, Object>> messages,
+            Object id) {
+        return (Map<String, Object>) getResponse(messages, id).get("result");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getError(List<Map<String, Object>> messages,
+            Object id) {
+        Map<String, Object> response = getResponse(messages, id);
+        assertTrue(response.containsKey("error"));
+        return (Map<String, Object>) response.get("error");
+    }
+
+    private String read(String name) throws IOException {
+        return new String(Files.readAllBytes(createFile(name).toPath()),
+                StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
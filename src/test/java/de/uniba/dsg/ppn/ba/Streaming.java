@@ -0,0 +1,132 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.uniba.dsg.ppn.ba.concurrent.AsyncBpmnValidator;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationStream;
+
+/**
+ * Test class for testing the streaming validation with bounded in-flight work
+ *
+ * @version 1.0
+ *
+ */
+public class Streaming extends TestCase {
+
+    private final AsyncBpmnValidator asyncValidator = new AsyncBpmnValidator();
+
+    @After
+    public void shutdown() {
+        asyncValidator.shutdown();
+    }
+
+    @Test
+    public void testBoundedInFlight() {
+        CountingSource source = new CountingSource(createFile("Fail.bpmn"),
+                20);
+        ValidationStream stream = asyncValidator.validateStream(source, 3);
+        source.stream = stream;
+        assertEquals(0, source.taken);
+        int consumed = 0;
+        while (stream.hasNext()) {
+            ValidationOutcome outcome = stream.next();
+            consumed++;
+            assertTrue(outcome.isSuccessful());
+            assertFalse(outcome.getResult().isValid());
+            assertTrue(source.taken <= consumed + 3);
+            assertTrue(stream.getInFlightCount() <= 3);
+        }
+        assertEquals(20, consumed);
+        assertTrue(source.maxInFlightAtTake < 3);
+    }
+
+    @Test
+    public void testClose() {
+        CountingSource source = new CountingSource(createFile("Fail.bpmn"),
+                Integer.MAX_VALUE);
+        ValidationStream stream = asyncValidator.validateStream(source, 2);
+        assertTrue(stream.next().isSuccessful());
+        stream.close();
+        assertFalse(stream.hasNext());
+        assertTrue(source.taken <= 3);
+    }
+
+    @Test
+    public void testFailedValidation() {
+        CountingSource source = new CountingSource(
+                createFile("doesNotExist.bpmn"), 1);
+        ValidationStream stream = asyncValidator.validateStream(source, 1);
+        ValidationOutcome outcome = stream.next();
+        assertFalse(outcome.isSuccessful());
+        assertFalse(stream.hasNext());
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "001";
+    }
+
+    private static class CountingSource implements Iterator<File> {
+
+        private final File file;
+        private final int size;
+        private int taken;
+        private ValidationStream stream;
+        private int maxInFlightAtTake;
+
+        CountingSource(File file, int size) {
+            this.file = file;
+            this.size = size;
+        }
+
+        @Override
+        public synchronized boolean hasNext() {
+            return taken < size;
+        }
+
+        @Override
+        public synchronized File next() {
+            if (stream != null) {
+                maxInFlightAtTake = Math.max(maxInFlightAtTake,
+                        stream.getInFlightCount());
+            }
+            taken++;
+            return file;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.ppn.ba.helper.ParserProfile;
+import de.uniba.dsg.ppn.ba.source.MapSource;
+import de.uniba.dsg.ppn.ba.validation.StreamingBpmnValidator;
+
+/**
+ * Test class for testing the streaming validation of the local constraints,
+ * which must find the same violations as the schematron validation
+ *
+ * @version 1.0
+ *
+ */
+public class StreamingValidation extends TestCase {
+
+    private final static List<String> CONSTRAINTS = Arrays.asList("EXT.036",
+            "EXT.056", "EXT.079", "EXT.096", "EXT.101", "EXT.102", "EXT.104",
+            "EXT.107", "EXT.108", "EXT.135");
+
+    private final StreamingBpmnValidator streamingValidator;
+
+    {
+        streamingValidator = new StreamingBpmnValidator();
+    }
+
+    @After
+    public void resetProfile() {
+        ParserProfile.setCurrent(ParserProfile.DEFAULT);
+    }
+
+    @Test
+    public void testLocalConstraintsAsSchematron() throws Exception {
+        String[] fileNames = { "036/fail_call_choreography.bpmn",
+                "036/fail_choreography_task.bpmn",
+                "056/fail_choreography_task_transaction.bpmn",
+                "056/fail_sub_choreography.bpmn", "079/fail.bpmn",
+                "079/success.bpmn", "096/Fail.bpmn", "101/fail.bpmn",
+                "101/success.bpmn", "102/Fail.bpmn", "104/fail.bpmn",
+                "104/success.bpmn", "107/fail.bpmn", "108/Fail.bpmn",
+                "135/fail.bpmn", "135/fail_ex_no_connection.bpmn",
+                "135/success_multiple_in_and_out.bpmn" };
+        for (String fileName : fileNames) {
+            File file = new File(getTestFilePath(), fileName);
+            List<Violation> expected = new ArrayList<>();
+            for (Violation v : validate(file).getViolations()) {
+                if (CONSTRAINTS.contains(v.getConstraint())) {
+                    expected.add(v);
+                }
+            }
+            ValidationResult result = streamingValidator.validate(file);
+            assertEquals(fileName, expected.size(), result.getViolations()
+                    .size());
+            assertEquals(expected.isEmpty(), result.isValid());
+            for (int i = 0; i < expected.size(); i++) {
+                Violation v = result.getViolations().get(i);
+                assertEquals(fileName, expected.get(i).getConstraint(),
+                        v.getConstraint());
+                assertViolation(v, expected.get(i).getMessage(), expected
+                        .get(i).getxPath(), expected.get(i).getLine());
+            }
+        }
+    }
+
+    @Test
+    public void testDocumentSizeIsNotLimitedByProfile() throws Exception {
+        File file = new File(getTestFilePath(), "096/Fail.bpmn");
+        ParserProfile.setCurrent(ParserProfile.DEFAULT
+                .withMaxDocumentSize(512));
+        ValidationResult result = new StreamingBpmnValidator().validate(file);
+        assertEquals(1, result.getViolations().size());
+        assertEquals("EXT.096", result.getViolations().get(0).getConstraint());
+
+        StreamingBpmnValidator limitedValidator = new StreamingBpmnValidator();
+        limitedValidator.setMaxDocumentSize(512);
+        result = limitedValidator.validate(file);
+        assertEquals(1, result.getViolations().size());
+        Violation v = result.getViolations().get(0);
+        assertEquals("XSD-Check", v.getConstraint());
+        assertTrue(v.getMessage().contains("maximum document size"));
+    }
+
+    @Test
+    public void testMalformedFileIsRejected() throws Exception {
+        MapSource source = new MapSource();
+        File model = source.put("malformed.bpmn",
+                "<definitions>\n  <process></definitions>"
+                        .getBytes(StandardCharsets.UTF_8));
+        ValidationResult result = streamingValidator.validate(model, source);
+        assertFalse(result.isValid());
+        assertEquals(1, result.getViolations().size());
+        Violation v = result.getViolations().get(0);
+        assertEquals("XSD-Check", v.getConstraint());
+        assertEquals(2, v.getLine());
+        assertTrue(v.getMessage().contains("(column "));
+        assertEquals("malformed.bpmn", result.getCheckedFiles().get(0));
+    }
+}
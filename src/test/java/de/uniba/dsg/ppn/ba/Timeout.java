@@ -0,0 +1,191 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.oclc.purl.dsdl.svrl.SchematronOutputType;
+import org.w3c.dom.Document;
+
+import com.phloc.schematron.ISchematronResource;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationPipeline;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+import de.uniba.dsg.ppn.ba.validation.SchematronBPMNValidator;
+import de.uniba.dsg.ppn.ba.validation.ValidationCancelledException;
+import de.uniba.dsg.ppn.ba.validation.ValidationDeadline;
+import de.uniba.dsg.ppn.ba.validation.ValidationJob;
+import de.uniba.dsg.ppn.ba.validation.ValidationStage;
+
+/**
+ * Test class for testing the deadlines of validations
+ *
+ * @version 1.0
+ *
+ */
+public class Timeout extends TestCase {
+
+    private final SchematronBPMNValidator validator = new SchematronBPMNValidator();
+
+    @Test
+    public void testValidationWithinTimeout() throws Exception {
+        validator.setTimeout(1, TimeUnit.MINUTES);
+        ValidationResult result = validator
+                .validate(createFile("fail_import.bpmn"));
+        assertFalse(result.isTimedOut());
+        assertNull(result.getTimedOutStage());
+        assertEquals(8, result.getViolations().size());
+    }
+
+    @Test
+    public void testTimeoutBeforeFirstStage() throws Exception {
+        ValidationJob job = new ValidationJob(createFile("fail_import.bpmn"));
+        job.setDeadline(ValidationDeadline.after(1, TimeUnit.MILLISECONDS));
+        Thread.sleep(5);
+        validator.runStage(ValidationStage.READ, job);
+        assertTrue(job.isCompleted());
+        ValidationResult result = job.getValidationResult();
+        assertFalse(result.isValid());
+        assertEquals(ValidationStage.READ.name(), result.getTimedOutStage());
+    }
+
+    @Test
+    public void testTimeoutKeepsPartialResult() throws Exception {
+        ValidationJob job = new ValidationJob(createFile("fail_import.bpmn"));
+        validator.runStage(ValidationStage.READ, job);
+        validator.runStage(ValidationStage.SCAN, job);
+        validator.runStage(ValidationStage.PARSE, job);
+        validator.runStage(ValidationStage.XSD, job);
+        int xsdViolations = job.getValidationResult().getViolations().size();
+        job.setDeadline(ValidationDeadline.after(1, TimeUnit.MILLISECONDS));
+        Thread.sleep(5);
+        validator.runStage(ValidationStage.PREPROCESS, job);
+        assertTrue(job.isCompleted());
+        ValidationResult result = job.getValidationResult();
+        assertTrue(result.isTimedOut());
+        assertEquals(ValidationStage.PREPROCESS.name(),
+                result.getTimedOutStage());
+        assertEquals(xsdViolations, result.getViolations().size());
+        assertEquals("fail_import.bpmn", result.getCheckedFiles().get(0));
+    }
+
+    @Test
+    public void testDeadlineCheckStopsInterruptedValidation() throws Exception {
+        ValidationJob job = new ValidationJob(createFile("fail_import.bpmn"));
+        validator.runStage(ValidationStage.READ, job);
+        Thread.currentThread().interrupt();
+        try {
+            ValidationDeadline.NONE.check(ValidationStage.XSD);
+            fail("interrupted validation wasn't stopped");
+        } catch (ValidationCancelledException e) {
+            assertEquals(ValidationStage.XSD, e.getStage());
+        }
+        try {
+            validator.runStage(ValidationStage.SCAN, job);
+            fail("interrupted validation wasn't stopped");
+        } catch (BpmnValidationException e) {
+            assertFalse(job.isCompleted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testAbandonedSchematronValidationsAreBounded()
+            throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final Set<ISchematronResource> schemas = Collections
+                .newSetFromMap(new ConcurrentHashMap<ISchematronResource, Boolean>());
+        SchematronBPMNValidator runawayValidator = new SchematronBPMNValidator() {
+            @Override
+            protected SchematronOutputType applySchematron(
+                    ISchematronResource schema, Document document)
+                    throws Exception {
+                schemas.add(schema);
+                running.incrementAndGet();
+                try {
+                    while (release.getCount() > 0) {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            // runaway rules don't notice the interruption
+                        }
+                    }
+                    return super.applySchematron(schema, document);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        };
+        try {
+            runawayValidator.setTimeout(200, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 4; i++) {
+                assertEquals(ValidationStage.SCHEMATRON.name(),
+                        runawayValidator.validate(
+                                createFile("fail_import.bpmn"))
+                                .getTimedOutStage());
+            }
+            assertEquals(2, running.get());
+        } finally {
+            release.countDown();
+        }
+        while (running.get() > 0) {
+            Thread.sleep(10);
+        }
+        runawayValidator.setTimeout(1, TimeUnit.MINUTES);
+        ValidationResult result = runawayValidator
+                .validate(createFile("fail_import.bpmn"));
+        assertFalse(result.isTimedOut());
+        assertEquals(8, result.getViolations().size());
+        assertEquals(2, schemas.size());
+    }
+
+    @Test
+    public void testPipelineWithinTimeout() throws Exception {
+        ValidationPipeline pipeline = new ValidationPipeline();
+        pipeline.setTimeout(1, TimeUnit.MINUTES);
+        ValidationResult result = pipeline.validateFiles(
+                Arrays.asList(createFile("fail_import.bpmn"))).get(0);
+        assertFalse(result.isTimedOut());
+        assertEquals(8, result.getViolations().size());
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.dsg.bpmnspector.common.ValidationResult;
+import de.uniba.dsg.bpmnspector.common.Violation;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.CacheableXsdValidator;
+import de.uniba.dsg.bpmnspector.common.xsdvalidation.XsdVerdictCache;
+import de.uniba.dsg.ppn.ba.helper.BpmnValidationException;
+
+/**
+ * Test class for testing the persistent cache of xsd verdicts
+ *
+ * @version 1.0
+ *
+ */
+public class VerdictCaching extends TestCase {
+
+    private Path folder;
+    private File cacheDirectory;
+
+    @Before
+    public void createFolder() throws IOException {
+        folder = Files.createTempDirectory("verdict-cache");
+        cacheDirectory = folder.resolve("cache").toFile();
+    }
+
+    @After
+    public void deleteFolder() throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file,
+                    BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory,
+                    IOException e) throws IOException {
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Test
+    public void testVerdictIsReusedAcrossRuns() throws Exception {
+        File file = writeFile("types.xsd", "<schema/>");
+        CountingValidator validator = new CountingValidator();
+        XsdVerdictCache firstRun = new XsdVerdictCache(cacheDirectory);
+        validator.setVerdictCache(firstRun);
+        ValidationResult expected = validate(validator, file);
+
+        XsdVerdictCache secondRun = new XsdVerdictCache(cacheDirectory);
+        validator.setVerdictCache(secondRun);
+        ValidationResult result = validate(validator, file);
+
+        assertEquals(1, validator.validations);
+        assertEquals(1, firstRun.getMisses());
+        assertEquals(1, secondRun.getHits());
+        assertEquals(expected.isValid(), result.isValid());
+        assertEquals(expected.getViolations().toString(), result
+                .getViolations().toString());
+    }
+
+    @Test
+    public void testVerdictIsAddressedByContent() throws Exception {
+        CountingValidator validator = new CountingValidator();
+        XsdVerdictCache verdictCache = new XsdVerdictCache(cacheDirectory);
+        validator.setVerdictCache(verdictCache);
+        validate(validator, writeFile("types.xsd", "<schema/>"));
+        ValidationResult result = validate(validator,
+                writeFile("copy.xsd", "<schema/>"));
+        validate(validator, writeFile("other.xsd", "<schema></schema>"));
+
+        assertEquals(2, validator.validations);
+        assertEquals(1, verdictCache.getHits());
+        Violation violation = result.getViolations().get(0);
+        assertEquals("copy.xsd", violation.getFileName());
+        assertEquals(3, violation.getLine());
+        assertEquals("XML-Check", violation.getConstraint());
+    }
+
+    @Test
+    public void testFailureIsRepeated() throws Exception {
+        File file = writeFile("broken.xsd", "<broken");
+        CountingValidator validator = new CountingValidator();
+        validator.setVerdictCache(new XsdVerdictCache(cacheDirectory));
+        for (int i = 0; i < 2; i++) {
+            ValidationResult result = new ValidationResult();
+            result.setValid(true);
+            try {
+                validator.validateAgainstXsd(file, result);
+                fail("not well-formed file must cancel the validation");
+            } catch (BpmnValidationException e) {
+                assertFalse(result.isValid());
+                assertEquals(1, result.getViolations().size());
+            }
+        }
+        assertEquals(1, validator.validations);
+    }
+
+    @Test
+    public void testCorruptVerdictIsIgnored() throws Exception {
+        File file = writeFile("types.xsd", "<schema/>");
+        CountingValidator validator = new CountingValidator();
+        validator.setVerdictCache(new XsdVerdictCache(cacheDirectory));
+        validate(validator, file);
+        File[] verdicts = new File(cacheDirectory,
+                validator.getSchemaVersion()).listFiles();
+        assertEquals(1, verdicts.length);
+        Files.write(verdicts[0].toPath(),
+                "violations=x".getBytes(StandardCharsets.UTF_8));
+
+        ValidationResult result = validate(validator, file);
+        assertEquals(2, validator.validations);
+        assertEquals(1, result.getViolations().size());
+        assertTrue(result.isValid());
+    }
+
+    private ValidationResult validate(CacheableXsdValidator validator,
+            File file) throws Exception {
+        ValidationResult result = new ValidationResult();
+        result.setValid(true);
+        validator.validateAgainstXsd(file, result);
+        return result;
+    }
+
+    private File writeFile(String name, String content) throws IOException {
+        return Files.write(folder.resolve(name),
+                content.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+
+    /**
+     * reports a violation for every file and cancels the validation of files
+     * starting with a broken tag like the validators of the imported files
+     */
+    private static class CountingValidator extends CacheableXsdValidator {
+
+        private int validations;
+
+        @Override
+        protected String[] getSchemaResourceNames() {
+            return new String[] { "XMLSchema.xsd" };
+        }
+
+        @Override
+        protected void validateAgainstSchema(File xmlFile,
+                ValidationResult validationResult) throws IOException,
+                BpmnValidationException {
+            validations++;
+            validationResult.getViolations().add(
+                    new Violation("XML-Check", xmlFile.getName(), 3, "",
+                            "violation"));
+            if (new String(Files.readAllBytes(xmlFile.toPath()),
+                    StandardCharsets.UTF_8).startsWith("<broken")) {
+                validationResult.setValid(false);
+                throw new BpmnValidationException(
+                        "Cancel Validation as checked File is not well-formed.");
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcome;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationOutcomeHandler;
+import de.uniba.dsg.ppn.ba.watch.ImportGraph;
+import de.uniba.dsg.ppn.ba.watch.ModelWatcher;
+
+/**
+ * Test class for testing the incremental validation of watched models
+ *
+ * @version 1.0
+ *
+ */
+public class Watching extends TestCase {
+
+    private final List<ValidationOutcome> outcomes = Collections
+            .synchronizedList(new ArrayList<ValidationOutcome>());
+    private Path folder;
+    private ModelWatcher watcher;
+
+    @Before
+    public void startWatcher() throws IOException {
+        folder = Files.createTempDirectory("watch");
+        for (String name : new String[] { "fail_import.bpmn",
+                "success_import.bpmn", "import.bpmn" }) {
+            copy(name, name);
+        }
+        watcher = new ModelWatcher(validator, new ValidationOutcomeHandler() {
+            @Override
+            public void handle(ValidationOutcome outcome) {
+                outcomes.add(outcome);
+            }
+        });
+        watcher.setQuietMillis(200);
+        assertEquals(3, watcher.watch(folder.toFile()).size());
+    }
+
+    @After
+    public void stopWatcher() throws IOException {
+        watcher.close();
+        for (File file : folder.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(folder);
+    }
+
+    @Test
+    public void testInitialValidation() {
+        watcher.validateAll();
+        assertEquals(3, outcomes.size());
+        for (ValidationOutcome outcome : outcomes) {
+            assertTrue(outcome.isSuccessful());
+        }
+    }
+
+    @Test
+    public void testChangedImportRevalidatesImporters() throws Exception {
+        touch("import.bpmn");
+        List<File> validatedModels = watcher.awaitChanges(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(model("fail_import.bpmn"),
+                model("import.bpmn"), model("success_import.bpmn")),
+                validatedModels);
+        assertEquals(3, outcomes.size());
+    }
+
+    @Test
+    public void testChangedModelIsRevalidatedAlone() throws Exception {
+        touch("fail_import.bpmn");
+        List<File> validatedModels = watcher.awaitChanges(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(model("fail_import.bpmn")),
+                validatedModels);
+        assertEquals(8, outcomes.get(0).getResult().getViolations().size());
+    }
+
+    @Test
+    public void testCreatedModelIsValidated() throws Exception {
+        copy("fail_import.bpmn", "new.bpmn");
+        List<File> validatedModels = watcher.awaitChanges(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(model("new.bpmn")), validatedModels);
+        assertTrue(watcher.getImportGraph().getImporters(model("import.bpmn"))
+                .contains(model("new.bpmn")));
+    }
+
+    @Test
+    public void testDeletedImportRevalidatesImporters() throws Exception {
+        Files.delete(folder.resolve("import.bpmn"));
+        List<File> validatedModels = watcher.awaitChanges(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(model("fail_import.bpmn"),
+                model("success_import.bpmn")), validatedModels);
+        assertFalse(outcomes.get(1).getResult().isValid());
+        assertFalse(watcher.getModels().contains(model("import.bpmn")));
+    }
+
+    @Test
+    public void testUnrelatedFilesAreIgnored() throws Exception {
+        Files.write(folder.resolve("validation_result_import.bpmn.xml"),
+                new byte[] { '<', 'a', '/', '>' });
+        assertTrue(watcher.awaitChanges(1, TimeUnit.SECONDS).isEmpty());
+        assertTrue(outcomes.isEmpty());
+    }
+
+    @Test
+    public void testTransitiveImporters() {
+        ImportGraph graph = new ImportGraph();
+        File a = new File("a.bpmn");
+        File b = new File("b.bpmn");
+        File c = new File("c.wsdl");
+        graph.setImports(a, Arrays.asList(b));
+        graph.setImports(b, Arrays.asList(c, a));
+        assertEquals(
+                Arrays.asList(ImportGraph.normalize(c),
+                        ImportGraph.normalize(b), ImportGraph.normalize(a)),
+                new ArrayList<>(graph.getAffectedFiles(c)));
+        graph.setImports(b, Collections.<File> emptyList());
+        assertEquals(1, graph.getAffectedFiles(c).size());
+        assertFalse(graph.isImported(c));
+    }
+
+    private File model(String name) {
+        return folder.resolve(name).toFile();
+    }
+
+    private void copy(String name, String target) throws IOException {
+        Files.copy(createFile(name).toPath(), folder.resolve(target),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void touch(String name) throws IOException {
+        Path file = folder.resolve(name);
+        Files.write(file, Files.readAllBytes(file));
+    }
+
+    @Override
+    protected String getExtNumber() {
+        return "002";
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ *
+ * BPMN Validation Project to validate special BPMN Constraints, see \README.md
+ *
+ * Copyright (C) 2014 Philipp Neugebauer
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package de.uniba.dsg.ppn.ba.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import ch.qos.logback.classic.Level;
+import de.uniba.dsg.ppn.ba.concurrent.AsyncBpmnValidator;
+import de.uniba.dsg.ppn.ba.concurrent.ExecutionMode;
+import de.uniba.dsg.ppn.ba.concurrent.ThreadLocalValidator;
+import de.uniba.dsg.ppn.ba.concurrent.ValidationFuture;
+
+/**
+ * Compares the validation throughput of the execution modes on a corpus of
+ * bpmn files. To measure an I/O-bound corpus, the corpus directory should be
+ * located on the storage of interest, e.g. a network share.
+ * <p>
+ * Usage: {@code ExecutionModeBenchmark [corpus directory] [rounds]}, the
+ * corpus defaults to the test resources.
+ *
+ * @version 1.0
+ *
+ */
+@SuppressWarnings("PMD.SystemPrintln")
+public class ExecutionModeBenchmark {
+
+    public static void main(String... args) throws IOException,
+            InterruptedException, ExecutionException {
+        Path corpus = Paths.get(args.length > 0 ? args[0]
+                : "src/test/resources");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        List<File> files = collectBpmnFiles(corpus);
+        new ThreadLocalValidator().setLogLevel(Level.OFF);
+        System.out.println(String.format("corpus: %s (%d files), rounds: %d",
+                corpus, files.size(), rounds));
+
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            AsyncBpmnValidator validator = new AsyncBpmnValidator(mode);
+            // warm-up round for schema compilation and JIT
+            validateAll(validator, files);
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                validateAll(validator, files);
+            }
+            long millis = (System.nanoTime() - start) / 1000000 / rounds;
+            System.out.println(String.format(
+                    "%-9s threads: %3d, ms per round: %6d, files/s: %8.1f",
+                    mode, mode.getValidationThreads(), millis,
+                    files.size() * 1000.0 / Math.max(millis, 1)));
+            validator.shutdown();
+        }
+    }
+
+    private static void validateAll(AsyncBpmnValidator validator,
+            List<File> files) throws InterruptedException {
+        for (ValidationFuture future : validator.validateAllAsync(files)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // invalid corpus files are part of the corpus
+            }
+        }
+    }
+
+    private static List<File> collectBpmnFiles(Path corpus) throws IOException {
+        final List<File> files = new ArrayList<>();
+        Files.walkFileTree(corpus, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file,
+                    BasicFileAttributes attrs) {
+                if (file.toString().endsWith(".bpmn")) {
+                    files.add(file.toAbsolutePath().toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+}